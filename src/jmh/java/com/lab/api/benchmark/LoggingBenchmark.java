@@ -0,0 +1,156 @@
+package com.lab.api.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.lab.api.log.LogContext;
+import com.lab.api.log.SamplingTurboFilter;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo dos logs de uma mensagem de resultado HL7 (as mesmas linhas que o dispatcher, o parser e o
+ * LabOrderService gravam) por nível de log e forma de saída, medido na thread que loga (a do listener).
+ * <ul>
+ *     <li>SYNC_TEXT: configuração padrão (texto, gravação síncrona);</li>
+ *     <li>ASYNC_JSON: perfil prod sem amostragem (JSON via AsyncAppender, neverBlock);</li>
+ *     <li>ASYNC_JSON_SAMPLED: perfil prod completo, com o {@link SamplingTurboFilter}.</li>
+ * </ul>
+ * Nos modos assíncronos, eventos INFO podem ser descartados com a fila cheia, exatamente como em produção.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@jmh -Djmh.args="LoggingBenchmark -f 1 -wi 3 -i 5"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LoggingBenchmark {
+
+    public enum Output {
+        SYNC_TEXT, ASYNC_JSON, ASYNC_JSON_SAMPLED
+    }
+
+    @Param({"SYNC_TEXT", "ASYNC_JSON", "ASYNC_JSON_SAMPLED"})
+    private Output output;
+
+    @Param({"DEBUG", "INFO", "WARN"})
+    private String level;
+
+    private LoggerContext context;
+    private Path logFile;
+    private org.slf4j.Logger dispatcherLog;
+    private org.slf4j.Logger parserLog;
+    private org.slf4j.Logger orderLog;
+    private long sequence;
+
+    @Setup
+    public void setup() throws IOException {
+        logFile = Files.createTempFile("logging-benchmark", ".log");
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder());
+        file.start();
+
+        Appender<ILoggingEvent> appender = file;
+        if (output != Output.SYNC_TEXT) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+        if (output == Output.ASYNC_JSON_SAMPLED) {
+            SamplingTurboFilter sampling = new SamplingTurboFilter();
+            sampling.setContext(context);
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.WARN);
+        root.addAppender(appender);
+        context.getLogger("com.lab.api").setLevel(Level.toLevel(level));
+
+        dispatcherLog = LoggerFactory.getLogger("com.lab.api.service.ProtocolDispatcherMessageHandler");
+        parserLog = LoggerFactory.getLogger("com.lab.api.parser.hl7.Hl7ParserService");
+        orderLog = LoggerFactory.getLogger("com.lab.api.service.LabOrderService");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void resultMessage() {
+        String sampleId = "S" + (sequence++ % 10_000);
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(LogContext.EQUIPMENT_ID, "maglumi-x3")) {
+            LogContext.message(sampleId, "CTRL-" + sequence);
+            dispatcherLog.info("Recebida mensagem do equipamento [{}]. Protocolo: {}.", "MAGLUMI X3", "HL7");
+            dispatcherLog.info("Mensagem identificada como um RESULTADO. Iniciando processamento.");
+            parserLog.info("Iniciando parse da mensagem HL7...");
+            if (parserLog.isDebugEnabled()) {
+                parserLog.debug("=== DADOS PARSEADOS COM HAPI ===");
+                parserLog.debug("ID de Controle: {}", "CTRL-" + sequence);
+                parserLog.debug("Aplicação: {}", "MAGLUMI");
+                parserLog.debug("Paciente - ID: {}, Nome: {} {}, Data Nascimento: {}", "P1", "MARIA", "SILVA", "19800101");
+                parserLog.debug("Ordem - Amostra: {}, Serviço: {} ({})", sampleId, "GLU", "Glicose");
+                parserLog.debug("Resultados encontrados: {}", 3);
+                for (int i = 1; i <= 3; i++) {
+                    parserLog.debug("Resultado {}: Teste {} ({}), Valor: {}, Unidade: {}", i, "GLU", "Glicose", "95", "mg/dL");
+                }
+                parserLog.debug("=== FIM DOS DADOS PARSEADOS ===");
+            }
+            orderLog.info("Processando resultados HL7 para a amostra ID: [{}]", sampleId);
+            for (int i = 0; i < 3; i++) {
+                orderLog.info("SUCESSO: Ordem atualizada via HL7. Amostra [{}], Teste [{}], Resultado [{}]", sampleId, "GLU", "95");
+            }
+            orderLog.warn("Nenhuma ordem pendente encontrada para a amostra [{}] e teste [{}].", sampleId, "TSH");
+        } finally {
+            LogContext.clearMessage();
+        }
+    }
+
+    private Encoder<ILoggingEvent> encoder() {
+        if (output == Output.SYNC_TEXT) {
+            PatternLayoutEncoder pattern = new PatternLayoutEncoder();
+            pattern.setContext(context);
+            pattern.setPattern("%d %p %C{1} [%t] %m%n");
+            pattern.start();
+            return pattern;
+        }
+        LogstashEncoder json = new LogstashEncoder();
+        json.setContext(context);
+        json.setCustomFields("{\"application\":\"lab-integration-api\"}");
+        json.start();
+        return json;
+    }
+}
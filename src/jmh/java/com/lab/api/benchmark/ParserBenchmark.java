@@ -0,0 +1,75 @@
+package com.lab.api.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import com.lab.api.parser.astm.AstmParserService;
+import com.lab.api.parser.hl7.Hl7ParserService;
+import com.lab.api.parser.integra.IntegraParserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse de uma mensagem de resultado típica de cada protocolo, com os mesmos parsers que o dispatcher usa.
+ * Os logs da aplicação ficam em ERROR (o HL7 de exemplo cai no parse manual e geraria dois WARN por operação,
+ * que dominariam a medida e o seu ruído): o custo dos logs por mensagem é medido pelo {@link LoggingBenchmark}.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@jmh -Djmh.args="ParserBenchmark -f 1 -wi 3 -i 5 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+
+    private static final String ASTM_RESULT = "H|\\^&|||c8000^1.0|||||||P|1\rP|1||PAT0001||SILVA^MARIA||19800101|F\r"
+            + "O|1|S0001||^^^GLU\\^^^CREA\\^^^UREA|R||||||N\r"
+            + "R|1|^^^GLU^^^1|98|mg/dL|70-99|N||F||||20240101120000\r"
+            + "R|2|^^^CREA^^^1|0.9|mg/dL|0.6-1.2|N||F||||20240101120000\r"
+            + "R|3|^^^UREA^^^1|32|mg/dL|15-45|N||F||||20240101120000\rL|1|N\r";
+    private static final String HL7_RESULT = "\u000BMSH|^~\\&|MAGLUMI|LAB|LAB-API|MAIN|20240101120000||ORU^R01|CTRL0001|P|2.5\r"
+            + "PID|1||PAT0001||SILVA^MARIA||19800101|F\r"
+            + "OBR|1|S0001||TSH\r"
+            + "OBX|1|NM|TSH^TSH||2.1|uIU/mL|0.27-4.2|N|||F|||20240101120000\r"
+            + "OBX|2|NM|FT4^FT4||1.3|ng/dL|0.93-1.7|N|||F|||20240101120000\r"
+            + "OBX|3|NM|FT3^FT3||3.1|pg/mL|2.0-4.4|N|||F|||20240101120000\r\u001C\r";
+    private static final String HIF_RESULT = "\u0001\n09_COBAS_INTEGRA..._09\n\u0002\n54_S0001\n55_GLU\n00_98 mg/dL\n\u0003\n1\n625\n\u0004";
+
+    private AstmParserService astmParser;
+    private Hl7ParserService hl7Parser;
+    private IntegraParserService integraParser;
+
+    @Setup
+    public void setUp() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("com.lab.api").setLevel(Level.ERROR);
+        astmParser = new AstmParserService();
+        hl7Parser = new Hl7ParserService(new LabMetrics(new SimpleMeterRegistry(), new MessageTracer()));
+        integraParser = new IntegraParserService();
+    }
+
+    @Benchmark
+    public Object astm() {
+        return astmParser.parse(ASTM_RESULT);
+    }
+
+    @Benchmark
+    public Object hl7() {
+        return hl7Parser.parse(HL7_RESULT, Map.of());
+    }
+
+    @Benchmark
+    public Object hif() {
+        return integraParser.parse(HIF_RESULT);
+    }
+}
@@ -0,0 +1,302 @@
+package com.lab.api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Portão de regressão de desempenho (perfil Maven perf-gate): compara o resultado JSON do JMH com a baseline
+ * versionada e reprova o build se a vazão cair (ou o tempo por operação subir) mais que
+ * {@code perf.maxSlowdownPercent}, ou se a alocação por operação ({@code -prof gc}) crescer mais que
+ * {@code perf.maxAllocGrowthPercent}. Variações dentro do intervalo de erro do JMH (baseline + atual) não
+ * reprovam, para que o ruído da máquina não quebre o build. O relatório de diferenças é impresso e gravado no arquivo indicado.
+ * <p>
+ * Esse intervalo só é útil se for menor que a tolerância: uma baseline com erro relativo acima de
+ * {@code perf.maxSlowdownPercent} esconderia qualquer queda e reprova o portão (IMPRECISA); um resultado atual
+ * nessa situação gera um aviso. Na regravação ({@code -Dperf.updateBaseline=true}, sem comparação), a baseline
+ * só é gravada se todas as medições estiverem dentro da tolerância; senão, aumente os forks/iterações em perf.jmh.args.
+ * <p>
+ * {@code perf.tolerances} sobrescreve a tolerância de vazão/tempo de benchmarks mais ruidosos, ex:
+ * {@code ParserBenchmark=20,SerialLoopbackBenchmark.astmQuery=15} (classe, método ou chave com @Param; vale a mais específica).
+ * <pre>
+ * java PerfGate &lt;resultado-jmh.json&gt; &lt;baseline.json&gt; &lt;relatorio.txt&gt;
+ * </pre>
+ */
+public final class PerfGate {
+
+    private static final String PACKAGE_PREFIX = "com.lab.api.benchmark.";
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    // Folga absoluta na alocação: evita reprovar variações de poucos bytes em operações que quase não alocam
+    private static final double ALLOC_SLACK_BYTES = 64;
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final double maxSlowdown;
+    private final double maxAllocGrowth;
+    // Em percentual, por classe, método ou chave com @Param
+    private final Map<String, Double> tolerances;
+
+    record Measurement(String mode, String unit, double score, double error, double allocBytesPerOp, double allocError) {
+        // Vazão (thrpt): maior é melhor; tempo por operação (avgt, sample, ss): menor é melhor
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    private PerfGate(double maxSlowdownPercent, double maxAllocGrowthPercent, String tolerances) {
+        this.maxSlowdown = maxSlowdownPercent / 100.0;
+        this.maxAllocGrowth = maxAllocGrowthPercent / 100.0;
+        this.tolerances = parseTolerances(tolerances);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Uso: PerfGate <resultado-jmh.json> <baseline.json> <relatorio.txt>");
+            System.exit(2);
+        }
+        PerfGate gate = new PerfGate(Double.parseDouble(System.getProperty("perf.maxSlowdownPercent", "10")),
+                Double.parseDouble(System.getProperty("perf.maxAllocGrowthPercent", "10")),
+                System.getProperty("perf.tolerances", ""));
+        Path results = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        Path report = Path.of(args[2]);
+
+        Map<String, Measurement> current = gate.readJmhResults(results);
+        if (current.isEmpty()) {
+            System.err.println("[PERF] Nenhum resultado em " + results + ".");
+            System.exit(2);
+        }
+        if (Boolean.getBoolean("perf.updateBaseline") || !Files.exists(baseline)) {
+            Map<String, Measurement> noisy = gate.noisy(current);
+            if (!noisy.isEmpty()) {
+                System.err.println("[PERF] Baseline não gravada: erro do JMH acima da tolerância em " + noisy.keySet()
+                        + ". Aumente os forks/iterações (perf.jmh.args), ajuste perf.tolerances ou rode numa máquina ociosa.");
+                System.exit(1);
+            }
+            gate.writeBaseline(baseline, current);
+            System.out.println("[PERF] Baseline gravada em " + baseline.toAbsolutePath() + " (" + current.size() + " benchmarks).");
+            return;
+        }
+        boolean passed = gate.compare(gate.readBaseline(baseline), current, report);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    // Uma entrada por benchmark e combinação de @Param, ex: "SerialLoopbackBenchmark.astmResult[baudRate=0]"
+    private Map<String, Measurement> readJmhResults(Path file) throws IOException {
+        Map<String, Measurement> measurements = new TreeMap<>();
+        for (JsonNode run : mapper.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText().replace(PACKAGE_PREFIX, ""));
+            JsonNode params = run.path("params");
+            if (params.size() > 0) {
+                Map<String, String> sorted = new TreeMap<>();
+                params.fields().forEachRemaining(param -> sorted.put(param.getKey(), param.getValue().asText()));
+                key.append(sorted.toString().replace('{', '[').replace('}', ']').replace(", ", ","));
+            }
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = secondaryMetric(run.path("secondaryMetrics"), ALLOC_METRIC);
+            measurements.put(key.toString(), new Measurement(run.path("mode").asText(), primary.path("scoreUnit").asText(),
+                    primary.path("score").asDouble(), primary.path("scoreError").asDouble(Double.NaN),
+                    alloc != null ? alloc.path("score").asDouble() : Double.NaN,
+                    alloc != null ? alloc.path("scoreError").asDouble(Double.NaN) : Double.NaN));
+        }
+        return measurements;
+    }
+
+    // Versões antigas do JMH prefixam as métricas dos profilers com '·'
+    private static JsonNode secondaryMetric(JsonNode metrics, String name) {
+        Iterator<Map.Entry<String, JsonNode>> fields = metrics.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().replace("·", "").equals(name)) {
+                return field.getValue();
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Measurement> readBaseline(Path file) throws IOException {
+        Map<String, Measurement> measurements = new TreeMap<>();
+        mapper.readTree(file.toFile()).path("benchmarks").fields().forEachRemaining(entry -> {
+            JsonNode node = entry.getValue();
+            measurements.put(entry.getKey(), new Measurement(node.path("mode").asText(), node.path("unit").asText(),
+                    node.path("score").asDouble(), node.path("error").asDouble(Double.NaN),
+                    node.hasNonNull("allocBytesPerOp") ? node.path("allocBytesPerOp").asDouble() : Double.NaN,
+                    node.path("allocError").asDouble(Double.NaN)));
+        });
+        return measurements;
+    }
+
+    private void writeBaseline(Path file, Map<String, Measurement> measurements) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("generatedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        root.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        root.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch")
+                + ", " + Runtime.getRuntime().availableProcessors() + " CPUs");
+        ObjectNode benchmarks = root.putObject("benchmarks");
+        measurements.forEach((key, measurement) -> {
+            ObjectNode node = benchmarks.putObject(key);
+            node.put("mode", measurement.mode());
+            node.put("unit", measurement.unit());
+            node.put("score", round(measurement.score()));
+            if (!Double.isNaN(measurement.error())) node.put("error", round(measurement.error()));
+            if (!Double.isNaN(measurement.allocBytesPerOp())) node.put("allocBytesPerOp", round(measurement.allocBytesPerOp()));
+            if (!Double.isNaN(measurement.allocError())) node.put("allocError", round(measurement.allocError()));
+        });
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        mapper.writeValue(file.toFile(), root);
+    }
+
+    private boolean compare(Map<String, Measurement> baseline, Map<String, Measurement> current, Path reportFile) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Portão de desempenho: tolerância de %.0f%% na vazão/tempo e %.0f%% na alocação por operação.%n%n",
+                maxSlowdown * 100, maxAllocGrowth * 100));
+        if (!tolerances.isEmpty()) {
+            report.append("Tolerâncias específicas (perf.tolerances, %): ").append(tolerances).append("\n\n");
+        }
+        report.append(String.format(Locale.ROOT, "%-52s %-14s %14s %14s %10s  %s%n", "Benchmark", "Métrica", "Baseline", "Atual", "Variação", "Situação"));
+
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        TreeSet<String> keys = new TreeSet<>(baseline.keySet());
+        keys.addAll(current.keySet());
+        for (String key : keys) {
+            Measurement base = baseline.get(key);
+            Measurement now = current.get(key);
+            if (now == null) {
+                line(report, key, base.mode(), base.score(), Double.NaN, "SEM RESULTADO");
+                totals.merge("SEM RESULTADO", 1, Integer::sum);
+                continue;
+            }
+            if (base == null) {
+                line(report, key, now.mode(), Double.NaN, now.score(), "NOVO");
+                totals.merge("NOVO", 1, Integer::sum);
+                continue;
+            }
+            double tolerance = tolerance(key);
+            if (relativeError(base) > tolerance) {
+                // O intervalo de erro da baseline engoliria qualquer regressão dentro da tolerância
+                line(report, key, now.mode() + " " + now.unit(), base.score(), now.score(),
+                        String.format(Locale.ROOT, "IMPRECISA (erro da baseline ±%.0f%%)", relativeError(base) * 100));
+                totals.merge("IMPRECISA", 1, Integer::sum);
+                continue;
+            }
+            double change = now.score() / base.score() - 1;
+            // Só conta como regressão se a diferença também passar do intervalo de erro das duas medições
+            boolean beyondError = Math.abs(now.score() - base.score()) > orZero(base.error()) + orZero(now.error());
+            boolean slower = beyondError && (now.higherIsBetter() ? change < -tolerance : change > tolerance);
+            String status = slower ? "REGRESSÃO" : relativeError(now) > tolerance ? "AVISO" : "OK";
+            line(report, key, now.mode() + " " + now.unit(), base.score(), now.score(), status);
+            totals.merge(status, 1, Integer::sum);
+
+            if (!Double.isNaN(base.allocBytesPerOp()) && !Double.isNaN(now.allocBytesPerOp())) {
+                boolean allocGrew = now.allocBytesPerOp() > base.allocBytesPerOp() * (1 + maxAllocGrowth) + ALLOC_SLACK_BYTES
+                        && now.allocBytesPerOp() - base.allocBytesPerOp() > orZero(base.allocError()) + orZero(now.allocError());
+                String allocStatus = allocGrew ? "REGRESSÃO" : "OK";
+                line(report, "", "B/op", base.allocBytesPerOp(), now.allocBytesPerOp(), allocStatus);
+                totals.merge(allocStatus, 1, Integer::sum);
+            }
+        }
+
+        boolean passed = !totals.containsKey("REGRESSÃO") && !totals.containsKey("SEM RESULTADO") && !totals.containsKey("IMPRECISA");
+        report.append(String.format("%nResumo: %s. %s%n", totals, passed ? "APROVADO" : "REPROVADO"));
+        if (totals.containsKey("IMPRECISA")) {
+            report.append("Baseline com erro acima da tolerância: regrave-a com mais forks/iterações (-Dperf.updateBaseline=true).\n");
+        } else if (!passed) {
+            report.append("Se a mudança de desempenho for esperada, atualize a baseline com -Dperf.updateBaseline=true.\n");
+        }
+        if (totals.containsKey("AVISO")) {
+            report.append("AVISO: medições atuais com erro acima da tolerância; uma queda desse tamanho não seria detectada.\n");
+        }
+
+        System.out.print(report);
+        if (reportFile.getParent() != null) {
+            Files.createDirectories(reportFile.getParent());
+        }
+        Files.writeString(reportFile, report, StandardCharsets.UTF_8);
+        return passed;
+    }
+
+    // Medições cujo intervalo de erro passa da tolerância de vazão/tempo
+    private Map<String, Measurement> noisy(Map<String, Measurement> measurements) {
+        Map<String, Measurement> noisy = new TreeMap<>();
+        measurements.forEach((key, measurement) -> {
+            if (relativeError(measurement) > tolerance(key)) {
+                noisy.put(key, measurement);
+            }
+        });
+        return noisy;
+    }
+
+    // Tolerância de vazão/tempo do benchmark: a entrada mais específica de perf.tolerances ou perf.maxSlowdownPercent
+    private double tolerance(String key) {
+        String name = key;
+        while (true) {
+            Double tolerancePercent = tolerances.get(name);
+            if (tolerancePercent != null) {
+                return tolerancePercent / 100.0;
+            }
+            int cut = Math.max(name.lastIndexOf('['), name.lastIndexOf('.'));
+            if (cut < 0) {
+                return maxSlowdown;
+            }
+            name = name.substring(0, cut);
+        }
+    }
+
+    private static Map<String, Double> parseTolerances(String spec) {
+        Map<String, Double> tolerances = new TreeMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("perf.tolerances inválido (esperado Benchmark=percentual): " + entry);
+            }
+            tolerances.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+        }
+        return tolerances;
+    }
+
+    private static double relativeError(Measurement measurement) {
+        return measurement.score() == 0 ? 0 : orZero(measurement.error()) / Math.abs(measurement.score());
+    }
+
+    private static double orZero(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static void line(StringBuilder report, String key, String metric, double base, double now, String status) {
+        String change = Double.isNaN(base) || Double.isNaN(now) || base == 0 ? "-"
+                : String.format(Locale.ROOT, "%+.1f%%", (now / base - 1) * 100);
+        report.append(String.format(Locale.ROOT, "%-52s %-14s %14s %14s %10s  %s%n", key, metric, format(base), format(now), change, status));
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    // 6 algarismos significativos: tempos em ms/op abaixo de 0,1 perderiam precisão com casas decimais fixas
+    private static double round(double value) {
+        return value == 0 || !Double.isFinite(value) ? value
+                : new BigDecimal(value).round(new MathContext(6)).doubleValue();
+    }
+}
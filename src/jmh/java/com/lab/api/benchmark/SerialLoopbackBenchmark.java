@@ -0,0 +1,228 @@
+package com.lab.api.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import com.lab.api.config.AuditProperties;
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.integration.IntegraCommunicator;
+import com.lab.api.integration.channel.LoopbackSerialChannel;
+import com.lab.api.integration.channel.LoopbackSerialPorts;
+import com.lab.api.integration.common.SerialListener;
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.log.journal.RecordKind;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trocas seriais completas pelo cabo virtual 'loop:' (sem hardware nem com0com), com o tempo de cada byte
+ * limitado pela velocidade configurada (baudRate 0 = sem limite, mede só o código):
+ * <ul>
+ *     <li>astmResult: ENQ, ACK, frame de resultado, ACK e EOT até a mensagem chegar ao dispatcher (SerialListener);</li>
+ *     <li>astmQuery: idem com uma query, até a resposta do host terminar (EOT);</li>
+ *     <li>hifRequest: requisição do IntegraCommunicator até a resposta do equipamento (EOT). O comunicador consulta
+ *     a porta a cada 20 ms, então o resultado mostra sobretudo esse intervalo; fica fora do portão de desempenho.</li>
+ * </ul>
+ * O dispatcher e a auditoria são substituídos por stubs: o custo medido é o do transporte e das máquinas de estado.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec@jmh -Djmh.args="SerialLoopbackBenchmark -f 1 -wi 2 -i 5"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerialLoopbackBenchmark {
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final byte EOT = 0x04;
+    private static final byte ENQ = 0x05;
+    private static final byte ACK = 0x06;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final String RESULT = "H|\\^&|||c8000^1.0|||||||P|1\rP|1||PAT0001||SILVA^MARIA||19800101|F\r"
+            + "O|1|S0001||^^^GLU|R||||||N\rR|1|^^^GLU^^^1|98|mg/dL||N||F||||20240101120000\rL|1|N\r";
+    private static final String QUERY = "H|\\^&|||c8000^1.0|||||||P|1\rQ|1|^S0001||^^^ALL||||||||O\rL|1|N\r";
+    private static final String HIF_REQUEST = "\u0001\n09_COBAS_INTEGRA..._09\n\u0002\n10_01\n\u0003\n1\n625\n\u0004\n";
+    private static final String HIF_RESPONSE = "\u0001\n09_COBAS_INTEGRA..._09\n\u0002\n55_S0001\n00_GLU 98 mg/dL\n\u0003\n1\n625\n\u0004";
+
+    @Param({"0", "9600", "115200"})
+    private int baudRate;
+
+    private final Semaphore dispatched = new Semaphore(0);
+    private SerialListener astmListener;
+    private IntegraCommunicator integra;
+    private LoopbackSerialChannel astmAnalyzer;
+    private LoopbackSerialChannel hifAnalyzer;
+    private Thread hifResponder;
+    private byte[] resultTransmission;
+    private byte[] queryTransmission;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        // Sem o log INFO de cada troca no console: no portão de desempenho ele só acrescenta ruído à medida
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("com.lab.api").setLevel(Level.WARN);
+        LabMetrics labMetrics = new LabMetrics(new SimpleMeterRegistry(), new MessageTracer());
+        MessageAuditService audit = new MessageAuditService(new AuditProperties(), null, labMetrics) {
+            @Override
+            public void auditMessage(RecordKind kind, String rawMessage, EquipmentConfig config, long exchangeId, long epochNanos) {
+            }
+
+            @Override
+            public void auditControl(RecordKind kind, byte control, EquipmentConfig config, long exchangeId, long epochNanos) {
+            }
+        };
+        EquipmentProperties.Reconnect reconnect = new EquipmentProperties.Reconnect();
+
+        EquipmentConfig astm = equipment("bench-astm-" + baudRate, ProtocolType.ASTM);
+        astmListener = new SerialListener(astm, (raw, source) -> {
+            dispatched.release();
+            return raw.contains("\rQ|") ? "H|\\^&\rP|1||PAT0001\rO|1|S0001||^^^GLU\rL|1|N" : null;
+        }, audit, labMetrics.forEquipment(astm), reconnect);
+        start(astmListener, "bench-astm");
+        astmAnalyzer = LoopbackSerialPorts.equipmentEnd(astm.getCommunication());
+
+        EquipmentConfig hif = equipment("bench-hif-" + baudRate, ProtocolType.ROCHE_HIF);
+        integra = new IntegraCommunicator(hif, audit, labMetrics.forEquipment(hif), reconnect);
+        start(integra, "bench-hif");
+        hifAnalyzer = LoopbackSerialPorts.equipmentEnd(hif.getCommunication());
+        hifResponder = new Thread(this::respondHif, "bench-hif-analyzer");
+        hifResponder.setDaemon(true);
+        hifResponder.start();
+
+        resultTransmission = frame(RESULT);
+        queryTransmission = frame(QUERY);
+        while (!astmListener.isPortOpen() || !integra.isPortOpen()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        astmListener.close();
+        integra.close();
+        hifResponder.interrupt();
+        LoopbackSerialPorts.unplug("loop:bench-astm-" + baudRate);
+        LoopbackSerialPorts.unplug("loop:bench-hif-" + baudRate);
+    }
+
+    @Benchmark
+    public void astmResult() throws InterruptedException {
+        transmit(resultTransmission);
+        if (!dispatched.tryAcquire(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Mensagem não chegou ao dispatcher");
+        }
+    }
+
+    @Benchmark
+    public void astmQuery() throws InterruptedException {
+        transmit(queryTransmission);
+        if (!dispatched.tryAcquire(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Query não chegou ao dispatcher");
+        }
+        awaitByte(astmAnalyzer, EOT); // Fim da resposta do host
+    }
+
+    @Benchmark
+    public Optional<String> hifRequest() {
+        Optional<String> response = integra.sendRequestAndReceiveResponse(HIF_REQUEST);
+        if (response.isEmpty()) {
+            throw new IllegalStateException("Sem resposta do equipamento HIF");
+        }
+        return response;
+    }
+
+    private void transmit(byte[] frame) throws InterruptedException {
+        astmAnalyzer.write(new byte[]{ENQ}, 1);
+        awaitByte(astmAnalyzer, ACK);
+        astmAnalyzer.write(frame, frame.length);
+        awaitByte(astmAnalyzer, ACK); // O SerialListener confirma cada frame
+        astmAnalyzer.write(new byte[]{EOT}, 1);
+    }
+
+    // Equipamento HIF simulado: responde cada requisição (terminada em EOT) com um bloco de resultados
+    private void respondHif() {
+        byte[] response = HIF_RESPONSE.getBytes(StandardCharsets.ISO_8859_1);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (awaitByte(hifAnalyzer, EOT)) {
+                    hifAnalyzer.write(response, response.length);
+                }
+            }
+        } catch (InterruptedException | IllegalStateException e) {
+            // fim do benchmark
+        }
+    }
+
+    private static boolean awaitByte(LoopbackSerialChannel channel, byte expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (System.nanoTime() < deadline) {
+            byte[] data = channel.await(deadline - System.nanoTime());
+            if (data == null) {
+                throw new IllegalStateException("Cabo virtual desconectado");
+            }
+            for (byte b : data) {
+                if (b == expected) return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] frame(String message) {
+        byte[] body = ("1" + message).getBytes(StandardCharsets.ISO_8859_1);
+        int sum = 0;
+        for (byte b : body) sum = (sum + b) & 0xFF;
+        sum = (sum + ETX) & 0xFF;
+        byte[] checksum = String.format("%02X\r\n", sum).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] frame = new byte[1 + body.length + 1 + checksum.length];
+        frame[0] = STX;
+        System.arraycopy(body, 0, frame, 1, body.length);
+        frame[body.length + 1] = ETX;
+        System.arraycopy(checksum, 0, frame, body.length + 2, checksum.length);
+        return frame;
+    }
+
+    private EquipmentConfig equipment(String port, ProtocolType protocol) {
+        CommunicationConfig communication = new CommunicationConfig();
+        communication.setType(CommunicationType.SERIAL);
+        communication.setPortName(LoopbackSerialPorts.PREFIX + port);
+        communication.setBaudRate(baudRate);
+        communication.setDataBits(8);
+        communication.setStopBits(1);
+        communication.setParity("NONE");
+        // Sem as pausas de 100 ms da resposta de query: astmQuery mede o código, não o sleep
+        communication.setResponsePauseMs(0);
+        EquipmentConfig config = new EquipmentConfig();
+        config.setId(port);
+        config.setName(port);
+        config.setEnabled(true);
+        config.setProtocol(protocol);
+        config.setCommunication(communication);
+        return config;
+    }
+
+    private static void start(Runnable listener, String name) {
+        Thread thread = new Thread(listener, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,148 @@
+package com.lab.api.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Tempo de inicialização até o primeiro listener pronto: sobe a aplicação em um processo novo (JVM fria) com um
+ * equipamento HL7/TCP numa porta livre e mede, de fora, o tempo até essa porta aceitar conexão, que é quando um
+ * analisador volta a se comunicar após um restart. Não usa JMH: o ganho do AppCDS está no início da JVM,
+ * que um benchmark dentro do fork do JMH não enxerga.
+ * <p>
+ * Variantes medidas (as que estiverem disponíveis): padrão, AOT ({@code -Dspring.aot.enabled=true}, exige o
+ * build com o perfil startup), AppCDS ({@code startup.cds-archive}) e AOT + AppCDS.
+ * <pre>
+ * mvn -Pstartup package -DskipTests
+ * mvn -Pbenchmarks test-compile exec:exec@startup \
+ *     -Dstartup.args="-Dstartup.jar=target/startup/lab-integration-api-0.0.1-SNAPSHOT-startup.jar"
+ * </pre>
+ * Propriedades (em startup.args): startup.jar (iniciado da própria pasta, onde ficam os logs das execuções;
+ * sem ela, usa o classpath do Maven e uma pasta temporária), startup.cds-archive (padrão: app.jsa na mesma pasta), startup.runs (padrão 5), startup.variants (ex: "padrao,cds") e
+ * startup.timeout-seconds (padrão 120).
+ */
+public final class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "com.lab.api.LabIntegrationApiApplication";
+    private static final String AOT_INITIALIZER = "com/lab/api/LabIntegrationApiApplication__ApplicationContextInitializer.class";
+
+    private final List<String> launch;
+    private final Path workDir;
+    private final long timeoutNanos;
+
+    private StartupBenchmark(List<String> launch, Path workDir, long timeoutSeconds) {
+        this.launch = launch;
+        this.workDir = workDir;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        String jar = System.getProperty("startup.jar");
+        // O AppCDS só vale com o mesmo classpath do treino: o jar é iniciado da própria pasta, como no treino
+        List<String> launch = jar != null
+                ? List.of("-jar", Path.of(jar).getFileName().toString())
+                : List.of("-cp", System.getProperty("java.class.path"), MAIN_CLASS);
+        Path workDir = jar != null ? Path.of(jar).toAbsolutePath().getParent() : Files.createTempDirectory("startup-benchmark");
+        Path archive = Path.of(System.getProperty("startup.cds-archive", workDir.resolve("app.jsa").toString())).toAbsolutePath();
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("padrao", List.of());
+        if (hasAotClasses(jar)) {
+            variants.put("aot", List.of("-Dspring.aot.enabled=true"));
+        }
+        if (Files.exists(archive)) {
+            variants.put("cds", List.of("-XX:SharedArchiveFile=" + archive));
+            if (variants.containsKey("aot")) {
+                variants.put("aot+cds", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"));
+            }
+        }
+        String selected = System.getProperty("startup.variants");
+        if (selected != null) {
+            variants.keySet().retainAll(Arrays.asList(selected.split(",")));
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(launch, workDir, Long.getLong("startup.timeout-seconds", 120));
+        Map<String, long[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = benchmark.timeToFirstListener(variant.getValue());
+                System.out.printf(Locale.ROOT, "[STARTUP] %-8s execução %d: %d ms%n", variant.getKey(), run + 1, millis[run]);
+            }
+            Arrays.sort(millis);
+            results.put(variant.getKey(), millis);
+        }
+
+        System.out.printf(Locale.ROOT, "%n%-10s %10s %10s %10s   (ms até o primeiro listener aceitar conexão, %d execuções)%n",
+                "Variante", "Mínimo", "Mediana", "Máximo", runs);
+        results.forEach((name, millis) -> System.out.printf(Locale.ROOT, "%-10s %10d %10d %10d%n",
+                name, millis[0], millis[millis.length / 2], millis[millis.length - 1]));
+        System.out.println("Arquivos gerados pelas execuções (logs, auditoria) em " + benchmark.workDir);
+    }
+
+    // O inicializador gerado pelo Spring AOT só existe no build com o perfil startup
+    private static boolean hasAotClasses(String jar) throws IOException {
+        if (jar == null) {
+            return StartupBenchmark.class.getClassLoader().getResource(AOT_INITIALIZER) != null;
+        }
+        try (JarFile file = new JarFile(jar)) {
+            return file.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    private long timeToFirstListener(List<String> jvmFlags) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmFlags);
+        command.addAll(launch);
+        command.addAll(List.of("--server.port=0", "--spring.main.banner-mode=off",
+                "--equipments.devices.startup-benchmark.enabled=true",
+                "--equipments.devices.startup-benchmark.name=STARTUP-BENCHMARK",
+                "--equipments.devices.startup-benchmark.protocol=HL7",
+                "--equipments.devices.startup-benchmark.communication.type=TCP",
+                "--equipments.devices.startup-benchmark.communication.port=" + port));
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(workDir.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            while (System.nanoTime() - started < timeoutNanos) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("A aplicação terminou antes de abrir a porta " + port
+                            + " (código " + process.exitValue() + "). Comando: " + String.join(" ", command));
+                }
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress("localhost", port), 100);
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                } catch (IOException e) {
+                    Thread.sleep(5);
+                }
+            }
+            throw new IllegalStateException("Porta " + port + " não abriu em " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s.");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -5,9 +5,11 @@ import com.lab.api.config.EquipmentProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties(EquipmentProperties.class) // <-- ADICIONE ESTA LINHA
+@EnableScheduling
 public class LabIntegrationApiApplication {
 
     public static void main(String[] args) {
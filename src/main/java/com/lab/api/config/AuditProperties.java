@@ -0,0 +1,67 @@
+package com.lab.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Configuração da auditoria das mensagens brutas trocadas com os equipamentos.
+@Component
+@ConfigurationProperties(prefix = "audit")
+@Data
+public class AuditProperties {
+
+    public enum Mode {
+        FILES,   // Formato antigo: um arquivo por mensagem em message_logs/[equipamento]/[data]/
+        JOURNAL  // Segmento append-only por equipamento por dia, gravado em segundo plano
+    }
+
+    public enum FsyncPolicy {
+        NONE,     // Deixa o sistema operacional decidir quando gravar no disco
+        BATCH,    // fsync ao final de cada lote gravado (group commit)
+        INTERVAL  // fsync no máximo a cada 'fsync-interval-ms'
+    }
+
+    private Mode mode = Mode.FILES;
+    private String baseDir = "message_logs";
+    private Journal journal = new Journal();
+    private Index index = new Index();
+    private Archive archive = new Archive();
+
+    @Data
+    public static class Journal {
+        private int queueCapacity = 10000;
+        private int maxBatch = 512;
+        private FsyncPolicy fsync = FsyncPolicy.BATCH;
+        private long fsyncIntervalMs = 1000;
+        private boolean memoryMapped = false;
+        private int mmapChunkBytes = 8 * 1024 * 1024;
+    }
+
+    @Data
+    public static class Index {
+        // Quantos dias (equipamento + dia) de índice ficam em memória para as buscas
+        private int maxCachedDays = 120;
+    }
+
+    @Data
+    public static class Archive {
+        private boolean enabled = true;
+        // Execução diária da compactação e da retenção (fora do horário de pico dos equipamentos)
+        private String cron = "0 30 1 * * *";
+        // Dias encerrados há pelo menos N dias são compactados em .seg.gz
+        private int compressAfterDays = 1;
+        // Dias mais antigos que isso são apagados (journal e pastas do formato antigo); 0 = manter para sempre
+        private int retentionDays = 365;
+        // Tamanho (descompactado) de cada membro GZIP: quanto é descompactado para ler uma única mensagem
+        private int blockBytes = 64 * 1024;
+        // Limite de leitura de disco do arquivador, para não competir com a gravação dos listeners; 0 = sem limite
+        private long maxBytesPerSecond = 4L * 1024 * 1024;
+    }
+
+    public Path getJournalDir() {
+        return Paths.get(baseDir, "journal");
+    }
+}
@@ -0,0 +1,26 @@
+package com.lab.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+// Várias instâncias sobre o mesmo banco: cada equipamento fica com o nó que detém o seu lease (ver ClusterCoordinator).
+@Component
+@ConfigurationProperties(prefix = "cluster")
+@Data
+public class ClusterProperties {
+    private boolean enabled = false;
+    // Identifica o nó nos leases; padrão "<host>-<pid>" (ManagementFactory devolve "pid@host")
+    private String nodeId = defaultNodeId();
+    // Sem renovação por esse tempo, o lease expira e outro nó assume o equipamento
+    private int leaseSeconds = 10;
+    private long heartbeatMs = 2000;
+    private long rebalanceMs = 3000;
+
+    private static String defaultNodeId() {
+        String[] name = ManagementFactory.getRuntimeMXBean().getName().split("@", 2);
+        return name.length == 2 ? name[1] + "-" + name[0] : name[0];
+    }
+}
@@ -14,4 +14,6 @@ public class CommunicationConfig {
     private int dataBits;
     private int stopBits;
     private String parity;
+    // Serial: pausa (ms) após o ENQ e após o frame da resposta de query, antes do frame e do EOT; 0 = sem pausa
+    private int responsePauseMs = 100;
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import java.util.Map; // NOVO
 
 @Data
 public class EquipmentConfig {
+    // Chave do equipamento em 'equipments.devices' (preenchida na inicialização; usada no MDC dos logs)
+    private String id;
     private String name;
     private boolean enabled;
     private ProtocolType protocol;
@@ -13,4 +15,11 @@ public class EquipmentConfig {
 
     // NOVO: "Dicas" para o parser saber onde encontrar informações específicas.
     private Map<String, String> parserHints;
+
+    // Sem mensagens há mais que isso (segundos) o equipamento aparece como IDLE no health; null = equipments.health.max-idle-seconds
+    private Integer maxIdleSeconds;
+
+    // Resultados / host queries deste equipamento processados ao mesmo tempo; null = equipments.bulkhead
+    private Integer maxConcurrentResults;
+    private Integer maxConcurrentQueries;
 }
\ No newline at end of file
@@ -1,14 +1,77 @@
 // src/main/java/com/lab/api/config/EquipmentProperties.java
 package com.lab.api.config;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 @Component
 @ConfigurationProperties(prefix = "equipments")
 @Data
 public class EquipmentProperties {
+    // Os equipamentos podem ser adicionados/removidos em execução (PUT/DELETE /api/v1/equipments/{id})
     private Map<String, EquipmentConfig> devices;
+    // false = não abre portas/sockets na inicialização (ex: replay contra banco de rascunho)
+    private boolean autostart = true;
+    private Health health = new Health();
+    private Reconnect reconnect = new Reconnect();
+    // Tempo máximo para concluir as transmissões em andamento ao parar/reconfigurar um equipamento
+    private int drainTimeoutSeconds = 30;
+    // Encerramento do serviço: todos os equipamentos drenam em paralelo, e a auditoria é gravada em disco dentro desse tempo
+    private int shutdownTimeoutSeconds = 20;
+    private Bulkhead bulkhead = new Bulkhead();
+
+    // Critérios do status/health dos equipamentos (GET /api/v1/equipments/status, /actuator/health/equipments)
+    @Data
+    public static class Health {
+        // Mensagem em processamento sem progresso há mais que isso: equipamento STALLED
+        private int stallSeconds = 30;
+        // Sem mensagens recebidas há mais que isso: equipamento IDLE (0 = não verifica; analisadores podem ficar ociosos)
+        private int maxIdleSeconds = 0;
+    }
+
+    /**
+     * Limites do processamento das mensagens (EquipmentBulkheads): cada equipamento tem a sua cota de resultados e
+     * de host queries simultâneos, e os resultados, somados, nunca ocupam as conexões do banco reservadas às queries.
+     */
+    @Data
+    public static class Bulkhead {
+        private boolean enabled = true;
+        // Tamanho do pool de conexões (spring.datasource.hikari.maximum-pool-size)
+        private int dbConnections = 10;
+        // Conexões que os resultados não usam: ficam para as host queries e a API do LIS
+        private int reservedForQueries = 2;
+        // Por equipamento; podem ser redefinidos em cada equipamento (max-concurrent-results / max-concurrent-queries)
+        private int maxConcurrentResults = 2;
+        private int maxConcurrentQueries = 2;
+        // Espera máxima por uma vaga; depois disso a mensagem é recusada (MSA|AR ou NAK, o equipamento reenvia) e fica na auditoria
+        private long maxWaitMs = 10000;
+    }
+
+    // Reabertura das portas seriais perdidas ou que não abriram (SerialListener e IntegraCommunicator)
+    @Data
+    public static class Reconnect {
+        private long initialDelayMs = 500;
+        private long maxDelayMs = 30000;
+        private double multiplier = 2.0;
+        // Fração máxima removida aleatoriamente de cada espera (0 = sem jitter)
+        private double jitter = 0.5;
+        // Intervalo da verificação da porta aberta, para drivers que não avisam a desconexão
+        private long checkIntervalMs = 1000;
+    }
+
+    @PostConstruct
+    public void assignIds() {
+        Map<String, EquipmentConfig> concurrentDevices = new ConcurrentSkipListMap<>();
+        if (devices != null) {
+            devices.forEach((id, config) -> {
+                config.setId(id);
+                concurrentDevices.put(id, config);
+            });
+        }
+        devices = concurrentDevices;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.lab.api.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Inicialização tardia dos beans que não participam do caminho das mensagens: Swagger/springdoc e console do H2
+ * (pacotes em startup.lazy-packages). Eles só são criados no primeiro acesso (ou quando outro bean precisa deles),
+ * encurtando o restart, durante o qual os analisadores ficam sem conexão.
+ * <p>
+ * org.springdoc.core fica de fora: parte dos seus beans é configurada por callbacks do contexto e, criada tarde,
+ * deixa o Swagger UI sem as suas rotas (404). A geração do documento OpenAPI já acontece só no primeiro acesso.
+ * <p>
+ * Não usa spring.main.lazy-initialization: com ela, os listeners, a auditoria e os beans com @Scheduled só
+ * seriam criados no primeiro uso.
+ */
+@Configuration
+@Slf4j
+public class LazyStartupConfig {
+
+    private static final List<String> DEFAULT_LAZY_PACKAGES = List.of("org.springdoc.webmvc.", "org.springframework.boot.autoconfigure.h2.");
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyStartupBeans(Environment environment) {
+        List<String> packages = Binder.get(environment).bind("startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(DEFAULT_LAZY_PACKAGES);
+        return beanFactory -> markLazy(beanFactory, packages);
+    }
+
+    private static void markLazy(ConfigurableListableBeanFactory beanFactory, List<String> packages) {
+        int lazy = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isLazyInit() && inPackages(declaringClass(beanFactory, definition), packages)) {
+                definition.setLazyInit(true);
+                lazy++;
+            }
+        }
+        log.debug("{} bean(s) de {} marcados para inicialização tardia.", lazy, packages);
+    }
+
+    // Classe do bean ou, para métodos @Bean, a classe @Configuration que o declara
+    private static String declaringClass(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        if (definition.getBeanClassName() != null) {
+            return definition.getBeanClassName();
+        }
+        String factoryBean = definition.getFactoryBeanName();
+        if (factoryBean != null && beanFactory.containsBeanDefinition(factoryBean)) {
+            return beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+        }
+        return null;
+    }
+
+    private static boolean inPackages(String className, List<String> packages) {
+        return className != null && packages.stream().anyMatch(className::startsWith);
+    }
+}
@@ -0,0 +1,38 @@
+package com.lab.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Configuração do replay das mensagens gravadas na auditoria (teste de carga e regressão).
+@Component
+@ConfigurationProperties(prefix = "replay")
+@Data
+public class ReplayProperties {
+
+    public enum Rate {
+        ORIGINAL, // Respeita os intervalos reais entre as mensagens
+        SPEED,    // Intervalos reais divididos por 'speed' (ex: 10 = dez vezes mais rápido)
+        MAX       // Sem pausas: o mais rápido que o destino aguentar
+    }
+
+    public enum Target {
+        DISPATCHER, // Entrega direto ao ProtocolDispatcherMessageHandler, no mesmo processo
+        TCP         // Envia com enquadramento MLLP para o TcpListener do equipamento (host 'tcp-host', porta da configuração)
+    }
+
+    // O replay grava no banco: só é liberado no perfil 'replay' (banco de rascunho)
+    private boolean enabled = false;
+    private Rate rate = Rate.MAX;
+    private double speed = 10;
+    private int parallelism = 4;
+    private Target target = Target.DISPATCHER;
+    private String tcpHost = "localhost";
+    // Mensagens aguardando em cada fila de execução antes de pausar a leitura do journal
+    private int laneQueueCapacity = 1024;
+
+    // Seleção usada pela execução via linha de comando (perfil 'replay-cli')
+    private String equipment;
+    private String from;
+    private String to;
+}
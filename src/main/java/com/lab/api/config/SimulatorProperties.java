@@ -0,0 +1,73 @@
+package com.lab.api.config;
+
+import com.lab.api.domain.ProtocolType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Simulador de equipamentos / gerador de carga (perfis 'dev' e 'loadtest').
+@Component
+@ConfigurationProperties(prefix = "simulator")
+@Data
+public class SimulatorProperties {
+
+    // Espera após a subida da API antes de começar a enviar
+    private int startDelaySeconds = 15;
+    // Duração da carga; cada analisador para antes se atingir 'messages'
+    private int durationSeconds = 60;
+    // Espera máxima por cada ACK/resposta da API
+    private long responseTimeoutMs = 15000;
+    private String tcpHost = "localhost";
+    // Cria as ordens pendentes de cada amostra antes do envio (como o LIS faria), para que resultados
+    // atualizem ordens existentes e queries tenham resposta
+    private boolean seedOrders = true;
+    // Encerra a aplicação ao final (código de saída 1 se houve erros), como o 'replay-cli'
+    private boolean exitOnFinish = false;
+    // Intervalo do log de progresso (vazão e p99) e, no soak, das amostras de heap, threads e descritores
+    private int progressIntervalSeconds = 10;
+    private List<Analyzer> analyzers = new ArrayList<>();
+    private Soak soak = new Soak();
+
+    /**
+     * Teste de longa duração (perfil 'soak'): a cada intervalo de progresso amostra o heap após GC, as threads,
+     * os descritores de arquivo abertos e a latência; ao final calcula a tendência de cada um (regressão linear,
+     * por hora, descartando o aquecimento) e reprova a execução se alguma passar do limite.
+     */
+    @Data
+    public static class Soak {
+        private boolean enabled = false;
+        private int warmupMinutes = 10;
+        // System.gc() antes de cada amostra: o heap medido é o que sobrevive à coleta
+        private boolean forceGc = true;
+        // CSV com as amostras (um arquivo por execução); vazio = não grava
+        private String reportDir = "logs";
+        private double maxHeapGrowthMbPerHour = 20;
+        private double maxThreadGrowthPerHour = 5;
+        private double maxFdGrowthPerHour = 10;
+        private double maxP99GrowthMsPerHour = 100;
+    }
+
+    /**
+     * Grupo de analisadores virtuais. Sem 'equipment', são criados 'count' equipamentos temporários
+     * (HL7 em TCP nas portas base-port..base-port+count-1; ASTM e HIF no cabo virtual 'loop:'), removidos ao final.
+     * Com 'equipment', os analisadores usam um equipamento já configurado (TCP: 'count' conexões na mesma porta;
+     * serial: um analisador na outra ponta do cabo, 'port-name' ou o próprio 'loop:').
+     */
+    @Data
+    public static class Analyzer {
+        private String name;
+        private ProtocolType protocol;
+        private String equipment;
+        private String portName;
+        private int count = 1;
+        private double ratePerSecond = 1;   // Mensagens por segundo, por analisador
+        private int messages = 0;           // Por analisador; 0 = até o fim de 'duration-seconds'
+        private double queryRatio = 0;      // Fração das mensagens que são queries (ASTM e HL7)
+        private int testsPerSample = 3;
+        private int basePort = 0;
+        private int baudRate = 9600;        // Cabo virtual dos equipamentos temporários (0 = sem limite)
+    }
+}
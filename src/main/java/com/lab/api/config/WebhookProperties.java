@@ -0,0 +1,24 @@
+package com.lab.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Configuração da entrega de resultados concluídos ao LIS via webhook (outbox transacional).
+@Component
+@ConfigurationProperties(prefix = "webhook")
+@Data
+public class WebhookProperties {
+    private boolean enabled;
+    private String url;
+    private int batchSize = 100;
+    private long pollIntervalMs = 500;
+    private int maxAttempts = 10;
+    private long initialBackoffMs = 1000;
+    private long maxBackoffMs = 300000;
+    private int connectTimeoutMs = 2000;
+    private int readTimeoutMs = 10000;
+    // Reserva de um lote em entrega; deve passar de connect-timeout-ms + read-timeout-ms
+    private int claimSeconds = 60;
+    private int sentRetentionHours = 24;
+}
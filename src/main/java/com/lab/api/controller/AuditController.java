@@ -0,0 +1,69 @@
+package com.lab.api.controller;
+
+import com.lab.api.log.AuditArchiveService;
+import com.lab.api.log.AuditExchangeService;
+import com.lab.api.log.AuditExportService;
+import com.lab.api.log.AuditSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/audit")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private final AuditExportService auditExportService;
+    private final AuditSearchService auditSearchService;
+    private final AuditArchiveService auditArchiveService;
+    private final AuditExchangeService auditExchangeService;
+
+    // Busca mensagens brutas no journal por amostra, ID de controle (ex: MSH-10), equipamento e período
+    @GetMapping("/messages")
+    public ResponseEntity<List<AuditMessageDto>> searchMessages(
+            @RequestParam(required = false) String sampleId,
+            @RequestParam(required = false) String controlId,
+            @RequestParam(required = false) String equipment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) throws IOException {
+        return ResponseEntity.ok(auditSearchService.search(sampleId, controlId, equipment, from, to, limit));
+    }
+
+    // Gera os arquivos avulsos (formato antigo de message_logs) a partir do journal de um dia
+    @PostMapping("/export")
+    public ResponseEntity<Map<String, Object>> exportDay(
+            @RequestParam String equipment,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) throws IOException {
+        long exported = auditExportService.exportDay(equipment, date);
+        return ResponseEntity.ok(Map.of("equipment", equipment, "date", date.toString(), "exported", exported));
+    }
+
+    // Executa agora a compactação dos dias encerrados e a política de retenção (normalmente rodam de madrugada)
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Object>> archiveNow() {
+        return ResponseEntity.ok(auditArchiveService.runNow());
+    }
+
+    // Trocas com o equipamento (nos dois sentidos) com o tempo entre cada evento; 'minTotalMs' filtra as lentas
+    @GetMapping("/exchanges")
+    public ResponseEntity<List<AuditExchangeDto>> findExchanges(
+            @RequestParam String equipment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minTotalMs,
+            @RequestParam(required = false) Integer limit) throws IOException {
+        return ResponseEntity.ok(auditExchangeService.findExchanges(equipment, from, to, minTotalMs, limit));
+    }
+}
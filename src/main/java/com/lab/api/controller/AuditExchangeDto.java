@@ -0,0 +1,27 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Linha do tempo de uma troca com o equipamento (ex: ENQ → ACK → mensagem → EOT → resposta), com tempos em microssegundos.
+@Data
+public class AuditExchangeDto {
+    private long exchangeId;
+    private String equipment;
+    private String protocol;
+    private LocalDateTime startedAt;
+    private double totalMicros;
+    private List<Step> steps = new ArrayList<>();
+
+    @Data
+    public static class Step {
+        private String direction;      // IN = do equipamento, OUT = para o equipamento
+        private String event;          // ENQ, ACK, NAK, EOT, MESSAGE (ou o código do caractere de controle)
+        private int bytes;
+        private double atMicros;       // Desde o primeiro evento da troca
+        private double sinceLastMicros; // Desde o evento anterior: mostra de que lado está a demora
+    }
+}
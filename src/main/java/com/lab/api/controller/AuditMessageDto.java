@@ -0,0 +1,20 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Mensagem bruta encontrada na busca da auditoria, com a posição dela no journal.
+@Data
+public class AuditMessageDto {
+    private String equipment;
+    private LocalDateTime timestamp;
+    private String protocol;
+    private long offset;
+    private String direction;   // IN = recebida do equipamento, OUT = enviada ao equipamento
+    private long exchangeId;
+    private List<String> sampleIds;
+    private String controlId;
+    private String rawMessage;
+}
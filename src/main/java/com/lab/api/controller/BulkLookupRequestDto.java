@@ -0,0 +1,17 @@
+package com.lab.api.controller;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkLookupRequestDto {
+
+    @NotEmpty(message = "O campo 'sampleIds' deve conter ao menos uma amostra.")
+    @Size(max = 1000, message = "No máximo 1000 amostras por consulta.")
+    private List<String> sampleIds;
+
+    private List<String> testTypes; // Opcional: restringe os exames retornados
+}
@@ -0,0 +1,14 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BulkLookupResponseDto {
+    // Ordens agrupadas por amostra, na mesma ordem da requisição
+    private Map<String, List<OrderResponseDto>> results;
+    // Amostras sem nenhuma ordem correspondente
+    private List<String> notFound;
+}
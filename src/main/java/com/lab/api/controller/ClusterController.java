@@ -0,0 +1,22 @@
+package com.lab.api.controller;
+
+import com.lab.api.integration.ClusterCoordinator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/cluster")
+@RequiredArgsConstructor
+public class ClusterController {
+
+    private final ClusterCoordinator clusterCoordinator;
+
+    // Nós vivos e qual nó detém o lease de cada equipamento (modo cluster)
+    @GetMapping
+    public ResponseEntity<ClusterStatusDto> getStatus() {
+        return ResponseEntity.ok(clusterCoordinator.getStatus());
+    }
+}
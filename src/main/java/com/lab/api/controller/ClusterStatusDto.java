@@ -0,0 +1,34 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Situação do cluster visto por um nó: nós conhecidos e dono de cada equipamento.
+@Data
+public class ClusterStatusDto {
+    private boolean enabled;
+    private String nodeId;                  // Nó que respondeu
+    private int leaseSeconds;
+    private List<Node> nodes = new ArrayList<>();
+    private List<Lease> leases = new ArrayList<>();
+
+    @Data
+    public static class Node {
+        private String nodeId;
+        private LocalDateTime startedAt;
+        private LocalDateTime heartbeatAt;
+        private boolean live;               // Heartbeat dentro de leaseSeconds
+    }
+
+    @Data
+    public static class Lease {
+        private String equipmentId;
+        private String owner;               // null = liberado
+        private LocalDateTime acquiredAt;
+        private LocalDateTime expiresAt;
+        private boolean expired;
+    }
+}
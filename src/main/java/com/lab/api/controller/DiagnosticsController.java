@@ -0,0 +1,33 @@
+package com.lab.api.controller;
+
+import com.lab.api.metrics.MessageTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/diagnostics")
+@RequiredArgsConstructor
+public class DiagnosticsController {
+
+    private final MessageTracer messageTracer;
+
+    // Latência por equipamento e estágio (primeiro byte → frame → dispatcher → parse → banco → resposta)
+    @GetMapping("/latency")
+    public ResponseEntity<List<LatencyStageDto>> latency(@RequestParam(required = false) String equipment) {
+        return ResponseEntity.ok(messageTracer.snapshot(equipment));
+    }
+
+    // Zera os histogramas (ex: antes de uma rodada de teste de carga)
+    @DeleteMapping("/latency")
+    public ResponseEntity<Void> resetLatency() {
+        messageTracer.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
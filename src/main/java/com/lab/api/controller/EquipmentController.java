@@ -0,0 +1,70 @@
+package com.lab.api.controller;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.integration.EquipmentListenerManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/equipments")
+@RequiredArgsConstructor
+public class EquipmentController {
+
+    private final EquipmentListenerManager listenerManager;
+
+    // Situação de todos os equipamentos: porta/conexões, última mensagem, taxas do último minuto, mensagens em andamento
+    @GetMapping("/status")
+    public ResponseEntity<List<EquipmentStatusDto>> getStatus() {
+        return ResponseEntity.ok(listenerManager.getStatus());
+    }
+
+    @GetMapping("/{equipmentId}/status")
+    public ResponseEntity<EquipmentStatusDto> getStatus(@PathVariable String equipmentId) {
+        return listenerManager.getStatus(equipmentId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{equipmentId}")
+    public ResponseEntity<EquipmentConfig> getConfig(@PathVariable String equipmentId) {
+        EquipmentConfig config = listenerManager.getEquipmentConfig(equipmentId);
+        return config != null ? ResponseEntity.ok(config) : ResponseEntity.notFound().build();
+    }
+
+    // Adiciona ou reconfigura um equipamento em execução; só ele é drenado e reiniciado
+    @PutMapping("/{equipmentId}")
+    public ResponseEntity<EquipmentStatusDto> putEquipment(@PathVariable String equipmentId, @RequestBody EquipmentConfig config) {
+        return ResponseEntity.ok(listenerManager.putEquipment(equipmentId, config));
+    }
+
+    @DeleteMapping("/{equipmentId}")
+    public ResponseEntity<Void> removeEquipment(@PathVariable String equipmentId) {
+        return listenerManager.removeEquipment(equipmentId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/{equipmentId}/restart")
+    public ResponseEntity<EquipmentStatusDto> restartEquipment(@PathVariable String equipmentId) {
+        return listenerManager.restartEquipment(equipmentId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Substitui a lista inteira (mesmo formato de 'equipments.devices'); apenas os equipamentos alterados são afetados
+    @PutMapping
+    public ResponseEntity<List<EquipmentStatusDto>> reload(@RequestBody Map<String, EquipmentConfig> devices) {
+        return ResponseEntity.ok(listenerManager.reload(devices));
+    }
+}
@@ -0,0 +1,33 @@
+package com.lab.api.controller;
+
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Situação de um equipamento em tempo de execução.
+@Data
+public class EquipmentStatusDto {
+    private String id;
+    private String name;
+    private ProtocolType protocol;
+    private CommunicationType transport;
+    private String endpoint;                // Porta TCP ou nome da porta serial
+    private String state;                   // UP, IDLE, STALLED, DOWN, STOPPED, DISABLED, STANDBY (cluster)
+    private String detail;
+    private boolean portOpen;               // Servidor TCP escutando ou porta serial aberta
+    private int connectedClients;           // TCP: conexões abertas; serial: 1 com a porta aberta
+    private LocalDateTime lastMessageAt;
+    private Long secondsSinceLastMessage;
+    private LocalDateTime lastErrorAt;
+    private long messagesLastMinute;
+    private long errorsLastMinute;
+    private long messagesTotal;
+    private long errorsTotal;
+    private int inFlight;                   // Mensagens em processamento no dispatcher
+    private int pendingBytes;
+    // Reaberturas da porta serial e tempo total com a porta indisponível
+    private long reconnects;
+    private long downtimeSeconds;               // Serial: bytes recebidos ainda não lidos
+}
@@ -2,13 +2,22 @@ package com.lab.api.controller;
 
 import com.lab.api.domain.LabOrder;
 import com.lab.api.service.LabOrderService;
+import com.lab.api.service.OrderEventStreamService;
+import com.lab.api.service.OrderVersionCache;
 import jakarta.validation.Valid; // Importar
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -17,7 +26,13 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class LabOrderController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final LabOrderService labOrderService;
+    private final OrderExportWriter orderExportWriter;
+    private final OrderVersionCache orderVersionCache;
+    private final OrderEventStreamService orderEventStreamService;
 
     // Adicionamos @Valid para ativar a validação do DTO
     @PostMapping
@@ -26,24 +41,122 @@ public class LabOrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(OrderResponseDto.fromEntity(createdOrder));
     }
 
+    // Suporta GET condicional: com If-None-Match igual à versão em cache, responde 304 sem ir ao banco.
     @GetMapping
     public ResponseEntity<OrderResponseDto> getOrderResult(
             @RequestParam String sampleId,
-            @RequestParam String testType) {
+            @RequestParam String testType,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        Optional<LabOrder> orderOpt = labOrderService.findBySampleIdAndTestType(sampleId, testType);
+        String cacheKey = OrderVersionCache.sampleKey(sampleId, testType);
+        String cachedETag = orderVersionCache.matchIfNoneMatch(cacheKey, ifNoneMatch);
+        if (cachedETag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedETag).build();
+        }
 
+        Optional<LabOrder> orderOpt = labOrderService.findBySampleIdAndTestType(sampleId, testType);
         return orderOpt
-                .map(order -> ResponseEntity.ok(OrderResponseDto.fromEntity(order)))
+                .map(order -> conditionalResponse(cacheKey, order, ifNoneMatch))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id:\\d+}")
+    public ResponseEntity<OrderResponseDto> getOrderById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        String cacheKey = OrderVersionCache.idKey(id);
+        String cachedETag = orderVersionCache.matchIfNoneMatch(cacheKey, ifNoneMatch);
+        if (cachedETag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedETag).build();
+        }
+
+        return labOrderService.findById(id)
+                .map(order -> conditionalResponse(cacheKey, order, ifNoneMatch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    private ResponseEntity<OrderResponseDto> conditionalResponse(String cacheKey, LabOrder order, String ifNoneMatch) {
+        String etag = OrderVersionCache.etagOf(order.getId(), order.getVersion());
+        orderVersionCache.put(cacheKey, order.getId(), order.getVersion());
+        // Cache vazio (ex: após reinício) ou em cluster, mas a versão no banco é a mesma que o cliente já tem
+        if (OrderVersionCache.etagMatches(etag, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(OrderResponseDto.fromEntity(order));
+    }
+
+    // Consulta em lote: substitui centenas de chamadas GET /api/v1/orders por uma única requisição.
+    @PostMapping("/lookup")
+    public ResponseEntity<BulkLookupResponseDto> lookupOrders(@Valid @RequestBody BulkLookupRequestDto request) {
+        Map<String, List<OrderResponseDto>> grouped = new LinkedHashMap<>();
+        for (String sampleId : request.getSampleIds()) {
+            if (sampleId != null && !sampleId.isBlank()) {
+                grouped.putIfAbsent(sampleId.trim().toUpperCase(), new ArrayList<>());
+            }
+        }
+
+        labOrderService.findBySampleIds(grouped.keySet(), request.getTestTypes())
+                .forEach(order -> grouped.get(order.getSampleId()).add(OrderResponseDto.fromEntity(order)));
+
+        BulkLookupResponseDto response = new BulkLookupResponseDto();
+        response.setNotFound(grouped.entrySet().stream()
+                .filter(entry -> entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+        grouped.values().removeIf(List::isEmpty);
+        response.setResults(grouped);
+        return ResponseEntity.ok(response);
+    }
+
+    // Stream (SSE) de ordens concluídas, opcionalmente filtrado por amostra e/ou exame.
+    // Ao reconectar, o cliente envia Last-Event-ID e recebe os eventos perdidos.
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCompletedOrders(
+            @RequestParam(required = false) String sampleId,
+            @RequestParam(required = false) String testType,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return orderEventStreamService.subscribe(sampleId, testType, lastEventId);
+    }
+
+    // Listagem paginada por cursor: passe o 'nextCursor' da resposta anterior em 'afterId'.
     @GetMapping("/all")
-    public ResponseEntity<List<OrderResponseDto>> getAllOrders() {
-        List<OrderResponseDto> allOrders = labOrderService.findAllOrders()
-                .stream()
+    public ResponseEntity<OrderPageDto> getAllOrders(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            OrderFilterDto filter) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<LabOrder> orders = labOrderService.findOrdersAfter(afterId, pageSize, filter);
+
+        boolean hasMore = orders.size() > pageSize;
+        List<OrderResponseDto> items = orders.stream()
+                .limit(pageSize)
                 .map(OrderResponseDto::fromEntity)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(allOrders);
+
+        OrderPageDto page = new OrderPageDto();
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        page.setNextCursor(items.isEmpty() ? null : items.get(items.size() - 1).getId());
+        return ResponseEntity.ok(page);
+    }
+
+    // Exportação completa (NDJSON ou CSV) escrita em streaming, sem carregar a tabela em memória.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "NDJSON") OrderExportWriter.Format format,
+            OrderFilterDto filter) {
+
+        MediaType contentType = format == OrderExportWriter.Format.CSV
+                ? new MediaType("text", "csv")
+                : new MediaType("application", "x-ndjson");
+        String fileName = "lab-orders." + format.name().toLowerCase();
+
+        StreamingResponseBody body = out -> orderExportWriter.write(out, format, filter);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 }
\ No newline at end of file
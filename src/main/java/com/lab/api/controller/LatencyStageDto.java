@@ -0,0 +1,14 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.util.Map;
+
+// Distribuição da latência de um estágio do caminho das mensagens de um equipamento.
+@Data
+public class LatencyStageDto {
+    private String equipment;
+    private String stage;                   // framing, handoff, parse, persist, ack, total
+    private long count;
+    private Map<String, Double> latencyMs;  // min, mean, p50, p90, p99, p999, max
+}
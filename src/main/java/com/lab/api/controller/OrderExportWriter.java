@@ -0,0 +1,105 @@
+package com.lab.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lab.api.domain.LabOrder;
+import com.lab.api.service.LabOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escreve a exportação de ordens diretamente no corpo da resposta (NDJSON ou CSV),
+ * linha a linha, descarregando o buffer periodicamente para não acumular a exportação em memória.
+ */
+@Component
+@Slf4j
+public class OrderExportWriter {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final int FLUSH_EVERY = 500;
+    private static final String CSV_HEADER = "id,sampleId,patientName,testType,status,resultValue,resultUnits,createdAt,updatedAt";
+
+    private final LabOrderService labOrderService;
+    private final ObjectWriter jsonWriter;
+
+    public OrderExportWriter(LabOrderService labOrderService, ObjectMapper objectMapper) {
+        this.labOrderService = labOrderService;
+        // O Writer é compartilhado por todas as linhas: o Jackson não deve fechá-lo nem forçar flush a cada valor.
+        this.jsonWriter = objectMapper.writerFor(OrderResponseDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void write(OutputStream out, Format format, OrderFilterDto filter) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long[] written = {0};
+        try {
+            long total = labOrderService.exportOrders(filter, order -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvLine(writer, order);
+                    } else {
+                        jsonWriter.writeValue(writer, OrderResponseDto.fromEntity(order));
+                        writer.write('\n');
+                    }
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            log.info("Exportação de ordens concluída ({}): {} registros.", format, total);
+        } catch (UncheckedIOException e) {
+            // Normalmente o cliente fechou a conexão no meio da exportação.
+            log.warn("Exportação de ordens interrompida após {} registros: {}", written[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private void writeCsvLine(Writer writer, LabOrder order) throws IOException {
+        writer.write(String.valueOf(order.getId()));
+        writer.write(',');
+        writer.write(csv(order.getSampleId()));
+        writer.write(',');
+        writer.write(csv(order.getPatientName()));
+        writer.write(',');
+        writer.write(csv(order.getTestType()));
+        writer.write(',');
+        writer.write(order.getStatus() != null ? order.getStatus().name() : "");
+        writer.write(',');
+        writer.write(csv(order.getResultValue()));
+        writer.write(',');
+        writer.write(csv(order.getResultUnits()));
+        writer.write(',');
+        writer.write(order.getCreatedAt() != null ? order.getCreatedAt().toString() : "");
+        writer.write(',');
+        writer.write(order.getUpdatedAt() != null ? order.getUpdatedAt().toString() : "");
+        writer.write('\n');
+    }
+
+    private String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
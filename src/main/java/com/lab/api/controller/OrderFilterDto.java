@@ -0,0 +1,22 @@
+package com.lab.api.controller;
+
+import com.lab.api.domain.OrderStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// Filtros opcionais da listagem paginada e da exportação de ordens.
+// As datas são aplicadas sobre 'updatedAt' (ex: exportar tudo que mudou em um dia).
+@Data
+public class OrderFilterDto {
+    private OrderStatus status;
+    private String sampleId;
+    private String testType;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
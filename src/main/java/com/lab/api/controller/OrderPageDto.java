@@ -0,0 +1,13 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Página de ordens para paginação por cursor (keyset): o cliente envia 'nextCursor' como 'afterId' na próxima chamada.
+@Data
+public class OrderPageDto {
+    private List<OrderResponseDto> items;
+    private Long nextCursor;
+    private boolean hasMore;
+}
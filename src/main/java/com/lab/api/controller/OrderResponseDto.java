@@ -3,6 +3,8 @@ package com.lab.api.controller;
 import com.lab.api.domain.LabOrder;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 public class OrderResponseDto {
     private Long id;
@@ -12,6 +14,9 @@ public class OrderResponseDto {
     private String status;
     private String resultValue;
     private String resultUnits;
+    private Long version;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 
     // Construtor estático para facilitar a conversão da Entidade para DTO
     public static OrderResponseDto fromEntity(LabOrder order) {
@@ -23,6 +28,9 @@ public class OrderResponseDto {
         dto.setStatus(order.getStatus().name());
         dto.setResultValue(order.getResultValue());
         dto.setResultUnits(order.getResultUnits());
+        dto.setVersion(order.getVersion());
+        dto.setCreatedAt(order.getCreatedAt());
+        dto.setUpdatedAt(order.getUpdatedAt());
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.lab.api.controller;
+
+import com.lab.api.simulator.AuditReplayService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+// Replay das mensagens da auditoria para teste de carga (disponível apenas no perfil 'replay')
+@RestController
+@RequestMapping("/api/v1/replay")
+@RequiredArgsConstructor
+public class ReplayController {
+
+    private final AuditReplayService auditReplayService;
+
+    @PostMapping
+    public ResponseEntity<ReplayReportDto> start(@RequestBody(required = false) ReplayRequestDto request) throws IOException {
+        return ResponseEntity.accepted().body(auditReplayService.start(request));
+    }
+
+    @GetMapping
+    public ResponseEntity<ReplayReportDto> status() {
+        ReplayReportDto report = auditReplayService.getStatus();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ReplayReportDto> cancel() {
+        return ResponseEntity.ok(auditReplayService.cancel());
+    }
+}
@@ -0,0 +1,25 @@
+package com.lab.api.controller;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Situação e resultado de uma execução de replay.
+@Data
+public class ReplayReportDto {
+    private String jobId;
+    private String state;               // RUNNING, COMPLETED, CANCELLED, FAILED
+    private ReplayRequestDto request;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long messagesReplayed;
+    private long errors;
+    private long skipped;               // Sem equipamento correspondente ou não suportado pelo destino
+    private long elapsedMs;
+    private long originalSpanMs;        // Intervalo entre a primeira e a última mensagem gravadas
+    private double throughputPerSecond;
+    private Map<String, Double> latencyMs;      // Tempo de processamento por mensagem (p50, p90, p99, p999, max)
+    private Map<String, Double> scheduleLagMs;  // Atraso em relação ao horário programado (ORIGINAL/SPEED)
+    private String failure;
+}
@@ -0,0 +1,18 @@
+package com.lab.api.controller;
+
+import com.lab.api.config.ReplayProperties;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Parâmetros de uma execução de replay; campos nulos usam os padrões de 'replay.*' em application.yml.
+@Data
+public class ReplayRequestDto {
+    private String equipment;       // Nome do equipamento; nulo = todos os equipamentos do journal
+    private LocalDateTime from;     // Padrão: início de ontem
+    private LocalDateTime to;       // Exclusivo. Padrão: início de hoje
+    private ReplayProperties.Rate rate;
+    private Double speed;
+    private Integer parallelism;
+    private ReplayProperties.Target target;
+}
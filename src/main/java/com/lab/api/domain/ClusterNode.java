@@ -0,0 +1,19 @@
+package com.lab.api.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Nó do cluster e o seu último heartbeat; os nós vivos definem quantos equipamentos cabem a cada um.
+@Entity
+@Data
+@Table(name = "cluster_node")
+public class ClusterNode {
+    @Id
+    @Column(length = 200)
+    private String nodeId;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime heartbeatAt;
+}
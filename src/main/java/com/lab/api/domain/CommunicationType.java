@@ -3,5 +3,6 @@ package com.lab.api.domain;
 
 public enum CommunicationType {
     TCP,
-    SERIAL
+    SERIAL,
+    SERIAL_TCP // Porta serial remota num servidor de terminais (TCP bruto em communication.host:port)
 }
\ No newline at end of file
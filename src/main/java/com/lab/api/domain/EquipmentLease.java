@@ -0,0 +1,22 @@
+package com.lab.api.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Posse de um equipamento no modo cluster: só o nó dono abre a porta/sessão, e precisa renovar antes de expiresAt.
+@Entity
+@Data
+@Table(name = "equipment_lease")
+public class EquipmentLease {
+    @Id
+    @Column(length = 100)
+    private String equipmentId;
+
+    @Column(length = 200)
+    private String owner; // null = liberado
+
+    private LocalDateTime acquiredAt;
+    private LocalDateTime expiresAt;
+}
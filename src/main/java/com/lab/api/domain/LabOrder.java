@@ -4,9 +4,14 @@ package com.lab.api.domain;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Data
-@Table(name = "lab_orders")
+@Table(name = "lab_orders", indexes = {
+        @Index(name = "idx_lab_orders_sample_test", columnList = "sampleId, testType"),
+        @Index(name = "idx_lab_orders_updated_at", columnList = "updatedAt")
+})
 public class LabOrder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,4 +26,23 @@ public class LabOrder {
 
     private String resultValue;
     private String resultUnits;
-}
\ No newline at end of file
+
+    // Incrementada pelo JPA a cada alteração da ordem (base do ETag das consultas e do lock otimista)
+    @Version
+    private Long version;
+
+    // Datas de criação e da última alteração (usadas nos filtros de data da listagem/exportação)
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
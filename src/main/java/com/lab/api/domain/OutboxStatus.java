@@ -0,0 +1,7 @@
+package com.lab.api.domain;
+
+public enum OutboxStatus {
+    PENDING, // Aguardando envio (ou nova tentativa) ao webhook do LIS
+    SENT,    // Entregue com sucesso
+    FAILED   // Esgotou as tentativas; requer intervenção
+}
@@ -0,0 +1,41 @@
+package com.lab.api.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Registro do outbox transacional: gravado na mesma transação que conclui a ordem
+// e entregue depois, em lote, ao webhook do LIS.
+@Entity
+@Data
+@Table(name = "result_outbox", indexes = {
+        @Index(name = "idx_result_outbox_due", columnList = "status, nextAttemptAt")
+})
+public class ResultOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long orderId;
+    private Long orderVersion;
+
+    @Column(length = 4000)
+    private String payload; // JSON da ordem (OrderResponseDto)
+
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // Reserva do registro durante a entrega: nó que o enviou e até quando (depois disso outro nó pode reenviá-lo)
+    @Column(length = 100)
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+}
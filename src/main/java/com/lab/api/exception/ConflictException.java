@@ -0,0 +1,14 @@
+package com.lab.api.exception;
+
+/**
+ * Operação recusada por ser incompatível com o estado atual do recurso (ex: auditoria fora do modo JOURNAL,
+ * arquivamento já em execução, equipamento ativo em outro nó). Respondida com 409 pelo GlobalExceptionHandler.
+ */
+public class ConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
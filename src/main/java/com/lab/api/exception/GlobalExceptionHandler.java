@@ -1,5 +1,8 @@
 package com.lab.api.exception;
 
+import com.lab.api.integration.common.MessageProcessingException;
+import com.lab.api.integration.common.MessageRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -24,4 +27,35 @@ public class GlobalExceptionHandler {
         });
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+
+    // Parâmetros inválidos recusados pelas camadas de serviço
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException ex) {
+        return new ResponseEntity<>(Map.of("error", String.valueOf(ex.getMessage())), HttpStatus.BAD_REQUEST);
+    }
+
+    // Ordem alterada por outra requisição entre a leitura e a gravação (@Version)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        return new ResponseEntity<>(Map.of("error", "A ordem foi alterada por outra requisição. Consulte-a novamente e repita a operação."),
+                HttpStatus.CONFLICT);
+    }
+
+    // Operação incompatível com o estado atual (ex: auditoria fora do modo JOURNAL, arquivamento já em execução)
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<Map<String, String>> handleConflict(ConflictException ex) {
+        return new ResponseEntity<>(Map.of("error", String.valueOf(ex.getMessage())), HttpStatus.CONFLICT);
+    }
+
+    // Resposta do equipamento recebida, mas não processada (ex: request-results do Integra com o banco indisponível)
+    @ExceptionHandler(MessageProcessingException.class)
+    public ResponseEntity<Map<String, String>> handleMessageProcessing(MessageProcessingException ex) {
+        return new ResponseEntity<>(Map.of("error", String.valueOf(ex.getMessage())), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    // Sem vaga no bulkhead do equipamento ou do banco: a resposta não foi processada e a requisição pode ser repetida
+    @ExceptionHandler(MessageRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleMessageRejected(MessageRejectedException ex) {
+        return new ResponseEntity<>(Map.of("error", String.valueOf(ex.getMessage())), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,297 @@
+package com.lab.api.integration;
+
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.controller.ClusterStatusDto;
+import com.lab.api.domain.ClusterNode;
+import com.lab.api.domain.EquipmentLease;
+import com.lab.api.service.ClusterNodeRepository;
+import com.lab.api.service.EquipmentLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Modo cluster (cluster.enabled): várias instâncias sobre o mesmo banco, cada equipamento ativo em um único nó.
+ * A posse é um lease por equipamento (tabela equipment_lease) renovado a cada heartbeat; sem renovação por
+ * cluster.lease-seconds, outro nó assume o lease e abre a porta TCP ou a sessão com o servidor de terminais.
+ * <p>
+ * Distribuição: cada nó fica com até ceil(equipamentos habilitados / nós vivos). Quem tem mais que isso drena e
+ * libera um equipamento por rodada; quem tem menos assume leases livres ou expirados.
+ * <p>
+ * Autoproteção: se o lease foi tomado ou não foi renovado a tempo (banco inacessível ou lento, agendador atrasado),
+ * o nó fecha a porta antes de o lease expirar para os demais, evitando dois nós ativos para o mesmo equipamento.
+ * O prazo é conferido por uma thread própria (cluster-fence), pelo tempo desde a última renovação confirmada, e o
+ * fechamento não espera o lock do EquipmentListenerManager (que pode estar ocupado por uma drenagem). Os relógios
+ * dos nós devem estar sincronizados (NTP): a expiração é comparada com a hora de quem tenta assumir.
+ * <p>
+ * Só os listeners são divididos entre os nós. O outbox do webhook é comum: cada nó reivindica as linhas que vai
+ * enviar (claimed_by/claimed_until, UPDATE condicional) antes do POST. O cache de ETags não responde 304 em
+ * cluster (a versão é conferida no banco) e o stream SSE é local de cada nó (ver README, seção 3.6).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterCoordinator {
+
+    private final ClusterProperties clusterProperties;
+    private final EquipmentProperties equipmentProperties;
+    private final EquipmentListenerManager listenerManager;
+    private final EquipmentLeaseRepository leaseRepository;
+    private final ClusterNodeRepository nodeRepository;
+
+    // Leases deste nó e o instante (System.nanoTime) em que foi pedida a última renovação confirmada pelo banco
+    private final Map<String, Long> held = new ConcurrentHashMap<>();
+    // Leases em transferência planejada: continuam sendo renovados enquanto o listener drena
+    private final Set<String> releasing = ConcurrentHashMap.newKeySet();
+    // Inícios e paradas de listeners, em ordem, fora das threads do agendador (a drenagem pode levar segundos)
+    private final ExecutorService handoff = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "cluster-handoff");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Confere o prazo dos leases fora do agendador e do handoff, que podem estar presos no banco ou numa drenagem
+    private final ScheduledExecutorService fence = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "cluster-fence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    @PostConstruct
+    public void startFence() {
+        if (clusterProperties.isEnabled()) {
+            long period = Math.max(100, clusterProperties.getHeartbeatMs() / 4);
+            fence.scheduleWithFixedDelay(this::fenceExpiring, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:2000}")
+    public void heartbeat() {
+        if (!clusterProperties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long renewedAt = System.nanoTime();
+        try {
+            ClusterNode node = nodeRepository.findById(clusterProperties.getNodeId()).orElseGet(this::newNode);
+            node.setHeartbeatAt(now);
+            nodeRepository.save(node);
+        } catch (DataAccessException e) {
+            log.warn("Cluster: falha ao gravar o heartbeat do nó {}: {}", clusterProperties.getNodeId(), e.getMessage());
+        }
+
+        LocalDateTime until = now.plusSeconds(clusterProperties.getLeaseSeconds());
+        for (String id : List.copyOf(held.keySet())) {
+            try {
+                if (leaseRepository.renew(id, clusterProperties.getNodeId(), until) == 1) {
+                    // Só se o lease ainda é deste nó: um fechamento por prazo não é desfeito por renovação atrasada
+                    held.computeIfPresent(id, (key, previous) -> Math.max(previous, renewedAt));
+                } else if (!releasing.contains(id)) {
+                    lose(id, "assumido por outro nó");
+                }
+            } catch (DataAccessException e) {
+                // O fechamento por falta de renovação fica com a thread cluster-fence
+                log.warn("Cluster: falha ao renovar o lease de {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    // Fecha a porta dos leases sem renovação confirmada há quase cluster.lease-seconds, qualquer que seja o motivo
+    void fenceExpiring() {
+        // Uma rodada de heartbeat de margem antes de o lease expirar para os outros nós
+        long fenceAfterNanos = TimeUnit.MILLISECONDS.toNanos(clusterProperties.getLeaseSeconds() * 1000L - clusterProperties.getHeartbeatMs());
+        long now = System.nanoTime();
+        held.forEach((id, renewedAt) -> {
+            long sinceRenewal = now - renewedAt;
+            if (sinceRenewal > fenceAfterNanos) {
+                lose(id, "sem renovação há " + TimeUnit.NANOSECONDS.toSeconds(sinceRenewal) + " s");
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.rebalance-ms:3000}")
+    public void rebalance() {
+        if (!clusterProperties.isEnabled()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<String> devices = enabledDevices();
+            // Equipamentos removidos ou desabilitados neste nó
+            held.keySet().stream().filter(id -> !devices.contains(id) && !releasing.contains(id)).toList().forEach(this::release);
+
+            long liveNodes = Math.max(1, nodeRepository.countByHeartbeatAtAfter(now.minusSeconds(clusterProperties.getLeaseSeconds())));
+            int share = (int) Math.ceil(devices.size() / (double) liveNodes);
+            int owned = held.size() - releasing.size();
+            if (owned > share && releasing.isEmpty()) {
+                // Um por rodada: o nó que acabou de entrar assume antes de o próximo ser liberado
+                held.keySet().stream().filter(id -> !releasing.contains(id)).sorted().reduce((first, second) -> second)
+                        .ifPresent(this::release);
+            } else if (owned < share) {
+                acquire(devices, share - owned, now);
+            }
+            // Reinicia listeners que terminaram (ex: porta TCP ainda presa pelo dono anterior)
+            held.keySet().stream().filter(id -> !releasing.contains(id))
+                    .forEach(id -> handoff.execute(() -> listenerManager.startOwned(id)));
+
+            nodeRepository.deleteInactiveBefore(now.minusHours(1));
+        } catch (DataAccessException e) {
+            log.warn("Cluster: falha ao consultar os leases: {}", e.getMessage());
+        }
+    }
+
+    private void acquire(List<String> devices, int wanted, LocalDateTime now) {
+        Map<String, EquipmentLease> leases = leaseRepository.findAllById(devices).stream()
+                .collect(Collectors.toMap(EquipmentLease::getEquipmentId, Function.identity()));
+        // Cada nó começa a procurar num ponto diferente da lista, para não disputarem todos o mesmo lease
+        int offset = Math.floorMod(clusterProperties.getNodeId().hashCode(), Math.max(1, devices.size()));
+        LocalDateTime until = now.plusSeconds(clusterProperties.getLeaseSeconds());
+        for (int i = 0; i < devices.size() && wanted > 0; i++) {
+            String id = devices.get((offset + i) % devices.size());
+            EquipmentLease lease = leases.get(id);
+            if (held.containsKey(id) || lease != null && lease.getOwner() != null
+                    && !lease.getOwner().equals(clusterProperties.getNodeId()) && !lease.getExpiresAt().isBefore(now)) {
+                continue;
+            }
+            try {
+                long requestedAt = System.nanoTime();
+                boolean acquired = lease == null
+                        ? leaseRepository.insert(id, clusterProperties.getNodeId(), now, until) == 1
+                        : leaseRepository.acquire(id, clusterProperties.getNodeId(), now, until) == 1;
+                if (acquired) {
+                    log.info("Cluster: nó {} assumiu o equipamento {}{}.", clusterProperties.getNodeId(), id,
+                            lease != null && lease.getOwner() != null ? " (lease expirado de " + lease.getOwner() + ")" : "");
+                    held.put(id, requestedAt);
+                    handoff.execute(() -> listenerManager.startOwned(id));
+                    wanted--;
+                }
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Cluster: outro nó criou o lease de {} primeiro.", id);
+            }
+        }
+    }
+
+    // Transferência planejada: drena o listener e só então libera o lease
+    private void release(String id) {
+        releasing.add(id);
+        handoff.execute(() -> {
+            try {
+                listenerManager.stopOwned(id, true);
+                leaseRepository.release(id, clusterProperties.getNodeId(), LocalDateTime.now());
+                log.info("Cluster: lease do equipamento {} liberado pelo nó {}.", id, clusterProperties.getNodeId());
+            } catch (DataAccessException e) {
+                log.warn("Cluster: falha ao liberar o lease de {} (expira em {} s): {}", id, clusterProperties.getLeaseSeconds(), e.getMessage());
+            } finally {
+                held.remove(id);
+                releasing.remove(id);
+            }
+        });
+    }
+
+    private void lose(String id, String reason) {
+        if (held.remove(id) == null) {
+            return;
+        }
+        log.warn("Cluster: lease do equipamento {} perdido pelo nó {} ({}); fechando a porta.", id, clusterProperties.getNodeId(), reason);
+        // Na hora, nesta thread: o handoff pode estar ocupado drenando outro equipamento
+        listenerManager.fence(id);
+        handoff.execute(() -> listenerManager.stopOwned(id, false));
+    }
+
+    private List<String> enabledDevices() {
+        Map<String, EquipmentConfig> devices = equipmentProperties.getDevices();
+        if (devices == null) {
+            return List.of();
+        }
+        return devices.entrySet().stream().filter(entry -> entry.getValue().isEnabled())
+                .map(Map.Entry::getKey).sorted().toList();
+    }
+
+    private ClusterNode newNode() {
+        ClusterNode node = new ClusterNode();
+        node.setNodeId(clusterProperties.getNodeId());
+        node.setStartedAt(startedAt);
+        return node;
+    }
+
+    public ClusterStatusDto getStatus() {
+        ClusterStatusDto status = new ClusterStatusDto();
+        status.setEnabled(clusterProperties.isEnabled());
+        status.setNodeId(clusterProperties.getNodeId());
+        status.setLeaseSeconds(clusterProperties.getLeaseSeconds());
+        if (!clusterProperties.isEnabled()) {
+            return status;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ClusterNode node : nodeRepository.findAll()) {
+            ClusterStatusDto.Node dto = new ClusterStatusDto.Node();
+            dto.setNodeId(node.getNodeId());
+            dto.setStartedAt(node.getStartedAt());
+            dto.setHeartbeatAt(node.getHeartbeatAt());
+            dto.setLive(node.getHeartbeatAt() != null && node.getHeartbeatAt().isAfter(now.minusSeconds(clusterProperties.getLeaseSeconds())));
+            status.getNodes().add(dto);
+        }
+        for (EquipmentLease lease : leaseRepository.findAll()) {
+            ClusterStatusDto.Lease dto = new ClusterStatusDto.Lease();
+            dto.setEquipmentId(lease.getEquipmentId());
+            dto.setOwner(lease.getOwner());
+            dto.setAcquiredAt(lease.getAcquiredAt());
+            dto.setExpiresAt(lease.getExpiresAt());
+            dto.setExpired(lease.getExpiresAt() == null || lease.getExpiresAt().isBefore(now));
+            status.getLeases().add(dto);
+        }
+        return status;
+    }
+
+    /**
+     * Saída do cluster: drena os listeners deste nó e libera os leases na hora, para que os outros nós assumam
+     * na próxima rodada, sem esperar a expiração.
+     */
+    @PreDestroy
+    public void leaveCluster() {
+        if (!clusterProperties.isEnabled()) {
+            return;
+        }
+        handoff.shutdown();
+        try {
+            handoff.awaitTermination(equipmentProperties.getDrainTimeoutSeconds() + 5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<String> released = new ArrayList<>(held.keySet());
+        // Todos os equipamentos drenam juntos (equipments.shutdown-timeout-seconds) antes de os leases serem liberados
+        listenerManager.drainAndClose();
+        try {
+            for (String id : released) {
+                leaseRepository.release(id, clusterProperties.getNodeId(), LocalDateTime.now());
+            }
+            nodeRepository.deleteById(clusterProperties.getNodeId());
+            log.info("Cluster: nó {} saiu do cluster; leases liberados: {}.", clusterProperties.getNodeId(), released);
+        } catch (DataAccessException e) {
+            log.warn("Cluster: falha ao liberar os leases do nó {} (expiram em {} s): {}", clusterProperties.getNodeId(),
+                    clusterProperties.getLeaseSeconds(), e.getMessage());
+        }
+        held.clear();
+        fence.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package com.lab.api.integration;
+
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.controller.EquipmentStatusDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.NamedContributor;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Health do Actuator com um componente por equipamento ({@code /actuator/health/equipments/<id>}).
+ * DOWN, STALLED e IDLE viram DOWN (HTTP 503 no grupo 'equipments'); um listener parado, iniciando ou
+ * em drenagem vira OUT_OF_SERVICE e um equipamento desabilitado ou em standby (lease com outro nó do cluster),
+ * UNKNOWN (não afeta o resultado do grupo).
+ */
+@Component("equipmentsHealthContributor")
+@RequiredArgsConstructor
+public class EquipmentHealthContributor implements CompositeHealthContributor {
+
+    private final EquipmentProperties equipmentProperties;
+    private final EquipmentListenerManager listenerManager;
+
+    @Override
+    public HealthContributor getContributor(String name) {
+        return listenerManager.getEquipmentConfig(name) != null ? indicator(name) : null;
+    }
+
+    @Override
+    public Iterator<NamedContributor<HealthContributor>> iterator() {
+        Map<String, ?> devices = equipmentProperties.getDevices();
+        List<NamedContributor<HealthContributor>> contributors = devices == null ? List.of() : devices.keySet().stream()
+                .map(id -> NamedContributor.of(id, (HealthContributor) indicator(id)))
+                .toList();
+        return contributors.iterator();
+    }
+
+    private HealthIndicator indicator(String equipmentId) {
+        return () -> listenerManager.getStatus(equipmentId)
+                .map(this::toHealth)
+                .orElseGet(() -> Health.unknown().build());
+    }
+
+    private Health toHealth(EquipmentStatusDto status) {
+        Status healthStatus = switch (status.getState()) {
+            case "UP" -> Status.UP;
+            case "DISABLED", "STANDBY" -> Status.UNKNOWN;
+            case "STOPPED", "STARTING", "DRAINING" -> Status.OUT_OF_SERVICE;
+            default -> Status.DOWN;
+        };
+        Health.Builder builder = Health.status(healthStatus)
+                .withDetail("state", status.getState())
+                .withDetail("portOpen", status.isPortOpen())
+                .withDetail("connectedClients", status.getConnectedClients())
+                .withDetail("messagesLastMinute", status.getMessagesLastMinute())
+                .withDetail("errorsLastMinute", status.getErrorsLastMinute())
+                .withDetail("inFlight", status.getInFlight())
+                .withDetail("reconnects", status.getReconnects());
+        if (status.getDetail() != null) {
+            builder.withDetail("detail", status.getDetail());
+        }
+        if (status.getLastMessageAt() != null) {
+            builder.withDetail("lastMessageAt", status.getLastMessageAt().toString());
+        }
+        return builder.build();
+    }
+}
@@ -1,13 +1,22 @@
 package com.lab.api.integration;
 
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.CommunicationConfig;
 import com.lab.api.config.EquipmentConfig;
 import com.lab.api.config.EquipmentProperties;
+import com.lab.api.controller.EquipmentStatusDto;
+import com.lab.api.domain.CommunicationType;
 import com.lab.api.domain.ProtocolType;
+import com.lab.api.exception.ConflictException;
+import com.lab.api.integration.channel.SerialChannels;
+import com.lab.api.integration.common.EquipmentListener;
 import com.lab.api.integration.common.MessageHandler;
 import com.lab.api.integration.common.SerialCommunicator;
 import com.lab.api.integration.common.SerialListener;
 import com.lab.api.integration.common.TcpListener;
 import com.lab.api.log.MessageAuditService;
+import com.lab.api.metrics.EquipmentMetrics;
+import com.lab.api.metrics.LabMetrics;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -15,9 +24,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -26,16 +45,31 @@ public class EquipmentListenerManager {
 
     private final EquipmentProperties equipmentProperties;
     private final MessageAuditService messageAuditService;
+    private final LabMetrics labMetrics;
+    private final ClusterProperties clusterProperties;
 
     @Qualifier("protocolDispatcher")
     private final MessageHandler messageHandler;
 
-    private final Map<String, Runnable> activeListeners = new HashMap<>();
-    private final Map<String, Thread> activeThreads = new HashMap<>();
+    // Lidos pelas consultas de status/health enquanto equipamentos são iniciados, reconfigurados ou removidos
+    private final Map<String, EquipmentListener> activeListeners = new ConcurrentHashMap<>();
+    private final Map<String, Thread> activeThreads = new ConcurrentHashMap<>();
+    private final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+    private final Set<String> draining = ConcurrentHashMap.newKeySet();
+    // Modo cluster: equipamentos cujo lease pertence a este nó (mantido pelo ClusterCoordinator)
+    private final Set<String> owned = ConcurrentHashMap.newKeySet();
+    // Logo após iniciar, porta ainda não aberta não é falha (STARTING, não DOWN)
+    private static final long STARTING_GRACE_MS = 5000;
+    // Até quando a inicialização espera as portas abrirem para registrar o tempo até todos os listeners prontos
+    private static final long STARTUP_READY_TIMEOUT_MS = 60_000;
 
     @PostConstruct
     public void initializeListeners() {
         log.info("Iniciando gerenciador de listeners de equipamentos...");
+        if (!equipmentProperties.isAutostart()) {
+            log.warn("equipments.autostart=false: nenhum listener será iniciado.");
+            return;
+        }
         Map<String, EquipmentConfig> devices = equipmentProperties.getDevices();
 
         if (devices == null || devices.isEmpty()) {
@@ -43,6 +77,10 @@ public class EquipmentListenerManager {
             return;
         }
 
+        if (clusterProperties.isEnabled()) {
+            log.info("Modo cluster (nó {}): os listeners são iniciados conforme os leases obtidos.", clusterProperties.getNodeId());
+            return;
+        }
         devices.forEach((id, config) -> {
             if (config.isEnabled()) {
                 log.info("Iniciando listener para o equipamento: {} (ID: {})", config.getName(), id);
@@ -51,26 +89,71 @@ public class EquipmentListenerManager {
                 log.info("Equipamento {} (ID: {}) está desabilitado na configuração.", config.getName(), id);
             }
         });
+        watchStartupReadiness();
+    }
+
+    /**
+     * Cada listener abre a sua porta na própria thread, em paralelo com os demais e com o resto da inicialização
+     * do Spring. Esta thread só observa quando ficam prontos e registra o tempo desde o início da JVM até o
+     * primeiro e até todos os listeners aceitarem conexões (log e gauge lab.startup.listeners.ready).
+     */
+    private void watchStartupReadiness() {
+        Map<String, EquipmentListener> started = Map.copyOf(activeListeners);
+        if (started.isEmpty()) {
+            return;
+        }
+        Thread watcher = new Thread(() -> {
+            Set<String> pending = new HashSet<>(started.keySet());
+            long deadline = System.currentTimeMillis() + STARTUP_READY_TIMEOUT_MS;
+            boolean first = true;
+            try {
+                while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+                    pending.removeIf(id -> started.get(id).isPortOpen());
+                    if (first && pending.size() < started.size()) {
+                        first = false;
+                        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                        labMetrics.firstListenerReady(uptime);
+                        log.info("Primeiro listener pronto {} ms após o início da JVM.", uptime);
+                    }
+                    Thread.sleep(10);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending.isEmpty()) {
+                long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                labMetrics.allListenersReady(uptime);
+                log.info("Todos os {} listeners prontos {} ms após o início da JVM.", started.size(), uptime);
+            } else {
+                log.info("{} de {} listeners prontos; sem porta aberta após {} s: {}.", started.size() - pending.size(),
+                        started.size(), STARTUP_READY_TIMEOUT_MS / 1000, pending);
+            }
+        }, "listener-startup");
+        watcher.setDaemon(true);
+        watcher.start();
     }
 
     private void startListenerFor(String id, EquipmentConfig config) {
         Thread listenerThread;
-        Runnable listener = null;
+        EquipmentListener listener = null;
 
         // Lógica para comunicadores ativos (mestre-escravo)
         if (config.getProtocol() == ProtocolType.ROCHE_HIF) {
             log.info("--> Configurado para comunicação ATIVA (Mestre) com o protocolo ROCHE_HIF.");
-            listener = new IntegraCommunicator(config);
+            listener = new IntegraCommunicator(config, messageAuditService, labMetrics.forEquipment(config),
+                    equipmentProperties.getReconnect());
         } else {
             // Lógica para listeners passivos (escuta)
             switch (config.getCommunication().getType()) {
                 case TCP -> {
                     log.info("--> Configurado para comunicação TCP na porta {}", config.getCommunication().getPort());
-                    listener = new TcpListener(config, messageHandler, messageAuditService);
+                    listener = new TcpListener(config, messageHandler, messageAuditService, labMetrics.forEquipment(config));
                 }
-                case SERIAL -> {
-                    log.info("--> Configurado para comunicação SERIAL na porta {}", config.getCommunication().getPortName());
-                    listener = new SerialListener(config, messageHandler, messageAuditService);
+                case SERIAL, SERIAL_TCP -> {
+                    log.info("--> Configurado para comunicação {} na porta {}", config.getCommunication().getType(),
+                            SerialChannels.describe(config.getCommunication()));
+                    listener = new SerialListener(config, messageHandler, messageAuditService, labMetrics.forEquipment(config),
+                            equipmentProperties.getReconnect());
                 }
                 default -> log.warn("Tipo de comunicação desconhecido para o equipamento: {}", config.getName());
             }
@@ -83,15 +166,249 @@ public class EquipmentListenerManager {
 
             activeListeners.put(id, listener);
             activeThreads.put(id, listenerThread);
+            startedAt.put(id, System.currentTimeMillis());
+        }
+    }
+
+    // Sem cluster, todo equipamento habilitado roda neste nó; com cluster, só os que têm lease aqui
+    private boolean shouldRun(String id, EquipmentConfig config) {
+        return config.isEnabled() && equipmentProperties.isAutostart() && (!clusterProperties.isEnabled() || owned.contains(id));
+    }
+
+    /**
+     * Modo cluster: o lease do equipamento passou a ser deste nó. Inicia o listener; se ele já existe mas a
+     * thread terminou (ex: a porta ainda estava presa pelo dono anterior), inicia de novo.
+     */
+    public synchronized void startOwned(String id) {
+        owned.add(id);
+        EquipmentConfig config = getEquipmentConfig(id);
+        if (config == null || !shouldRun(id, config)) {
+            return;
+        }
+        Thread thread = activeThreads.get(id);
+        if (thread != null && thread.isAlive()) {
+            return;
+        }
+        if (thread != null) {
+            log.warn("Listener do equipamento {} (ID: {}) havia terminado; iniciando novamente.", config.getName(), id);
+            stopListenerFor(id, config, false);
+        } else {
+            log.info("Iniciando listener para o equipamento: {} (ID: {}) com o lease deste nó.", config.getName(), id);
+        }
+        startListenerFor(id, config);
+    }
+
+    /**
+     * Modo cluster: o lease deixa este nó. Na transferência planejada o listener é drenado antes de o lease ser
+     * liberado; com o lease já perdido (drain=false) a porta é fechada na hora, pois outro nó pode estar assumindo.
+     */
+    public synchronized void stopOwned(String id, boolean drain) {
+        owned.remove(id);
+        EquipmentConfig config = getEquipmentConfig(id);
+        if (config != null && activeListeners.containsKey(id)) {
+            log.info("Parando o equipamento {} (ID: {}): lease {} por este nó.", config.getName(), id, drain ? "liberado" : "perdido");
+            stopListenerFor(id, config, drain);
         }
     }
 
+    /**
+     * Modo cluster: o lease está para expirar sem renovação. Fecha a porta na hora, sem o lock deste gerenciador
+     * (que pode estar preso numa drenagem de até equipments.drain-timeout-seconds); o stopOwned seguinte limpa
+     * o estado do listener.
+     */
+    public void fence(String id) {
+        owned.remove(id);
+        EquipmentListener listener = activeListeners.get(id);
+        if (listener != null) {
+            listener.stopIntake();
+            listener.close();
+            log.warn("Equipamento {}: porta fechada sem drenagem (lease prestes a expirar).", id);
+        }
+    }
+
+    /**
+     * Drena e para o listener de um equipamento: recusa novas transmissões, espera as que estão em andamento
+     * (até equipments.drain-timeout-seconds) e fecha a porta/conexões. Os demais equipamentos não são afetados.
+     */
+    private void stopListenerFor(String id, EquipmentConfig config) {
+        stopListenerFor(id, config, true);
+    }
+
+    private void stopListenerFor(String id, EquipmentConfig config, boolean drain) {
+        EquipmentListener listener = activeListeners.get(id);
+        if (listener == null) {
+            return;
+        }
+        draining.add(id);
+        try {
+            EquipmentMetrics metrics = labMetrics.forEquipment(config);
+            listener.stopIntake();
+            long startedDrain = System.nanoTime();
+            long deadline = drain ? startedDrain + TimeUnit.SECONDS.toNanos(equipmentProperties.getDrainTimeoutSeconds()) : startedDrain;
+            while ((listener.isBusy() || metrics.getInFlight() > 0) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            if (!drain) {
+                log.info("Equipamento {} (ID: {}) encerrado sem drenagem.", config.getName(), id);
+            } else if (listener.isBusy() || metrics.getInFlight() > 0) {
+                log.warn("Equipamento {} (ID: {}): transmissão ainda em andamento após {} s; encerrando mesmo assim.",
+                        config.getName(), id, equipmentProperties.getDrainTimeoutSeconds());
+            } else {
+                log.info("Equipamento {} (ID: {}) drenado em {} ms.", config.getName(), id,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedDrain));
+            }
+            listener.close();
+            Thread thread = activeThreads.get(id);
+            if (thread != null) {
+                thread.interrupt();
+                thread.join(2000);
+            }
+        } catch (InterruptedException e) {
+            listener.close();
+            Thread.currentThread().interrupt();
+        } finally {
+            activeListeners.remove(id);
+            activeThreads.remove(id);
+            startedAt.remove(id);
+            draining.remove(id);
+        }
+    }
+
+    // Adiciona ou substitui um equipamento em execução; a leitura da lista e o reload ficam sob o mesmo lock (PUT/DELETE simultâneos)
+    public synchronized EquipmentStatusDto putEquipment(String equipmentId, EquipmentConfig config) {
+        Map<String, EquipmentConfig> devices = new LinkedHashMap<>(equipmentProperties.getDevices());
+        devices.put(equipmentId, config);
+        reload(devices);
+        return buildStatus(equipmentId, config);
+    }
+
+    public synchronized boolean removeEquipment(String equipmentId) {
+        if (getEquipmentConfig(equipmentId) == null) {
+            return false;
+        }
+        Map<String, EquipmentConfig> devices = new LinkedHashMap<>(equipmentProperties.getDevices());
+        devices.remove(equipmentId);
+        reload(devices);
+        return true;
+    }
+
+    // Drena e reinicia um único equipamento com a configuração atual (ex: após trocar o cabo/adaptador)
+    public synchronized Optional<EquipmentStatusDto> restartEquipment(String equipmentId) {
+        EquipmentConfig config = getEquipmentConfig(equipmentId);
+        if (config == null) {
+            return Optional.empty();
+        }
+        if (!config.isEnabled()) {
+            throw new ConflictException("Equipamento " + equipmentId + " está desabilitado.");
+        }
+        if (clusterProperties.isEnabled() && !owned.contains(equipmentId)) {
+            throw new ConflictException("Equipamento " + equipmentId + " está ativo em outro nó do cluster.");
+        }
+        log.info("Reiniciando o equipamento {} (ID: {}).", config.getName(), equipmentId);
+        stopListenerFor(equipmentId, config);
+        startListenerFor(equipmentId, config);
+        return Optional.of(buildStatus(equipmentId, config));
+    }
+
+    /**
+     * Aplica uma nova lista de equipamentos sem reiniciar o serviço: apenas os equipamentos adicionados,
+     * removidos ou com configuração diferente são drenados/iniciados; os inalterados não são tocados.
+     */
+    public synchronized List<EquipmentStatusDto> reload(Map<String, EquipmentConfig> devices) {
+        devices.forEach((id, config) -> {
+            if (config != null) config.setId(id);
+        });
+        Map<String, EquipmentConfig> current = equipmentProperties.getDevices();
+        List<String> removed = current.keySet().stream().filter(id -> !devices.containsKey(id)).toList();
+        List<String> changed = devices.keySet().stream()
+                .filter(id -> devices.get(id) == null || !devices.get(id).equals(current.get(id))
+                        || equipmentProperties.isAutostart() && shouldRun(id, devices.get(id)) != activeListeners.containsKey(id))
+                .toList();
+        changed.forEach(id -> validate(id, devices.get(id), devices));
+
+        // Primeiro para todos os afetados (libera portas trocadas entre equipamentos), depois inicia os novos
+        for (String id : removed) {
+            EquipmentConfig old = current.get(id);
+            stopListenerFor(id, old);
+            current.remove(id);
+            labMetrics.release(old);
+            log.info("Equipamento {} (ID: {}) removido.", old.getName(), id);
+        }
+        for (String id : changed) {
+            EquipmentConfig old = current.get(id);
+            if (old != null) {
+                stopListenerFor(id, old);
+                if (!old.getName().equals(devices.get(id).getName()) || old.getProtocol() != devices.get(id).getProtocol()) {
+                    labMetrics.release(old);
+                }
+            }
+        }
+        for (String id : changed) {
+            EquipmentConfig config = devices.get(id);
+            current.put(id, config);
+            if (shouldRun(id, config)) {
+                log.info("Iniciando listener para o equipamento: {} (ID: {})", config.getName(), id);
+                startListenerFor(id, config);
+            } else {
+                log.info("Equipamento {} (ID: {}) atualizado; listener não iniciado (desabilitado, autostart=false ou lease de outro nó).", config.getName(), id);
+            }
+        }
+        log.info("Configuração de equipamentos aplicada: {} alterado(s)/adicionado(s) {}, {} removido(s) {}, {} inalterado(s).",
+                changed.size(), changed, removed.size(), removed, devices.size() - changed.size());
+        return getStatus();
+    }
+
+    private void validate(String id, EquipmentConfig config, Map<String, EquipmentConfig> devices) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Informe o ID do equipamento.");
+        }
+        if (config == null || config.getName() == null || config.getName().isBlank()) {
+            throw new IllegalArgumentException("Equipamento " + id + ": informe o nome.");
+        }
+        if (config.getProtocol() == null) {
+            throw new IllegalArgumentException("Equipamento " + id + ": informe o protocolo.");
+        }
+        if (config.getCommunication() == null || config.getCommunication().getType() == null) {
+            throw new IllegalArgumentException("Equipamento " + id + ": informe o tipo de comunicação (TCP, SERIAL ou SERIAL_TCP).");
+        }
+        String endpoint = endpointOf(config.getCommunication());
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Equipamento " + id + ": informe a porta TCP, o nome da porta serial ou host e porta do servidor de terminais.");
+        }
+        devices.forEach((otherId, other) -> {
+            if (otherId.equals(id) || other == null) return;
+            // Nome identifica o equipamento nas métricas e na pasta da auditoria
+            if (config.getName().equals(other.getName())) {
+                throw new IllegalArgumentException("Equipamento " + id + ": nome já usado por " + otherId + ".");
+            }
+            if (config.isEnabled() && other.isEnabled() && other.getCommunication() != null
+                    && endpoint.equals(endpointOf(other.getCommunication()))) {
+                throw new IllegalArgumentException("Equipamento " + id + ": " + endpoint + " já é usado por " + otherId + ".");
+            }
+        });
+    }
+
+    private static String endpointOf(CommunicationConfig communication) {
+        if (communication.getType() == CommunicationType.TCP) {
+            return communication.getPort() > 0 ? "tcp:" + communication.getPort() : null;
+        }
+        if (communication.getType() == CommunicationType.SERIAL_TCP) {
+            return communication.getHost() != null && !communication.getHost().isBlank() && communication.getPort() > 0
+                    ? "serial-tcp:" + SerialChannels.describe(communication) : null;
+        }
+        return communication.getPortName() != null && !communication.getPortName().isBlank() ? communication.getPortName() : null;
+    }
+
     // Método para enviar requisições para comunicadores ativos
     public Optional<String> sendRequest(String equipmentId, String request) {
-        Runnable listener = activeListeners.get(equipmentId);
+        if (clusterProperties.isEnabled() && !owned.contains(equipmentId)) {
+            log.error("O equipamento {} está ativo em outro nó do cluster; envie a requisição ao nó dono do lease.", equipmentId);
+            return Optional.empty();
+        }
+        EquipmentListener listener = activeListeners.get(equipmentId);
         if (listener instanceof SerialCommunicator communicator) {
             if (!communicator.isPortOpen()) {
-                log.warn("A porta para o equipamento {} não está aberta. Tentando abrir...", equipmentId);
+                log.warn("A porta para o equipamento {} não está aberta. Antecipando a reabertura...", equipmentId);
                 communicator.open();
             }
             return communicator.sendRequestAndReceiveResponse(request);
@@ -108,27 +425,173 @@ public class EquipmentListenerManager {
         return equipmentProperties.getDevices().get(equipmentId);
     }
 
+    // Situação de todos os equipamentos configurados (inclusive os desabilitados)
+    public List<EquipmentStatusDto> getStatus() {
+        List<EquipmentStatusDto> statuses = new ArrayList<>();
+        if (equipmentProperties.getDevices() != null) {
+            equipmentProperties.getDevices().forEach((id, config) -> statuses.add(buildStatus(id, config)));
+        }
+        return statuses;
+    }
+
+    public Optional<EquipmentStatusDto> getStatus(String equipmentId) {
+        EquipmentConfig config = getEquipmentConfig(equipmentId);
+        return config != null ? Optional.of(buildStatus(equipmentId, config)) : Optional.empty();
+    }
+
+    private EquipmentStatusDto buildStatus(String id, EquipmentConfig config) {
+        EquipmentStatusDto status = new EquipmentStatusDto();
+        status.setId(id);
+        status.setName(config.getName());
+        status.setProtocol(config.getProtocol());
+        if (config.getCommunication() != null) {
+            status.setTransport(config.getCommunication().getType());
+            status.setEndpoint(config.getCommunication().getType() == CommunicationType.TCP
+                    ? String.valueOf(config.getCommunication().getPort()) : SerialChannels.describe(config.getCommunication()));
+        }
+
+        EquipmentMetrics metrics = labMetrics.forEquipment(config);
+        long now = System.currentTimeMillis();
+        status.setConnectedClients(metrics.getConnections());
+        status.setMessagesLastMinute(metrics.getMessagesLastMinute());
+        status.setErrorsLastMinute(metrics.getErrorsLastMinute());
+        status.setMessagesTotal(metrics.getMessagesTotal());
+        status.setErrorsTotal(metrics.getErrorsTotal());
+        status.setInFlight(metrics.getInFlight());
+        status.setReconnects(metrics.getReconnects());
+        status.setDowntimeSeconds(metrics.getDowntimeMillis() / 1000);
+        if (metrics.getLastMessageAt() > 0) {
+            status.setLastMessageAt(toLocalDateTime(metrics.getLastMessageAt()));
+            status.setSecondsSinceLastMessage((now - metrics.getLastMessageAt()) / 1000);
+        }
+        if (metrics.getLastErrorAt() > 0) {
+            status.setLastErrorAt(toLocalDateTime(metrics.getLastErrorAt()));
+        }
+
+        EquipmentListener listener = activeListeners.get(id);
+        if (listener != null) {
+            status.setPortOpen(listener.isPortOpen());
+        }
+        if (listener instanceof SerialListener serialListener) {
+            status.setPendingBytes(serialListener.getPendingBytes());
+        }
+
+        EquipmentProperties.Health health = equipmentProperties.getHealth();
+        int maxIdleSeconds = config.getMaxIdleSeconds() != null ? config.getMaxIdleSeconds() : health.getMaxIdleSeconds();
+        long busySince = metrics.getBusySince();
+        if (!config.isEnabled()) {
+            status.setState("DISABLED");
+        } else if (draining.contains(id)) {
+            status.setState("DRAINING");
+            status.setDetail("Aguardando as transmissões em andamento para parar/reconfigurar o equipamento.");
+        } else if (listener == null && clusterProperties.isEnabled() && !owned.contains(id)) {
+            status.setState("STANDBY");
+            status.setDetail("Lease do equipamento com outro nó do cluster (ou ainda não obtido).");
+        } else if (listener == null) {
+            status.setState("STOPPED");
+            status.setDetail("Listener não iniciado.");
+        } else if (!status.isPortOpen() && now - startedAt.getOrDefault(id, 0L) < STARTING_GRACE_MS) {
+            status.setState("STARTING");
+        } else if (!status.isPortOpen()) {
+            status.setState("DOWN");
+            status.setDetail(status.getTransport() == CommunicationType.TCP ? "Servidor TCP não está escutando."
+                    : "Porta serial indisponível; reabrindo com backoff.");
+        } else if (busySince > 0 && now - busySince > health.getStallSeconds() * 1000L) {
+            status.setState("STALLED");
+            status.setDetail(status.getInFlight() + " mensagem(ns) em processamento sem progresso há " + (now - busySince) / 1000 + " s.");
+        } else if (maxIdleSeconds > 0 && now - Math.max(metrics.getLastMessageAt(), startedAt.getOrDefault(id, now)) > maxIdleSeconds * 1000L) {
+            status.setState("IDLE");
+            status.setDetail("Nenhuma mensagem nos últimos " + maxIdleSeconds + " s.");
+        } else {
+            status.setState("UP");
+        }
+        return status;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
     @PreDestroy
     public void shutdownListeners() {
+        drainAndClose();
+    }
+
+    /**
+     * Encerramento do serviço sem perder a mensagem em andamento (que o analisador retransmitiria inteira):
+     * todos os equipamentos param de aceitar transmissões ao mesmo tempo, as transmissões em andamento são
+     * concluídas (frames, dispatcher e resposta), a auditoria é gravada em disco e só então as portas são fechadas.
+     * Tudo dentro de equipments.shutdown-timeout-seconds.
+     */
+    public synchronized void drainAndClose() {
+        Map<String, EquipmentListener> listeners = Map.copyOf(activeListeners);
+        if (listeners.isEmpty()) {
+            return;
+        }
         log.info("Encerrando todos os listeners de equipamentos...");
-        activeListeners.forEach((id, listener) -> {
-            if (listener instanceof SerialListener serialListener) {
-                serialListener.close();
-            } else if (listener instanceof TcpListener tcpListener) {
-                tcpListener.close();
-            } else if (listener instanceof SerialCommunicator communicator) {
-                communicator.close();
+        long startedDrain = System.nanoTime();
+        long deadline = startedDrain + TimeUnit.SECONDS.toNanos(equipmentProperties.getShutdownTimeoutSeconds());
+        draining.addAll(listeners.keySet());
+        listeners.values().forEach(EquipmentListener::stopIntake);
+
+        // Equipamentos com transmissão em andamento no início do encerramento e quando cada um terminou
+        Map<String, Long> pending = new LinkedHashMap<>();
+        listeners.forEach((id, listener) -> {
+            if (isBusy(id, listener)) pending.put(id, 0L);
+        });
+        Set<String> busy = new HashSet<>(pending.keySet());
+        try {
+            while (!busy.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                busy.removeIf(id -> {
+                    boolean done = !isBusy(id, listeners.get(id));
+                    if (done) pending.put(id, System.nanoTime() - startedDrain);
+                    return done;
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.forEach((id, elapsed) -> {
+            EquipmentConfig config = getEquipmentConfig(id);
+            String name = config != null ? config.getName() : id;
+            if (busy.contains(id)) {
+                log.warn("Equipamento {} (ID: {}): transmissão ainda em andamento após {} s ({} mensagem(ns) no dispatcher); encerrando mesmo assim.",
+                        name, id, equipmentProperties.getShutdownTimeoutSeconds(), config != null ? labMetrics.forEquipment(config).getInFlight() : 0);
+            } else {
+                log.info("Equipamento {} (ID: {}): transmissão em andamento concluída em {} ms.", name, id, TimeUnit.NANOSECONDS.toMillis(elapsed));
             }
         });
-        activeThreads.values().forEach(thread -> {
+
+        long remainingMs = Math.max(1000, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        boolean flushed = messageAuditService.flush(remainingMs);
+        log.info("Drenagem concluída em {} ms: {} equipamento(s), {} com transmissão em andamento, {} interrompido(s) {}; auditoria {}.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedDrain), listeners.size(), pending.size(), busy.size(), busy,
+                flushed ? "gravada em disco" : "não confirmada em " + remainingMs + " ms");
+
+        listeners.values().forEach(EquipmentListener::close);
+        listeners.keySet().forEach(id -> {
+            Thread thread = activeThreads.get(id);
             try {
-                thread.interrupt();
-                thread.join(2000); // Espera a thread terminar
+                if (thread != null) {
+                    thread.interrupt();
+                    thread.join(2000); // Espera a thread terminar
+                }
             } catch (InterruptedException e) {
                 log.warn("Thread de listener foi interrompida durante o shutdown.");
                 Thread.currentThread().interrupt();
+            } finally {
+                activeListeners.remove(id);
+                activeThreads.remove(id);
+                startedAt.remove(id);
+                draining.remove(id);
             }
         });
         log.info("Todos os listeners foram encerrados.");
     }
+
+    private boolean isBusy(String id, EquipmentListener listener) {
+        EquipmentConfig config = getEquipmentConfig(id);
+        return listener.isBusy() || config != null && labMetrics.forEquipment(config).getInFlight() > 0;
+    }
 }
\ No newline at end of file
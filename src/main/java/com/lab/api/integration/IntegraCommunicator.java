@@ -1,119 +1,203 @@
 package com.lab.api.integration;
 
-import com.fazecast.jSerialComm.SerialPort;
-import com.lab.api.config.CommunicationConfig;
 import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.integration.channel.SerialChannel;
+import com.lab.api.integration.channel.SerialChannels;
 import com.lab.api.integration.common.SerialCommunicator;
+import com.lab.api.integration.common.SerialPortSupervisor;
+import com.lab.api.log.LogContext;
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.log.journal.AuditClock;
+import com.lab.api.log.journal.RecordKind;
+import com.lab.api.metrics.EquipmentMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class IntegraCommunicator implements SerialCommunicator {
 
     private final EquipmentConfig config;
-    private SerialPort activePort;
+    private final MessageAuditService messageAuditService;
+    private final EquipmentMetrics metrics;
+    private final SerialPortSupervisor supervisor;
+    private volatile SerialChannel channel;
+    // false durante a drenagem do equipamento: novas requisições são recusadas
+    private volatile boolean accepting = true;
+    private final AtomicInteger activeRequests = new AtomicInteger();
     private static final byte EOT = 0x04;
     private static final int TIMEOUT_MS = 15000; // Timeout de 15s para receber a resposta
+    private static final int OPEN_WAIT_MS = 2000; // Espera pela reabertura pedida por open()
 
-    public IntegraCommunicator(EquipmentConfig config) {
+    public IntegraCommunicator(EquipmentConfig config, MessageAuditService messageAuditService, EquipmentMetrics metrics,
+                               EquipmentProperties.Reconnect reconnect) {
         this.config = config;
+        this.messageAuditService = messageAuditService;
+        this.metrics = metrics;
+        this.supervisor = new SerialPortSupervisor(config, reconnect, metrics, new SerialPortSupervisor.Port() {
+            @Override
+            public boolean open() {
+                return openPort();
+            }
+
+            @Override
+            public boolean isAlive() {
+                SerialChannel current = channel;
+                return current != null && current.isAlive();
+            }
+
+            @Override
+            public void release() {
+                SerialChannel current = channel;
+                if (current != null) {
+                    current.close();
+                }
+                metrics.setConnected(false);
+            }
+        });
     }
 
+    // A porta é aberta (e reaberta) pelo supervisor; aqui só antecipamos a próxima tentativa e esperamos um pouco
     @Override
     public void open() {
         if (isPortOpen()) {
-            log.info("[{}] A porta {} já está aberta.", config.getName(), config.getCommunication().getPortName());
+            log.info("[{}] A porta {} já está aberta.", config.getName(), SerialChannels.describe(config.getCommunication()));
             return;
         }
-        CommunicationConfig commConfig = config.getCommunication();
-        activePort = SerialPort.getCommPort(commConfig.getPortName());
-        activePort.setBaudRate(commConfig.getBaudRate());
-        activePort.setNumDataBits(commConfig.getDataBits());
-        activePort.setNumStopBits(commConfig.getStopBits());
-        activePort.setParity(getParity(commConfig.getParity()));
-
-        if (activePort.openPort()) {
-            log.info("[{}] Porta serial {} aberta com sucesso para comunicação ativa.", config.getName(), commConfig.getPortName());
-        } else {
-            log.error("[{}] Falha ao abrir a porta serial {}.", config.getName(), commConfig.getPortName());
+        supervisor.retryNow();
+        long deadline = System.currentTimeMillis() + OPEN_WAIT_MS;
+        try {
+            while (!isPortOpen() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private boolean openPort() {
+        SerialChannel candidate = SerialChannels.create(config.getCommunication());
+        if (!candidate.open()) {
+            return false;
+        }
+        channel = candidate;
+        log.info("[{}] Porta serial {} aberta com sucesso para comunicação ativa.", config.getName(), candidate.describe());
+        metrics.setConnected(true);
+        return true;
+    }
+
     @Override
     public Optional<String> sendRequestAndReceiveResponse(String requestMessage) {
+        if (!accepting) {
+            log.warn("[{}] Equipamento em drenagem/reconfiguração. Requisição recusada.", config.getName());
+            return Optional.empty();
+        }
+        activeRequests.incrementAndGet();
+        try {
+            return exchange(requestMessage);
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private Optional<String> exchange(String requestMessage) {
         if (!isPortOpen()) {
             log.error("[{}] A porta não está aberta. Não é possível enviar a requisição.", config.getName());
             return Optional.empty();
         }
 
-        try (InputStream in = activePort.getInputStream(); OutputStream out = activePort.getOutputStream()) {
-            activePort.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, TIMEOUT_MS, 0);
-
+        SerialChannel current = channel;
+        MDC.MDCCloseable equipmentContext = LogContext.equipment(config);
+        try {
             // Envia a requisição
-            out.write(requestMessage.getBytes());
-            out.flush();
+            long exchangeId = messageAuditService.newExchangeId();
+            byte[] requestBytes = requestMessage.getBytes();
+            if (current.write(requestBytes, requestBytes.length) != requestBytes.length) {
+                throw new IOException("falha ao escrever a requisição em " + current.describe());
+            }
+            metrics.bytesOut(requestBytes.length);
+            metrics.messageOut();
+            messageAuditService.auditMessage(RecordKind.MESSAGE_OUT, requestMessage, config, exchangeId, AuditClock.nowNanos());
             log.info("[{}] -> Requisição enviada: {}", config.getName(), requestMessage.replace("\n", " ").replace("\r", ""));
 
-            // Lê a resposta
+            // Lê a resposta (tudo o que já chegou a cada consulta, até o EOT)
             StringBuilder responseBuilder = new StringBuilder();
+            byte[] buffer = new byte[1024];
             long startTime = System.currentTimeMillis();
 
             while (System.currentTimeMillis() - startTime < TIMEOUT_MS) {
-                if(in.available() > 0) {
-                    int byteRead = in.read();
-                    if (byteRead == -1) break; // Fim do stream
-
-                    responseBuilder.append((char) byteRead);
+                int read = current.read(buffer, buffer.length);
+                if (read < 0) {
+                    throw new IOException("porta " + current.describe() + " perdida durante a leitura");
+                }
+                for (int i = 0; i < read; i++) {
+                    byte byteRead = buffer[i];
+                    responseBuilder.append((char) (byteRead & 0xFF));
                     if (byteRead == EOT) { // Fim da transmissão
                         log.info("[{}] <- Resposta recebida completa.", config.getName());
-                        return Optional.of(responseBuilder.toString());
+                        String response = responseBuilder.toString();
+                        metrics.bytesIn(response.length());
+                        metrics.messageIn();
+                        messageAuditService.auditMessage(RecordKind.MESSAGE_IN, response, config, exchangeId, AuditClock.nowNanos());
+                        return Optional.of(response);
                     }
                 }
                 // Pequena pausa para não sobrecarregar a CPU
-                Thread.sleep(20);
+                if (read == 0) {
+                    Thread.sleep(20);
+                }
             }
+            metrics.error();
             log.warn("[{}] Timeout ao esperar resposta do equipamento.", config.getName());
             return Optional.empty();
 
         } catch (IOException | InterruptedException e) {
+            metrics.error();
             log.error("[{}] Erro de I/O ou Interrupção durante a comunicação: {}", config.getName(), e.getMessage());
             Thread.currentThread().interrupt(); // Restaura o status de interrupção
             return Optional.empty();
+        } finally {
+            equipmentContext.close();
         }
     }
 
     @Override
     public void run() {
-        // Para comunicadores ativos, a thread apenas abre a porta e a mantém.
+        // Para comunicadores ativos, a thread apenas abre a porta e a mantém (reabrindo se ela for perdida).
         // A comunicação é disparada por eventos externos (chamada de API).
-        open();
+        LogContext.equipment(config);
+        supervisor.run();
+    }
+
+    @Override
+    public void stopIntake() {
+        accepting = false;
+    }
+
+    @Override
+    public boolean isBusy() {
+        return activeRequests.get() > 0;
     }
 
     @Override
     public void close() {
-        if (isPortOpen()) {
-            activePort.closePort();
-            log.info("[{}] Porta serial {} fechada.", config.getName(), config.getCommunication().getPortName());
+        accepting = false;
+        supervisor.stop();
+        SerialChannel current = channel;
+        if (current != null && current.isOpen()) {
+            current.close();
+            metrics.setConnected(false);
+            log.info("[{}] Porta serial {} fechada.", config.getName(), current.describe());
         }
     }
 
     @Override
     public boolean isPortOpen() {
-        return activePort != null && activePort.isOpen();
-    }
-
-    private int getParity(String parityStr) {
-        if (parityStr == null) return SerialPort.NO_PARITY;
-        return switch (parityStr.toUpperCase()) {
-            case "EVEN" -> SerialPort.EVEN_PARITY;
-            case "ODD" -> SerialPort.ODD_PARITY;
-            case "MARK" -> SerialPort.MARK_PARITY;
-            case "SPACE" -> SerialPort.SPACE_PARITY;
-            default -> SerialPort.NO_PARITY;
-        };
+        SerialChannel current = channel;
+        return current != null && current.isOpen();
     }
 }
\ No newline at end of file
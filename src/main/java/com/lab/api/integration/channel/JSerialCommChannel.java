@@ -0,0 +1,119 @@
+package com.lab.api.integration.channel;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+import com.fazecast.jSerialComm.SerialPortInvalidPortException;
+import com.lab.api.config.CommunicationConfig;
+
+import java.util.Arrays;
+
+// Porta serial local (COMx, /dev/ttyUSBx) via jSerialComm
+public class JSerialCommChannel implements SerialChannel {
+
+    private final CommunicationConfig communication;
+    private SerialPort port;
+
+    public JSerialCommChannel(CommunicationConfig communication) {
+        this.communication = communication;
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            port = SerialPort.getCommPort(communication.getPortName());
+        } catch (SerialPortInvalidPortException e) { // Dispositivo ainda não existe (ex: adaptador USB desconectado)
+            return false;
+        }
+        port.setBaudRate(communication.getBaudRate());
+        port.setNumDataBits(communication.getDataBits());
+        port.setNumStopBits(communication.getStopBits());
+        port.setParity(getParity(communication.getParity()));
+        port.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, 1000, 0);
+        return port.openPort();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return port != null && port.isOpen();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return isOpen() && port.bytesAvailable() >= 0;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        port.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return SerialPort.LISTENING_EVENT_DATA_AVAILABLE | SerialPort.LISTENING_EVENT_PORT_DISCONNECTED;
+            }
+
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                if (event.getEventType() == SerialPort.LISTENING_EVENT_PORT_DISCONNECTED) {
+                    listener.onLost();
+                    return;
+                }
+                if (event.getEventType() != SerialPort.LISTENING_EVENT_DATA_AVAILABLE) {
+                    return;
+                }
+                int available = port.bytesAvailable();
+                if (available < 0) { // Porta perdida sem o evento de desconexão
+                    listener.onLost();
+                    return;
+                }
+                byte[] data = new byte[available];
+                int read = port.readBytes(data, available);
+                if (read > 0) {
+                    listener.onData(read == available ? data : Arrays.copyOf(data, read));
+                }
+            }
+        });
+    }
+
+    @Override
+    public int bytesAvailable() {
+        return isOpen() ? port.bytesAvailable() : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int length) {
+        int available = bytesAvailable();
+        if (available <= 0) {
+            return available;
+        }
+        return port.readBytes(buffer, Math.min(available, length));
+    }
+
+    @Override
+    public int write(byte[] data, int length) {
+        return isOpen() ? port.writeBytes(data, length) : -1;
+    }
+
+    @Override
+    public void close() {
+        if (port != null) {
+            port.removeDataListener();
+            port.closePort();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return communication.getPortName();
+    }
+
+    private static int getParity(String parityStr) {
+        if (parityStr == null) return SerialPort.NO_PARITY;
+        return switch (parityStr.toUpperCase()) {
+            case "EVEN" -> SerialPort.EVEN_PARITY;
+            case "ODD" -> SerialPort.ODD_PARITY;
+            case "MARK" -> SerialPort.MARK_PARITY;
+            case "SPACE" -> SerialPort.SPACE_PARITY;
+            default -> SerialPort.NO_PARITY;
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.lab.api.integration.channel;
+
+/**
+ * Uma ponta de um cabo serial virtual ({@link LoopbackSerialPorts}), no mesmo processo: a API abre a ponta
+ * do host ('port-name: loop:NOME') e o simulador/benchmark a ponta do equipamento.
+ */
+public class LoopbackSerialChannel implements SerialChannel {
+
+    private static final long POLL_NANOS = 200_000_000L;
+
+    private final String name;
+    private final PacedLine incoming;
+    private final PacedLine outgoing;
+    private volatile boolean open;
+
+    LoopbackSerialChannel(String name, PacedLine incoming, PacedLine outgoing) {
+        this.name = name;
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+    }
+
+    @Override
+    public boolean open() {
+        open = incoming.available() >= 0;
+        return open;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return open && incoming.available() >= 0;
+    }
+
+    // Uma thread por ponta entrega os bytes conforme chegam, como o evento de dados do jSerialComm
+    @Override
+    public void setListener(Listener listener) {
+        Thread reader = new Thread(() -> {
+            try {
+                while (open) {
+                    byte[] data = incoming.await(POLL_NANOS, () -> open);
+                    if (data == null) {
+                        if (open) listener.onLost();
+                        return;
+                    }
+                    if (data.length > 0 && open) {
+                        listener.onData(data);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "serial-" + describe());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public int bytesAvailable() {
+        return open ? incoming.available() : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int length) {
+        return open ? incoming.read(buffer, length) : -1;
+    }
+
+    // Bloqueia até chegarem bytes ou o prazo acabar (ponta do equipamento, no simulador); null se o cabo foi desconectado
+    public byte[] await(long timeoutNanos) throws InterruptedException {
+        return incoming.await(timeoutNanos);
+    }
+
+    @Override
+    public int write(byte[] data, int length) {
+        if (!open || incoming.available() < 0) {
+            return -1;
+        }
+        outgoing.write(data, length);
+        return length;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        incoming.wakeUp();
+    }
+
+    @Override
+    public String describe() {
+        return LoopbackSerialPorts.PREFIX + name;
+    }
+}
@@ -0,0 +1,81 @@
+package com.lab.api.integration.channel;
+
+import com.lab.api.config.CommunicationConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cabos seriais virtuais no mesmo processo, identificados pelo nome da porta 'loop:NOME' (substituem o par
+ * com0com/pty em testes e benchmarks). Cada cabo liga a ponta do host (aberta pelo SerialListener ou pelo
+ * IntegraCommunicator) à ponta do equipamento (aberta pelo simulador). A velocidade, os bits de dados, a
+ * paridade e os stop bits da configuração definem o tempo de transmissão de cada byte; baud-rate 0 = sem limite.
+ */
+public final class LoopbackSerialPorts {
+
+    public static final String PREFIX = "loop:";
+
+    private static final Map<String, Cable> CABLES = new ConcurrentHashMap<>();
+
+    private LoopbackSerialPorts() {
+    }
+
+    private static final class Cable {
+        final PacedLine toHost;
+        final PacedLine toEquipment;
+
+        Cable(long byteNanos) {
+            this.toHost = new PacedLine(byteNanos);
+            this.toEquipment = new PacedLine(byteNanos);
+        }
+    }
+
+    public static boolean isLoopback(String portName) {
+        return portName != null && portName.startsWith(PREFIX);
+    }
+
+    // Ponta da API (host)
+    public static LoopbackSerialChannel hostEnd(CommunicationConfig communication) {
+        String name = nameOf(communication.getPortName());
+        Cable cable = cable(name, communication);
+        return new LoopbackSerialChannel(name, cable.toHost, cable.toEquipment);
+    }
+
+    // Ponta do equipamento (simulador, benchmark); já vem aberta
+    public static LoopbackSerialChannel equipmentEnd(CommunicationConfig communication) {
+        String name = nameOf(communication.getPortName());
+        Cable cable = cable(name, communication);
+        LoopbackSerialChannel channel = new LoopbackSerialChannel(name, cable.toEquipment, cable.toHost);
+        channel.open();
+        return channel;
+    }
+
+    // Simula a desconexão do cabo/adaptador: as duas pontas percebem a perda; a próxima abertura cria um cabo novo
+    public static void unplug(String portName) {
+        Cable cable = CABLES.remove(nameOf(portName));
+        if (cable != null) {
+            cable.toHost.unplug();
+            cable.toEquipment.unplug();
+        }
+    }
+
+    // Tempo de transmissão de um byte: start bit + bits de dados + paridade + stop bits
+    static long byteNanos(CommunicationConfig communication) {
+        if (communication.getBaudRate() <= 0) {
+            return 0;
+        }
+        int dataBits = communication.getDataBits() > 0 ? communication.getDataBits() : 8;
+        int stopBits = communication.getStopBits() > 0 ? communication.getStopBits() : 1;
+        String parity = communication.getParity();
+        int parityBits = parity == null || parity.equalsIgnoreCase("NONE") ? 0 : 1;
+        return (1L + dataBits + parityBits + stopBits) * 1_000_000_000L / communication.getBaudRate();
+    }
+
+    private static Cable cable(String name, CommunicationConfig communication) {
+        return CABLES.computeIfAbsent(name, key -> new Cable(byteNanos(communication)));
+    }
+
+    private static String nameOf(String portName) {
+        return isLoopback(portName) ? portName.substring(PREFIX.length()) : portName;
+    }
+}
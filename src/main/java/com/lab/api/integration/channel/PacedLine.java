@@ -0,0 +1,171 @@
+package com.lab.api.integration.channel;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Um sentido de um cabo serial virtual. Cada byte escrito só fica disponível para leitura depois do seu tempo
+ * de transmissão na velocidade configurada (start bit + dados + paridade + stop bits), como numa linha real;
+ * com byteNanos = 0 a entrega é imediata.
+ */
+final class PacedLine {
+
+    // Bytes em trânsito são liberados em pedaços, como os eventos de dados de uma porta real
+    private static final int PIECE_BYTES = 16;
+
+    private static final class Piece {
+        final byte[] data;
+        final long dueNanos;
+        int position;
+
+        Piece(byte[] data, long dueNanos) {
+            this.data = data;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final long byteNanos;
+    private final ArrayDeque<Piece> pieces = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long busyUntil;
+    private boolean unplugged;
+
+    PacedLine(long byteNanos) {
+        this.byteNanos = byteNanos;
+    }
+
+    void write(byte[] data, int length) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long due = Math.max(now, busyUntil);
+            int piece = byteNanos > 0 ? PIECE_BYTES : Math.max(1, length);
+            for (int offset = 0; offset < length; offset += piece) {
+                int size = Math.min(piece, length - offset);
+                byte[] copy = new byte[size];
+                System.arraycopy(data, offset, copy, 0, size);
+                due += size * byteNanos;
+                pieces.add(new Piece(copy, due));
+            }
+            busyUntil = due;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Bytes que já "chegaram" (-1 se o cabo foi desconectado)
+    int available() {
+        lock.lock();
+        try {
+            if (unplugged) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            int total = 0;
+            for (Piece piece : pieces) {
+                if (piece.dueNanos > now) break;
+                total += piece.data.length - piece.position;
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lê sem bloquear até 'length' bytes já chegados
+    int read(byte[] buffer, int length) {
+        lock.lock();
+        try {
+            return drain(buffer, length, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera até haver bytes chegados (ou o prazo acabar) e devolve todos eles.
+     * Devolve um array vazio no fim do prazo e null se o cabo foi desconectado.
+     */
+    byte[] await(long timeoutNanos) throws InterruptedException {
+        return await(timeoutNanos, () -> true);
+    }
+
+    /**
+     * Como {@link #await(long)}, mas devolve um array vazio sem consumir nada assim que 'open' ficar falso: a ponta
+     * fechada não pode ficar com os bytes destinados à próxima abertura da mesma porta.
+     */
+    byte[] await(long timeoutNanos, BooleanSupplier open) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (true) {
+                if (unplugged) {
+                    return null;
+                }
+                if (!open.getAsBoolean()) {
+                    return new byte[0];
+                }
+                long now = System.nanoTime();
+                Piece head = pieces.peek();
+                if (head != null && head.dueNanos <= now) {
+                    byte[] buffer = new byte[Math.max(available(), 1)];
+                    int read = drain(buffer, buffer.length, now);
+                    return read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+                }
+                long wait = Math.min(deadline, head != null ? head.dueNanos : deadline) - now;
+                if (now >= deadline) {
+                    return new byte[0];
+                }
+                changed.awaitNanos(Math.max(wait, TimeUnit.MICROSECONDS.toNanos(10)));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void unplug() {
+        lock.lock();
+        try {
+            unplugged = true;
+            pieces.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Acorda quem está em await() (ex: a ponta foi fechada)
+    void wakeUp() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int drain(byte[] buffer, int length, long now) {
+        if (unplugged) {
+            return -1;
+        }
+        int read = 0;
+        while (read < length) {
+            Piece piece = pieces.peek();
+            if (piece == null || piece.dueNanos > now) break;
+            int size = Math.min(length - read, piece.data.length - piece.position);
+            System.arraycopy(piece.data, piece.position, buffer, read, size);
+            piece.position += size;
+            read += size;
+            if (piece.position == piece.data.length) {
+                pieces.poll();
+            }
+        }
+        return read;
+    }
+}
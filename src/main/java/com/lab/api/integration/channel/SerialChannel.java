@@ -0,0 +1,44 @@
+package com.lab.api.integration.channel;
+
+/**
+ * Canal de bytes de um equipamento serial. A lógica dos protocolos (ASTM no SerialListener, HIF no
+ * IntegraCommunicator) usa apenas este contrato, independente de onde os bytes trafegam: porta serial local
+ * (jSerialComm) ou servidor de terminais em TCP bruto. Criado por {@link SerialChannels#create}; um canal
+ * fechado ou perdido não é reaberto, o supervisor cria outro.
+ * <p>
+ * Dois modos de leitura: por evento ({@link #setListener}, usado pelo listener passivo) ou por consulta
+ * ({@link #bytesAvailable()} + {@link #read}, usado pelo comunicador ativo). Não misture os dois no mesmo canal.
+ */
+public interface SerialChannel {
+
+    // Recebe os dados na thread do canal
+    interface Listener {
+        void onData(byte[] data);
+
+        // Canal perdido (dispositivo removido, conexão encerrada pelo servidor de terminais)
+        void onLost();
+    }
+
+    boolean open();
+
+    boolean isOpen();
+
+    // Aberto e sem erro detectado; usado pela verificação periódica do supervisor
+    boolean isAlive();
+
+    void setListener(Listener listener);
+
+    // Bytes recebidos e ainda não lidos (-1 se o canal foi perdido)
+    int bytesAvailable();
+
+    // Lê até 'length' bytes já disponíveis, sem bloquear; -1 se o canal foi perdido
+    int read(byte[] buffer, int length);
+
+    // Escreve 'length' bytes; devolve a quantidade escrita ou -1 em caso de falha (como o jSerialComm)
+    int write(byte[] data, int length);
+
+    void close();
+
+    // Identificação para logs e status (ex: COM3, 10.0.0.5:4001)
+    String describe();
+}
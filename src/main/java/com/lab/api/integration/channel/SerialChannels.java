@@ -0,0 +1,28 @@
+package com.lab.api.integration.channel;
+
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.domain.CommunicationType;
+
+public final class SerialChannels {
+
+    private SerialChannels() {
+    }
+
+    // Canal conforme o tipo de comunicação: SERIAL (porta local ou 'loop:NOME') ou SERIAL_TCP (servidor de terminais)
+    public static SerialChannel create(CommunicationConfig communication) {
+        if (communication.getType() == CommunicationType.SERIAL_TCP) {
+            return new TcpSerialChannel(communication.getHost(), communication.getPort());
+        }
+        if (LoopbackSerialPorts.isLoopback(communication.getPortName())) {
+            return LoopbackSerialPorts.hostEnd(communication);
+        }
+        return new JSerialCommChannel(communication);
+    }
+
+    public static String describe(CommunicationConfig communication) {
+        if (communication.getType() == CommunicationType.SERIAL_TCP) {
+            return communication.getHost() + ":" + communication.getPort();
+        }
+        return communication.getPortName();
+    }
+}
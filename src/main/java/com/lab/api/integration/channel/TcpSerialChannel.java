@@ -0,0 +1,154 @@
+package com.lab.api.integration.channel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Porta serial remota num servidor de terminais em modo TCP bruto (raw socket): os bytes da conexão são
+ * exatamente os da linha serial. Velocidade, paridade e bits são configurados no próprio servidor de terminais
+ * (a negociação RFC 2217 não é usada). A conexão é aberta pela API (cliente), como a abertura de uma porta local.
+ */
+public class TcpSerialChannel implements SerialChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpSerialChannel.class);
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private InputStream input;
+    private OutputStream output;
+    private volatile boolean lost;
+    private volatile boolean closed;
+
+    public TcpSerialChannel(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public boolean open() {
+        Socket candidate = new Socket();
+        try {
+            candidate.setTcpNoDelay(true); // ENQ/ACK de um byte não podem esperar o Nagle
+            candidate.setKeepAlive(true);  // Detecta servidor de terminais desligado com a linha ociosa
+            candidate.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket = candidate;
+            input = candidate.getInputStream();
+            output = candidate.getOutputStream();
+            return true;
+        } catch (IOException e) {
+            log.debug("Conexão com o servidor de terminais {} falhou: {}", describe(), e.getMessage());
+            try {
+                candidate.close();
+            } catch (IOException ignored) {
+                // nada a fazer: a conexão não chegou a abrir
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket != null && socket.isConnected() && !socket.isClosed() && !closed;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return isOpen() && !lost;
+    }
+
+    // Uma thread por canal lê o socket e entrega os bytes ao listener, como o evento de dados do jSerialComm
+    @Override
+    public void setListener(Listener listener) {
+        Thread reader = new Thread(() -> {
+            byte[] buffer = new byte[4096];
+            try {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    listener.onData(Arrays.copyOf(buffer, read));
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.debug("Leitura do servidor de terminais {} falhou: {}", describe(), e.getMessage());
+                }
+            }
+            if (!closed) {
+                lost = true;
+                listener.onLost();
+            }
+        }, "serial-tcp-" + describe());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public int bytesAvailable() {
+        if (!isAlive()) {
+            return -1;
+        }
+        try {
+            return input.available();
+        } catch (IOException e) {
+            lost = true;
+            return -1;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int length) {
+        int available = bytesAvailable();
+        if (available <= 0) {
+            return available;
+        }
+        try {
+            int read = input.read(buffer, 0, Math.min(available, length));
+            if (read < 0) {
+                lost = true;
+            }
+            return read;
+        } catch (IOException e) {
+            lost = true;
+            return -1;
+        }
+    }
+
+    @Override
+    public int write(byte[] data, int length) {
+        if (!isAlive()) {
+            return -1;
+        }
+        try {
+            output.write(data, 0, length);
+            output.flush();
+            return length;
+        } catch (IOException e) {
+            lost = true;
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Erro ao fechar a conexão com {}: {}", describe(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String describe() {
+        return host + ":" + port;
+    }
+}
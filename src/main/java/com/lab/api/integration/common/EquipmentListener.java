@@ -0,0 +1,19 @@
+package com.lab.api.integration.common;
+
+/**
+ * Listener (ou comunicador ativo) de um equipamento, executado numa thread própria pelo EquipmentListenerManager.
+ * Para parar um único equipamento sem perder mensagens: {@link #stopIntake()}, esperar {@link #isBusy()} ficar
+ * falso e então {@link #close()}.
+ */
+public interface EquipmentListener extends Runnable {
+
+    boolean isPortOpen();
+
+    // Recusa novas transmissões (novas conexões TCP, ENQ respondido com NAK); as que estão em andamento continuam
+    void stopIntake();
+
+    // Há uma transmissão em andamento (frame incompleto, mensagem no dispatcher ou resposta sendo enviada)
+    boolean isBusy();
+
+    void close();
+}
@@ -5,5 +5,6 @@ import com.lab.api.config.EquipmentConfig;
 @FunctionalInterface
 public interface MessageHandler {
     // Retorna uma String de resposta, ou null se não houver resposta.
+    // Lança MessageProcessingException quando a mensagem não pôde ser processada (o listener não responde ACK de aceite).
     String handle(String rawMessage, EquipmentConfig source);
-}
\ No newline at end of file
+}
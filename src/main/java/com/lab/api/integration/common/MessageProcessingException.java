@@ -0,0 +1,14 @@
+package com.lab.api.integration.common;
+
+/**
+ * A mensagem chegou inteira, mas não foi processada (parse, banco etc.). O listener não a confirma como aceita:
+ * no HL7 a resposta é MSA|AE, para o equipamento reenviar; a mensagem continua na auditoria para replay.
+ */
+public class MessageProcessingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MessageProcessingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.lab.api.integration.common;
+
+/**
+ * A mensagem foi recusada sem ser processada por falta de capacidade (bulkhead do equipamento ou do banco).
+ * No HL7 a resposta é MSA|AR; no ASTM o último frame recebe NAK. Em ambos o equipamento reenvia depois.
+ */
+public class MessageRejectedException extends MessageProcessingException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MessageRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -4,9 +4,7 @@ import com.lab.api.config.EquipmentConfig;
 import java.util.Optional;
 
 // NOVO: Interface para comunicação ativa.
-public interface SerialCommunicator extends Runnable {
+public interface SerialCommunicator extends EquipmentListener {
     void open();
-    void close();
     Optional<String> sendRequestAndReceiveResponse(String requestMessage);
-    boolean isPortOpen();
 }
\ No newline at end of file
@@ -1,15 +1,23 @@
 package com.lab.api.integration.common;
 
-import com.fazecast.jSerialComm.SerialPort;
-import com.fazecast.jSerialComm.SerialPortDataListener;
-import com.fazecast.jSerialComm.SerialPortEvent;
-import com.lab.api.config.CommunicationConfig;
 import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.integration.channel.SerialChannel;
+import com.lab.api.integration.channel.SerialChannels;
+import com.lab.api.log.LogContext;
 import com.lab.api.log.MessageAuditService;
+import com.lab.api.log.journal.AuditClock;
+import com.lab.api.log.journal.RecordKind;
+import com.lab.api.metrics.EquipmentMetrics;
+import com.lab.api.metrics.MessageTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
-public class SerialListener implements Runnable {
+import java.util.ArrayList;
+import java.util.List;
+
+public class SerialListener implements EquipmentListener {
 
     private static final Logger log = LoggerFactory.getLogger(SerialListener.class);
 
@@ -19,91 +27,293 @@ public class SerialListener implements Runnable {
     private static final byte EOT = 0x04;
     private static final byte ENQ = 0x05;
     private static final byte ACK = 0x06;
+    private static final byte NAK = 0x15;
+    private static final byte ETB = 0x17;
     private static final byte CR = 0x0D;
     private static final byte LF = 0x0A;
 
     private final EquipmentConfig config;
     private final MessageHandler messageHandler;
     private final MessageAuditService messageAuditService;
-    private SerialPort activePort;
+    private final EquipmentMetrics metrics;
+    private final SerialPortSupervisor supervisor;
+    private volatile SerialChannel channel;
     private final StringBuilder frameBuffer = new StringBuilder();
+    // Troca em andamento (do ENQ do equipamento até a nossa resposta), para a auditoria com tempos
+    private long exchangeId;
+    private long exchangeStartedAt;
+    private MessageTrace trace;
+    // false durante a drenagem: novos ENQ recebem NAK (o equipamento tenta de novo depois)
+    private volatile boolean accepting = true;
+    // Do ENQ aceito até o EOT (e a resposta da query, se houver)
+    private volatile boolean exchangeOpen;
+    // ETX/ETB recebido: o frame termina no LF seguinte (após checksum e CR), quando é confirmado com ACK
+    private boolean frameEnding;
+    // Frame atual: posição no buffer (-1 sem STX), soma do número do frame até o ETX/ETB, posição do checksum
+    // recebido e o terminador (ETX no último frame da mensagem, ETB nos intermediários)
+    private int frameStart = -1;
+    private int frameSum;
+    private boolean inFrameText;
+    private int checksumAt;
+    private byte frameTerminator;
+    // Último frame recebeu NAK: se o equipamento desistir (EOT), o conteúdo parcial não é processado
+    private boolean lastFrameRefused;
+    // Respostas de query, enviadas depois do EOT do equipamento (a linha é dele até lá)
+    private final List<String> pendingResponses = new ArrayList<>();
 
-    public SerialListener(EquipmentConfig config, MessageHandler messageHandler, MessageAuditService messageAuditService) {
+    public SerialListener(EquipmentConfig config, MessageHandler messageHandler, MessageAuditService messageAuditService,
+                          EquipmentMetrics metrics, EquipmentProperties.Reconnect reconnect) {
         this.config = config;
         this.messageHandler = messageHandler;
         this.messageAuditService = messageAuditService;
+        this.metrics = metrics;
+        this.supervisor = new SerialPortSupervisor(config, reconnect, metrics, new SupervisedPort());
     }
 
+    // A thread do listener fica com o supervisor, que reabre a porta se ela for perdida
     @Override
     public void run() {
-        CommunicationConfig commConfig = config.getCommunication();
-        activePort = SerialPort.getCommPort(commConfig.getPortName());
-
-        activePort.setBaudRate(commConfig.getBaudRate());
-        activePort.setNumDataBits(commConfig.getDataBits());
-        activePort.setNumStopBits(commConfig.getStopBits());
-        activePort.setParity(getParity(commConfig.getParity()));
-        activePort.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, 1000, 0);
-
-        if (activePort.openPort()) {
-            log.info("[{}] Porta serial {} aberta com sucesso. Aguardando comunicação.", config.getName(), commConfig.getPortName());
-            listen();
-        } else {
-            log.error("[{}] Falha ao abrir a porta serial {}.", config.getName(), commConfig.getPortName());
-        }
+        LogContext.equipment(config);
+        supervisor.run();
     }
 
-    private void listen() {
-        activePort.addDataListener(new SerialPortDataListener() {
+    private boolean openPort() {
+        SerialChannel candidate = SerialChannels.create(config.getCommunication());
+        if (!candidate.open()) {
+            return false;
+        }
+        channel = candidate;
+        log.info("[{}] Porta serial {} aberta com sucesso. Aguardando comunicação.", config.getName(), candidate.describe());
+        metrics.setConnected(true);
+        candidate.setListener(new SerialChannel.Listener() {
             @Override
-            public int getListeningEvents() {
-                return SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+            public void onData(byte[] newData) {
+                long receivedAt = AuditClock.nowNanos();
+                metrics.bytesIn(newData.length);
+                MDC.MDCCloseable equipmentContext = LogContext.equipment(config);
+                try {
+                    for (byte b : newData) {
+                        handleByte(b, receivedAt);
+                    }
+                } finally {
+                    equipmentContext.close();
+                }
             }
 
             @Override
-            public void serialEvent(SerialPortEvent event) {
-                if (event.getEventType() != SerialPort.LISTENING_EVENT_DATA_AVAILABLE) {
-                    return;
-                }
-                byte[] newData = new byte[activePort.bytesAvailable()];
-                activePort.readBytes(newData, newData.length);
-                for (byte b : newData) {
-                    handleByte(b);
-                }
+            public void onLost() {
+                supervisor.portLost();
             }
         });
+        return true;
     }
 
-    private void handleByte(byte b) {
+    private void handleByte(byte b, long receivedAt) {
         switch (b) {
             case ENQ:
-                log.info("[{}] -> ENQ recebido. Limpando buffer e enviando ACK...", config.getName());
+                if (!accepting) {
+                    log.info("[{}] -> ENQ recebido durante a drenagem. Respondendo NAK.", config.getName());
+                    messageAuditService.auditControl(RecordKind.CONTROL_IN, ENQ, config, 0, receivedAt);
+                    sendNak(0);
+                    break;
+                }
+                exchangeOpen = true;
+                log.debug("[{}] -> ENQ recebido. Limpando buffer e enviando ACK...", config.getName());
+                exchangeId = messageAuditService.newExchangeId();
+                exchangeStartedAt = receivedAt;
+                trace = metrics.startTrace(exchangeId, receivedAt);
+                messageAuditService.auditControl(RecordKind.CONTROL_IN, ENQ, config, exchangeId, receivedAt);
                 frameBuffer.setLength(0);
+                resetFrame();
+                lastFrameRefused = false;
+                pendingResponses.clear();
                 sendAck();
                 break;
+            case ETX:
+            case ETB:
+                if (inFrameText) {
+                    frameSum += b;
+                    inFrameText = false;
+                }
+                frameEnding = true;
+                frameTerminator = b;
+                frameBuffer.append((char) b);
+                checksumAt = frameBuffer.length();
+                break;
+            case LF:
+                frameBuffer.append((char) b);
+                // Cada frame é confirmado (ASTM E1381): o equipamento só envia o próximo frame ou o EOT depois do ACK
+                if (frameEnding && exchangeOpen) {
+                    if (frameStart >= 0 && !checksumMatches()) {
+                        // NAK: o equipamento retransmite o mesmo frame, que substitui o descartado
+                        log.warn("[{}] Troca {}: checksum do frame não confere (recebido {}, calculado {}). Respondendo NAK.",
+                                config.getName(), exchangeId, receivedChecksum(), String.format("%02X", frameSum & 0xFF));
+                        frameBuffer.setLength(frameStart);
+                        sendNak(exchangeId);
+                        lastFrameRefused = true;
+                    } else {
+                        stripFrame();
+                        if (frameStart >= 0 && endsMessage() && !handleMessage(receivedAt)) {
+                            // Mensagem completa (registro L) processada antes do ACK do último frame: na falha ou recusa,
+                            // o NAK faz o equipamento retransmitir o frame e a mensagem é processada de novo
+                            frameBuffer.setLength(frameStart);
+                            sendNak(exchangeId);
+                            lastFrameRefused = true;
+                        } else {
+                            sendAck();
+                            lastFrameRefused = false;
+                        }
+                    }
+                    resetFrame();
+                }
+                break;
             case STX:
+                metrics.frame();
+                frameStart = frameBuffer.length();
+                frameSum = 0;
+                inFrameText = true;
+                frameEnding = false;
+                break;
+            case NAK:
+                // O equipamento recusou a nossa resposta de query (ENQ ou frame): a troca falhou
+                metrics.nakIn();
+                metrics.error();
+                log.warn("[{}] Troca {}: equipamento respondeu NAK à resposta da query.", config.getName(), exchangeId);
+                messageAuditService.auditControl(RecordKind.CONTROL_IN, NAK, config, exchangeId, receivedAt);
+                break;
+            case ACK:
+                // Confirmação do equipamento à nossa resposta de query: só é registrada na auditoria
+                messageAuditService.auditControl(RecordKind.CONTROL_IN, ACK, config, exchangeId, receivedAt);
                 break;
             case EOT:
-                log.info("[{}] -> EOT recebido. Fim da transmissão.", config.getName());
-                if (frameBuffer.length() > 0) {
-                    String rawMessage = frameBuffer.toString();
-                    messageAuditService.auditMessage(rawMessage, config);
-                    String response = messageHandler.handle(rawMessage, config);
-                    if (response != null && !response.isEmpty()) {
+                log.debug("[{}] -> EOT recebido. Fim da transmissão.", config.getName());
+                messageAuditService.auditControl(RecordKind.CONTROL_IN, EOT, config, exchangeId, receivedAt);
+                try {
+                    if (lastFrameRefused) {
+                        // O equipamento desistiu após os NAKs: ele reenvia a mensagem inteira numa nova transmissão
+                        if (frameBuffer.length() > 0) {
+                            log.warn("[{}] Troca {}: transmissão encerrada após NAK; {} caractere(s) parciais descartado(s).",
+                                    config.getName(), exchangeId, frameBuffer.length());
+                        }
+                    } else if (frameBuffer.length() > 0) {
+                        // Sem registro L (ou frames sem STX): processada no EOT, com os frames já confirmados
+                        handleMessage(receivedAt);
+                    }
+                    for (String response : pendingResponses) {
                         sendResponse(response);
                     }
+                } finally {
                     frameBuffer.setLength(0);
+                    pendingResponses.clear();
+                    lastFrameRefused = false;
+                    trace = null;
+                    exchangeOpen = false;
                 }
                 break;
             default:
+                if (inFrameText) {
+                    frameSum += b & 0xFF;
+                }
                 frameBuffer.append((char) b);
         }
     }
 
+    // Próximo frame começa do zero; frames sem STX (só delimitados pelo ETX) são confirmados sem conferir o checksum
+    private void resetFrame() {
+        frameEnding = false;
+        frameStart = -1;
+        inFrameText = false;
+    }
+
+    private boolean checksumMatches() {
+        return String.format("%02X", frameSum & 0xFF).equalsIgnoreCase(receivedChecksum());
+    }
+
+    private String receivedChecksum() {
+        return checksumAt + 2 <= frameBuffer.length() ? frameBuffer.substring(checksumAt, checksumAt + 2) : "";
+    }
+
+    // Frame conferido: no buffer fica só o texto, sem o número do frame, o ETX/ETB, o checksum e o CR LF,
+    // para que os registros divididos em vários frames (ETB) se juntem antes do parse
+    private void stripFrame() {
+        if (frameStart < 0) {
+            return;
+        }
+        String text = checksumAt - 1 > frameStart + 1 ? frameBuffer.substring(frameStart + 1, checksumAt - 1) : "";
+        frameBuffer.setLength(frameStart);
+        frameBuffer.append(text);
+    }
+
+    // Frame terminado em ETX e último registro do buffer (já sem o enquadramento) é o terminador (L): a mensagem
+    // está completa, mesmo que o registro L tenha sido dividido entre frames
+    private boolean endsMessage() {
+        if (frameTerminator != ETX) {
+            return false;
+        }
+        int end = frameBuffer.length();
+        while (end > 0 && Character.isWhitespace(frameBuffer.charAt(end - 1))) {
+            end--;
+        }
+        int start = frameBuffer.lastIndexOf("\r", end - 1) + 1;
+        return end - start >= 2 && frameBuffer.charAt(start) == 'L' && frameBuffer.charAt(start + 1) == '|';
+    }
+
+    // Entrega o conteúdo do buffer ao dispatcher com o trace de latência da troca associado à thread;
+    // false se a mensagem não foi processada (ela fica na auditoria para replay)
+    private boolean handleMessage(long framedAt) {
+        String rawMessage = frameBuffer.toString();
+        metrics.messageIn();
+        metrics.framed(framedAt - exchangeStartedAt);
+        messageAuditService.auditMessage(RecordKind.MESSAGE_IN, rawMessage, config, exchangeId, framedAt);
+        MessageTrace messageTrace = trace != null ? trace : metrics.startTrace(exchangeId, 0);
+        // Uma transmissão pode trazer várias mensagens; cada uma tem o próprio trace
+        trace = null;
+        messageTrace.stamp(MessageTrace.Stage.FRAMED, framedAt);
+        MessageTrace.Scope scope = messageTrace.bind();
+        try {
+            String response = messageHandler.handle(rawMessage, config);
+            if (response != null && !response.isEmpty()) {
+                pendingResponses.add(response);
+            }
+            frameBuffer.setLength(0);
+            return true;
+        } catch (MessageRejectedException e) {
+            // O dispatcher já registrou a recusa com o equipamento e a troca
+            log.debug("[{}] Troca {}: mensagem recusada. {}", config.getName(), exchangeId, e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("[{}] Troca {}: mensagem não processada. {}", config.getName(), exchangeId, e.getMessage());
+            return false;
+        } finally {
+            scope.close();
+            messageTrace.stamp(MessageTrace.Stage.ACKED, AuditClock.nowNanos());
+            metrics.finishTrace(messageTrace);
+        }
+    }
+
     private void sendAck() {
-        if (activePort.isOpen()) {
-            activePort.writeBytes(new byte[]{ACK}, 1);
-            log.info("[{}] <- ACK enviado.", config.getName());
+        if (channel.isOpen()) {
+            channel.write(new byte[]{ACK}, 1);
+            metrics.bytesOut(1);
+            messageAuditService.auditControl(RecordKind.CONTROL_OUT, ACK, config, exchangeId, AuditClock.nowNanos());
+            log.debug("[{}] <- ACK enviado.", config.getName());
+        }
+    }
+
+    private void sendNak(long exchange) {
+        if (channel.isOpen()) {
+            channel.write(new byte[]{NAK}, 1);
+            metrics.bytesOut(1);
+            metrics.nakOut();
+            messageAuditService.auditControl(RecordKind.CONTROL_OUT, NAK, config, exchange, AuditClock.nowNanos());
+        }
+    }
+
+    // Tempo para o equipamento tratar o ENQ/frame da resposta (communication.response-pause-ms)
+    private void pause() throws InterruptedException {
+        int pauseMs = config.getCommunication().getResponsePauseMs();
+        if (pauseMs > 0) {
+            Thread.sleep(pauseMs);
         }
     }
 
@@ -118,8 +328,9 @@ public class SerialListener implements Runnable {
     private void sendResponse(String responseMessage) {
         log.info("[{}] <- Enviando resposta da Query para o equipamento...", config.getName());
         try {
-            activePort.writeBytes(new byte[]{ENQ}, 1);
-            Thread.sleep(100);
+            channel.write(new byte[]{ENQ}, 1);
+            messageAuditService.auditControl(RecordKind.CONTROL_OUT, ENQ, config, exchangeId, AuditClock.nowNanos());
+            pause();
 
             byte[] messageBytes = responseMessage.getBytes();
             byte[] frameContent = new byte[messageBytes.length + 2];
@@ -132,38 +343,90 @@ public class SerialListener implements Runnable {
             byte[] header = new byte[]{STX};
             byte[] footer = new byte[]{CR, LF};
 
-            activePort.writeBytes(header, header.length);
-            activePort.writeBytes(frameContent, frameContent.length);
-            activePort.writeBytes(checksum.getBytes(), checksum.length());
-            activePort.writeBytes(footer, footer.length);
+            channel.write(header, header.length);
+            channel.write(frameContent, frameContent.length);
+            channel.write(checksum.getBytes(), checksum.length());
+            channel.write(footer, footer.length);
+            metrics.bytesOut(1 + header.length + frameContent.length + checksum.length() + footer.length);
+            metrics.messageOut();
+            messageAuditService.auditMessage(RecordKind.MESSAGE_OUT, responseMessage, config, exchangeId, AuditClock.nowNanos());
 
-            Thread.sleep(100);
+            pause();
 
-            activePort.writeBytes(new byte[]{EOT}, 1);
+            channel.write(new byte[]{EOT}, 1);
+            metrics.bytesOut(1);
+            messageAuditService.auditControl(RecordKind.CONTROL_OUT, EOT, config, exchangeId, AuditClock.nowNanos());
 
             log.info("[{}] <- Resposta enviada com sucesso (Checksum: {}).", config.getName(), checksum);
         } catch (Exception e) {
+            metrics.error();
             log.error("[{}] Erro ao enviar resposta para o equipamento: {}", config.getName(), e.getMessage());
             Thread.currentThread().interrupt();
         }
     }
 
-    private int getParity(String parityStr) {
-        if (parityStr == null) return SerialPort.NO_PARITY;
-        return switch (parityStr.toUpperCase()) {
-            case "EVEN" -> SerialPort.EVEN_PARITY;
-            case "ODD" -> SerialPort.ODD_PARITY;
-            case "MARK" -> SerialPort.MARK_PARITY;
-            case "SPACE" -> SerialPort.SPACE_PARITY;
-            default -> SerialPort.NO_PARITY;
-        };
+    // Ligação entre o supervisor e a porta deste listener
+    private class SupervisedPort implements SerialPortSupervisor.Port {
+        @Override
+        public boolean open() {
+            return openPort();
+        }
+
+        @Override
+        public boolean isAlive() {
+            SerialChannel current = channel;
+            return current != null && current.isAlive();
+        }
+
+        @Override
+        public void release() {
+            SerialChannel current = channel;
+            if (current != null) {
+                current.close();
+            }
+            metrics.setConnected(false);
+            // A troca interrompida não é retomada: o equipamento recomeça a transmissão com um novo ENQ
+            if (exchangeOpen || frameBuffer.length() > 0) {
+                log.warn("[{}] Troca {} interrompida pela perda da porta; {} caractere(s) descartado(s).",
+                        config.getName(), exchangeId, frameBuffer.length());
+            }
+            frameBuffer.setLength(0);
+            resetFrame();
+            trace = null;
+            exchangeOpen = false;
+        }
+    }
+
+    @Override
+    public void stopIntake() {
+        accepting = false;
     }
 
+    @Override
+    public boolean isBusy() {
+        return exchangeOpen;
+    }
+
+    @Override
+    public boolean isPortOpen() {
+        SerialChannel current = channel;
+        return current != null && current.isOpen();
+    }
+
+    // Bytes já recebidos pela porta e ainda não lidos
+    public int getPendingBytes() {
+        return isPortOpen() ? Math.max(0, channel.bytesAvailable()) : 0;
+    }
+
+    @Override
     public void close() {
-        if (activePort != null && activePort.isOpen()) {
-            activePort.removeDataListener();
-            activePort.closePort();
-            log.info("[{}] Porta serial {} fechada.", config.getName(), config.getCommunication().getPortName());
+        accepting = false;
+        supervisor.stop();
+        SerialChannel current = channel;
+        if (current != null && current.isOpen()) {
+            current.close();
+            metrics.setConnected(false);
+            log.info("[{}] Porta serial {} fechada.", config.getName(), current.describe());
         }
     }
 }
\ No newline at end of file
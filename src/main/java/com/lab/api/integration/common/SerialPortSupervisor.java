@@ -0,0 +1,139 @@
+package com.lab.api.integration.common;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.integration.channel.SerialChannels;
+import com.lab.api.metrics.EquipmentMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mantém a porta serial de um equipamento aberta. Se a abertura falhar ou a porta for perdida (adaptador
+ * USB-serial desconectado, cabo, driver), a porta é liberada e reaberta com backoff exponencial com jitter
+ * (equipments.reconnect.*). Executado na thread do listener até {@link #stop()}.
+ * <p>
+ * A perda é detectada pelo evento de desconexão do jSerialComm ({@link #portLost()}) e, para drivers que não o
+ * emitem, por uma verificação periódica da porta.
+ */
+public class SerialPortSupervisor {
+
+    private static final Logger log = LoggerFactory.getLogger(SerialPortSupervisor.class);
+
+    // Operações da porta supervisionada (implementadas pelo listener/comunicador)
+    public interface Port {
+        // Abre a porta e registra o listener de dados; false se não abriu
+        boolean open();
+
+        // A porta continua utilizável
+        boolean isAlive();
+
+        // Fecha a porta perdida e descarta a troca em andamento (o equipamento retransmite a partir do ENQ)
+        void release();
+    }
+
+    private final EquipmentConfig config;
+    private final EquipmentProperties.Reconnect policy;
+    private final EquipmentMetrics metrics;
+    private final Port port;
+    private final Object signal = new Object();
+    private volatile boolean running = true;
+    private volatile boolean lost;
+    private volatile boolean retryNow;
+    private int attempt;
+
+    public SerialPortSupervisor(EquipmentConfig config, EquipmentProperties.Reconnect policy, EquipmentMetrics metrics, Port port) {
+        this.config = config;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.port = port;
+    }
+
+    public void run() {
+        String portName = SerialChannels.describe(config.getCommunication());
+        try {
+            while (running) {
+                lost = false;
+                long delay;
+                if (port.open()) {
+                    long downtime = metrics.portRecovered();
+                    if (downtime > 0) {
+                        log.info("[{}] Porta serial {} reaberta após {} ms indisponível ({} tentativa(s)).",
+                                config.getName(), portName, downtime, attempt);
+                    }
+                    attempt = 0;
+                    awaitLoss();
+                    if (!running) {
+                        return;
+                    }
+                    metrics.portLost();
+                    port.release();
+                    delay = nextDelayMillis();
+                    log.warn("[{}] Porta serial {} perdida (desconectada ou com erro). Reabrindo em {} ms.", config.getName(), portName, delay);
+                } else {
+                    metrics.portLost();
+                    delay = nextDelayMillis();
+                    if (attempt == 0) {
+                        log.error("[{}] Falha ao abrir a porta serial {}. Nova tentativa em {} ms.", config.getName(), portName, delay);
+                    } else {
+                        log.debug("[{}] Tentativa {} de reabrir a porta serial {} falhou. Próxima em {} ms.", config.getName(), attempt + 1, portName, delay);
+                    }
+                }
+                attempt++;
+                pause(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Chamado pelo evento de desconexão da porta (thread do jSerialComm)
+    public void portLost() {
+        lost = true;
+        wakeUp();
+    }
+
+    // Interrompe a espera do backoff e tenta reabrir imediatamente (ex: requisição da API para um comunicador ativo)
+    public void retryNow() {
+        retryNow = true;
+        wakeUp();
+    }
+
+    public void stop() {
+        running = false;
+        wakeUp();
+    }
+
+    private void awaitLoss() throws InterruptedException {
+        synchronized (signal) {
+            while (running && !lost && port.isAlive()) {
+                signal.wait(policy.getCheckIntervalMs());
+            }
+        }
+    }
+
+    private void pause(long delayMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + delayMillis;
+        synchronized (signal) {
+            long remaining;
+            while (running && !retryNow && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                signal.wait(remaining);
+            }
+            retryNow = false;
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    // Backoff exponencial limitado a maxDelayMs, reduzido aleatoriamente em até 'jitter' (evita reaberturas sincronizadas)
+    long nextDelayMillis() {
+        double base = Math.min(policy.getMaxDelayMs(), policy.getInitialDelayMs() * Math.pow(policy.getMultiplier(), attempt));
+        double jitter = base * policy.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return Math.max(1, Math.round(base - jitter));
+    }
+}
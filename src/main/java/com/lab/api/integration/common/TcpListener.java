@@ -2,7 +2,12 @@
 package com.lab.api.integration.common;
 
 import com.lab.api.config.EquipmentConfig;
+import com.lab.api.log.LogContext;
 import com.lab.api.log.MessageAuditService;
+import com.lab.api.log.journal.AuditClock;
+import com.lab.api.log.journal.RecordKind;
+import com.lab.api.metrics.EquipmentMetrics;
+import com.lab.api.metrics.MessageTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,8 +16,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class TcpListener implements Runnable {
+public class TcpListener implements EquipmentListener {
 
     private static final Logger log = LoggerFactory.getLogger(TcpListener.class);
 
@@ -20,19 +31,33 @@ public class TcpListener implements Runnable {
     private static final byte VT = 0x0B; // Start of Block (Vertical Tab)
     private static final byte FS = 0x1C; // File Separator (End of Block)
     private static final byte CR = 0x0D; // Carriage Return
+    // Códigos do MSA-1 no ACK original
+    static final String ACK_ACCEPTED = "AA";
+    static final String ACK_ERROR = "AE";
+    static final String ACK_REJECTED = "AR";
+    private static final DateTimeFormatter ACK_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     private final EquipmentConfig config;
     private final MessageHandler messageHandler;
+    private final MessageAuditService messageAuditService;
+    private final EquipmentMetrics metrics;
     private ServerSocket serverSocket;
     private volatile boolean running = true; // Usamos volatile para garantir visibilidade entre threads
+    // Conexões abertas e blocos MLLP iniciados e ainda não processados (drenagem do equipamento)
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openFrames = new AtomicInteger();
 
-    public TcpListener(EquipmentConfig config, MessageHandler messageHandler, MessageAuditService messageAuditService) {
+    public TcpListener(EquipmentConfig config, MessageHandler messageHandler, MessageAuditService messageAuditService,
+                       EquipmentMetrics metrics) {
         this.config = config;
         this.messageHandler = messageHandler;
+        this.messageAuditService = messageAuditService;
+        this.metrics = metrics;
     }
 
     @Override
     public void run() {
+        LogContext.equipment(config);
         int port = config.getCommunication().getPort();
         try {
             serverSocket = new ServerSocket(port);
@@ -42,6 +67,7 @@ public class TcpListener implements Runnable {
                 try {
                     // accept() é uma chamada bloqueante, espera até que um cliente se conecte
                     Socket clientSocket = serverSocket.accept();
+                    clients.add(clientSocket);
                     log.info("[{}] Cliente conectado de: {}", config.getName(), clientSocket.getInetAddress().getHostAddress());
 
                     // Delega o tratamento da conexão para uma nova thread para não bloquear novas conexões
@@ -49,6 +75,7 @@ public class TcpListener implements Runnable {
 
                 } catch (IOException e) {
                     if (running) {
+                        metrics.error();
                         log.error("[{}] Erro ao aceitar conexão de cliente.", config.getName(), e);
                     } else {
                         log.info("[{}] Servidor TCP na porta {} foi encerrado.", config.getName(), port);
@@ -56,6 +83,7 @@ public class TcpListener implements Runnable {
                 }
             }
         } catch (IOException e) {
+            metrics.error();
             log.error("[{}] Não foi possível iniciar o servidor TCP na porta {}.", config.getName(), port, e);
         }
     }
@@ -70,32 +98,99 @@ public class TcpListener implements Runnable {
 
         @Override
         public void run() {
+            LogContext.equipment(config); // Thread dedicada à conexão: o MDC vale até ela terminar
+            metrics.connectionOpened();
+            // Bytes lidos acumulados localmente e somados ao contador por mensagem (e no fim da conexão)
+            int pendingBytes = 0;
+            boolean inMessage = false;
             try (InputStream input = clientSocket.getInputStream(); OutputStream output = clientSocket.getOutputStream()) {
                 StringBuilder messageBuilder = new StringBuilder();
                 int byteRead;
-                boolean inMessage = false;
+                long frameStartedAt = 0;
+                long exchangeId = 0;
+                MessageTrace trace = null;
 
                 while ((byteRead = input.read()) != -1) {
+                    pendingBytes++;
                     if (byteRead == VT) {
+                        if (!inMessage) openFrames.incrementAndGet();
                         inMessage = true;
+                        frameStartedAt = System.nanoTime();
+                        exchangeId = messageAuditService.newExchangeId();
+                        trace = metrics.startTrace(exchangeId, AuditClock.nowNanos());
                         messageBuilder.setLength(0); // Inicia uma nova mensagem
                     } else if (byteRead == FS) {
                         // Verifica se o próximo caractere é o CR
-                        if (input.read() == CR) {
+                        int next = input.read();
+                        if (next != -1) pendingBytes++;
+                        if (next == CR) {
+                            boolean counted = inMessage;
                             inMessage = false;
                             String completeMessage = messageBuilder.toString();
+                            if (frameStartedAt != 0) {
+                                metrics.framed(System.nanoTime() - frameStartedAt);
+                                frameStartedAt = 0;
+                            }
+                            metrics.frame();
+                            metrics.messageIn();
+                            metrics.bytesIn(pendingBytes);
+                            pendingBytes = 0;
+                            if (trace == null) { // Fim de bloco sem o início (VT) correspondente
+                                exchangeId = messageAuditService.newExchangeId();
+                                trace = metrics.startTrace(exchangeId, 0);
+                            }
+                            long framedAt = AuditClock.nowNanos();
+                            trace.stamp(MessageTrace.Stage.FRAMED, framedAt);
                             log.info("[{}] Mensagem HL7 recebida completa.", config.getName());
-                            messageHandler.handle(completeMessage, config);
+                            messageAuditService.auditMessage(RecordKind.MESSAGE_IN, completeMessage, config, exchangeId, framedAt);
+                            // A troca só termina com a resposta enviada: a drenagem não fecha a conexão antes do ACK
+                            try {
+                                String response = null;
+                                String ackCode = ACK_ACCEPTED;
+                                String ackText = null;
+                                MessageTrace.Scope scope = trace.bind();
+                                try {
+                                    response = messageHandler.handle(completeMessage, config);
+                                } catch (MessageRejectedException e) {
+                                    ackCode = ACK_REJECTED;
+                                    ackText = e.getMessage();
+                                    log.debug("[{}] Troca {}: mensagem recusada, respondendo MSA|{}. {}",
+                                            config.getName(), exchangeId, ackCode, e.getMessage());
+                                } catch (RuntimeException e) {
+                                    ackCode = ACK_ERROR;
+                                    ackText = e.getMessage();
+                                    log.warn("[{}] Troca {}: mensagem não processada, respondendo MSA|{}. {}",
+                                            config.getName(), exchangeId, ackCode, e.getMessage());
+                                } finally {
+                                    scope.close();
+                                }
 
-                            // TODO: Enviar HL7 ACK de volta para o equipamento
+                                // Resposta da query (ex: OUL^R22) ou o ACK de aplicação (MSA|AA, ou AE/AR na falha) para as demais mensagens
+                                String reply = response != null && !response.isEmpty() ? response : buildAck(completeMessage, ackCode, ackText);
+                                if (reply != null) {
+                                    sendMllp(output, reply, exchangeId);
+                                }
+                            } finally {
+                                if (counted) openFrames.decrementAndGet();
+                            }
+                            trace.stamp(MessageTrace.Stage.ACKED, AuditClock.nowNanos());
+                            metrics.finishTrace(trace);
+                            trace = null;
                         }
                     } else if (inMessage) {
                         messageBuilder.append((char) byteRead);
                     }
                 }
             } catch (IOException e) {
-                log.warn("[{}] Conexão com o cliente {} perdida: {}", config.getName(), clientSocket.getInetAddress(), e.getMessage());
+                if (running) {
+                    metrics.error();
+                    log.warn("[{}] Conexão com o cliente {} perdida: {}", config.getName(), clientSocket.getInetAddress(), e.getMessage());
+                }
             } finally {
+                if (inMessage) openFrames.decrementAndGet();
+                clients.remove(clientSocket);
+                metrics.bytesIn(pendingBytes);
+                metrics.connectionClosed();
                 try {
                     clientSocket.close();
                     log.info("[{}] Conexão com o cliente {} fechada.", config.getName(), clientSocket.getInetAddress());
@@ -106,7 +201,60 @@ public class TcpListener implements Runnable {
         }
     }
 
-    public void close() {
+    private void sendMllp(OutputStream output, String message, long exchangeId) throws IOException {
+        byte[] payload = message.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] block = new byte[payload.length + 3];
+        block[0] = VT;
+        System.arraycopy(payload, 0, block, 1, payload.length);
+        block[block.length - 2] = FS;
+        block[block.length - 1] = CR;
+        output.write(block);
+        output.flush();
+        metrics.bytesOut(block.length);
+        metrics.messageOut();
+        messageAuditService.auditMessage(RecordKind.MESSAGE_OUT, message, config, exchangeId, AuditClock.nowNanos());
+    }
+
+    /**
+     * ACK original da mensagem recebida: remetente e destinatário do MSH invertidos, o código (AA aceita,
+     * AE erro no processamento, AR recusada por falta de capacidade) e o controlId da mensagem no MSA-2, com o motivo da falha no MSA-3.
+     * Sem MSH válido não há o que confirmar (null).
+     */
+    static String buildAck(String message, String ackCode, String text) {
+        int end = message.indexOf('\r');
+        String msh = end >= 0 ? message.substring(0, end) : message;
+        if (!msh.startsWith("MSH|")) {
+            return null;
+        }
+        String[] fields = msh.split("\\|", -1);
+        String controlId = field(fields, 9);
+        String[] messageType = field(fields, 8).split("\\^", -1);
+        String trigger = messageType.length > 1 ? messageType[1] : "";
+        String timestamp = LocalDateTime.now().format(ACK_TIMESTAMP);
+        return "MSH|" + field(fields, 1) + "|" + field(fields, 4) + "|" + field(fields, 5) + "|" + field(fields, 2) + "|"
+                + field(fields, 3) + "|" + timestamp + "||ACK^" + trigger + "|ACK" + controlId + "|" + field(fields, 10)
+                + "|" + field(fields, 11) + "\r"
+                + "MSA|" + ackCode + "|" + controlId + (text != null && !text.isBlank() ? "|" + ackText(text) : "") + "\r";
+    }
+
+    // MSA-3 (até 80 caracteres) sem os delimitadores do HL7
+    private static String ackText(String text) {
+        String clean = text.replaceAll("[|^~\\\\&\r\n]", " ").trim();
+        return clean.length() > 80 ? clean.substring(0, 80) : clean;
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index] : "";
+    }
+
+    @Override
+    public boolean isPortOpen() {
+        return serverSocket != null && serverSocket.isBound() && !serverSocket.isClosed();
+    }
+
+    // Fecha o ServerSocket: novas conexões são recusadas, as abertas continuam até close()
+    @Override
+    public void stopIntake() {
         running = false;
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
@@ -116,4 +264,22 @@ public class TcpListener implements Runnable {
             log.error("[{}] Erro ao fechar o ServerSocket.", config.getName(), e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isBusy() {
+        return openFrames.get() > 0;
+    }
+
+    // Encerra o servidor e as conexões abertas (o equipamento reconecta quando o listener voltar)
+    @Override
+    public void close() {
+        stopIntake();
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("[{}] Erro ao fechar a conexão com {}: {}", config.getName(), client.getInetAddress(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.lab.api.log;
+
+import com.lab.api.config.AuditProperties;
+import com.lab.api.exception.ConflictException;
+import com.lab.api.log.index.AuditIndex;
+import com.lab.api.log.journal.JournalArchive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Manutenção dos dados de auditoria em segundo plano:
+ * <ul>
+ *     <li>compacta os dias encerrados do journal em bundles GZIP ({@code <dia>.seg.gz}) que ainda permitem ler uma mensagem isolada;</li>
+ *     <li>apaga os dias além do prazo de retenção, tanto do journal quanto das pastas do formato antigo (modo FILES).</li>
+ * </ul>
+ * A leitura de disco é limitada por 'audit.archive.max-bytes-per-second' para não disputar I/O com os listeners.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditArchiveService {
+
+    private final AuditProperties auditProperties;
+    private final AuditStore auditStore;
+    private final AuditIndex auditIndex;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${audit.archive.cron:0 30 1 * * *}")
+    public void scheduledRun() {
+        if (!auditProperties.getArchive().isEnabled()) {
+            return;
+        }
+        try {
+            runNow();
+        } catch (ConflictException e) {
+            log.warn("Arquivamento agendado ignorado: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Executa a compactação e a retenção imediatamente.
+     *
+     * @return Resumo da execução (dias compactados, bytes antes/depois, dias apagados, bytes liberados).
+     */
+    public Map<String, Object> runNow() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("O arquivamento da auditoria já está em execução.");
+        }
+        try {
+            AuditProperties.Archive settings = auditProperties.getArchive();
+            LocalDate today = LocalDate.now();
+            BandwidthLimiter limiter = new BandwidthLimiter(settings.getMaxBytesPerSecond());
+            long startedAt = System.currentTimeMillis();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            // Retenção primeiro, para não compactar dias que seriam apagados em seguida
+            if (settings.getRetentionDays() > 0) {
+                applyRetention(today.minusDays(settings.getRetentionDays()), report);
+            }
+            compressClosedDays(today.minusDays(settings.getCompressAfterDays()), settings.getBlockBytes(), limiter, report);
+            report.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            log.info("Arquivamento da auditoria concluído: {}", report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void compressClosedDays(LocalDate lastDay, int blockBytes, BandwidthLimiter limiter, Map<String, Object> report) {
+        long days = 0, segmentBytes = 0, bundleBytes = 0;
+        try {
+            for (String equipmentDir : auditStore.listEquipmentDirs()) {
+                for (LocalDate day : auditStore.listDays(equipmentDir, null, lastDay)) {
+                    Path segment = auditStore.segmentPath(equipmentDir, day);
+                    if (!Files.exists(segment) || auditIndex.isOpenForWrite(equipmentDir, day)) {
+                        continue;
+                    }
+                    try {
+                        // Completa o .idx antes: depois de compactado o dia não é mais reindexado
+                        auditIndex.get(equipmentDir, day);
+                        JournalArchive.Result result = JournalArchive.compress(segment, auditStore.bundlePath(equipmentDir, day),
+                                blockBytes, limiter::acquire);
+                        Files.delete(segment);
+                        days++;
+                        segmentBytes += result.segmentBytes();
+                        bundleBytes += result.bundleBytes();
+                        log.info("Auditoria de [{}] em {} compactada: {} mensagens, {} -> {} bytes em {} blocos.", equipmentDir, day,
+                                result.records(), result.segmentBytes(), result.bundleBytes(), result.blocks());
+                    } catch (IOException e) {
+                        log.error("Falha ao compactar a auditoria de [{}] em {}: {}", equipmentDir, day, e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Falha ao listar o journal de auditoria: {}", e.getMessage(), e);
+        }
+        report.put("daysCompressed", days);
+        report.put("segmentBytes", segmentBytes);
+        report.put("bundleBytes", bundleBytes);
+    }
+
+    private void applyRetention(LocalDate cutoff, Map<String, Object> report) {
+        long days = 0, freed = 0;
+        try {
+            for (String equipmentDir : auditStore.listEquipmentDirs()) {
+                for (LocalDate day : auditStore.listDays(equipmentDir, null, cutoff.minusDays(1))) {
+                    freed += auditStore.deleteDay(equipmentDir, day);
+                    auditIndex.evict(equipmentDir, day);
+                    days++;
+                }
+            }
+            // Formato antigo: message_logs/[equipamento]/[data]/
+            Path baseDir = Path.of(auditProperties.getBaseDir());
+            Path journalDir = auditProperties.getJournalDir();
+            if (Files.isDirectory(baseDir)) {
+                try (DirectoryStream<Path> equipmentDirs = Files.newDirectoryStream(baseDir, Files::isDirectory)) {
+                    for (Path equipmentDir : equipmentDirs) {
+                        if (equipmentDir.equals(journalDir)) continue;
+                        try (DirectoryStream<Path> dayDirs = Files.newDirectoryStream(equipmentDir, Files::isDirectory)) {
+                            for (Path dayDir : dayDirs) {
+                                LocalDate day = parseDay(dayDir.getFileName().toString());
+                                if (day != null && day.isBefore(cutoff)) {
+                                    freed += deleteRecursively(dayDir);
+                                    days++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Falha ao aplicar a retenção da auditoria: {}", e.getMessage(), e);
+        }
+        report.put("daysDeleted", days);
+        report.put("bytesFreed", freed);
+    }
+
+    private long deleteRecursively(Path dir) throws IOException {
+        long freed = 0;
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            if (Files.isRegularFile(path)) {
+                freed += Files.size(path);
+            }
+            Files.delete(path);
+        }
+        return freed;
+    }
+
+    private LocalDate parseDay(String name) {
+        try {
+            return LocalDate.parse(name, MessageAuditService.DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
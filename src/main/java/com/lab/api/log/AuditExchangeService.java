@@ -0,0 +1,120 @@
+package com.lab.api.log;
+
+import com.lab.api.controller.AuditExchangeDto;
+import com.lab.api.log.journal.JournalRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconstrói as trocas com um equipamento a partir do journal de auditoria (registros com o mesmo exchangeId),
+ * com o tempo entre cada evento. Serve para descobrir de que lado está a lentidão quando um analisador
+ * reporta timeout: demora entre ENQ e ACK é nossa, entre nosso ENQ e o ACK dele é do equipamento.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditExchangeService {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final AuditStore auditStore;
+    private final MessageAuditService messageAuditService;
+
+    /**
+     * @param minTotalMs Só retorna trocas que duraram pelo menos isso (opcional), para achar as lentas.
+     * @return Trocas do período, da mais recente para a mais antiga.
+     */
+    public List<AuditExchangeDto> findExchanges(String equipmentName, LocalDateTime from, LocalDateTime to,
+                                                Double minTotalMs, Integer limit) throws IOException {
+        if (equipmentName == null || equipmentName.isBlank()) {
+            throw new IllegalArgumentException("Informe o equipamento.");
+        }
+        int max = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        LocalDateTime end = to != null ? to : LocalDateTime.now(ZONE);
+        LocalDateTime start = from != null ? from : end.minusHours(1);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+        long fromMillis = start.atZone(ZONE).toInstant().toEpochMilli();
+        long toMillis = end.atZone(ZONE).toInstant().toEpochMilli();
+        long minTotalNanos = minTotalMs != null ? (long) (minTotalMs * 1_000_000L) : 0;
+
+        messageAuditService.flush(1000);
+        String equipmentDir = messageAuditService.equipmentDirName(equipmentName);
+
+        // Trocas em ordem de início; registros sem exchangeId (segmentos antigos) não formam trocas
+        Map<Long, List<JournalRecord>> exchanges = new HashMap<>();
+        List<Long> order = new ArrayList<>();
+        for (LocalDate day : auditStore.listDays(equipmentDir, start.toLocalDate(), end.toLocalDate())) {
+            auditStore.forEach(equipmentDir, day, record -> {
+                if (record.getExchangeId() != 0 && record.getEpochMillis() >= fromMillis && record.getEpochMillis() < toMillis) {
+                    exchanges.computeIfAbsent(record.getExchangeId(), id -> {
+                        order.add(id);
+                        return new ArrayList<>();
+                    }).add(record);
+                }
+                return true;
+            });
+        }
+
+        List<AuditExchangeDto> result = new ArrayList<>();
+        for (int i = order.size() - 1; i >= 0 && result.size() < max; i--) {
+            List<JournalRecord> records = exchanges.get(order.get(i));
+            records.sort(Comparator.comparingLong(JournalRecord::getEpochNanos));
+            long first = records.get(0).getEpochNanos();
+            long last = records.get(records.size() - 1).getEpochNanos();
+            if (last - first >= minTotalNanos) {
+                result.add(toDto(equipmentDir, records));
+            }
+        }
+        return result;
+    }
+
+    private AuditExchangeDto toDto(String equipmentDir, List<JournalRecord> records) {
+        JournalRecord first = records.get(0);
+        AuditExchangeDto dto = new AuditExchangeDto();
+        dto.setExchangeId(first.getExchangeId());
+        dto.setEquipment(equipmentDir);
+        dto.setProtocol(first.getProtocol() != null ? first.getProtocol().name() : null);
+        dto.setStartedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(first.getEpochMillis()), ZONE));
+
+        long previous = first.getEpochNanos();
+        for (JournalRecord record : records) {
+            AuditExchangeDto.Step step = new AuditExchangeDto.Step();
+            step.setDirection(record.getKind().isInbound() ? "IN" : "OUT");
+            step.setEvent(record.getKind().isMessage() ? "MESSAGE" : controlName(record.getPayload()));
+            step.setBytes(record.getPayload().length);
+            step.setAtMicros((record.getEpochNanos() - first.getEpochNanos()) / 1000.0);
+            step.setSinceLastMicros((record.getEpochNanos() - previous) / 1000.0);
+            previous = record.getEpochNanos();
+            dto.getSteps().add(step);
+        }
+        dto.setTotalMicros((previous - first.getEpochNanos()) / 1000.0);
+        return dto;
+    }
+
+    private String controlName(byte[] payload) {
+        if (payload.length != 1) {
+            return "CONTROL";
+        }
+        return switch (payload[0]) {
+            case 0x04 -> "EOT";
+            case 0x05 -> "ENQ";
+            case 0x06 -> "ACK";
+            case 0x15 -> "NAK";
+            default -> String.format("0x%02X", payload[0]);
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.lab.api.log;
+
+import com.lab.api.exception.ConflictException;
+import com.lab.api.log.journal.AuditJournal;
+import com.lab.api.log.journal.RecordKind;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Exporta um dia do journal de auditoria para o formato antigo de diretórios
+ * (message_logs/[equipamento]/[data]/[hora]_message.[ext]), para quem ainda consome os arquivos avulsos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditExportService {
+
+    private final MessageAuditService messageAuditService;
+    private final AuditStore auditStore;
+
+    /**
+     * @param equipmentName Nome do equipamento (como em application.yml)
+     * @return A quantidade de mensagens exportadas.
+     */
+    public long exportDay(String equipmentName, LocalDate date) throws IOException {
+        AuditJournal journal = messageAuditService.getJournal();
+        if (journal == null) {
+            throw new ConflictException("A auditoria não está em modo JOURNAL.");
+        }
+        journal.flush(5000);
+
+        String equipmentDir = messageAuditService.equipmentDirName(equipmentName);
+        if (!auditStore.exists(equipmentDir, date)) {
+            return 0;
+        }
+
+        Path targetDir = messageAuditService.getBaseDir().resolve(equipmentDir).resolve(date.format(MessageAuditService.DATE_FORMATTER));
+        Files.createDirectories(targetDir);
+
+        long[] exported = {0};
+        auditStore.forEach(equipmentDir, date, record -> {
+            // O formato antigo só tinha as mensagens recebidas
+            if (record.getKind() != RecordKind.MESSAGE_IN) {
+                return true;
+            }
+            LocalTime time = Instant.ofEpochMilli(record.getEpochMillis()).atZone(ZoneId.systemDefault()).toLocalTime();
+            String baseName = time.format(MessageAuditService.TIME_FORMATTER) + "_message";
+            String extension = MessageAuditService.fileExtension(record.getProtocol());
+            Path file = targetDir.resolve(baseName + extension);
+            // Mensagens no mesmo milissegundo recebem um sufixo sequencial; reexportar o mesmo dia não duplica arquivos
+            for (int i = 1; Files.exists(file); i++) {
+                if (Arrays.equals(Files.readAllBytes(file), record.getPayload())) {
+                    return true;
+                }
+                file = targetDir.resolve(baseName + "-" + i + extension);
+            }
+            Files.write(file, record.getPayload());
+            exported[0]++;
+            return true;
+        });
+        log.info("Exportadas {} mensagens do journal de [{}] em {} para {}.", exported[0], equipmentName, date, targetDir);
+        return exported[0];
+    }
+}
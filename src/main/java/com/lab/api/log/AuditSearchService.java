@@ -0,0 +1,126 @@
+package com.lab.api.log;
+
+import com.lab.api.controller.AuditMessageDto;
+import com.lab.api.log.index.AuditIndex;
+import com.lab.api.log.index.AuditKeyExtractor;
+import com.lab.api.log.index.DayIndex;
+import com.lab.api.log.journal.JournalRecord;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Busca de mensagens brutas no journal de auditoria por ID de amostra, ID de controle, equipamento e período.
+ * Usa o índice de cada dia para ir direto aos offsets dos registros, sem varrer os segmentos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditSearchService {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final AuditStore auditStore;
+    private final AuditIndex auditIndex;
+    private final MessageAuditService messageAuditService;
+
+    /**
+     * @param sampleId      ID da amostra (opcional)
+     * @param controlId     ID de controle da mensagem, ex: MSH-10 (opcional)
+     * @param equipmentName Nome do equipamento (opcional; sem ele todos os equipamentos são consultados)
+     * @param from          Início do período (opcional; padrão: 7 dias antes de 'to')
+     * @param to            Fim do período, exclusivo (opcional; padrão: agora)
+     * @return Mensagens encontradas, da mais recente para a mais antiga.
+     */
+    public List<AuditMessageDto> search(String sampleId, String controlId, String equipmentName,
+                                        LocalDateTime from, LocalDateTime to, Integer limit) throws IOException {
+        long sampleHash = DayIndex.hash(sampleId);
+        long controlHash = DayIndex.hash(controlId);
+        if (sampleHash == 0 && controlHash == 0 && (equipmentName == null || equipmentName.isBlank())) {
+            throw new IllegalArgumentException("Informe ao menos um critério de busca: sampleId, controlId ou equipment.");
+        }
+        int max = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        LocalDateTime end = to != null ? to : LocalDateTime.now(ZONE);
+        LocalDateTime start = from != null ? from : end.minusDays(7);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+        long fromMillis = start.atZone(ZONE).toInstant().toEpochMilli();
+        long toMillis = end.atZone(ZONE).toInstant().toEpochMilli();
+
+        // Garante que as mensagens recém-recebidas (ainda na fila do journal) apareçam na busca
+        messageAuditService.flush(1000);
+
+        List<String> equipmentDirs = equipmentName == null || equipmentName.isBlank()
+                ? auditStore.listEquipmentDirs()
+                : List.of(messageAuditService.equipmentDirName(equipmentName));
+
+        List<AuditMessageDto> results = new ArrayList<>();
+        for (String equipmentDir : equipmentDirs) {
+            List<LocalDate> days = auditStore.listDays(equipmentDir, start.toLocalDate(), end.toLocalDate());
+            // Dias mais recentes primeiro: com o limite atingido, os dias antigos nem são abertos
+            int found = 0;
+            for (int d = days.size() - 1; d >= 0 && found < max; d--) {
+                found += searchDay(equipmentDir, days.get(d), sampleHash, controlHash, sampleId, controlId,
+                        fromMillis, toMillis, max - found, results);
+            }
+        }
+
+        results.sort(Comparator.comparing(AuditMessageDto::getTimestamp).reversed()
+                .thenComparing(Comparator.comparingLong(AuditMessageDto::getOffset).reversed()));
+        return results.size() > max ? new ArrayList<>(results.subList(0, max)) : results;
+    }
+
+    private int searchDay(String equipmentDir, LocalDate day, long sampleHash, long controlHash,
+                           String sampleId, String controlId, long fromMillis, long toMillis,
+                           int max, List<AuditMessageDto> results) throws IOException {
+        DayIndex index = auditIndex.get(equipmentDir, day);
+        if (index == null) {
+            return 0;
+        }
+        // O índice só guarda hashes: busca todos os candidatos do dia e confirma cada um no registro
+        List<DayIndex.Hit> hits = new ArrayList<>();
+        index.find(sampleHash, controlHash, fromMillis, toMillis, Integer.MAX_VALUE, hits);
+
+        int added = 0;
+        for (int i = hits.size() - 1; i >= 0 && added < max; i--) {
+            JournalRecord record = auditStore.readAt(equipmentDir, day, hits.get(i).offset());
+            if (record == null || !record.getKind().isMessage()) {
+                continue;
+            }
+            String raw = record.payloadAsString();
+            AuditKeyExtractor.Keys keys = AuditKeyExtractor.extract(record.getProtocol(), raw);
+            if (sampleHash != 0 && !keys.getSampleIds().contains(sampleId.trim().toUpperCase())) continue;
+            if (controlHash != 0 && !controlId.trim().equalsIgnoreCase(keys.getControlId())) continue;
+
+            results.add(toDto(equipmentDir, record, keys, raw));
+            added++;
+        }
+        return added;
+    }
+
+    private AuditMessageDto toDto(String equipmentDir, JournalRecord record, AuditKeyExtractor.Keys keys, String raw) {
+        AuditMessageDto dto = new AuditMessageDto();
+        dto.setEquipment(equipmentDir);
+        dto.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getEpochMillis()), ZONE));
+        dto.setProtocol(record.getProtocol() != null ? record.getProtocol().name() : null);
+        dto.setOffset(record.getOffset());
+        dto.setDirection(record.getKind().isInbound() ? "IN" : "OUT");
+        dto.setExchangeId(record.getExchangeId());
+        dto.setSampleIds(keys.getSampleIds());
+        dto.setControlId(keys.getControlId());
+        dto.setRawMessage(raw);
+        return dto;
+    }
+}
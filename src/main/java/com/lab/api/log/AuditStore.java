@@ -0,0 +1,164 @@
+package com.lab.api.log;
+
+import com.lab.api.config.AuditProperties;
+import com.lab.api.log.index.AuditIndex;
+import com.lab.api.log.journal.AuditJournal;
+import com.lab.api.log.journal.JournalArchive;
+import com.lab.api.log.journal.JournalReader;
+import com.lab.api.log.journal.JournalRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Acesso de leitura ao journal de auditoria em disco: quais equipamentos e dias existem
+ * e leitura dos registros de um dia, esteja ele no segmento (.seg) ou já compactado (.seg.gz).
+ */
+@Component
+@RequiredArgsConstructor
+public class AuditStore {
+
+    private static final String BUNDLE_SUFFIX = ".seg.gz";
+
+    private final AuditProperties auditProperties;
+
+    // Tabelas de blocos dos bundles lidos recentemente (evita reler o .gzx a cada mensagem buscada)
+    private final Map<Path, JournalArchive.BlockTable> blockTables = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, JournalArchive.BlockTable> eldest) {
+            return size() > 32;
+        }
+    };
+
+    public Path getJournalDir() {
+        return auditProperties.getJournalDir();
+    }
+
+    public List<String> listEquipmentDirs() throws IOException {
+        Path journalDir = getJournalDir();
+        List<String> equipmentDirs = new ArrayList<>();
+        if (!Files.isDirectory(journalDir)) {
+            return equipmentDirs;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(journalDir, Files::isDirectory)) {
+            dirs.forEach(dir -> equipmentDirs.add(dir.getFileName().toString()));
+        }
+        Collections.sort(equipmentDirs);
+        return equipmentDirs;
+    }
+
+    /**
+     * Dias com segmento gravado para o equipamento, em ordem crescente, dentro do intervalo (datas nulas = sem limite).
+     */
+    public List<LocalDate> listDays(String equipmentDir, LocalDate from, LocalDate to) throws IOException {
+        Path dir = getJournalDir().resolve(equipmentDir);
+        // Durante a compactação o dia existe nos dois formatos por alguns instantes
+        TreeSet<LocalDate> days = new TreeSet<>();
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>(days);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{seg,seg.gz}")) {
+            for (Path file : files) {
+                LocalDate day = dayOf(file);
+                if (day != null && (from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to))) {
+                    days.add(day);
+                }
+            }
+        }
+        return new ArrayList<>(days);
+    }
+
+    public Path segmentPath(String equipmentDir, LocalDate date) {
+        return AuditJournal.segmentPath(getJournalDir(), equipmentDir, date);
+    }
+
+    public Path bundlePath(String equipmentDir, LocalDate date) {
+        return getJournalDir().resolve(equipmentDir).resolve(date + BUNDLE_SUFFIX);
+    }
+
+    public boolean exists(String equipmentDir, LocalDate date) {
+        return Files.exists(segmentPath(equipmentDir, date)) || Files.exists(bundlePath(equipmentDir, date));
+    }
+
+    public JournalRecord readAt(String equipmentDir, LocalDate date, long offset) throws IOException {
+        Path segment = segmentPath(equipmentDir, date);
+        if (Files.exists(segment)) {
+            try {
+                return JournalReader.readAt(segment, offset);
+            } catch (NoSuchFileException e) {
+                // Compactado entre a verificação e a leitura: segue para o bundle
+            }
+        }
+        Path bundle = bundlePath(equipmentDir, date);
+        if (!Files.exists(bundle)) {
+            return null;
+        }
+        return JournalArchive.readAt(bundle, blockTable(bundle), offset);
+    }
+
+    public long forEach(String equipmentDir, LocalDate date, JournalReader.RecordVisitor visitor) throws IOException {
+        Path segment = segmentPath(equipmentDir, date);
+        if (Files.exists(segment)) {
+            return JournalReader.forEach(segment, visitor);
+        }
+        Path bundle = bundlePath(equipmentDir, date);
+        if (!Files.exists(bundle)) {
+            return 0;
+        }
+        return JournalArchive.forEach(bundle, visitor);
+    }
+
+    /**
+     * Remove todos os arquivos de um dia (segmento, bundle, tabela de blocos e índice).
+     *
+     * @return Quantos bytes foram liberados.
+     */
+    public long deleteDay(String equipmentDir, LocalDate date) throws IOException {
+        Path segment = segmentPath(equipmentDir, date);
+        Path bundle = bundlePath(equipmentDir, date);
+        synchronized (blockTables) {
+            blockTables.remove(bundle);
+        }
+        long freed = 0;
+        for (Path file : List.of(segment, bundle, JournalArchive.blockIndexPath(bundle), AuditIndex.idxPath(segment))) {
+            if (Files.exists(file)) {
+                freed += Files.size(file);
+                Files.delete(file);
+            }
+        }
+        return freed;
+    }
+
+    private JournalArchive.BlockTable blockTable(Path bundle) throws IOException {
+        synchronized (blockTables) {
+            JournalArchive.BlockTable table = blockTables.get(bundle);
+            if (table == null) {
+                table = JournalArchive.readBlockTable(bundle);
+                blockTables.put(bundle, table);
+            }
+            return table;
+        }
+    }
+
+    private LocalDate dayOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return LocalDate.parse(name.substring(0, name.indexOf('.')));
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
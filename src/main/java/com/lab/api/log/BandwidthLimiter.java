@@ -0,0 +1,38 @@
+package com.lab.api.log;
+
+/**
+ * Limitador simples de banda para tarefas de manutenção em disco: quem chama informa os bytes
+ * processados e a thread dorme o necessário para manter a média abaixo do limite configurado.
+ */
+class BandwidthLimiter {
+
+    private final long maxBytesPerSecond;
+    private final long startedAt = System.nanoTime();
+    private long bytes;
+
+    BandwidthLimiter(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    void acquire(int count) {
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        bytes += count;
+        long expectedNanos = bytes * 1_000_000_000L / maxBytesPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startedAt);
+        // Dorme em passos de pelo menos 10 ms para não acordar a cada registro
+        if (aheadNanos > 10_000_000L) {
+            try {
+                Thread.sleep(aheadNanos / 1_000_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Arquivamento interrompido.");
+            }
+        }
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.lab.api.log;
+
+import com.lab.api.config.EquipmentConfig;
+import org.slf4j.MDC;
+
+/**
+ * Chaves de MDC dos logs do caminho das mensagens. No perfil prod elas saem como campos do JSON,
+ * permitindo filtrar todos os logs de um equipamento, amostra ou mensagem (ID de controle).
+ */
+public final class LogContext {
+
+    public static final String EQUIPMENT_ID = "equipmentId";
+    public static final String SAMPLE_ID = "sampleId";
+    public static final String CONTROL_ID = "controlId";
+
+    private LogContext() {
+    }
+
+    // Marca a thread atual com o equipamento; feche o retorno num finally (ou ignore-o em threads dedicadas ao equipamento)
+    public static MDC.MDCCloseable equipment(EquipmentConfig config) {
+        return MDC.putCloseable(EQUIPMENT_ID, config.getId() != null ? config.getId() : config.getName());
+    }
+
+    public static boolean hasEquipment() {
+        return MDC.get(EQUIPMENT_ID) != null;
+    }
+
+    public static void message(String sampleId, String controlId) {
+        if (sampleId != null) MDC.put(SAMPLE_ID, sampleId);
+        if (controlId != null) MDC.put(CONTROL_ID, controlId);
+    }
+
+    public static void clearMessage() {
+        MDC.remove(SAMPLE_ID);
+        MDC.remove(CONTROL_ID);
+    }
+}
@@ -1,65 +1,181 @@
 // src/main/java/com/lab/api/log/MessageAuditService.java
 package com.lab.api.log;
 
+import com.lab.api.config.AuditProperties;
 import com.lab.api.config.EquipmentConfig;
 import com.lab.api.domain.ProtocolType;
+import com.lab.api.log.index.AuditIndex;
+import com.lab.api.log.journal.AuditClock;
+import com.lab.api.log.journal.AuditJournal;
+import com.lab.api.log.journal.RecordKind;
+import com.lab.api.metrics.LabMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 public class MessageAuditService {
 
-    private static final String BASE_LOG_DIR = "message_logs";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HHmmss-SSSSSS");
+    static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HHmmss-SSSSSS");
+    // Payloads de 1 byte compartilhados pelos registros de caracteres de controle (nunca alterados)
+    private static final byte[][] CONTROL_PAYLOADS = new byte[256][];
+
+    static {
+        for (int i = 0; i < CONTROL_PAYLOADS.length; i++) {
+            CONTROL_PAYLOADS[i] = new byte[]{(byte) i};
+        }
+    }
+
+    private final AuditProperties auditProperties;
+    private final AuditIndex auditIndex;
+    private final LabMetrics labMetrics;
+    // Nome de pasta de cada equipamento e diretórios já criados, para não repetir o trabalho a cada mensagem
+    private final Map<String, String> equipmentDirNames = new ConcurrentHashMap<>();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    // Começa no relógio atual (em microssegundos) para não repetir identificadores de execuções anteriores
+    private final AtomicLong exchangeSequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private AuditJournal journal;
+
+    public MessageAuditService(AuditProperties auditProperties, AuditIndex auditIndex, LabMetrics labMetrics) {
+        this.auditProperties = auditProperties;
+        this.auditIndex = auditIndex;
+        this.labMetrics = labMetrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (auditProperties.getMode() == AuditProperties.Mode.JOURNAL) {
+            journal = new AuditJournal(auditProperties.getJournalDir(), auditProperties.getJournal(), auditIndex);
+            journal.setBatchObserver(labMetrics::recordAuditBatch);
+            log.info("Auditoria em modo JOURNAL em {} (fsync: {}, mmap: {}).", auditProperties.getJournalDir(),
+                    auditProperties.getJournal().getFsync(), auditProperties.getJournal().isMemoryMapped());
+        } else {
+            log.info("Auditoria em modo FILES (um arquivo por mensagem) em {}.", auditProperties.getBaseDir());
+        }
+    }
 
     /**
-     * Salva a mensagem bruta recebida de um equipamento em um arquivo de log específico.
-     * A estrutura de pastas será: message_logs/[NomeEquipamento]/[Data]/[Hora]_message.[ext]
+     * Salva a mensagem bruta recebida de um equipamento, como uma troca própria.
+     * No modo FILES a estrutura de pastas será: message_logs/[NomeEquipamento]/[Data]/[Hora]_message.[ext].
+     * No modo JOURNAL a mensagem é apenas enfileirada para o segmento do dia do equipamento.
      *
      * @param rawMessage A mensagem completa recebida.
      * @param config As configurações do equipamento que enviou a mensagem.
      */
     public void auditMessage(String rawMessage, EquipmentConfig config) {
+        auditMessage(RecordKind.MESSAGE_IN, rawMessage, config, newExchangeId(), AuditClock.nowNanos());
+    }
+
+    /**
+     * Salva uma mensagem recebida (MESSAGE_IN) ou enviada (MESSAGE_OUT) dentro de uma troca.
+     *
+     * @param exchangeId Identificador da troca (ver {@link #newExchangeId()}), comum a todos os registros dela.
+     * @param epochNanos Instante do evento, obtido de {@link AuditClock#nowNanos()} no momento em que ocorreu.
+     */
+    public void auditMessage(RecordKind kind, String rawMessage, EquipmentConfig config, long exchangeId, long epochNanos) {
+        long startedAt = System.nanoTime();
+        if (journal != null) {
+            journal.append(equipmentDirName(config.getName()), config.getProtocol(), kind, epochNanos, exchangeId,
+                    rawMessage.getBytes(StandardCharsets.ISO_8859_1));
+            labMetrics.recordAuditEnqueue(System.nanoTime() - startedAt);
+            return;
+        }
+
         try {
             // 1. Determina o caminho do diretório (ex: message_logs/Abbott_Architect_c8000/2025-08-07)
             Path directoryPath = getDirectoryPath(config.getName());
 
-            // 2. Cria os diretórios se eles não existirem
-            Files.createDirectories(directoryPath);
+            // 2. Cria os diretórios se eles não existirem (uma vez por dia por equipamento)
+            if (createdDirectories.add(directoryPath)) {
+                Files.createDirectories(directoryPath);
+            }
 
             // 3. Monta o caminho completo do arquivo (diretório + nome do arquivo)
-            Path filePath = directoryPath.resolve(getFileName(config.getProtocol()));
+            Path filePath = directoryPath.resolve(getFileName(kind, config.getProtocol()));
 
             // 4. Escreve a mensagem no arquivo
             Files.writeString(filePath, rawMessage);
+            labMetrics.recordAuditFileWrite(System.nanoTime() - startedAt);
 
             log.info("Mensagem bruta do equipamento [{}] salva em: {}", config.getName(), filePath);
 
         } catch (IOException e) {
+            createdDirectories.clear();
             log.error("Falha ao salvar a mensagem de auditoria para o equipamento [{}]. Erro: {}", config.getName(), e.getMessage(), e);
         }
     }
 
+    /**
+     * Registra um caractere de controle recebido (CONTROL_IN) ou enviado (CONTROL_OUT), ex: ENQ, ACK, NAK, EOT.
+     * Só é gravado no modo JOURNAL; o formato de arquivos avulsos guarda apenas mensagens.
+     */
+    public void auditControl(RecordKind kind, byte control, EquipmentConfig config, long exchangeId, long epochNanos) {
+        if (journal != null) {
+            journal.append(equipmentDirName(config.getName()), config.getProtocol(), kind, epochNanos, exchangeId,
+                    CONTROL_PAYLOADS[control & 0xFF]);
+        }
+    }
+
+    // Identificador novo de troca, único também entre reinícios da aplicação
+    public long newExchangeId() {
+        return exchangeSequence.incrementAndGet();
+    }
+
+    /**
+     * Aguarda a gravação em disco de todas as mensagens já enfileiradas (modo JOURNAL).
+     */
+    public boolean flush(long timeoutMs) {
+        return journal == null || journal.flush(timeoutMs);
+    }
+
+    public AuditJournal getJournal() {
+        return journal;
+    }
+
+    public Path getBaseDir() {
+        return Paths.get(auditProperties.getBaseDir());
+    }
+
+    // Sanitiza o nome do equipamento para ser um nome de pasta válido
+    public String equipmentDirName(String equipmentName) {
+        return equipmentDirNames.computeIfAbsent(equipmentName, name -> name.replaceAll("[^a-zA-Z0-9.-]", "_"));
+    }
+
+    static String fileExtension(ProtocolType protocol) {
+        return protocol == ProtocolType.HL7 ? ".hl7" : ".astm";
+    }
+
+    @PreDestroy
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     private Path getDirectoryPath(String equipmentName) {
         String today = LocalDate.now().format(DATE_FORMATTER);
-        // Sanitiza o nome do equipamento para ser um nome de pasta válido
-        String sanitizedEquipmentName = equipmentName.replaceAll("[^a-zA-Z0-9.-]", "_");
-        return Paths.get(BASE_LOG_DIR, sanitizedEquipmentName, today);
+        return Paths.get(auditProperties.getBaseDir(), equipmentDirName(equipmentName), today);
     }
 
-    private String getFileName(ProtocolType protocol) {
+    private String getFileName(RecordKind kind, ProtocolType protocol) {
         String timestamp = LocalTime.now().format(TIME_FORMATTER);
-        String extension = protocol == ProtocolType.HL7 ? ".hl7" : ".astm";
-        return String.format("%s_message%s", timestamp, extension);
+        String suffix = kind == RecordKind.MESSAGE_OUT ? "_response" : "_message";
+        return String.format("%s%s%s", timestamp, suffix, fileExtension(protocol));
     }
-}
\ No newline at end of file
+}
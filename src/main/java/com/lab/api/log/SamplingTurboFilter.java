@@ -0,0 +1,84 @@
+package com.lab.api.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita os logs por mensagem (INFO e abaixo) dos loggers da aplicação: cada linha de log (logger + texto
+ * do log, sem os argumentos) passa no máximo 'maxPerSecond' vezes por segundo; acima disso só 1 a cada
+ * 'sampleRate' é gravada. WARN e ERROR nunca são descartados. Ao virar o segundo, uma linha informa
+ * quantas foram suprimidas.
+ * <p>
+ * A decisão é tomada antes da formatação da mensagem, então o log descartado quase não custa nada.
+ * Configurado no logback-spring.xml (perfil prod).
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final Marker SUMMARY = MarkerFactory.getMarker("LOG_SAMPLING");
+    // Proteção contra textos de log montados dinamicamente (cada um viraria uma janela nova)
+    private static final int MAX_FORMATS_PER_LOGGER = 1000;
+
+    private String loggerPrefix = "com.lab.api";
+    private int maxPerSecond = 20;
+    private int sampleRate = 100;
+    // Por logger e texto do log (os textos são constantes, sem concatenação a cada chamada)
+    private final Map<Logger, Map<String, Window>> windows = new ConcurrentHashMap<>();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || marker == SUMMARY
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel()) || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        Map<String, Window> formats = windows.computeIfAbsent(logger, key -> new ConcurrentHashMap<>());
+        Window window = formats.get(format);
+        if (window == null) {
+            if (formats.size() >= MAX_FORMATS_PER_LOGGER) {
+                return FilterReply.NEUTRAL;
+            }
+            window = formats.computeIfAbsent(format, key -> new Window());
+        }
+        long second = System.currentTimeMillis() / 1000;
+        long windowSecond = window.second.get();
+        // Só a thread que vira o segundo zera a janela e informa os suprimidos
+        if (windowSecond != second && window.second.compareAndSet(windowSecond, second)) {
+            long suppressed = window.suppressed.getAndSet(0);
+            window.count.set(0);
+            if (suppressed > 0) {
+                logger.info(SUMMARY, "{} linha(s) de log suprimida(s) no último segundo: \"{}\"", suppressed, format);
+            }
+        }
+        long count = window.count.incrementAndGet();
+        if (count <= maxPerSecond || (sampleRate > 0 && (count - maxPerSecond) % sampleRate == 0)) {
+            return FilterReply.NEUTRAL;
+        }
+        window.suppressed.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    private static final class Window {
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
@@ -0,0 +1,244 @@
+package com.lab.api.log.index;
+
+import com.lab.api.config.AuditProperties;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.log.AuditStore;
+import com.lab.api.log.journal.JournalListener;
+import com.lab.api.log.journal.JournalReader;
+import com.lab.api.log.journal.JournalRecord;
+import com.lab.api.log.journal.RecordKind;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Índice secundário do journal de auditoria: (amostra, ID de controle, instante) → offset no segmento.
+ * <p>
+ * Cada segmento {@code <dia>.seg} tem um arquivo irmão {@code <dia>.idx} com entradas de 32 bytes,
+ * mantido pela thread de escrita do journal à medida que as mensagens são gravadas. Para buscas, os
+ * índices dos dias consultados são carregados sob demanda e mantidos em um cache LRU em memória.
+ * Um .idx ausente ou atrasado (ex: queda antes da gravação) é reconstruído a partir do segmento.
+ */
+@Component
+@Slf4j
+public class AuditIndex implements JournalListener {
+
+    private static final int IDX_MAGIC = 0x4C414249; // "LABI"
+    private static final int IDX_VERSION = 1;
+    private static final int IDX_HEADER_BYTES = 8;
+
+    private final AuditStore auditStore;
+    private final Map<String, DayIndex> cache;
+    private final Map<String, FileChannel> openWriters = new HashMap<>();
+    private final ByteBuffer entryBuffer = ByteBuffer.allocate(DayIndex.ENTRY_BYTES * 16);
+
+    public AuditIndex(AuditStore auditStore, AuditProperties auditProperties) {
+        this.auditStore = auditStore;
+        int maxCachedDays = auditProperties.getIndex().getMaxCachedDays();
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DayIndex> eldest) {
+                return size() > maxCachedDays;
+            }
+        };
+    }
+
+    /**
+     * Índice de um dia de um equipamento, carregado do .idx (e completado a partir do segmento se necessário).
+     * Retorna null se não houver segmento para o dia.
+     */
+    public synchronized DayIndex get(String equipmentDir, LocalDate date) throws IOException {
+        String key = key(equipmentDir, date);
+        DayIndex index = cache.get(key);
+        if (index == null) {
+            if (!auditStore.exists(equipmentDir, date)) {
+                return null;
+            }
+            Path segment = auditStore.segmentPath(equipmentDir, date);
+            // Segmento aberto para escrita: o .idx já está em dia e é completado por onRecordAppended.
+            // Dia já compactado: o .idx foi completado antes da compactação.
+            index = load(equipmentDir, date, segment, !openWriters.containsKey(key) && Files.exists(segment));
+            cache.put(key, index);
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void onSegmentOpened(String equipmentDir, LocalDate date, long endOffset) {
+        try {
+            Path segment = auditStore.segmentPath(equipmentDir, date);
+            DayIndex index = load(equipmentDir, date, segment, true);
+            cache.put(key(equipmentDir, date), index);
+            openWriters.put(key(equipmentDir, date), openForAppend(idxPath(segment)));
+        } catch (IOException e) {
+            log.error("Falha ao preparar o índice de auditoria de [{}] em {}: {}", equipmentDir, date, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void onRecordAppended(String equipmentDir, LocalDate date, long offset, long epochMillis,
+                                              RecordKind kind, ProtocolType protocol, byte[] payload) {
+        String key = key(equipmentDir, date);
+        FileChannel writer = openWriters.get(key);
+        // Caracteres de controle não entram no índice (não têm amostra nem ID de controle)
+        if (writer == null || !kind.isMessage()) {
+            return;
+        }
+        try {
+            index(writer, cache.get(key), offset, epochMillis, protocol, payload);
+        } catch (IOException e) {
+            log.error("Falha ao atualizar o índice de auditoria de [{}] em {}: {}", equipmentDir, date, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void onSegmentClosed(String equipmentDir, LocalDate date) {
+        closeQuietly(openWriters.remove(key(equipmentDir, date)));
+    }
+
+    // O journal ainda grava neste segmento (dia corrente, ou anterior ainda não encerrado)
+    public synchronized boolean isOpenForWrite(String equipmentDir, LocalDate date) {
+        return openWriters.containsKey(key(equipmentDir, date));
+    }
+
+    // Remove o dia do cache (ex: após a política de retenção apagar os arquivos)
+    public synchronized void evict(String equipmentDir, LocalDate date) {
+        cache.remove(key(equipmentDir, date));
+    }
+
+    public static Path idxPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.indexOf('.')) + ".idx");
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        openWriters.values().forEach(this::closeQuietly);
+        openWriters.clear();
+    }
+
+    private DayIndex load(String equipmentDir, LocalDate date, Path segment, boolean catchUp) throws IOException {
+        DayIndex index = new DayIndex(equipmentDir, date);
+        Path idx = idxPath(segment);
+
+        if (Files.exists(idx)) {
+            readIdx(idx, index);
+        }
+        if (!catchUp) {
+            return index;
+        }
+
+        // Completa entradas que faltam no .idx (arquivo ausente, ou queda entre o segmento e o índice)
+        long resumeAt = JournalRecord.SEGMENT_HEADER_BYTES;
+        if (index.lastOffset() >= 0) {
+            JournalRecord last = JournalReader.readAt(segment, index.lastOffset());
+            resumeAt = last != null ? index.lastOffset() + last.sizeOnDisk() : Files.size(segment);
+        }
+        if (Files.exists(segment) && resumeAt < Files.size(segment)) {
+            int before = index.size();
+            try (FileChannel writer = openForAppend(idx)) {
+                JournalReader.forEachFrom(segment, resumeAt, record -> {
+                    if (record.getKind().isMessage()) {
+                        index(writer, index, record.getOffset(), record.getEpochMillis(), record.getProtocol(), record.getPayload());
+                    }
+                    return true;
+                });
+            }
+            if (index.size() > before) {
+                log.info("Índice de auditoria {} completado com {} entradas a partir do segmento.", idx, index.size() - before);
+            }
+        }
+        return index;
+    }
+
+    private void readIdx(Path idx, DayIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(idx, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            if (channel.read(buffer) < IDX_HEADER_BYTES) {
+                return;
+            }
+            buffer.flip();
+            if (buffer.getInt() != IDX_MAGIC || buffer.getInt() > IDX_VERSION) {
+                throw new IOException("Arquivo de índice inválido: " + idx);
+            }
+            while (true) {
+                while (buffer.remaining() >= DayIndex.ENTRY_BYTES) {
+                    index.add(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+                }
+                buffer.compact();
+                if (channel.read(buffer) <= 0) {
+                    break; // Uma entrada parcial no fim (queda no meio da gravação) é ignorada
+                }
+                buffer.flip();
+            }
+        }
+    }
+
+    private FileChannel openForAppend(Path idx) throws IOException {
+        FileChannel channel = FileChannel.open(idx, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < IDX_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(IDX_HEADER_BYTES).putInt(IDX_MAGIC).putInt(IDX_VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            size = IDX_HEADER_BYTES;
+        }
+        long aligned = size - (size - IDX_HEADER_BYTES) % DayIndex.ENTRY_BYTES;
+        if (aligned < size) {
+            channel.truncate(aligned);
+        }
+        channel.position(aligned);
+        return channel;
+    }
+
+    private void index(FileChannel writer, DayIndex index, long offset, long epochMillis, ProtocolType protocol, byte[] payload) throws IOException {
+        AuditKeyExtractor.Keys keys = AuditKeyExtractor.extract(protocol, new String(payload, StandardCharsets.ISO_8859_1));
+        long controlHash = DayIndex.hash(keys.getControlId());
+
+        entryBuffer.clear();
+        if (keys.getSampleIds().isEmpty()) {
+            putEntry(index, epochMillis, offset, 0, controlHash);
+        } else {
+            for (String sampleId : keys.getSampleIds()) {
+                if (entryBuffer.remaining() < DayIndex.ENTRY_BYTES) break;
+                putEntry(index, epochMillis, offset, DayIndex.hash(sampleId), controlHash);
+            }
+        }
+        entryBuffer.flip();
+        while (entryBuffer.hasRemaining()) {
+            writer.write(entryBuffer);
+        }
+    }
+
+    private void putEntry(DayIndex index, long epochMillis, long offset, long sampleHash, long controlHash) {
+        entryBuffer.putLong(epochMillis).putLong(offset).putLong(sampleHash).putLong(controlHash);
+        if (index != null) {
+            index.add(epochMillis, offset, sampleHash, controlHash);
+        }
+    }
+
+    private String key(String equipmentDir, LocalDate date) {
+        return equipmentDir + "/" + date;
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Falha ao fechar arquivo de índice: {}", e.getMessage());
+        }
+    }
+}
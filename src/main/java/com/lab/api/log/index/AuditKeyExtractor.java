@@ -0,0 +1,128 @@
+package com.lab.api.log.index;
+
+import com.lab.api.domain.ProtocolType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extração leve (sem HAPI, sem parse completo) dos identificadores usados no índice de auditoria:
+ * IDs de amostra e ID de controle da mensagem.
+ */
+public final class AuditKeyExtractor {
+
+    private AuditKeyExtractor() {
+    }
+
+    public static final class Keys {
+        private final List<String> sampleIds = new ArrayList<>(2);
+        private String controlId;
+
+        public List<String> getSampleIds() {
+            return sampleIds;
+        }
+
+        public String getControlId() {
+            return controlId;
+        }
+
+        void addSample(String sampleId) {
+            if (sampleId != null && !sampleId.isBlank()) {
+                String normalized = sampleId.trim().toUpperCase();
+                if (!sampleIds.contains(normalized)) {
+                    sampleIds.add(normalized);
+                }
+            }
+        }
+
+        void setControlId(String controlId) {
+            if (this.controlId == null && controlId != null && !controlId.isBlank()) {
+                this.controlId = controlId.trim().toUpperCase();
+            }
+        }
+    }
+
+    public static Keys extract(ProtocolType protocol, String rawMessage) {
+        Keys keys = new Keys();
+        if (rawMessage == null || rawMessage.isEmpty() || protocol == null) {
+            return keys;
+        }
+        switch (protocol) {
+            case ASTM -> extractAstm(rawMessage, keys);
+            case HL7 -> extractHl7(rawMessage, keys);
+            case ROCHE_HIF -> extractIntegra(rawMessage, keys);
+        }
+        return keys;
+    }
+
+    private static void extractAstm(String rawMessage, Keys keys) {
+        for (String record : rawMessage.split("[\r\n]+")) {
+            String[] fields = record.trim().split("\\|");
+            if (fields.length < 3 || fields[0].isEmpty()) {
+                continue;
+            }
+            // O tipo é o último caractere do primeiro campo (pode vir precedido do número do frame, ex: "1H")
+            char type = fields[0].charAt(fields[0].length() - 1);
+            switch (type) {
+                case 'H' -> keys.setControlId(fields[2]);
+                case 'O' -> keys.addSample(firstComponent(fields[2]));
+                case 'Q' -> {
+                    String[] components = fields[2].split("\\^");
+                    for (int i = 1; i < components.length; i++) {
+                        if (!components[i].isBlank() && !"ALL".equalsIgnoreCase(components[i])) {
+                            keys.addSample(components[i]);
+                            break;
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void extractHl7(String rawMessage, Keys keys) {
+        String spmSample = null;
+        String obrSample = null;
+        for (String segment : rawMessage.split("[\r\n\u000b\u001c]+")) {
+            if (segment.length() < 4) {
+                continue;
+            }
+            String[] fields = segment.split("\\|");
+            switch (fields[0]) {
+                case "MSH" -> keys.setControlId(field(fields, 9)); // MSH-10 (MSH-1 é o próprio separador)
+                case "SPM" -> spmSample = spmSample != null ? spmSample : firstComponent(field(fields, 2));
+                case "OBR" -> {
+                    if (obrSample == null) {
+                        obrSample = firstComponent(field(fields, 2));
+                        if (obrSample == null || obrSample.isBlank()) obrSample = firstComponent(field(fields, 3));
+                    }
+                }
+                case "QPD" -> keys.addSample(field(fields, 3));
+                default -> {
+                }
+            }
+        }
+        // Mesma precedência do parser: SPM-2, depois OBR-2 / OBR-3
+        keys.addSample(spmSample != null && !spmSample.isBlank() ? spmSample : obrSample);
+    }
+
+    private static void extractIntegra(String rawMessage, Keys keys) {
+        for (String line : rawMessage.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("54_")) {
+                keys.addSample(trimmed.substring(3));
+            }
+        }
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index] : null;
+    }
+
+    private static String firstComponent(String field) {
+        if (field == null) return null;
+        int caret = field.indexOf('^');
+        return caret >= 0 ? field.substring(0, caret) : field;
+    }
+}
@@ -0,0 +1,97 @@
+package com.lab.api.log.index;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice em memória de um segmento (um equipamento, um dia): arrays primitivos paralelos com
+ * instante, offset no segmento e hash do ID de amostra e do ID de controle de cada registro.
+ * Uma mensagem com várias amostras gera uma entrada por amostra, todas com o mesmo offset.
+ */
+public class DayIndex {
+
+    public static final int ENTRY_BYTES = 32;
+
+    private final String equipmentDir;
+    private final LocalDate date;
+    private long[] times = new long[256];
+    private long[] offsets = new long[256];
+    private long[] sampleHashes = new long[256];
+    private long[] controlHashes = new long[256];
+    private int size;
+
+    public DayIndex(String equipmentDir, LocalDate date) {
+        this.equipmentDir = equipmentDir;
+        this.date = date;
+    }
+
+    public record Hit(long offset, long epochMillis) {
+    }
+
+    public synchronized void add(long epochMillis, long offset, long sampleHash, long controlHash) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            sampleHashes = Arrays.copyOf(sampleHashes, capacity);
+            controlHashes = Arrays.copyOf(controlHashes, capacity);
+        }
+        times[size] = epochMillis;
+        offsets[size] = offset;
+        sampleHashes[size] = sampleHash;
+        controlHashes[size] = controlHash;
+        size++;
+    }
+
+    /**
+     * Coleta os registros que atendem aos filtros (hash 0 = qualquer valor), sem repetir offsets.
+     *
+     * @return quantos registros foram adicionados a 'out'.
+     */
+    public synchronized int find(long sampleHash, long controlHash, long fromMillis, long toMillis, int limit, List<Hit> out) {
+        int found = 0;
+        long lastOffset = -1;
+        for (int i = 0; i < size && found < limit; i++) {
+            if (times[i] < fromMillis || times[i] >= toMillis) continue;
+            if (sampleHash != 0 && sampleHashes[i] != sampleHash) continue;
+            if (controlHash != 0 && controlHashes[i] != controlHash) continue;
+            if (offsets[i] == lastOffset) continue;
+            lastOffset = offsets[i];
+            out.add(new Hit(offsets[i], times[i]));
+            found++;
+        }
+        return found;
+    }
+
+    // Offset do último registro indexado, ou -1 se o índice estiver vazio
+    public synchronized long lastOffset() {
+        return size == 0 ? -1 : offsets[size - 1];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public String getEquipmentDir() {
+        return equipmentDir;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    // FNV-1a 64 bits sobre a chave normalizada; 0 é reservado para "sem chave"
+    public static long hash(String key) {
+        if (key == null || key.isBlank()) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        String normalized = key.trim().toUpperCase();
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,25 @@
+package com.lab.api.log.journal;
+
+/**
+ * Relógio da auditoria: instante em nanossegundos desde a época, monotônico dentro do processo.
+ * Ancorado uma vez no relógio do sistema e avançado por {@link System#nanoTime()}, de modo que a
+ * diferença entre dois eventos (ex: ENQ recebido → ACK enviado) tem a precisão do nanoTime.
+ */
+public final class AuditClock {
+
+    private static final long BASE_EPOCH_NANOS;
+    private static final long BASE_NANO_TIME;
+
+    static {
+        java.time.Instant now = java.time.Instant.now();
+        BASE_NANO_TIME = System.nanoTime();
+        BASE_EPOCH_NANOS = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private AuditClock() {
+    }
+
+    public static long nowNanos() {
+        return BASE_EPOCH_NANOS + (System.nanoTime() - BASE_NANO_TIME);
+    }
+}
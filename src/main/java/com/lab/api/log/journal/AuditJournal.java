@@ -0,0 +1,269 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.config.AuditProperties;
+import com.lab.api.domain.ProtocolType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal de auditoria append-only, com um segmento por equipamento por dia
+ * ({@code <base>/journal/<equipamento>/<yyyy-MM-dd>.seg}).
+ * <p>
+ * As threads dos listeners apenas enfileiram o registro; uma única thread de escrita drena a fila em
+ * lotes (group commit), grava nos segmentos e aplica a política de fsync configurada uma vez por lote.
+ */
+@Slf4j
+public class AuditJournal implements Closeable {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Path journalDir;
+    private final AuditProperties.Journal settings;
+    private final BlockingQueue<Entry> queue;
+    private final Map<String, JournalSegment> openSegments = new HashMap<>();
+    private final Thread writerThread;
+    private final JournalListener listener;
+
+    private volatile boolean running = true;
+    private long lastFsyncAt = System.currentTimeMillis();
+    private volatile long lastQueueFullWarningAt;
+    private volatile BatchObserver batchObserver;
+
+    public AuditJournal(Path journalDir, AuditProperties.Journal settings, JournalListener listener) {
+        this.journalDir = journalDir;
+        this.settings = settings;
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.writerThread = new Thread(this::writeLoop, "audit-journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Enfileira um registro para gravação. Se a fila estiver cheia (disco lento), bloqueia o chamador
+     * em vez de descartar a mensagem: a trilha de auditoria não pode ter lacunas.
+     */
+    public void append(String equipmentDir, ProtocolType protocol, RecordKind kind, long epochNanos, long exchangeId, byte[] payload) {
+        Entry entry = new Entry(equipmentDir, protocol, kind, epochNanos, exchangeId, payload, null);
+        if (!queue.offer(entry)) {
+            long now = System.currentTimeMillis();
+            if (now - lastQueueFullWarningAt > 10_000) {
+                lastQueueFullWarningAt = now;
+                log.warn("Fila do journal de auditoria cheia ({} registros). Aguardando a gravação em disco...", settings.getQueueCapacity());
+            }
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrompido ao enfileirar mensagem de auditoria do equipamento [{}]. A mensagem não foi gravada.", equipmentDir);
+            }
+        }
+    }
+
+    /**
+     * Aguarda até que tudo o que foi enfileirado antes desta chamada esteja gravado e sincronizado em disco.
+     *
+     * @return true se concluiu dentro do tempo limite.
+     */
+    public boolean flush(long timeoutMs) {
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            if (!queue.offer(new Entry(null, null, null, 0, 0, null, done), timeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Recebe o tamanho e a duração de cada lote gravado (métricas)
+    public void setBatchObserver(BatchObserver batchObserver) {
+        this.batchObserver = batchObserver;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public Path getJournalDir() {
+        return journalDir;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(settings.getMaxBatch());
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, settings.getMaxBatch() - 1);
+                    long startedAt = System.nanoTime();
+                    writeBatch(batch);
+                    BatchObserver observer = batchObserver;
+                    if (observer != null) {
+                        observer.onBatchWritten(batch.size(), System.nanoTime() - startedAt);
+                    }
+                    batch.clear();
+                } else {
+                    syncIfDue(); // Política INTERVAL também sincroniza quando o tráfego para
+                }
+                closeSegmentsFromPreviousDays();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Erro inesperado na thread de escrita do journal de auditoria: {}", e.getMessage(), e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        List<CountDownLatch> flushRequests = null;
+        for (Entry entry : batch) {
+            if (entry.flushed != null) {
+                if (flushRequests == null) flushRequests = new ArrayList<>();
+                flushRequests.add(entry.flushed);
+                continue;
+            }
+            try {
+                JournalSegment segment = segmentFor(entry);
+                long offset = segment.append(entry.epochNanos, entry.kind, entry.protocol, entry.exchangeId, entry.payload);
+                notifyAppended(segment, entry, offset);
+            } catch (IOException e) {
+                log.error("Falha ao gravar mensagem de auditoria do equipamento [{}] no journal: {}", entry.equipmentDir, e.getMessage(), e);
+            }
+        }
+
+        if (flushRequests != null || settings.getFsync() == AuditProperties.FsyncPolicy.BATCH) {
+            syncAll();
+        } else {
+            syncIfDue();
+        }
+        if (flushRequests != null) {
+            flushRequests.forEach(CountDownLatch::countDown);
+        }
+    }
+
+    private void syncIfDue() {
+        if (settings.getFsync() == AuditProperties.FsyncPolicy.INTERVAL
+                && System.currentTimeMillis() - lastFsyncAt >= settings.getFsyncIntervalMs()) {
+            syncAll();
+        }
+    }
+
+    private void syncAll() {
+        for (JournalSegment segment : openSegments.values()) {
+            try {
+                segment.force();
+            } catch (IOException e) {
+                log.error("Falha no fsync do segmento {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+        lastFsyncAt = System.currentTimeMillis();
+    }
+
+    private JournalSegment segmentFor(Entry entry) throws IOException {
+        LocalDate date = Instant.ofEpochMilli(entry.epochNanos / 1_000_000L).atZone(ZONE).toLocalDate();
+        String key = entry.equipmentDir + "/" + date;
+        JournalSegment segment = openSegments.get(key);
+        if (segment == null) {
+            segment = JournalSegment.open(segmentPath(journalDir, entry.equipmentDir, date), entry.equipmentDir, date,
+                    settings.isMemoryMapped(), settings.getMmapChunkBytes());
+            openSegments.put(key, segment);
+            log.info("Segmento de auditoria aberto: {}", segment.getPath());
+            if (listener != null) {
+                try {
+                    listener.onSegmentOpened(entry.equipmentDir, date, segment.getPosition());
+                } catch (Exception e) {
+                    log.error("Falha no listener do journal ao abrir o segmento {}: {}", segment.getPath(), e.getMessage(), e);
+                }
+            }
+        }
+        return segment;
+    }
+
+    private void notifyAppended(JournalSegment segment, Entry entry, long offset) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onRecordAppended(entry.equipmentDir, segment.getDate(), offset, entry.epochNanos / 1_000_000L,
+                    entry.kind, entry.protocol, entry.payload);
+        } catch (Exception e) {
+            log.error("Falha no listener do journal após gravar em {}: {}", segment.getPath(), e.getMessage(), e);
+        }
+    }
+
+    // Segmentos de dias anteriores não recebem mais gravações: fecha para liberar descritores (e o mmap).
+    private void closeSegmentsFromPreviousDays() {
+        LocalDate today = LocalDate.now(ZONE);
+        Iterator<JournalSegment> it = openSegments.values().iterator();
+        while (it.hasNext()) {
+            JournalSegment segment = it.next();
+            if (segment.getDate().isBefore(today)) {
+                closeQuietly(segment);
+                it.remove();
+            }
+        }
+    }
+
+    public static Path segmentPath(Path journalDir, String equipmentDir, LocalDate date) {
+        return journalDir.resolve(equipmentDir).resolve(date + ".seg");
+    }
+
+    @Override
+    public void close() {
+        // Sem interrupt: interromper a thread no meio de um write fecharia o FileChannel (ClosedByInterruptException).
+        // A thread percebe 'running = false' em até 500 ms, drena a fila e termina.
+        running = false;
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        openSegments.values().forEach(this::closeQuietly);
+        openSegments.clear();
+    }
+
+    private void closeQuietly(JournalSegment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.error("Falha ao fechar o segmento {}: {}", segment.getPath(), e.getMessage());
+        }
+        if (listener != null) {
+            try {
+                listener.onSegmentClosed(segment.getEquipmentDir(), segment.getDate());
+            } catch (Exception e) {
+                log.error("Falha no listener do journal ao fechar o segmento {}: {}", segment.getPath(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchObserver {
+        void onBatchWritten(int records, long elapsedNanos);
+    }
+
+    private record Entry(String equipmentDir, ProtocolType protocol, RecordKind kind, long epochNanos,
+                         long exchangeId, byte[] payload, CountDownLatch flushed) {
+    }
+}
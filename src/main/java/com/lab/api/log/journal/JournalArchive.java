@@ -0,0 +1,251 @@
+package com.lab.api.log.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bundle compactado de um segmento encerrado do journal de auditoria.
+ * <p>
+ * O bundle {@code <dia>.seg.gz} é uma sequência de membros GZIP independentes, cada um com registros
+ * inteiros somando cerca de 'blockBytes' descompactados. Descompactado por inteiro (ex: {@code zcat}),
+ * ele reproduz exatamente o segmento original, então os offsets dos registros (e o índice .idx) continuam válidos.
+ * O arquivo {@code <dia>.gzx} guarda, para cada membro, o offset no segmento original e a posição no bundle:
+ * <pre>
+ * int  magic "LABZ", int versão
+ * long segmentOffset, long bundleOffset   (uma entrada por membro GZIP, em ordem)
+ * </pre>
+ * Para ler uma única mensagem basta descompactar o membro que a contém.
+ */
+public final class JournalArchive {
+
+    private static final int BLOCK_MAGIC = 0x4C41425A; // "LABZ"
+    private static final int BLOCK_VERSION = 1;
+
+    private JournalArchive() {
+    }
+
+    /** Tabela de blocos de um bundle (conteúdo do .gzx). */
+    public static final class BlockTable {
+        private final long[] segmentOffsets;
+        private final long[] bundleOffsets;
+        private final int segmentVersion;
+
+        BlockTable(long[] segmentOffsets, long[] bundleOffsets, int segmentVersion) {
+            this.segmentOffsets = segmentOffsets;
+            this.bundleOffsets = bundleOffsets;
+            this.segmentVersion = segmentVersion;
+        }
+
+        public int size() {
+            return segmentOffsets.length;
+        }
+
+        // Índice do membro GZIP que contém o offset do segmento original
+        int blockOf(long segmentOffset) {
+            int i = Arrays.binarySearch(segmentOffsets, segmentOffset);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    public record Result(long records, long segmentBytes, long bundleBytes, int blocks) {
+    }
+
+    public static Path blockIndexPath(Path bundle) {
+        String name = bundle.getFileName().toString();
+        return bundle.resolveSibling(name.substring(0, name.indexOf('.')) + ".gzx");
+    }
+
+    /**
+     * Compacta um segmento encerrado. Os arquivos são gravados com sufixo .tmp, conferidos e só então
+     * renomeados; o segmento original não é alterado (quem chama decide quando removê-lo).
+     *
+     * @param throttle Recebe a quantidade de bytes lida do segmento a cada registro (controle de banda).
+     */
+    public static Result compress(Path segment, Path bundle, int blockBytes, IntConsumer throttle) throws IOException {
+        Path blockIndex = blockIndexPath(bundle);
+        Path bundleTmp = bundle.resolveSibling(bundle.getFileName() + ".tmp");
+        Path blockIndexTmp = blockIndex.resolveSibling(blockIndex.getFileName() + ".tmp");
+
+        long[] counters = new long[3]; // registros, bytes do segmento, bytes do bundle
+        int blocks;
+        // Mantém a versão do segmento para que os offsets (e o .idx) continuem válidos
+        int version = JournalReader.segmentVersion(segment);
+        try (FileChannel bundleChannel = FileChannel.open(bundleTmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel indexChannel = FileChannel.open(blockIndexTmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            CountingOutputStream bundleOut = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(bundleChannel), 64 * 1024));
+            DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(indexChannel), 16 * 1024));
+            indexOut.writeInt(BLOCK_MAGIC);
+            indexOut.writeInt(BLOCK_VERSION);
+
+            MemberWriter member = new MemberWriter(bundleOut, indexOut);
+            member.start(0);
+            member.out.writeInt(JournalRecord.SEGMENT_MAGIC);
+            member.out.writeInt(version);
+            long[] memberBytes = {JournalRecord.SEGMENT_HEADER_BYTES};
+
+            long end = JournalReader.forEach(segment, record -> {
+                if (memberBytes[0] >= blockBytes) {
+                    member.finish();
+                    member.start(record.getOffset());
+                    memberBytes[0] = 0;
+                }
+                writeRecord(member.out, record, version);
+                memberBytes[0] += record.sizeOnDisk();
+                counters[0]++;
+                throttle.accept(record.sizeOnDisk());
+                return true;
+            });
+            member.finish();
+            indexOut.flush();
+            bundleOut.flush();
+            bundleChannel.force(true);
+            indexChannel.force(true);
+
+            counters[1] = end;
+            counters[2] = bundleOut.count;
+            blocks = member.blocks;
+        }
+
+        // Confere o bundle antes de substituir o segmento: mesmos registros, mesmo fim lógico
+        long[] verified = {0};
+        long verifiedEnd;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(bundleTmp), 64 * 1024)) {
+            verifiedEnd = JournalReader.forEach(in, record -> {
+                verified[0]++;
+                return true;
+            });
+        }
+        if (verified[0] != counters[0] || verifiedEnd != counters[1]) {
+            Files.deleteIfExists(bundleTmp);
+            Files.deleteIfExists(blockIndexTmp);
+            throw new IOException("Bundle " + bundle + " não confere com o segmento (" + verified[0] + " de " + counters[0] + " registros).");
+        }
+
+        Files.move(blockIndexTmp, blockIndex, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(bundleTmp, bundle, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Result(counters[0], counters[1], counters[2], blocks);
+    }
+
+    public static BlockTable readBlockTable(Path bundle) throws IOException {
+        byte[] bytes = Files.readAllBytes(blockIndexPath(bundle));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 8 || buffer.getInt() != BLOCK_MAGIC || buffer.getInt() > BLOCK_VERSION) {
+            throw new IOException("Tabela de blocos inválida para o bundle " + bundle);
+        }
+        int count = buffer.remaining() / 16;
+        long[] segmentOffsets = new long[count];
+        long[] bundleOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            segmentOffsets[i] = buffer.getLong();
+            bundleOffsets[i] = buffer.getLong();
+        }
+        int segmentVersion;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(bundle), 512)) {
+            segmentVersion = JournalReader.readSegmentHeader(new DataInputStream(in));
+        }
+        return new BlockTable(segmentOffsets, bundleOffsets, segmentVersion);
+    }
+
+    // Lê um único registro do bundle, descompactando apenas o membro GZIP que o contém.
+    public static JournalRecord readAt(Path bundle, BlockTable table, long offset) throws IOException {
+        int block = table.blockOf(offset);
+        if (block < 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(bundle, StandardOpenOption.READ)) {
+            channel.position(table.bundleOffsets[block]);
+            InputStream in = new GZIPInputStream(Channels.newInputStream(channel), 8 * 1024);
+            in.skipNBytes(offset - table.segmentOffsets[block]);
+            return JournalReader.readNext(new DataInputStream(in), offset, table.segmentVersion);
+        }
+    }
+
+    public static long forEach(Path bundle, JournalReader.RecordVisitor visitor) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(bundle), 64 * 1024)) {
+            return JournalReader.forEach(in, visitor);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, JournalRecord record, int version) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(record.sizeOnDisk());
+        JournalRecord.encode(buffer, version, record.getEpochNanos(), record.getKind(), record.getProtocol(),
+                record.getExchangeId(), record.getPayload());
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    // Escreve um membro GZIP por vez no bundle, registrando o início de cada um na tabela de blocos.
+    private static final class MemberWriter {
+        private final CountingOutputStream bundleOut;
+        private final DataOutputStream indexOut;
+        private MemberStream gzip;
+        private DataOutputStream out;
+        private int blocks;
+
+        MemberWriter(CountingOutputStream bundleOut, DataOutputStream indexOut) {
+            this.bundleOut = bundleOut;
+            this.indexOut = indexOut;
+        }
+
+        void start(long segmentOffset) throws IOException {
+            indexOut.writeLong(segmentOffset);
+            indexOut.writeLong(bundleOut.count);
+            gzip = new MemberStream(bundleOut);
+            out = new DataOutputStream(new BufferedOutputStream(gzip, 16 * 1024));
+            blocks++;
+        }
+
+        void finish() throws IOException {
+            out.flush();
+            gzip.endMember();
+        }
+    }
+
+    // GZIPOutputStream que encerra o membro sem fechar o stream do bundle (e libera o Deflater nativo).
+    private static final class MemberStream extends GZIPOutputStream {
+        MemberStream(OutputStream out) throws IOException {
+            super(out, 16 * 1024);
+        }
+
+        void endMember() throws IOException {
+            finish();
+            def.end();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.domain.ProtocolType;
+
+import java.time.LocalDate;
+
+/**
+ * Notificado pela thread de escrita do {@link AuditJournal} (ex: para manter o índice de auditoria).
+ * As chamadas acontecem sempre na mesma thread e na ordem de gravação.
+ */
+public interface JournalListener {
+
+    // Segmento aberto para escrita; 'endOffset' é onde o próximo registro será gravado
+    void onSegmentOpened(String equipmentDir, LocalDate date, long endOffset);
+
+    void onRecordAppended(String equipmentDir, LocalDate date, long offset, long epochMillis,
+                          RecordKind kind, ProtocolType protocol, byte[] payload);
+
+    void onSegmentClosed(String equipmentDir, LocalDate date);
+}
@@ -0,0 +1,173 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.domain.ProtocolType;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Leitura dos segmentos do journal de auditoria. A leitura para no primeiro registro
+ * incompleto ou corrompido (ex: queda no meio de uma gravação), que é tratado como fim do segmento.
+ */
+public final class JournalReader {
+
+    private static final ProtocolType[] PROTOCOLS = ProtocolType.values();
+
+    private JournalReader() {
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        // Retorne false para interromper a leitura
+        boolean visit(JournalRecord record) throws IOException;
+    }
+
+    /**
+     * Percorre todos os registros válidos do segmento, em ordem.
+     *
+     * @return O offset logo após o último registro válido.
+     */
+    public static long forEach(Path segment, RecordVisitor visitor) throws IOException {
+        try (InputStream in = Channels.newInputStream(FileChannel.open(segment, StandardOpenOption.READ))) {
+            return forEach(in, visitor);
+        }
+    }
+
+    // Versão sobre um stream qualquer (ex: bundle compactado), começando no cabeçalho do segmento.
+    public static long forEach(InputStream rawIn, RecordVisitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(rawIn, 64 * 1024));
+        int version = readSegmentHeader(in);
+        long offset = JournalRecord.SEGMENT_HEADER_BYTES;
+        JournalRecord record;
+        while ((record = readNext(in, offset, version)) != null) {
+            offset += record.sizeOnDisk();
+            if (!visitor.visit(record)) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Percorre os registros a partir de um offset conhecido (início de registro), sem ler o começo do segmento.
+     *
+     * @return O offset logo após o último registro válido.
+     */
+    public static long forEachFrom(Path segment, long startOffset, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            int version = segmentVersion(channel);
+            channel.position(startOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            long offset = startOffset;
+            JournalRecord record;
+            while ((record = readNext(in, offset, version)) != null) {
+                offset += record.sizeOnDisk();
+                if (!visitor.visit(record)) {
+                    break;
+                }
+            }
+            return offset;
+        }
+    }
+
+    // Lê um único registro a partir do offset (obtido, por exemplo, do índice de auditoria).
+    public static JournalRecord readAt(Path segment, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            int version = segmentVersion(channel);
+            channel.position(offset);
+            return readNext(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 8 * 1024)), offset, version);
+        }
+    }
+
+    // Versão do formato gravada no cabeçalho do segmento
+    public static int segmentVersion(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return segmentVersion(channel);
+        }
+    }
+
+    static int segmentVersion(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JournalRecord.SEGMENT_HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Segmento sem cabeçalho completo.");
+            }
+        }
+        header.flip();
+        return checkHeader(header.getInt(), header.getInt());
+    }
+
+    /**
+     * Lê um registro de um stream já posicionado no offset informado, no formato da versão do segmento.
+     * Retorna null no fim ou em registro inválido.
+     */
+    public static JournalRecord readNext(DataInputStream in, long offset, int version) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return null;
+            }
+            int crc = in.readInt();
+            long time = in.readLong();
+            byte kind = in.readByte();
+            byte protocol = in.readByte();
+            long exchangeId = version == 1 ? 0 : in.readLong();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            if (crc != crc32(version, time, kind, protocol, exchangeId, payload)) {
+                return null;
+            }
+            long epochNanos = version == 1 ? time * 1_000_000L : time;
+            return new JournalRecord(offset, version, epochNanos, RecordKind.fromCode(kind), protocolOf(protocol), exchangeId, payload);
+        } catch (EOFException | IllegalArgumentException | NegativeArraySizeException | OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    // Encontra o fim lógico de um segmento existente (usado ao reabri-lo para continuar gravando).
+    static long scanValidEnd(FileChannel channel) throws IOException {
+        channel.position(0);
+        InputStream in = Channels.newInputStream(channel);
+        return forEach(in, record -> true);
+    }
+
+    static int crc32(int version, long time, byte kind, byte protocol, long exchangeId, byte[] payload) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(18);
+        header.putLong(time).put(kind).put(protocol);
+        if (version != 1) {
+            header.putLong(exchangeId);
+        }
+        crc.update(header.flip());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static int readSegmentHeader(DataInputStream in) throws IOException {
+        return checkHeader(in.readInt(), in.readInt());
+    }
+
+    private static int checkHeader(int magic, int version) throws IOException {
+        if (magic != JournalRecord.SEGMENT_MAGIC) {
+            throw new IOException("Arquivo não é um segmento de journal de auditoria (magic inválido).");
+        }
+        if (version < 1 || version > JournalRecord.SEGMENT_VERSION) {
+            throw new IOException("Versão de segmento não suportada: " + version);
+        }
+        return version;
+    }
+
+    private static ProtocolType protocolOf(byte ordinal) {
+        return ordinal >= 0 && ordinal < PROTOCOLS.length ? PROTOCOLS[ordinal] : null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.domain.ProtocolType;
+import lombok.Data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Um registro do journal de auditoria.
+ * <p>
+ * Formato em disco (big-endian), após o cabeçalho de 8 bytes do segmento (magic "LABJ" + versão).
+ * Versão 2 (atual):
+ * <pre>
+ * int  length      tamanho do payload (0 marca o fim do segmento, ex: área pré-alocada do mmap)
+ * int  crc32       CRC32 dos campos seguintes + payload
+ * long epochNanos  instante do evento em nanossegundos desde a época (ver {@link AuditClock})
+ * byte kind        RecordKind (direção e tipo: mensagem ou caractere de controle)
+ * byte protocol    ProtocolType (ordinal)
+ * long exchangeId  troca à qual o registro pertence (ex: ENQ, mensagem, ACK e resposta de uma mesma query)
+ * byte[] payload   bytes brutos em ISO-8859-1 (preserva exatamente os bytes trocados)
+ * </pre>
+ * Versão 1 (segmentos antigos): sem 'exchangeId' e com 'epochMillis' no lugar de 'epochNanos'.
+ * Um segmento é sempre gravado inteiro na versão do seu cabeçalho.
+ */
+@Data
+public class JournalRecord {
+
+    public static final int SEGMENT_MAGIC = 0x4C41424A; // "LABJ"
+    public static final int SEGMENT_VERSION = 2;
+    public static final int SEGMENT_HEADER_BYTES = 8;
+    public static final int RECORD_HEADER_BYTES_V1 = 4 + 4 + 8 + 1 + 1;
+    public static final int RECORD_HEADER_BYTES = 4 + 4 + 8 + 1 + 1 + 8;
+
+    private final long offset;
+    private final int version;
+    private final long epochNanos;
+    private final RecordKind kind;
+    private final ProtocolType protocol;
+    private final long exchangeId;
+    private final byte[] payload;
+
+    public long getEpochMillis() {
+        return epochNanos / 1_000_000L;
+    }
+
+    public String payloadAsString() {
+        return new String(payload, StandardCharsets.ISO_8859_1);
+    }
+
+    public int sizeOnDisk() {
+        return headerBytes(version) + payload.length;
+    }
+
+    public static int headerBytes(int version) {
+        return version == 1 ? RECORD_HEADER_BYTES_V1 : RECORD_HEADER_BYTES;
+    }
+
+    // Codifica um registro no formato da versão do segmento em 'buffer' (que deve ter espaço suficiente)
+    static void encode(ByteBuffer buffer, int version, long epochNanos, RecordKind kind, ProtocolType protocol,
+                       long exchangeId, byte[] payload) {
+        byte protocolCode = protocol != null ? (byte) protocol.ordinal() : -1;
+        long time = version == 1 ? epochNanos / 1_000_000L : epochNanos;
+        buffer.putInt(payload.length)
+                .putInt(JournalReader.crc32(version, time, kind.code(), protocolCode, exchangeId, payload))
+                .putLong(time)
+                .put(kind.code())
+                .put(protocolCode);
+        if (version != 1) {
+            buffer.putLong(exchangeId);
+        }
+        buffer.put(payload);
+    }
+}
@@ -0,0 +1,162 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.domain.ProtocolType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Segmento aberto para escrita: um arquivo append-only por equipamento por dia.
+ * Usado apenas pela thread de escrita do {@link AuditJournal}, por isso não é thread-safe.
+ */
+@Slf4j
+class JournalSegment implements Closeable {
+
+    private final Path path;
+    private final String equipmentDir;
+    private final LocalDate date;
+    private final FileChannel channel;
+    private final boolean memoryMapped;
+    private final int mmapChunkBytes;
+    private final int version;
+
+    private long position;
+    private boolean dirty;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private MappedByteBuffer mapped;
+    private long mappedStart;
+
+    private JournalSegment(Path path, String equipmentDir, LocalDate date, FileChannel channel, long position,
+                           int version, boolean memoryMapped, int mmapChunkBytes) {
+        this.path = path;
+        this.equipmentDir = equipmentDir;
+        this.date = date;
+        this.channel = channel;
+        this.position = position;
+        this.version = version;
+        this.memoryMapped = memoryMapped;
+        this.mmapChunkBytes = mmapChunkBytes;
+    }
+
+    static JournalSegment open(Path path, String equipmentDir, LocalDate date, boolean memoryMapped, int mmapChunkBytes) throws IOException {
+        Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long position;
+        int version = JournalRecord.SEGMENT_VERSION;
+        if (channel.size() < JournalRecord.SEGMENT_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(JournalRecord.SEGMENT_HEADER_BYTES);
+            header.putInt(JournalRecord.SEGMENT_MAGIC).putInt(JournalRecord.SEGMENT_VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            position = JournalRecord.SEGMENT_HEADER_BYTES;
+        } else {
+            // Reabertura (ex: reinício no mesmo dia): continua após o último registro íntegro,
+            // no formato em que o segmento foi criado
+            version = JournalReader.segmentVersion(channel);
+            position = JournalReader.scanValidEnd(channel);
+            if (position < channel.size()) {
+                log.info("Segmento {} reaberto: descartando {} bytes após o último registro válido.", path, channel.size() - position);
+                channel.truncate(position);
+            }
+        }
+        return new JournalSegment(path, equipmentDir, date, channel, position, version, memoryMapped, mmapChunkBytes);
+    }
+
+    /**
+     * Acrescenta um registro ao segmento.
+     *
+     * @return O offset do registro dentro do segmento.
+     */
+    long append(long epochNanos, RecordKind kind, ProtocolType protocol, long exchangeId, byte[] payload) throws IOException {
+        int size = JournalRecord.headerBytes(version) + payload.length;
+        ByteBuffer buffer = scratch(size);
+        JournalRecord.encode(buffer, version, epochNanos, kind, protocol, exchangeId, payload);
+        buffer.flip();
+
+        long offset = position;
+        if (memoryMapped) {
+            ensureMapped(size);
+            mapped.position((int) (position - mappedStart));
+            mapped.put(buffer);
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+        position += size;
+        dirty = true;
+        return offset;
+    }
+
+    void force() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        if (memoryMapped && mapped != null) {
+            mapped.force();
+        } else {
+            channel.force(false);
+        }
+        dirty = false;
+    }
+
+    String getEquipmentDir() {
+        return equipmentDir;
+    }
+
+    LocalDate getDate() {
+        return date;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (memoryMapped) {
+            // Remove a área pré-alocada do mapeamento. Em alguns sistemas (Windows) isso falha enquanto
+            // o mapeamento existir; não há problema, pois a leitura para no primeiro registro de tamanho 0.
+            try {
+                channel.truncate(position);
+            } catch (IOException e) {
+                log.debug("Não foi possível truncar o segmento mapeado {}: {}", path, e.getMessage());
+            }
+            mapped = null;
+        }
+        channel.close();
+    }
+
+    private void ensureMapped(int size) throws IOException {
+        if (mapped != null && position + size <= mappedStart + mapped.capacity()) {
+            return;
+        }
+        if (mapped != null) {
+            mapped.force();
+        }
+        mappedStart = position;
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, mappedStart, Math.max(mmapChunkBytes, size));
+    }
+
+    private ByteBuffer scratch(int size) {
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        return scratch;
+    }
+}
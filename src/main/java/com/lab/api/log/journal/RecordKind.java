@@ -0,0 +1,36 @@
+package com.lab.api.log.journal;
+
+// Tipo e direção de cada registro do journal de auditoria (gravado como um byte).
+public enum RecordKind {
+    MESSAGE_IN((byte) 1),  // Mensagem completa recebida do equipamento
+    MESSAGE_OUT((byte) 2), // Mensagem enviada ao equipamento (resposta de query, requisição ao Integra)
+    CONTROL_IN((byte) 3),  // Caractere de controle recebido (ENQ, ACK, NAK, EOT)
+    CONTROL_OUT((byte) 4); // Caractere de controle enviado
+
+    private final byte code;
+
+    RecordKind(byte code) {
+        this.code = code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public boolean isMessage() {
+        return this == MESSAGE_IN || this == MESSAGE_OUT;
+    }
+
+    public boolean isInbound() {
+        return this == MESSAGE_IN || this == CONTROL_IN;
+    }
+
+    public static RecordKind fromCode(byte code) {
+        for (RecordKind kind : values()) {
+            if (kind.code == code) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de registro desconhecido no journal: " + code);
+    }
+}
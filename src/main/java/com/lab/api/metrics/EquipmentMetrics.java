@@ -0,0 +1,267 @@
+package com.lab.api.metrics;
+
+import com.lab.api.config.EquipmentConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Medidores de um equipamento, registrados uma única vez e reutilizados pelos listeners
+ * (no caminho de cada byte não há busca no registry, só o incremento).
+ * Todos levam as tags 'equipment' e 'protocol'.
+ */
+public final class EquipmentMetrics {
+
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final Counter frames;
+    private final Counter messagesIn;
+    private final Counter messagesOut;
+    private final Counter queries;
+    private final Counter results;
+    private final Counter naksIn;
+    private final Counter naksOut;
+    private final Counter errors;
+    private final Timer framing;
+    private final Timer dispatchQuery;
+    private final Timer dispatchResult;
+    private final Counter reconnects;
+    private final Timer downtime;
+    private final Timer bulkheadWaitQuery;
+    private final Timer bulkheadWaitResult;
+    private final Counter bulkheadRejectedQuery;
+    private final Counter bulkheadRejectedResult;
+    private final AtomicInteger connections = new AtomicInteger();
+    // Estado recente para o status/health do equipamento (GET /api/v1/equipments/status)
+    private final RollingCounter recentMessages = new RollingCounter();
+    private final RollingCounter recentErrors = new RollingCounter();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastMessageAt;
+    private volatile long lastErrorAt;
+    private volatile long busySince;
+    // Porta serial indisponível desde (0 = disponível) e tempo total indisponível
+    private volatile long downSince;
+    private final AtomicLong downtimeMillis = new AtomicLong();
+    private final EquipmentConfig config;
+    private final MessageTracer tracer;
+
+    EquipmentMetrics(MeterRegistry registry, EquipmentConfig config, MessageTracer tracer) {
+        this.config = config;
+        this.tracer = tracer;
+        Tags tags = Tags.of("equipment", config.getName(), "protocol", String.valueOf(config.getProtocol()));
+        bytesIn = Counter.builder("lab.equipment.bytes").description("Bytes trocados com o equipamento")
+                .tags(tags).tag("direction", "in").baseUnit("bytes").register(registry);
+        bytesOut = Counter.builder("lab.equipment.bytes").description("Bytes trocados com o equipamento")
+                .tags(tags).tag("direction", "out").baseUnit("bytes").register(registry);
+        frames = Counter.builder("lab.equipment.frames").description("Frames recebidos (STX no ASTM, bloco MLLP no HL7)")
+                .tags(tags).register(registry);
+        messagesIn = Counter.builder("lab.equipment.messages").description("Mensagens completas trocadas com o equipamento")
+                .tags(tags).tag("direction", "in").register(registry);
+        messagesOut = Counter.builder("lab.equipment.messages").description("Mensagens completas trocadas com o equipamento")
+                .tags(tags).tag("direction", "out").register(registry);
+        queries = Counter.builder("lab.equipment.queries").description("Queries (pedidos de ordens) recebidas")
+                .tags(tags).register(registry);
+        results = Counter.builder("lab.equipment.results").description("Mensagens de resultado recebidas")
+                .tags(tags).register(registry);
+        naksIn = Counter.builder("lab.equipment.naks").description("NAKs trocados com o equipamento")
+                .tags(tags).tag("direction", "in").register(registry);
+        naksOut = Counter.builder("lab.equipment.naks").description("NAKs trocados com o equipamento")
+                .tags(tags).tag("direction", "out").register(registry);
+        errors = Counter.builder("lab.equipment.errors").description("Falhas de comunicação ou de processamento")
+                .tags(tags).register(registry);
+        framing = Timer.builder("lab.framing").description("Do início da transmissão (ENQ ou início do bloco MLLP) à mensagem completa")
+                .tags(tags).register(registry);
+        dispatchQuery = Timer.builder("lab.dispatch").description("Processamento de uma mensagem pelo dispatcher")
+                .tags(tags).tag("type", "query").register(registry);
+        dispatchResult = Timer.builder("lab.dispatch").description("Processamento de uma mensagem pelo dispatcher")
+                .tags(tags).tag("type", "result").register(registry);
+        reconnects = Counter.builder("lab.equipment.reconnects").description("Reaberturas da porta serial após perda ou falha")
+                .tags(tags).register(registry);
+        downtime = Timer.builder("lab.equipment.downtime").description("Tempo com a porta serial indisponível, por ocorrência")
+                .tags(tags).register(registry);
+        bulkheadWaitQuery = Timer.builder("lab.bulkhead.wait").description("Espera por uma vaga no bulkhead do equipamento e do banco")
+                .tags(tags).tag("type", "query").register(registry);
+        bulkheadWaitResult = Timer.builder("lab.bulkhead.wait").description("Espera por uma vaga no bulkhead do equipamento e do banco")
+                .tags(tags).tag("type", "result").register(registry);
+        bulkheadRejectedQuery = Counter.builder("lab.bulkhead.rejected").description("Mensagens não processadas por falta de vaga no bulkhead")
+                .tags(tags).tag("type", "query").register(registry);
+        bulkheadRejectedResult = Counter.builder("lab.bulkhead.rejected").description("Mensagens não processadas por falta de vaga no bulkhead")
+                .tags(tags).tag("type", "result").register(registry);
+        Gauge.builder("lab.equipment.connections", connections, AtomicInteger::get)
+                .description("Conexões TCP abertas ou porta serial aberta (1)").tags(tags).register(registry);
+    }
+
+    public void bytesIn(int count) {
+        bytesIn.increment(count);
+    }
+
+    public void bytesOut(int count) {
+        bytesOut.increment(count);
+    }
+
+    public void frame() {
+        frames.increment();
+    }
+
+    public void messageIn() {
+        messagesIn.increment();
+        recentMessages.increment();
+        lastMessageAt = System.currentTimeMillis();
+    }
+
+    public void messageOut() {
+        messagesOut.increment();
+    }
+
+    public void query() {
+        queries.increment();
+    }
+
+    public void result() {
+        results.increment();
+    }
+
+    public void nakIn() {
+        naksIn.increment();
+    }
+
+    public void nakOut() {
+        naksOut.increment();
+    }
+
+    // Porta serial perdida ou falha ao abrir: conta um erro por ocorrência (não por tentativa)
+    public void portLost() {
+        if (downSince == 0) {
+            downSince = System.currentTimeMillis();
+            error();
+        }
+    }
+
+    // Porta serial aberta; devolve o tempo indisponível em ms (0 se estava disponível)
+    public long portRecovered() {
+        long since = downSince;
+        if (since == 0) {
+            return 0;
+        }
+        downSince = 0;
+        long elapsed = Math.max(0, System.currentTimeMillis() - since);
+        downtimeMillis.addAndGet(elapsed);
+        downtime.record(elapsed, TimeUnit.MILLISECONDS);
+        reconnects.increment();
+        return elapsed;
+    }
+
+    public long getReconnects() {
+        return (long) reconnects.count();
+    }
+
+    // Tempo total indisponível, incluindo a indisponibilidade atual
+    public long getDowntimeMillis() {
+        long since = downSince;
+        return downtimeMillis.get() + (since != 0 ? System.currentTimeMillis() - since : 0);
+    }
+
+    public long getDownSince() {
+        return downSince;
+    }
+
+    public void error() {
+        errors.increment();
+        recentErrors.increment();
+        lastErrorAt = System.currentTimeMillis();
+    }
+
+    public void framed(long elapsedNanos) {
+        framing.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer dispatchTimer(boolean query) {
+        return query ? dispatchQuery : dispatchResult;
+    }
+
+    public Timer bulkheadWaitTimer(boolean query) {
+        return query ? bulkheadWaitQuery : bulkheadWaitResult;
+    }
+
+    public void bulkheadRejected(boolean query) {
+        (query ? bulkheadRejectedQuery : bulkheadRejectedResult).increment();
+    }
+
+    // Trace de latência de uma mensagem cujo primeiro byte chegou em 'firstByteNanos' (AuditClock)
+    public MessageTrace startTrace(long exchangeId, long firstByteNanos) {
+        return tracer.start(config, exchangeId, firstByteNanos);
+    }
+
+    public void finishTrace(MessageTrace trace) {
+        tracer.finish(trace);
+    }
+
+    // Mensagem entregue ao dispatcher / concluída; 'busySince' marca o último progresso enquanto há mensagens em andamento
+    public void dispatchStarted() {
+        if (inFlight.getAndIncrement() == 0) {
+            busySince = System.currentTimeMillis();
+        }
+    }
+
+    public void dispatchFinished() {
+        if (inFlight.decrementAndGet() > 0) {
+            busySince = System.currentTimeMillis();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // Instante do último progresso com mensagens em andamento (0 se nenhuma)
+    public long getBusySince() {
+        return inFlight.get() > 0 ? busySince : 0;
+    }
+
+    public long getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public long getLastErrorAt() {
+        return lastErrorAt;
+    }
+
+    public long getMessagesTotal() {
+        return (long) messagesIn.count();
+    }
+
+    public long getErrorsTotal() {
+        return (long) errors.count();
+    }
+
+    public long getMessagesLastMinute() {
+        return recentMessages.lastMinute();
+    }
+
+    public long getErrorsLastMinute() {
+        return recentErrors.lastMinute();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    // Serial: a "conexão" é a porta aberta
+    public void setConnected(boolean connected) {
+        connections.set(connected ? 1 : 0);
+    }
+}
@@ -0,0 +1,106 @@
+package com.lab.api.metrics;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.domain.ProtocolType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas do caminho das mensagens (Micrometer), expostas em /actuator/metrics e /actuator/prometheus:
+ * <ul>
+ *     <li>por equipamento ({@link EquipmentMetrics}): bytes, frames, mensagens, queries, resultados, NAKs, erros,
+ *     tempo de framing e de dispatch, conexões;</li>
+ *     <li>parse por protocolo e parser ('hapi' ou 'manual'; no HL7 'outcome=fallback' é a tentativa HAPI que falhou);</li>
+ *     <li>transação de banco por operação;</li>
+ *     <li>gravação da auditoria: enfileiramento pelo listener (inclui a espera com a fila cheia) e lotes da thread de escrita;</li>
+ *     <li>inicialização: tempo desde o início da JVM até o primeiro e todos os listeners estarem prontos.</li>
+ * </ul>
+ * Os tamanhos de filas são gauges registrados em {@link QueueMetricsBinder}; a latência por estágio de cada
+ * mensagem (HdrHistogram + JFR) fica em {@link MessageTracer}.
+ */
+@Component
+public class LabMetrics {
+
+    private final MeterRegistry registry;
+    private final MessageTracer messageTracer;
+    private final Map<String, EquipmentMetrics> equipments = new ConcurrentHashMap<>();
+    private final Timer auditEnqueue;
+    private final Timer auditFileWrite;
+    private final Timer auditBatch;
+    private final DistributionSummary auditBatchSize;
+    private final AtomicLong firstListenerReadyMillis = new AtomicLong();
+    private final AtomicLong allListenersReadyMillis = new AtomicLong();
+
+    public LabMetrics(MeterRegistry registry, MessageTracer messageTracer) {
+        this.registry = registry;
+        this.messageTracer = messageTracer;
+        this.auditEnqueue = Timer.builder("lab.audit.write").description("Gravação da auditoria")
+                .tag("stage", "enqueue").register(registry);
+        this.auditFileWrite = Timer.builder("lab.audit.write").description("Gravação da auditoria")
+                .tag("stage", "file").register(registry);
+        this.auditBatch = Timer.builder("lab.audit.write").description("Gravação da auditoria")
+                .tag("stage", "batch").register(registry);
+        this.auditBatchSize = DistributionSummary.builder("lab.audit.batch.size")
+                .description("Registros gravados por lote (group commit) do journal").register(registry);
+        TimeGauge.builder("lab.startup.listeners.ready", firstListenerReadyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Tempo desde o início da JVM até os listeners abrirem suas portas (0 = ainda não)")
+                .tag("listeners", "first").register(registry);
+        TimeGauge.builder("lab.startup.listeners.ready", allListenersReadyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Tempo desde o início da JVM até os listeners abrirem suas portas (0 = ainda não)")
+                .tag("listeners", "all").register(registry);
+    }
+
+    public EquipmentMetrics forEquipment(EquipmentConfig config) {
+        return equipments.computeIfAbsent(config.getName(), name -> new EquipmentMetrics(registry, config, messageTracer));
+    }
+
+    // Remove os medidores de um equipamento removido ou renomeado/reconfigurado com outro protocolo
+    public void release(EquipmentConfig config) {
+        if (equipments.remove(config.getName()) == null) {
+            return;
+        }
+        registry.getMeters().stream()
+                .filter(meter -> config.getName().equals(meter.getId().getTag("equipment")))
+                .forEach(registry::remove);
+    }
+
+    public Timer parseTimer(ProtocolType protocol, String parser, String outcome) {
+        return Timer.builder("lab.parse").description("Parse de uma mensagem")
+                .tag("protocol", String.valueOf(protocol)).tag("parser", parser).tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public Timer dbTransactionTimer(String operation) {
+        return Timer.builder("lab.db.transaction").description("Transação de banco disparada por uma mensagem (inclui o commit)")
+                .tag("operation", operation).register(registry);
+    }
+
+    public void recordAuditEnqueue(long elapsedNanos) {
+        auditEnqueue.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAuditFileWrite(long elapsedNanos) {
+        auditFileWrite.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAuditBatch(int records, long elapsedNanos) {
+        auditBatch.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        auditBatchSize.record(records);
+    }
+
+    public void firstListenerReady(long uptimeMillis) {
+        firstListenerReadyMillis.set(uptimeMillis);
+    }
+
+    public void allListenersReady(long uptimeMillis) {
+        allListenersReadyMillis.set(uptimeMillis);
+    }
+}
@@ -0,0 +1,59 @@
+package com.lab.api.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR com o ciclo de vida de uma mensagem (do primeiro byte à resposta ao equipamento), para ver
+ * numa gravação do Flight Recorder onde o tempo foi gasto ao lado de GC, I/O e locks. Ex:
+ * {@code jcmd <pid> JFR.start duration=5m filename=lab.jfr}.
+ */
+@Name("com.lab.api.MessageLifecycle")
+@Label("Ciclo de vida da mensagem")
+@Category({"Lab", "Mensagens"})
+@Description("Tempos de cada estágio de uma mensagem recebida de um equipamento")
+@StackTrace(false)
+class MessageLifecycleEvent extends Event {
+
+    @Label("Equipamento")
+    String equipment;
+
+    @Label("Protocolo")
+    String protocol;
+
+    @Label("Troca")
+    @Description("exchangeId da auditoria (GET /api/v1/audit/exchanges)")
+    long exchangeId;
+
+    @Label("Query")
+    boolean query;
+
+    @Label("Framing")
+    @Timespan(Timespan.NANOSECONDS)
+    long framing;
+
+    @Label("Espera até o dispatcher")
+    @Timespan(Timespan.NANOSECONDS)
+    long handoff;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parse;
+
+    @Label("Banco de dados")
+    @Timespan(Timespan.NANOSECONDS)
+    long persist;
+
+    @Label("Resposta")
+    @Timespan(Timespan.NANOSECONDS)
+    long ack;
+
+    @Label("Total")
+    @Timespan(Timespan.NANOSECONDS)
+    long total;
+}
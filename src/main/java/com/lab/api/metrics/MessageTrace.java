@@ -0,0 +1,87 @@
+package com.lab.api.metrics;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.log.journal.AuditClock;
+
+/**
+ * Carimbos de tempo de uma mensagem ao longo do caminho, em nanossegundos do {@link AuditClock}:
+ * primeiro byte, frame completo, entrega ao dispatcher, parse, gravação no banco e resposta ao equipamento.
+ * <p>
+ * Todo o processamento de uma mensagem acontece na thread do listener, então o trace em andamento fica
+ * associado à thread ({@link #current()}) e o dispatcher carimba os estágios sem mudar a interface
+ * {@code MessageHandler}. Estágios não alcançados (ex: parse que falhou) ficam com 0.
+ */
+public final class MessageTrace {
+
+    public enum Stage {
+        FIRST_BYTE, FRAMED, DEQUEUED, PARSED, PERSISTED, ACKED
+    }
+
+    private static final ThreadLocal<MessageTrace> CURRENT = new ThreadLocal<>();
+
+    private final EquipmentConfig config;
+    private final long exchangeId;
+    private final long[] stamps = new long[Stage.values().length];
+    private final MessageLifecycleEvent event = new MessageLifecycleEvent();
+    private boolean query;
+
+    MessageTrace(EquipmentConfig config, long exchangeId, long firstByteNanos) {
+        this.config = config;
+        this.exchangeId = exchangeId;
+        this.stamps[Stage.FIRST_BYTE.ordinal()] = firstByteNanos; // 0 = desconhecido (ex: replay direto no dispatcher)
+        event.begin();
+    }
+
+    public static MessageTrace current() {
+        return CURRENT.get();
+    }
+
+    // Carimba o estágio com o instante atual (no trace da thread, se houver)
+    public static void stampCurrent(Stage stage) {
+        MessageTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.stamp(stage, AuditClock.nowNanos());
+        }
+    }
+
+    public void stamp(Stage stage, long nanos) {
+        stamps[stage.ordinal()] = nanos;
+    }
+
+    public void markQuery() {
+        query = true;
+    }
+
+    // Associa o trace à thread atual enquanto a mensagem é processada; use com try-with-resources
+    public Scope bind() {
+        MessageTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> CURRENT.set(previous);
+    }
+
+    public long stampOf(Stage stage) {
+        return stamps[stage.ordinal()];
+    }
+
+    EquipmentConfig getConfig() {
+        return config;
+    }
+
+    public long getExchangeId() {
+        return exchangeId;
+    }
+
+    boolean isQuery() {
+        return query;
+    }
+
+    MessageLifecycleEvent getEvent() {
+        return event;
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,167 @@
+package com.lab.api.metrics;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.controller.LatencyStageDto;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latência de ponta a ponta por mensagem, quebrada em estágios, com histogramas HdrHistogram por
+ * equipamento e estágio (em microssegundos) e um evento JFR por mensagem ({@link MessageLifecycleEvent}).
+ * <ul>
+ *     <li>framing: primeiro byte (ENQ no serial, início do bloco MLLP no TCP) → mensagem completa;</li>
+ *     <li>handoff: mensagem completa → início do processamento no dispatcher;</li>
+ *     <li>parse: identificação (query/resultado) e parse;</li>
+ *     <li>persist: transação de banco (inclui o commit; na query, a busca das ordens);</li>
+ *     <li>ack: fim do banco → resposta enviada ao equipamento;</li>
+ *     <li>total: primeiro ao último estágio alcançado.</li>
+ * </ul>
+ * Os listeners gravam com {@link Recorder} (sem bloqueio); os acumulados só são consolidados na consulta.
+ */
+@Component
+public class MessageTracer {
+
+    public enum Segment {
+        FRAMING(MessageTrace.Stage.FIRST_BYTE, MessageTrace.Stage.FRAMED),
+        HANDOFF(MessageTrace.Stage.FRAMED, MessageTrace.Stage.DEQUEUED),
+        PARSE(MessageTrace.Stage.DEQUEUED, MessageTrace.Stage.PARSED),
+        PERSIST(MessageTrace.Stage.PARSED, MessageTrace.Stage.PERSISTED),
+        ACK(MessageTrace.Stage.PERSISTED, MessageTrace.Stage.ACKED),
+        TOTAL(null, null);
+
+        private final MessageTrace.Stage from;
+        private final MessageTrace.Stage to;
+
+        Segment(MessageTrace.Stage from, MessageTrace.Stage to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, EquipmentHistograms> equipments = new ConcurrentHashMap<>();
+
+    // Inicia o trace de uma mensagem cujo primeiro byte chegou em 'firstByteNanos' (AuditClock)
+    public MessageTrace start(EquipmentConfig config, long exchangeId, long firstByteNanos) {
+        return new MessageTrace(config, exchangeId, firstByteNanos);
+    }
+
+    // Conclui o trace: registra os estágios alcançados nos histogramas e emite o evento JFR
+    public void finish(MessageTrace trace) {
+        EquipmentHistograms histograms = equipments.computeIfAbsent(trace.getConfig().getName(), name -> new EquipmentHistograms());
+        long[] durations = new long[Segment.values().length];
+        for (Segment segment : Segment.values()) {
+            long elapsed = durationOf(trace, segment);
+            durations[segment.ordinal()] = elapsed;
+            if (elapsed >= 0) {
+                histograms.recorders[segment.ordinal()].recordValue(Math.max(0, elapsed / 1000));
+            }
+        }
+
+        MessageLifecycleEvent event = trace.getEvent();
+        event.end();
+        if (event.shouldCommit()) {
+            event.equipment = trace.getConfig().getName();
+            event.protocol = String.valueOf(trace.getConfig().getProtocol());
+            event.exchangeId = trace.getExchangeId();
+            event.query = trace.isQuery();
+            event.framing = Math.max(0, durations[Segment.FRAMING.ordinal()]);
+            event.handoff = Math.max(0, durations[Segment.HANDOFF.ordinal()]);
+            event.parse = Math.max(0, durations[Segment.PARSE.ordinal()]);
+            event.persist = Math.max(0, durations[Segment.PERSIST.ordinal()]);
+            event.ack = Math.max(0, durations[Segment.ACK.ordinal()]);
+            event.total = Math.max(0, durations[Segment.TOTAL.ordinal()]);
+            event.commit();
+        }
+    }
+
+    /**
+     * Percentis acumulados desde o início (ou do último reset), por equipamento e estágio.
+     *
+     * @param equipmentName Filtra um equipamento pelo nome; null para todos.
+     */
+    public List<LatencyStageDto> snapshot(String equipmentName) {
+        List<LatencyStageDto> stages = new ArrayList<>();
+        equipments.forEach((name, histograms) -> {
+            if (equipmentName != null && !equipmentName.equalsIgnoreCase(name)) return;
+            for (Segment segment : Segment.values()) {
+                Histogram histogram = histograms.accumulate(segment);
+                if (histogram.getTotalCount() == 0) continue;
+                LatencyStageDto dto = new LatencyStageDto();
+                dto.setEquipment(name);
+                dto.setStage(segment.name().toLowerCase());
+                dto.setCount(histogram.getTotalCount());
+                dto.setLatencyMs(percentiles(histogram));
+                stages.add(dto);
+            }
+        });
+        return stages;
+    }
+
+    public void reset() {
+        equipments.values().forEach(EquipmentHistograms::reset);
+    }
+
+    // Duração em nanossegundos, ou -1 se algum dos estágios não foi alcançado
+    private long durationOf(MessageTrace trace, Segment segment) {
+        if (segment == Segment.TOTAL) {
+            long first = 0, last = 0;
+            for (MessageTrace.Stage stage : MessageTrace.Stage.values()) {
+                long stamp = trace.stampOf(stage);
+                if (stamp == 0) continue;
+                if (first == 0) first = stamp;
+                last = stamp;
+            }
+            return first != 0 && last != first ? last - first : -1;
+        }
+        long from = trace.stampOf(segment.from);
+        long to = trace.stampOf(segment.to);
+        return from != 0 && to != 0 ? to - from : -1;
+    }
+
+    private Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> latency = new LinkedHashMap<>();
+        latency.put("min", histogram.getMinValue() / 1000.0);
+        latency.put("mean", Math.round(histogram.getMean()) / 1000.0);
+        latency.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+        latency.put("p90", histogram.getValueAtPercentile(90) / 1000.0);
+        latency.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+        latency.put("p999", histogram.getValueAtPercentile(99.9) / 1000.0);
+        latency.put("max", histogram.getMaxValue() / 1000.0);
+        return latency;
+    }
+
+    private static final class EquipmentHistograms {
+        private final Recorder[] recorders = new Recorder[Segment.values().length];
+        private final Histogram[] accumulated = new Histogram[Segment.values().length];
+
+        EquipmentHistograms() {
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+                accumulated[i] = new Histogram(SIGNIFICANT_DIGITS);
+            }
+        }
+
+        // Soma ao acumulado o que foi gravado desde a última consulta e devolve uma cópia
+        synchronized Histogram accumulate(Segment segment) {
+            int i = segment.ordinal();
+            accumulated[i].add(recorders[i].getIntervalHistogram());
+            return accumulated[i].copy();
+        }
+
+        synchronized void reset() {
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i].reset();
+                accumulated[i].reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.lab.api.metrics;
+
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.log.journal.AuditJournal;
+import com.lab.api.service.OrderEventStreamService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges de filas e assinantes, lidos apenas quando as métricas são coletadas.
+ * Fica separado de {@link LabMetrics} porque os serviços observados também dependem dele.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueueMetricsBinder implements MeterBinder {
+
+    private final MessageAuditService messageAuditService;
+    private final OrderEventStreamService orderEventStreamService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("lab.audit.queue.depth", messageAuditService, service -> {
+                    AuditJournal journal = service.getJournal();
+                    return journal != null ? journal.getQueueDepth() : 0;
+                })
+                .description("Registros aguardando a thread de escrita do journal de auditoria")
+                .register(registry);
+        Gauge.builder("lab.events.subscribers", orderEventStreamService, OrderEventStreamService::getSubscriberCount)
+                .description("Assinantes SSE de GET /api/v1/orders/events")
+                .register(registry);
+    }
+}
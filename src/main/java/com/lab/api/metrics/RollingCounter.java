@@ -0,0 +1,37 @@
+package com.lab.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contagem de eventos nos últimos 60 segundos, em baldes de 1 segundo (taxa "por minuto" sem timers).
+ * Cada balde guarda o segundo a que pertence; baldes de segundos antigos são ignorados na soma e
+ * reaproveitados no próximo incremento.
+ */
+final class RollingCounter {
+
+    private static final int SECONDS = 60;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SECONDS);
+    private final AtomicLongArray seconds = new AtomicLongArray(SECONDS);
+
+    void increment() {
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % SECONDS);
+        long slotSecond = seconds.get(slot);
+        if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    long lastMinute() {
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for (int slot = 0; slot < SECONDS; slot++) {
+            if (now - seconds.get(slot) < SECONDS) {
+                total += counts.get(slot);
+            }
+        }
+        return total;
+    }
+}
@@ -10,7 +10,11 @@ import ca.uhn.hl7v2.validation.impl.NoValidation;
 import com.lab.api.domain.hl7.Hl7Message;
 import com.lab.api.domain.hl7.Hl7Order;
 import com.lab.api.domain.hl7.Hl7Patient;
+import com.lab.api.domain.ProtocolType;
 import com.lab.api.domain.hl7.Hl7Result;
+import com.lab.api.metrics.LabMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -22,6 +26,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class Hl7ParserService {
 
@@ -29,6 +34,8 @@ public class Hl7ParserService {
     private static final char FS = 0x1c;
     private static final char CR = 0x0d;
 
+    private final LabMetrics labMetrics;
+
     public Hl7Message parse(String rawMllpMessage, Map<String, String> hints) {
         log.info("Iniciando parse da mensagem HL7...");
 
@@ -41,13 +48,20 @@ public class Hl7ParserService {
         // Log da mensagem pura para debug
         log.debug("Mensagem HL7 pura: {}", pureHl7Message);
 
+        Timer.Sample hapiSample = Timer.start();
         try {
             // Primeiro tenta o método HAPI padrão
-            return tentarParseComHapi(pureHl7Message, hints);
+            Hl7Message message = tentarParseComHapi(pureHl7Message, hints);
+            hapiSample.stop(labMetrics.parseTimer(ProtocolType.HL7, "hapi", "ok"));
+            return message;
         } catch (Exception e) {
+            hapiSample.stop(labMetrics.parseTimer(ProtocolType.HL7, "hapi", "fallback"));
             log.warn("Parse HAPI falhou, tentando parse manual: {}", e.getMessage());
             // Se falhar, usa o parser manual robusto
-            return parseManual(pureHl7Message, hints);
+            Timer.Sample manualSample = Timer.start();
+            Hl7Message message = parseManual(pureHl7Message, hints);
+            manualSample.stop(labMetrics.parseTimer(ProtocolType.HL7, "manual", message != null ? "ok" : "error"));
+            return message;
         }
     }
 
@@ -75,42 +89,44 @@ public class Hl7ParserService {
                 throw new Exception("HAPI parsing produced no meaningful data");
             }
 
-            // Log detalhado dos dados parseados
-            log.info("=== DADOS PARSEADOS COM HAPI ===");
-            log.info("ID de Controle: {}", message.getMessageControlId());
-            log.info("Aplicação: {}", message.getSendingApplication());
-
-            if (message.getPatient() != null) {
-                log.info("Paciente - ID: {}, Nome: {} {}, Data Nascimento: {}",
-                        message.getPatient().getPatientId(),
-                        message.getPatient().getFirstName(),
-                        message.getPatient().getLastName(),
-                        message.getPatient().getBirthDate());
-            } else {
-                log.warn("PACIENTE É NULL!");
-            }
+            // Log detalhado dos dados parseados: só em DEBUG (no perfil prod este logger fica em INFO)
+            if (log.isDebugEnabled()) {
+                log.debug("=== DADOS PARSEADOS COM HAPI ===");
+                log.debug("ID de Controle: {}", message.getMessageControlId());
+                log.debug("Aplicação: {}", message.getSendingApplication());
+
+                if (message.getPatient() != null) {
+                    log.debug("Paciente - ID: {}, Nome: {} {}, Data Nascimento: {}",
+                            message.getPatient().getPatientId(),
+                            message.getPatient().getFirstName(),
+                            message.getPatient().getLastName(),
+                            message.getPatient().getBirthDate());
+                } else {
+                    log.debug("PACIENTE É NULL!");
+                }
 
-            if (message.getOrder() != null) {
-                log.info("Ordem - Amostra: {}, Serviço: {} ({})",
-                        message.getOrder().getSpecimenId(),
-                        message.getOrder().getUniversalServiceId(),
-                        message.getOrder().getUniversalServiceText());
-            } else {
-                log.warn("ORDEM É NULL!");
-            }
+                if (message.getOrder() != null) {
+                    log.debug("Ordem - Amostra: {}, Serviço: {} ({})",
+                            message.getOrder().getSpecimenId(),
+                            message.getOrder().getUniversalServiceId(),
+                            message.getOrder().getUniversalServiceText());
+                } else {
+                    log.debug("ORDEM É NULL!");
+                }
 
-            if (message.getResults() != null && !message.getResults().isEmpty()) {
-                log.info("Resultados encontrados: {}", message.getResults().size());
-                for (int i = 0; i < message.getResults().size(); i++) {
-                    Hl7Result result = message.getResults().get(i);
-                    log.info("Resultado {}: Teste {} ({}), Valor: {}, Unidade: {}",
-                            i + 1, result.getTestId(), result.getTestName(),
-                            result.getValue(), result.getUnits());
+                if (message.getResults() != null && !message.getResults().isEmpty()) {
+                    log.debug("Resultados encontrados: {}", message.getResults().size());
+                    for (int i = 0; i < message.getResults().size(); i++) {
+                        Hl7Result result = message.getResults().get(i);
+                        log.debug("Resultado {}: Teste {} ({}), Valor: {}, Unidade: {}",
+                                i + 1, result.getTestId(), result.getTestName(),
+                                result.getValue(), result.getUnits());
+                    }
+                } else {
+                    log.debug("NENHUM RESULTADO ENCONTRADO!");
                 }
-            } else {
-                log.warn("NENHUM RESULTADO ENCONTRADO!");
+                log.debug("=== FIM DOS DADOS PARSEADOS ===");
             }
-            log.info("=== FIM DOS DADOS PARSEADOS ===");
 
             return message;
         }
@@ -228,42 +244,44 @@ public class Hl7ParserService {
             }
         }
 
-        // Log detalhado dos dados parseados
-        log.info("=== DADOS PARSEADOS MANUALMENTE ===");
-        log.info("ID de Controle: {}", message.getMessageControlId());
-        log.info("Aplicação: {}", message.getSendingApplication());
-
-        if (message.getPatient() != null) {
-            log.info("Paciente - ID: {}, Nome: {} {}, Data Nascimento: {}",
-                    message.getPatient().getPatientId(),
-                    message.getPatient().getFirstName(),
-                    message.getPatient().getLastName(),
-                    message.getPatient().getBirthDate());
-        } else {
-            log.warn("PACIENTE É NULL!");
-        }
+        // Log detalhado dos dados parseados: só em DEBUG (no perfil prod este logger fica em INFO)
+        if (log.isDebugEnabled()) {
+            log.debug("=== DADOS PARSEADOS MANUALMENTE ===");
+            log.debug("ID de Controle: {}", message.getMessageControlId());
+            log.debug("Aplicação: {}", message.getSendingApplication());
 
-        if (message.getOrder() != null) {
-            log.info("Ordem - Amostra: {}, Serviço: {} ({})",
-                    message.getOrder().getSpecimenId(),
-                    message.getOrder().getUniversalServiceId(),
-                    message.getOrder().getUniversalServiceText());
-        } else {
-            log.warn("ORDEM É NULL!");
-        }
+            if (message.getPatient() != null) {
+                log.debug("Paciente - ID: {}, Nome: {} {}, Data Nascimento: {}",
+                        message.getPatient().getPatientId(),
+                        message.getPatient().getFirstName(),
+                        message.getPatient().getLastName(),
+                        message.getPatient().getBirthDate());
+            } else {
+                log.debug("PACIENTE É NULL!");
+            }
 
-        if (message.getResults() != null && !message.getResults().isEmpty()) {
-            log.info("Resultados encontrados: {}", message.getResults().size());
-            for (int i = 0; i < message.getResults().size(); i++) {
-                Hl7Result result = message.getResults().get(i);
-                log.info("Resultado {}: Teste {} ({}), Valor: {}, Unidade: {}",
-                        i + 1, result.getTestId(), result.getTestName(),
-                        result.getValue(), result.getUnits());
+            if (message.getOrder() != null) {
+                log.debug("Ordem - Amostra: {}, Serviço: {} ({})",
+                        message.getOrder().getSpecimenId(),
+                        message.getOrder().getUniversalServiceId(),
+                        message.getOrder().getUniversalServiceText());
+            } else {
+                log.debug("ORDEM É NULL!");
             }
-        } else {
-            log.warn("NENHUM RESULTADO ENCONTRADO!");
+
+            if (message.getResults() != null && !message.getResults().isEmpty()) {
+                log.debug("Resultados encontrados: {}", message.getResults().size());
+                for (int i = 0; i < message.getResults().size(); i++) {
+                    Hl7Result result = message.getResults().get(i);
+                    log.debug("Resultado {}: Teste {} ({}), Valor: {}, Unidade: {}",
+                            i + 1, result.getTestId(), result.getTestName(),
+                            result.getValue(), result.getUnits());
+                }
+            } else {
+                log.debug("NENHUM RESULTADO ENCONTRADO!");
+            }
+            log.debug("=== FIM DOS DADOS PARSEADOS MANUALMENTE ===");
         }
-        log.info("=== FIM DOS DADOS PARSEADOS MANUALMENTE ===");
 
         return message;
     }
@@ -0,0 +1,23 @@
+package com.lab.api.service;
+
+import com.lab.api.domain.ClusterNode;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    long countByHeartbeatAtAfter(LocalDateTime since);
+
+    // Nós que pararam sem se retirar do cluster (queda, kill -9)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ClusterNode n WHERE n.heartbeatAt < :before")
+    int deleteInactiveBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,118 @@
+package com.lab.api.service;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.metrics.EquipmentMetrics;
+import com.lab.api.metrics.LabMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads do processamento das mensagens (equipments.bulkhead): um analisador despejando resultados acumulados
+ * não esgota o pool do banco nem atrasa as host queries dos demais.
+ * <ul>
+ *     <li>por equipamento, resultados e queries têm cotas separadas de processamento simultâneo
+ *     (max-concurrent-results / max-concurrent-queries, redefiníveis em cada equipamento);</li>
+ *     <li>os resultados de todos os equipamentos juntos usam no máximo db-connections - reserved-for-queries
+ *     conexões; as reservadas ficam livres para as queries, que não passam por essa cota.</li>
+ * </ul>
+ * O processamento continua na thread do listener, que só responde (ACK) depois do commit: sem vaga, a thread espera
+ * até max-wait-ms e depois a mensagem é recusada (RejectedExecutionException; o listener responde MSA|AR ou NAK),
+ * ficando na auditoria para replay.
+ */
+@Component
+@Slf4j
+public class EquipmentBulkheads {
+
+    private final EquipmentProperties.Bulkhead properties;
+    private final LabMetrics labMetrics;
+    // Conexões do banco que os resultados podem ocupar, somados todos os equipamentos
+    private final Semaphore resultConnections;
+    private final Map<String, Lanes> equipments = new ConcurrentHashMap<>();
+
+    private record Lanes(int maxResults, int maxQueries, Semaphore results, Semaphore queries) {
+    }
+
+    public EquipmentBulkheads(EquipmentProperties equipmentProperties, LabMetrics labMetrics, MeterRegistry registry) {
+        this.properties = equipmentProperties.getBulkhead();
+        this.labMetrics = labMetrics;
+        int permits = Math.max(1, properties.getDbConnections() - properties.getReservedForQueries());
+        this.resultConnections = new Semaphore(permits, true);
+        Gauge.builder("lab.bulkhead.db.available", resultConnections, Semaphore::availablePermits)
+                .description("Conexões do banco ainda livres para resultados (sem contar as reservadas às queries)")
+                .register(registry);
+        log.info("Bulkheads: {} conexão(ões) do banco para resultados, {} reservada(s) às queries; por equipamento {} resultado(s) e {} query(s) simultâneos.",
+                permits, properties.getReservedForQueries(), properties.getMaxConcurrentResults(), properties.getMaxConcurrentQueries());
+    }
+
+    public <T> T query(EquipmentConfig source, Supplier<T> work) {
+        return execute(source, true, work);
+    }
+
+    public void result(EquipmentConfig source, Runnable work) {
+        execute(source, false, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private <T> T execute(EquipmentConfig source, boolean query, Supplier<T> work) {
+        if (!properties.isEnabled()) {
+            return work.get();
+        }
+        Lanes lanes = lanes(source);
+        EquipmentMetrics metrics = labMetrics.forEquipment(source);
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(properties.getMaxWaitMs());
+        Semaphore equipment = query ? lanes.queries() : lanes.results();
+        acquire(equipment, deadline, source, query, metrics, query
+                ? "limite de " + lanes.maxQueries() + " query(s) simultânea(s) do equipamento"
+                : "limite de " + lanes.maxResults() + " resultado(s) simultâneo(s) do equipamento");
+        try {
+            if (query) {
+                metrics.bulkheadWaitTimer(true).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return work.get();
+            }
+            acquire(resultConnections, deadline, source, false, metrics, "conexões do banco para resultados");
+            try {
+                metrics.bulkheadWaitTimer(false).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return work.get();
+            } finally {
+                resultConnections.release();
+            }
+        } finally {
+            equipment.release();
+        }
+    }
+
+    private void acquire(Semaphore permits, long deadline, EquipmentConfig source, boolean query, EquipmentMetrics metrics, String limit) {
+        try {
+            if (permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.bulkheadRejected(query);
+        throw new RejectedExecutionException("Equipamento " + source.getName() + ": " + limit + " ocupado há "
+                + properties.getMaxWaitMs() + " ms; " + (query ? "query não processada" : "resultado não processado") + " (disponível na auditoria para replay).");
+    }
+
+    // Recriadas quando os limites do equipamento mudam (PUT /api/v1/equipments/{id}); quem já tem vaga libera na antiga
+    private Lanes lanes(EquipmentConfig source) {
+        int maxResults = Math.max(1, source.getMaxConcurrentResults() != null ? source.getMaxConcurrentResults() : properties.getMaxConcurrentResults());
+        int maxQueries = Math.max(1, source.getMaxConcurrentQueries() != null ? source.getMaxConcurrentQueries() : properties.getMaxConcurrentQueries());
+        return equipments.compute(source.getName(), (name, current) ->
+                current != null && current.maxResults() == maxResults && current.maxQueries() == maxQueries ? current
+                        : new Lanes(maxResults, maxQueries, new Semaphore(maxResults, true), new Semaphore(maxQueries, true)));
+    }
+}
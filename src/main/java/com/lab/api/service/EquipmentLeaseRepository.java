@@ -0,0 +1,45 @@
+package com.lab.api.service;
+
+import com.lab.api.domain.EquipmentLease;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Operações condicionais sobre os leases: o banco decide quem fica com o equipamento quando dois nós
+ * tentam ao mesmo tempo (uma única linha é alterada; quem recebe 0 perdeu).
+ */
+@Repository
+public interface EquipmentLeaseRepository extends JpaRepository<EquipmentLease, String> {
+
+    // Primeiro lease do equipamento; a chave primária recusa o segundo nó (DataIntegrityViolationException)
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO equipment_lease (equipment_id, owner, acquired_at, expires_at) VALUES (:id, :node, :now, :until)",
+            nativeQuery = true)
+    int insert(@Param("id") String equipmentId, @Param("node") String nodeId,
+               @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Assume um lease liberado, expirado ou que já era deste nó (ex: reinício com o mesmo cluster.node-id)
+    @Transactional
+    @Modifying
+    @Query("UPDATE EquipmentLease l SET l.owner = :node, l.acquiredAt = :now, l.expiresAt = :until "
+            + "WHERE l.equipmentId = :id AND (l.owner IS NULL OR l.owner = :node OR l.expiresAt < :now)")
+    int acquire(@Param("id") String equipmentId, @Param("node") String nodeId,
+                @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EquipmentLease l SET l.expiresAt = :until WHERE l.equipmentId = :id AND l.owner = :node")
+    int renew(@Param("id") String equipmentId, @Param("node") String nodeId, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EquipmentLease l SET l.owner = null, l.expiresAt = :now WHERE l.equipmentId = :id AND l.owner = :node")
+    int release(@Param("id") String equipmentId, @Param("node") String nodeId, @Param("now") LocalDateTime now);
+}
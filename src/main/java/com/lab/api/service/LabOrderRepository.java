@@ -2,12 +2,64 @@
 package com.lab.api.service;
 
 import com.lab.api.domain.LabOrder;
+import com.lab.api.domain.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface LabOrderRepository extends JpaRepository<LabOrder, Long> {
     Optional<LabOrder> findBySampleIdAndTestType(String sampleId, String testType);
-}
\ No newline at end of file
+
+    // Consulta em lote (um único IN) para o endpoint de busca de várias amostras
+    List<LabOrder> findBySampleIdInOrderBySampleIdAscIdAsc(Collection<String> sampleIds);
+
+    List<LabOrder> findBySampleIdInAndTestTypeInOrderBySampleIdAscIdAsc(Collection<String> sampleIds, Collection<String> testTypes);
+
+    // Paginação por cursor (keyset): sempre "id > afterId ORDER BY id", sem OFFSET.
+    @Query("SELECT o FROM LabOrder o WHERE o.id > :afterId" +
+            " AND (:status IS NULL OR o.status = :status)" +
+            " AND (:sampleId IS NULL OR o.sampleId = :sampleId)" +
+            " AND (:testType IS NULL OR o.testType = :testType)" +
+            " AND (:from IS NULL OR o.updatedAt >= :from)" +
+            " AND (:to IS NULL OR o.updatedAt < :to)" +
+            " ORDER BY o.id")
+    List<LabOrder> findPageAfter(@Param("afterId") long afterId,
+                                 @Param("status") OrderStatus status,
+                                 @Param("sampleId") String sampleId,
+                                 @Param("testType") String testType,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 Pageable pageable);
+
+    // Mesmo filtro, mas lido como cursor do JDBC para exportação com memória constante.
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM LabOrder o WHERE 1 = 1" +
+            " AND (:status IS NULL OR o.status = :status)" +
+            " AND (:sampleId IS NULL OR o.sampleId = :sampleId)" +
+            " AND (:testType IS NULL OR o.testType = :testType)" +
+            " AND (:from IS NULL OR o.updatedAt >= :from)" +
+            " AND (:to IS NULL OR o.updatedAt < :to)" +
+            " ORDER BY o.id")
+    Stream<LabOrder> streamForExport(@Param("status") OrderStatus status,
+                                     @Param("sampleId") String sampleId,
+                                     @Param("testType") String testType,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+}
@@ -1,18 +1,26 @@
 package com.lab.api.service;
 
+import com.lab.api.controller.OrderFilterDto;
 import com.lab.api.controller.OrderRequestDto;
+import com.lab.api.controller.OrderResponseDto;
 import com.lab.api.domain.LabOrder;
 import com.lab.api.domain.OrderStatus;
 import com.lab.api.domain.astm.AstmMessage;
 import com.lab.api.domain.hl7.Hl7Message;
 import com.lab.api.domain.integra.IntegraMessage;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,6 +29,9 @@ import java.util.stream.Collectors;
 public class LabOrderService {
 
     private final LabOrderRepository labOrderRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResultOutboxService resultOutboxService;
 
     @Transactional
     public LabOrder createOrder(OrderRequestDto orderRequest) {
@@ -30,7 +41,9 @@ public class LabOrderService {
         newOrder.setPatientName(orderRequest.getPatientName());
         newOrder.setTestType(orderRequest.getTestType().toUpperCase());
         newOrder.setStatus(OrderStatus.PENDING);
-        return labOrderRepository.save(newOrder);
+        LabOrder saved = labOrderRepository.save(newOrder);
+        eventPublisher.publishEvent(new OrderChangedEvent(OrderResponseDto.fromEntity(saved)));
+        return saved;
     }
 
     @Transactional
@@ -57,10 +70,7 @@ public class LabOrderService {
             Optional<LabOrder> orderOpt = labOrderRepository.findBySampleIdAndTestType(sampleId, testType);
 
             orderOpt.ifPresentOrElse(order -> {
-                order.setResultValue(result.getValue());
-                order.setResultUnits(result.getUnits());
-                order.setStatus(OrderStatus.COMPLETED);
-                labOrderRepository.save(order);
+                applyResult(order, result.getValue(), result.getUnits());
                 log.info("SUCESSO: Ordem atualizada via ASTM. Amostra [{}], Teste [{}], Resultado [{}]", sampleId, testType, result.getValue());
             }, () -> {
                 log.warn("NÃO ENCONTRADA: Ordem para Amostra [{}], Teste [{}] não encontrada no sistema.", sampleId, testType);
@@ -88,10 +98,7 @@ public class LabOrderService {
             Optional<LabOrder> orderOpt = labOrderRepository.findBySampleIdAndTestType(sampleId, testType);
 
             orderOpt.ifPresentOrElse(order -> {
-                order.setResultValue(result.getValue());
-                order.setResultUnits(result.getUnits());
-                order.setStatus(OrderStatus.COMPLETED);
-                labOrderRepository.save(order);
+                applyResult(order, result.getValue(), result.getUnits());
                 log.info("SUCESSO: Ordem atualizada via HL7. Amostra [{}], Teste [{}], Resultado [{}]", sampleId, testType, result.getValue());
             }, () -> {
                 log.warn("NÃO ENCONTRADA: Ordem para Amostra [{}], Teste [{}] não encontrada no sistema.", sampleId, testType);
@@ -143,10 +150,7 @@ public class LabOrderService {
 
             orderOpt.ifPresentOrElse(
                     order -> {
-                        order.setResultValue(finalResultValue);
-                        order.setResultUnits(finalResultUnits);
-                        order.setStatus(OrderStatus.COMPLETED);
-                        labOrderRepository.save(order);
+                        applyResult(order, finalResultValue, finalResultUnits);
                         log.info("SUCESSO: Ordem atualizada via Integra. Amostra [{}], Teste [{}], Resultado [{}]",
                                 order.getSampleId(), order.getTestType(), finalResultValue);
                     },
@@ -161,6 +165,17 @@ public class LabOrderService {
         }
     }
 
+    // Grava o resultado e marca a ordem como concluída. O flush imediato já traz a nova versão
+    // para o evento, que é consumido (cache de ETag etc.) somente após o commit.
+    private void applyResult(LabOrder order, String resultValue, String resultUnits) {
+        order.setResultValue(resultValue);
+        order.setResultUnits(resultUnits);
+        order.setStatus(OrderStatus.COMPLETED);
+        labOrderRepository.saveAndFlush(order);
+        resultOutboxService.enqueue(order); // mesma transação: entregue depois ao webhook do LIS
+        eventPublisher.publishEvent(new OrderChangedEvent(OrderResponseDto.fromEntity(order)));
+    }
+
     @Transactional
     public List<LabOrder> findPendingOrdersBySampleId(String sampleId) {
         log.info("Buscando ordens pendentes para a amostra [{}].", sampleId);
@@ -172,11 +187,80 @@ public class LabOrderService {
                 .collect(Collectors.toList());
     }
 
+    public Optional<LabOrder> findById(Long id) {
+        return labOrderRepository.findById(id);
+    }
+
     public Optional<LabOrder> findBySampleIdAndTestType(String sampleId, String testType) {
         return labOrderRepository.findBySampleIdAndTestType(sampleId.toUpperCase(), testType.toUpperCase());
     }
 
-    public List<LabOrder> findAllOrders() {
-        return labOrderRepository.findAll();
+    /**
+     * Busca as ordens de várias amostras (opcionalmente restritas a alguns exames) com uma única consulta IN.
+     * Os identificadores são normalizados para maiúsculas, como na busca individual.
+     */
+    public List<LabOrder> findBySampleIds(Collection<String> sampleIds, Collection<String> testTypes) {
+        List<String> normalizedSamples = normalize(sampleIds);
+        if (normalizedSamples.isEmpty()) {
+            return List.of();
+        }
+        List<String> normalizedTests = normalize(testTypes);
+        if (normalizedTests.isEmpty()) {
+            return labOrderRepository.findBySampleIdInOrderBySampleIdAscIdAsc(normalizedSamples);
+        }
+        return labOrderRepository.findBySampleIdInAndTestTypeInOrderBySampleIdAscIdAsc(normalizedSamples, normalizedTests);
+    }
+
+    /**
+     * Busca uma página de ordens após o cursor informado (paginação keyset sobre o id).
+     * Retorna até 'limit + 1' registros para que o chamador saiba se existe próxima página.
+     */
+    public List<LabOrder> findOrdersAfter(long afterId, int limit, OrderFilterDto filter) {
+        return labOrderRepository.findPageAfter(afterId,
+                filter.getStatus(),
+                upperOrNull(filter.getSampleId()),
+                upperOrNull(filter.getTestType()),
+                filter.getFrom(),
+                filter.getTo(),
+                PageRequest.ofSize(limit + 1));
+    }
+
+    /**
+     * Percorre todas as ordens do filtro com um cursor do banco, entregando uma a uma ao consumidor.
+     * Cada entidade é desanexada após o uso, mantendo o heap constante mesmo em exportações grandes.
+     *
+     * @return A quantidade de ordens exportadas.
+     */
+    @Transactional
+    public long exportOrders(OrderFilterDto filter, Consumer<LabOrder> consumer) {
+        long count = 0;
+        try (Stream<LabOrder> orders = labOrderRepository.streamForExport(
+                filter.getStatus(),
+                upperOrNull(filter.getSampleId()),
+                upperOrNull(filter.getTestType()),
+                filter.getFrom(),
+                filter.getTo())) {
+            for (LabOrder order : (Iterable<LabOrder>) orders::iterator) {
+                consumer.accept(order);
+                entityManager.detach(order);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<String> normalize(Collection<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(v -> v != null && !v.isBlank())
+                .map(v -> v.trim().toUpperCase())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private String upperOrNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toUpperCase();
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.lab.api.service;
+
+import com.lab.api.controller.OrderResponseDto;
+import lombok.Data;
+
+// Evento publicado pelo LabOrderService sempre que uma ordem é criada ou atualizada.
+// Carrega uma cópia dos dados já com a nova versão, para ser consumida após o commit.
+@Data
+public class OrderChangedEvent {
+    private final OrderResponseDto order;
+
+    public String getETag() {
+        return OrderVersionCache.etagOf(order.getId(), order.getVersion());
+    }
+}
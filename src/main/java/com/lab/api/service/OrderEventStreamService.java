@@ -0,0 +1,254 @@
+package com.lab.api.service;
+
+import com.lab.api.controller.OrderResponseDto;
+import com.lab.api.domain.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notificações push (Server-Sent Events) de ordens concluídas para o LIS.
+ * <p>
+ * Cada assinante tem um buffer limitado; o envio é feito por um pool próprio para que um cliente lento
+ * nunca bloqueie quem publica (a thread do equipamento). Se o buffer de um assinante enche, ele é
+ * desconectado e deve reconectar com o cabeçalho Last-Event-ID, recebendo os eventos perdidos a partir
+ * do histórico recente mantido em memória.
+ */
+@Service
+@Slf4j
+public class OrderEventStreamService {
+
+    public static final String EVENT_COMPLETED = "order-completed";
+    // Enviado quando o histórico não cobre mais o Last-Event-ID: o cliente deve reconciliar via /orders/export
+    public static final String EVENT_RESYNC = "resync";
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final int bufferSize;
+    private final int historySize;
+    private final long emitterTimeoutMs;
+
+    // Começa no relógio atual para que ids de uma execução anterior nunca se confundam com os novos
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+    private final ArrayDeque<CompletionEvent> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+
+    public OrderEventStreamService(@Value("${orders.events.subscriber-buffer:256}") int bufferSize,
+                                   @Value("${orders.events.history-size:1000}") int historySize,
+                                   @Value("${orders.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                   @Value("${orders.events.sender-threads:4}") int senderThreads) {
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "sse-sender-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra um novo assinante. Se 'lastEventId' for informado, reenvia primeiro os eventos
+     * posteriores a ele que ainda estejam no histórico.
+     */
+    public SseEmitter subscribe(String sampleId, String testType, Long lastEventId) {
+        return subscribe(new SseEmitter(emitterTimeoutMs), sampleId, testType, lastEventId);
+    }
+
+    // Recebe o emitter já criado (os testes usam um emitter que registra ou segura os envios)
+    SseEmitter subscribe(SseEmitter emitter, String sampleId, String testType, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter, upperOrNull(sampleId), upperOrNull(testType));
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // Replay e registro sob o mesmo lock da publicação: nenhum evento é perdido ou duplicado no meio
+        synchronized (history) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        log.info("Novo assinante de eventos de ordens (amostra: {}, exame: {}, Last-Event-ID: {}). Total: {}",
+                subscriber.sampleId, subscriber.testType, lastEventId, subscribers.size());
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        OrderResponseDto order = event.getOrder();
+        if (!OrderStatus.COMPLETED.name().equals(order.getStatus())) {
+            return;
+        }
+
+        synchronized (history) {
+            CompletionEvent completion = new CompletionEvent(sequence.incrementAndGet(), order);
+            history.addLast(completion);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(order)) {
+                    enqueue(subscriber, completion);
+                }
+            }
+        }
+    }
+
+    // Mantém as conexões vivas através de proxies e detecta clientes que sumiram sem fechar o socket.
+    @Scheduled(fixedDelayString = "${orders.events.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, HEARTBEAT);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId) {
+        CompletionEvent oldest = history.peekFirst();
+        boolean gap = oldest == null ? lastEventId < sequence.get() : oldest.id > lastEventId + 1;
+        List<CompletionEvent> missed = history.stream()
+                .filter(e -> e.id > lastEventId && subscriber.accepts(e.order))
+                .toList();
+
+        if (gap || missed.size() > bufferSize) {
+            subscriber.buffer.offer(EVENT_RESYNC);
+            return;
+        }
+        missed.forEach(subscriber.buffer::offer);
+    }
+
+    private void enqueue(Subscriber subscriber, Object item) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.buffer.offer(item)) {
+            log.warn("Assinante de eventos lento (buffer de {} eventos cheio). Desconectando; o cliente deve reconectar com Last-Event-ID.",
+                    bufferSize);
+            evict(subscriber, null);
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Object item;
+            while (!subscriber.closed.get() && (item = subscriber.buffer.poll()) != null) {
+                send(subscriber.emitter, item);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.info("Assinante de eventos desconectado: {}", e.getMessage());
+            evict(subscriber, e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Um item pode ter chegado entre o último poll e a liberação da flag
+        if (!subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void send(SseEmitter emitter, Object item) throws IOException {
+        if (item == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("keepalive"));
+        } else if (item instanceof CompletionEvent completion) {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(completion.id))
+                    .name(EVENT_COMPLETED)
+                    .data(completion.order, MediaType.APPLICATION_JSON));
+        } else if (EVENT_RESYNC.equals(item)) {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(sequence.get()))
+                    .name(EVENT_RESYNC)
+                    .data("Eventos perdidos não estão mais no histórico. Reconcilie via /api/v1/orders/export."));
+        }
+    }
+
+    private void evict(Subscriber subscriber, Throwable cause) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscribers.remove(subscriber);
+            subscriber.buffer.clear();
+            try {
+                if (cause == null) {
+                    subscriber.emitter.complete();
+                } else {
+                    subscriber.emitter.completeWithError(cause);
+                }
+            } catch (Exception ignored) {
+                // conexão já encerrada
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed.set(true);
+        if (subscribers.remove(subscriber)) {
+            log.info("Assinante de eventos removido. Total: {}", subscribers.size());
+        }
+    }
+
+    private String upperOrNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toUpperCase();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> evict(subscriber, null));
+        senders.shutdownNow();
+    }
+
+    private record CompletionEvent(long id, OrderResponseDto order) {
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final String sampleId;
+        private final String testType;
+        private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, String sampleId, String testType) {
+            this.emitter = emitter;
+            this.sampleId = sampleId;
+            this.testType = testType;
+        }
+
+        boolean accepts(OrderResponseDto order) {
+            return (sampleId == null || sampleId.equalsIgnoreCase(order.getSampleId()))
+                    && (testType == null || testType.equalsIgnoreCase(order.getTestType()));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.lab.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache pequeno (LRU) com o ETag atual de cada ordem, indexado por id e por amostra+exame.
+ * Permite responder 304 ao polling do LIS sem consultar o banco. As entradas são atualizadas
+ * após o commit de cada alteração e expiram após 'max-age' por segurança.
+ * <p>
+ * Em cluster (cluster.enabled) os outros nós alteram as ordens sem passar por este cache, então ele não responde
+ * 304 sozinho: o ETag do cliente é sempre conferido com a versão (@Version) lida do banco.
+ */
+@Component
+@Slf4j
+public class OrderVersionCache {
+
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final boolean clusterEnabled;
+    private final Map<String, Entry> entries;
+
+    public OrderVersionCache(@Value("${orders.etag-cache.max-entries:10000}") int maxEntries,
+                             @Value("${orders.etag-cache.max-age-ms:30000}") long maxAgeMillis,
+                             @Value("${cluster.enabled:false}") boolean clusterEnabled) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clusterEnabled = clusterEnabled;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > OrderVersionCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static String etagOf(Long id, Long version) {
+        return "\"" + id + "-v" + (version != null ? version : 0) + "\"";
+    }
+
+    public static String idKey(Long id) {
+        return "id:" + id;
+    }
+
+    public static String sampleKey(String sampleId, String testType) {
+        return "st:" + sampleId.trim().toUpperCase() + "|" + testType.trim().toUpperCase();
+    }
+
+    /**
+     * Registra a versão da ordem, a menos que o cache já tenha uma mais nova: uma leitura feita antes de um
+     * commit não sobrescreve o ETag gravado depois dele pelo onOrderChanged.
+     */
+    public void put(String key, Long id, Long version) {
+        long current = version != null ? version : 0;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.version <= current || entry.expiresAt < now) {
+                entries.put(key, new Entry(etagOf(id, version), current, now + maxAgeMillis));
+            }
+        }
+    }
+
+    /**
+     * Verifica se o cabeçalho If-None-Match do cliente corresponde ao ETag em cache para a chave.
+     * Retorna o ETag em caso positivo, ou null se for preciso consultar o banco.
+     */
+    public String matchIfNoneMatch(String key, String ifNoneMatch) {
+        if (clusterEnabled || ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return null;
+        }
+        String current;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            current = entry.etag;
+        }
+        return etagMatches(current, ifNoneMatch) ? current : null;
+    }
+
+    // Compara o ETag atual com a lista do If-None-Match (aceita W/ e '*')
+    public static boolean etagMatches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        Long id = event.getOrder().getId();
+        Long version = event.getOrder().getVersion();
+        put(idKey(id), id, version);
+        if (event.getOrder().getSampleId() != null && event.getOrder().getTestType() != null) {
+            put(sampleKey(event.getOrder().getSampleId(), event.getOrder().getTestType()), id, version);
+        }
+        log.debug("Versão da ordem {} atualizada no cache: {}", id, event.getETag());
+    }
+
+    private record Entry(String etag, long version, long expiresAt) {
+    }
+}
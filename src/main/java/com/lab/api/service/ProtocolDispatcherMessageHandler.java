@@ -5,67 +5,164 @@ import com.lab.api.domain.astm.AstmMessage;
 import com.lab.api.domain.hl7.Hl7Message;
 import com.lab.api.domain.integra.IntegraMessage;
 import com.lab.api.integration.common.MessageHandler;
+import com.lab.api.integration.common.MessageProcessingException;
+import com.lab.api.integration.common.MessageRejectedException;
+import com.lab.api.log.LogContext;
+import com.lab.api.log.journal.AuditClock;
+import com.lab.api.metrics.EquipmentMetrics;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTrace;
+import com.lab.api.metrics.MessageTracer;
 import com.lab.api.parser.astm.AstmParserService;
 import com.lab.api.parser.hl7.Hl7ParserService;
 import com.lab.api.parser.integra.IntegraParserService;
 import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.slf4j.MDC;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 @Service("protocolDispatcher")
 @Primary
 @RequiredArgsConstructor
 @Slf4j
 public class ProtocolDispatcherMessageHandler implements MessageHandler {
 
+    private static final int MAX_PERSIST_ATTEMPTS = 3;
+
     private final AstmParserService astmParserService;
     private final Hl7ParserService hl7ParserService;
     private final IntegraParserService integraParserService;
     private final LabOrderService labOrderService;
     private final HostQueryService hostQueryService;
+    private final EquipmentBulkheads bulkheads;
+    private final LabMetrics labMetrics;
+    private final MessageTracer messageTracer;
 
     @Override
     public String handle(String rawMessage, EquipmentConfig source) {
+        // Chamado direto (ex: replay) não passa pelo listener, que já marca o equipamento no MDC
+        MDC.MDCCloseable equipmentContext = LogContext.hasEquipment() ? null : LogContext.equipment(source);
         log.info("Recebida mensagem do equipamento [{}]. Protocolo: {}.", source.getName(), source.getProtocol());
+        EquipmentMetrics metrics = labMetrics.forEquipment(source);
+        long startedAt = System.nanoTime();
+        boolean query = false;
+        metrics.dispatchStarted();
+        // Trace aberto pelo listener (com primeiro byte e frame) ou próprio, quando chamado direto (ex: replay)
+        MessageTrace listenerTrace = MessageTrace.current();
+        MessageTrace trace = listenerTrace != null ? listenerTrace : messageTracer.start(source, 0, 0);
+        trace.stamp(MessageTrace.Stage.DEQUEUED, AuditClock.nowNanos());
 
         try {
             // Passo 1: Detectar se é uma mensagem de Query
             String sampleIdFromQuery = isQueryMessage(rawMessage, source.getProtocol());
             if (sampleIdFromQuery != null) {
+                query = true;
+                metrics.query();
+                trace.markQuery();
+                LogContext.message(sampleIdFromQuery, null);
+                trace.stamp(MessageTrace.Stage.PARSED, AuditClock.nowNanos());
                 log.info("Mensagem identificada como uma QUERY para a amostra [{}].", sampleIdFromQuery);
-                return hostQueryService.processQuery(sampleIdFromQuery, source);
+                String response = bulkheads.query(source, () -> labMetrics.dbTransactionTimer("query")
+                        .record(() -> hostQueryService.processQuery(sampleIdFromQuery, source)));
+                trace.stamp(MessageTrace.Stage.PERSISTED, AuditClock.nowNanos());
+                return response;
             }
 
             // Passo 2: Se não for query, processar como mensagem de resultado
+            metrics.result();
             log.info("Mensagem identificada como um RESULTADO. Iniciando processamento.");
             switch (source.getProtocol()) {
                 case ASTM -> {
-                    AstmMessage parsedAstmMessage = astmParserService.parse(rawMessage);
-                    labOrderService.updateOrdersFromAstm(parsedAstmMessage);
+                    AstmMessage parsedAstmMessage = timeParse(source, () -> astmParserService.parse(rawMessage));
+                    if (parsedAstmMessage != null && !parsedAstmMessage.getOrderRecords().isEmpty()) {
+                        LogContext.message(parsedAstmMessage.getOrderRecords().get(0).getSpecimenId(), null);
+                    }
+                    trace.stamp(MessageTrace.Stage.PARSED, AuditClock.nowNanos());
+                    bulkheads.result(source, () -> persistResult(() -> labMetrics.dbTransactionTimer("astm_result")
+                            .record(() -> labOrderService.updateOrdersFromAstm(parsedAstmMessage))));
                 }
                 case HL7 -> {
+                    // O parse HL7 é medido no próprio Hl7ParserService (HAPI x manual)
                     Hl7Message parsedHl7Message = hl7ParserService.parse(rawMessage, source.getParserHints());
                     if (parsedHl7Message != null) {
-                        labOrderService.updateOrdersFromHl7(parsedHl7Message);
+                        LogContext.message(parsedHl7Message.getOrder() != null ? parsedHl7Message.getOrder().getSpecimenId() : null,
+                                parsedHl7Message.getMessageControlId());
+                        trace.stamp(MessageTrace.Stage.PARSED, AuditClock.nowNanos());
+                        bulkheads.result(source, () -> persistResult(() -> labMetrics.dbTransactionTimer("hl7_result")
+                                .record(() -> labOrderService.updateOrdersFromHl7(parsedHl7Message))));
                     }
                 }
                 case ROCHE_HIF -> {
-                    IntegraMessage parsedIntegraMessage = integraParserService.parse(rawMessage);
+                    IntegraMessage parsedIntegraMessage = timeParse(source, () -> integraParserService.parse(rawMessage));
                     if (parsedIntegraMessage != null) {
-                        labOrderService.updateOrdersFromIntegra(parsedIntegraMessage);
+                        trace.stamp(MessageTrace.Stage.PARSED, AuditClock.nowNanos());
+                        bulkheads.result(source, () -> persistResult(() -> labMetrics.dbTransactionTimer("integra_result")
+                                .record(() -> labOrderService.updateOrdersFromIntegra(parsedIntegraMessage))));
                     }
                 }
                 default -> log.warn("Protocolo desconhecido ou não suportado: {}. A mensagem não será processada.", source.getProtocol());
             }
+            if (trace.stampOf(MessageTrace.Stage.PARSED) != 0) {
+                trace.stamp(MessageTrace.Stage.PERSISTED, AuditClock.nowNanos());
+            }
+        } catch (RejectedExecutionException e) {
+            metrics.error();
+            log.warn("Equipamento [{}], troca {}: mensagem recusada pelo bulkhead. {}", source.getName(), trace.getExchangeId(), e.getMessage());
+            // O listener responde com recusa (MSA|AR ou NAK) para o equipamento reenviar depois
+            throw new MessageRejectedException(e.getMessage(), e);
         } catch (Exception e) {
+            metrics.error();
             log.error("Falha crítica no dispatcher ao processar mensagem do equipamento [{}]. Erro: {}",
                     source.getName(), e.getMessage(), e);
+            // O listener responde com erro (MSA|AE) em vez do ACK de aceite
+            throw new MessageProcessingException("Falha ao processar a mensagem: " + e.getMessage(), e);
+        } finally {
+            metrics.dispatchTimer(query).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            metrics.dispatchFinished();
+            if (listenerTrace == null) {
+                messageTracer.finish(trace);
+            }
+            LogContext.clearMessage();
+            if (equipmentContext != null) {
+                equipmentContext.close();
+            }
         }
 
         return null;
     }
 
+    // Dois resultados da mesma ordem ao mesmo tempo (ex: reenvio do equipamento): o @Version recusa o segundo
+    // commit e a transação é refeita, relendo a ordem do banco
+    private void persistResult(Runnable update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                update.run();
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_PERSIST_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Ordem alterada por outra transação ao gravar o resultado (tentativa {} de {}). Repetindo.",
+                        attempt, MAX_PERSIST_ATTEMPTS);
+            }
+        }
+    }
+
+    // Parsers sem alternativa (ASTM e HIF) são todos implementações manuais
+    private <T> T timeParse(EquipmentConfig source, Supplier<T> parse) {
+        Timer.Sample sample = Timer.start();
+        T parsed = parse.get();
+        sample.stop(labMetrics.parseTimer(source.getProtocol(), "manual", parsed != null ? "ok" : "error"));
+        return parsed;
+    }
+
     // MÉTODO 'isQueryMessage' COM A LÓGICA FINAL E ROBUSTA
     private String isQueryMessage(String rawMessage, com.lab.api.domain.ProtocolType protocol) {
         if (rawMessage == null || rawMessage.isBlank()) return null;
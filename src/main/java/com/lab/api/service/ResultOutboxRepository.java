@@ -0,0 +1,51 @@
+package com.lab.api.service;
+
+import com.lab.api.domain.OutboxStatus;
+import com.lab.api.domain.ResultOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ResultOutboxRepository extends JpaRepository<ResultOutboxEvent, Long> {
+
+    // Pendentes vencidos e sem reserva válida de outro nó
+    @Query("SELECT e.id FROM ResultOutboxEvent e WHERE e.status = com.lab.api.domain.OutboxStatus.PENDING AND e.nextAttemptAt <= :now"
+            + " AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // UPDATE condicional: entre vários nós, o banco decide quem fica com cada registro
+    @Modifying
+    @Query("UPDATE ResultOutboxEvent e SET e.claimedBy = :node, e.claimedUntil = :until WHERE e.id IN :ids"
+            + " AND e.status = com.lab.api.domain.OutboxStatus.PENDING AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    List<ResultOutboxEvent> findByIdInAndClaimedByAndStatusOrderByIdAsc(Collection<Long> ids, String claimedBy, OutboxStatus status);
+
+    long countByStatus(OutboxStatus status);
+
+    @Modifying
+    @Query("UPDATE ResultOutboxEvent e SET e.status = com.lab.api.domain.OutboxStatus.SENT, e.sentAt = :now, e.lastError = null,"
+            + " e.claimedBy = null, e.claimedUntil = null WHERE e.id IN :ids AND e.status = com.lab.api.domain.OutboxStatus.PENDING")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Só altera o registro que continua pendente e reservado por este nó: não volta um SENT para PENDING
+    @Modifying
+    @Query("UPDATE ResultOutboxEvent e SET e.attempts = :attempts, e.status = :status, e.nextAttemptAt = :nextAttemptAt,"
+            + " e.lastError = :error, e.claimedBy = null, e.claimedUntil = null"
+            + " WHERE e.id = :id AND e.status = com.lab.api.domain.OutboxStatus.PENDING AND e.claimedBy = :node")
+    int reschedule(@Param("id") Long id, @Param("attempts") int attempts, @Param("status") OutboxStatus status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error, @Param("node") String node);
+
+    @Modifying
+    @Query("DELETE FROM ResultOutboxEvent e WHERE e.status = com.lab.api.domain.OutboxStatus.SENT AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,125 @@
+package com.lab.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.WebhookProperties;
+import com.lab.api.controller.OrderResponseDto;
+import com.lab.api.domain.LabOrder;
+import com.lab.api.domain.OutboxStatus;
+import com.lab.api.domain.ResultOutboxEvent;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResultOutboxService {
+
+    private final ResultOutboxRepository outboxRepository;
+    private final WebhookProperties webhookProperties;
+    private final ClusterProperties clusterProperties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Grava a ordem concluída no outbox. Exige a transação do chamador: o registro só existe
+     * se a atualização da ordem for efetivada, e nenhuma chamada HTTP acontece aqui.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(LabOrder order) {
+        if (!webhookProperties.isEnabled()) {
+            return;
+        }
+        ResultOutboxEvent event = new ResultOutboxEvent();
+        event.setOrderId(order.getId());
+        event.setOrderVersion(order.getVersion());
+        event.setPayload(toJson(OrderResponseDto.fromEntity(order)));
+        event.setStatus(OutboxStatus.PENDING);
+        event.setAttempts(0);
+        event.setCreatedAt(LocalDateTime.now());
+        event.setNextAttemptAt(event.getCreatedAt());
+        outboxRepository.save(event);
+    }
+
+    /**
+     * Reserva para este nó até 'batchSize' registros vencidos e devolve os que ele conseguiu. Com vários nós no
+     * mesmo banco, cada registro fica com um só deles até 'webhook.claim-seconds'; se o nó cair no meio da entrega,
+     * outro o reenvia depois desse prazo.
+     */
+    @Transactional
+    public List<ResultOutboxEvent> claimDue(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = outboxRepository.findDueIds(now, PageRequest.ofSize(batchSize));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String node = clusterProperties.getNodeId();
+        outboxRepository.claim(ids, node, now, now.plusSeconds(webhookProperties.getClaimSeconds()));
+        return outboxRepository.findByIdInAndClaimedByAndStatusOrderByIdAsc(ids, node, OutboxStatus.PENDING);
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids) {
+        outboxRepository.markSent(ids, LocalDateTime.now());
+    }
+
+    /**
+     * Reagenda o lote com backoff exponencial (com jitter). Após 'maxAttempts' o registro vai para FAILED.
+     * Registros que já não estão pendentes ou reservados por este nó (ex: entregues por outro nó depois de a
+     * reserva expirar) não são alterados.
+     */
+    @Transactional
+    public void markRetry(List<ResultOutboxEvent> events, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        String truncatedError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        String node = clusterProperties.getNodeId();
+        for (ResultOutboxEvent event : events) {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(truncatedError);
+            if (attempts >= webhookProperties.getMaxAttempts()) {
+                event.setStatus(OutboxStatus.FAILED);
+            } else {
+                event.setNextAttemptAt(now.plusNanos(backoffMillis(attempts) * 1_000_000L));
+            }
+            if (outboxRepository.reschedule(event.getId(), attempts, event.getStatus(), event.getNextAttemptAt(), truncatedError, node) == 0) {
+                log.debug("Outbox: evento {} não estava mais reservado por este nó; reagendamento ignorado.", event.getId());
+            } else if (event.getStatus() == OutboxStatus.FAILED) {
+                log.error("Outbox: evento {} (ordem {}) falhou {} vezes e foi marcado como FAILED. Último erro: {}",
+                        event.getId(), event.getOrderId(), attempts, truncatedError);
+            }
+        }
+    }
+
+    @Transactional
+    public int purgeSent(LocalDateTime before) {
+        return outboxRepository.deleteSentBefore(before);
+    }
+
+    public long countPending() {
+        return outboxRepository.countByStatus(OutboxStatus.PENDING);
+    }
+
+    private long backoffMillis(int attempts) {
+        long exponential = webhookProperties.getInitialBackoffMs() << Math.min(attempts - 1, 20);
+        long capped = Math.min(exponential, webhookProperties.getMaxBackoffMs());
+        // Jitter de 50% a 100% para que vários eventos com falha não voltem todos no mesmo instante
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private String toJson(OrderResponseDto dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar a ordem " + dto.getId() + " para o outbox", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.lab.api.service;
+
+import com.lab.api.config.WebhookProperties;
+import com.lab.api.domain.ResultOutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Entrega em segundo plano os resultados do outbox ao webhook do LIS, em lotes.
+ * <p>
+ * Semântica "pelo menos uma vez": o lote só é marcado como enviado após resposta 2xx, então
+ * uma queda entre o envio e a marcação gera reenvio. O LIS deve deduplicar pelo 'eventId'
+ * (ou pelo par orderId + orderVersion).
+ */
+@Component
+@Slf4j
+public class WebhookDispatcher {
+
+    // Limite de lotes por execução, para não monopolizar a thread do agendador
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    private final ResultOutboxService outboxService;
+    private final WebhookProperties webhookProperties;
+    private final RestClient restClient;
+
+    public WebhookDispatcher(ResultOutboxService outboxService, WebhookProperties webhookProperties) {
+        this.outboxService = outboxService;
+        this.webhookProperties = webhookProperties;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(webhookProperties.getConnectTimeoutMs());
+        requestFactory.setReadTimeout(webhookProperties.getReadTimeoutMs());
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    @Scheduled(fixedDelayString = "${webhook.poll-interval-ms:500}")
+    public void dispatchPending() {
+        if (!webhookProperties.isEnabled() || webhookProperties.getUrl() == null) {
+            return;
+        }
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            List<ResultOutboxEvent> batch = outboxService.claimDue(webhookProperties.getBatchSize());
+            if (batch.isEmpty() || !deliver(batch)) {
+                return;
+            }
+            if (batch.size() < webhookProperties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeDelivered() {
+        if (!webhookProperties.isEnabled()) {
+            return;
+        }
+        int removed = outboxService.purgeSent(LocalDateTime.now().minusHours(webhookProperties.getSentRetentionHours()));
+        if (removed > 0) {
+            log.info("Outbox: {} eventos já entregues foram removidos.", removed);
+        }
+    }
+
+    private boolean deliver(List<ResultOutboxEvent> batch) {
+        String firstId = String.valueOf(batch.get(0).getId());
+        long start = System.nanoTime();
+        try {
+            restClient.post()
+                    .uri(webhookProperties.getUrl())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("X-Outbox-Batch-Id", firstId + "-" + batch.get(batch.size() - 1).getId())
+                    .body(toBatchJson(batch))
+                    .retrieve()
+                    .toBodilessEntity();
+
+            outboxService.markSent(batch.stream().map(ResultOutboxEvent::getId).collect(Collectors.toList()));
+            log.info("Webhook: lote com {} resultados entregue em {} ms.", batch.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            log.warn("Webhook: falha ao entregar lote com {} resultados (a partir do evento {}): {}",
+                    batch.size(), firstId, e.getMessage());
+            outboxService.markRetry(batch, e.getMessage());
+            return false;
+        }
+    }
+
+    // O payload já está serializado no outbox; aqui apenas montamos o array do lote.
+    private String toBatchJson(List<ResultOutboxEvent> batch) {
+        StringBuilder json = new StringBuilder(batch.size() * 256).append('[');
+        for (int i = 0; i < batch.size(); i++) {
+            ResultOutboxEvent event = batch.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"eventId\":").append(event.getId())
+                    .append(",\"orderId\":").append(event.getOrderId())
+                    .append(",\"orderVersion\":").append(event.getOrderVersion())
+                    .append(",\"order\":").append(event.getPayload())
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+}
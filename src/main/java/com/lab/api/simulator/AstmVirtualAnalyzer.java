@@ -0,0 +1,126 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Analisador ASTM (E1381/E1394) em porta serial: ENQ, frame e EOT, esperando o ACK da API ao ENQ e ao frame.
+ * A mensagem vai inteira em um frame, terminada pelo registro L: o SerialListener a processa antes de confirmar
+ * esse frame e responde NAK se ela não foi processada. Na query, espera a transmissão de resposta do host (ENQ, frame, EOT), confirma cada
+ * etapa com ACK e confere se ela traz a amostra consultada.
+ */
+class AstmVirtualAnalyzer extends SerialVirtualAnalyzer {
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final byte EOT = 0x04;
+    private static final byte ENQ = 0x05;
+    private static final byte ACK = 0x06;
+    private static final byte LF = 0x0A;
+    private static final byte NAK = 0x15;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    AstmVirtualAnalyzer(String name, EquipmentConfig target, String portName, long timeoutMillis) {
+        super(name, target, portName, timeoutMillis);
+    }
+
+    @Override
+    boolean supportsQueries() {
+        return true;
+    }
+
+    @Override
+    void sendResult(SimulatedSample sample) throws IOException, InterruptedException {
+        String timestamp = LocalDateTime.now().format(TIMESTAMP);
+        StringBuilder message = new StringBuilder()
+                .append(header())
+                .append("P|1||").append(sample.patientId()).append("||").append(sample.lastName()).append('^')
+                .append(sample.firstName()).append('\r')
+                .append("O|1|").append(sample.sampleId()).append("||^^^").append(sample.tests().get(0).code())
+                .append("|R||||||N\r");
+        int sequence = 1;
+        for (SimulatedSample.Test test : sample.tests()) {
+            message.append("R|").append(sequence++).append("|^^^").append(test.code()).append('|').append(test.value())
+                    .append('|').append(test.units()).append('|').append(test.range()).append("|N||F||||")
+                    .append(timestamp).append('\r');
+        }
+        message.append("L|1|N\r");
+        transmit(message.toString());
+    }
+
+    @Override
+    void sendQuery(SimulatedSample sample) throws IOException, InterruptedException {
+        transmit(header() + "Q|1|^" + sample.sampleId() + "||^^^ALL||||||||O\rL|1|N\r");
+        String response = receive();
+        if (!response.contains(sample.sampleId())) {
+            throw new IllegalStateException("Resposta da query sem a amostra " + sample.sampleId());
+        }
+    }
+
+    private String header() {
+        return "H|\\^&|||" + name + "^SIM|||||||P|1\r";
+    }
+
+    // Transmissão do equipamento: ENQ, frames e EOT, esperando o ACK da API a cada etapa
+    private void transmit(String message) throws IOException, InterruptedException {
+        discardPending();
+        long deadline = System.nanoTime() + timeoutNanos;
+        write(new byte[]{ENQ});
+        expectAck(deadline, "ENQ");
+        write(frame(message.getBytes(StandardCharsets.ISO_8859_1)));
+        expectAck(deadline, "frame");
+        write(new byte[]{EOT});
+    }
+
+    private void expectAck(long deadline, String step) throws IOException, InterruptedException {
+        int reply = nextByte(deadline);
+        if (reply == NAK) {
+            throw new IOException("API recusou o " + step + " (NAK)");
+        }
+        if (reply != ACK) {
+            throw new IllegalStateException(String.format("Esperado ACK após o %s, recebido 0x%02X", step, reply));
+        }
+    }
+
+    // Transmissão do host (resposta da query): confirma o ENQ e cada frame; devolve o texto até o EOT
+    private String receive() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        int b;
+        while ((b = nextByte(deadline)) != ENQ) {
+            // Ignora o que não for o início da transmissão
+        }
+        write(new byte[]{ACK});
+        StringBuilder text = new StringBuilder();
+        while ((b = nextByte(deadline)) != EOT) {
+            text.append((char) b);
+            if (b == LF) {
+                write(new byte[]{ACK});
+            }
+        }
+        return text.toString();
+    }
+
+    // STX, número do frame, texto, ETX, checksum (soma do número ao ETX, em hexadecimal), CR, LF
+    private static byte[] frame(byte[] text) {
+        int length = text.length;
+        byte[] frame = new byte[length + 7];
+        frame[0] = STX;
+        frame[1] = '1';
+        System.arraycopy(text, 0, frame, 2, length);
+        frame[length + 2] = ETX;
+        int sum = 0;
+        for (int i = 1; i <= length + 2; i++) {
+            sum = (sum + frame[i]) & 0xFF;
+        }
+        byte[] checksum = String.format("%02X", sum).getBytes(StandardCharsets.ISO_8859_1);
+        frame[length + 3] = checksum[0];
+        frame[length + 4] = checksum[1];
+        frame[length + 5] = '\r';
+        frame[length + 6] = LF;
+        return frame;
+    }
+}
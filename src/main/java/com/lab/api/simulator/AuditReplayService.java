@@ -0,0 +1,138 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.config.ReplayProperties;
+import com.lab.api.controller.ReplayReportDto;
+import com.lab.api.controller.ReplayRequestDto;
+import com.lab.api.integration.common.MessageHandler;
+import com.lab.api.log.AuditStore;
+import com.lab.api.log.MessageAuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reproduz as mensagens gravadas no journal de auditoria contra o dispatcher (no mesmo processo) ou
+ * contra os listeners TCP, para teste de carga e regressão. Uma execução por vez.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditReplayService {
+
+    private final ReplayProperties replayProperties;
+    private final EquipmentProperties equipmentProperties;
+    private final AuditStore auditStore;
+    private final MessageAuditService messageAuditService;
+
+    @Qualifier("protocolDispatcher")
+    private final MessageHandler messageHandler;
+
+    private ReplayJob currentJob;
+
+    // Inicia o replay em segundo plano; acompanhe com getStatus()
+    public synchronized ReplayReportDto start(ReplayRequestDto request) throws IOException {
+        ReplayJob job = prepare(request);
+        Thread thread = new Thread(job, "replay-" + job.getReport().getJobId());
+        thread.start();
+        return job.getReport();
+    }
+
+    // Executa o replay na thread atual e devolve o relatório final (linha de comando)
+    public ReplayReportDto run(ReplayRequestDto request) throws IOException {
+        ReplayJob job;
+        synchronized (this) {
+            job = prepare(request);
+        }
+        job.run();
+        return job.getReport();
+    }
+
+    public synchronized ReplayReportDto getStatus() {
+        return currentJob != null ? currentJob.getReport() : null;
+    }
+
+    public synchronized ReplayReportDto cancel() {
+        if (currentJob == null || !currentJob.isRunning()) {
+            throw new IllegalStateException("Nenhum replay em execução.");
+        }
+        currentJob.cancel();
+        return currentJob.getReport();
+    }
+
+    private ReplayJob prepare(ReplayRequestDto request) throws IOException {
+        if (!replayProperties.isEnabled()) {
+            throw new IllegalStateException("Replay desabilitado: ative o perfil 'replay', que usa um banco de rascunho.");
+        }
+        if (currentJob != null && currentJob.isRunning()) {
+            throw new IllegalStateException("Já existe um replay em execução: " + currentJob.getReport().getJobId());
+        }
+        ReplayRequestDto resolved = withDefaults(request);
+        if (!resolved.getFrom().isBefore(resolved.getTo())) {
+            throw new IllegalArgumentException("O início do período deve ser anterior ao fim.");
+        }
+        if (resolved.getRate() == ReplayProperties.Rate.SPEED && resolved.getSpeed() <= 0) {
+            throw new IllegalArgumentException("'speed' deve ser maior que zero.");
+        }
+
+        Map<String, EquipmentConfig> equipments = selectEquipments(resolved.getEquipment());
+        if (equipments.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum equipamento com mensagens gravadas no journal para: " + resolved.getEquipment());
+        }
+
+        String jobId = UUID.randomUUID().toString().substring(0, 8);
+        log.info("Replay {} iniciado: {} equipamento(s) {}, de {} a {}, ritmo {}{}, {} fila(s), destino {}.", jobId,
+                equipments.size(), equipments.keySet(), resolved.getFrom(), resolved.getTo(), resolved.getRate(),
+                resolved.getRate() == ReplayProperties.Rate.SPEED ? " x" + resolved.getSpeed() : "",
+                resolved.getParallelism(), resolved.getTarget());
+        currentJob = new ReplayJob(jobId, resolved, equipments, auditStore, messageHandler, replayProperties);
+        return currentJob;
+    }
+
+    private ReplayRequestDto withDefaults(ReplayRequestDto request) {
+        ReplayRequestDto resolved = new ReplayRequestDto();
+        ReplayRequestDto source = request != null ? request : new ReplayRequestDto();
+        LocalDate today = LocalDate.now();
+        resolved.setEquipment(source.getEquipment());
+        resolved.setFrom(source.getFrom() != null ? source.getFrom() : today.minusDays(1).atStartOfDay());
+        resolved.setTo(source.getTo() != null ? source.getTo() : today.atStartOfDay());
+        resolved.setRate(source.getRate() != null ? source.getRate() : replayProperties.getRate());
+        resolved.setSpeed(source.getSpeed() != null ? source.getSpeed() : replayProperties.getSpeed());
+        resolved.setParallelism(Math.max(1, source.getParallelism() != null ? source.getParallelism() : replayProperties.getParallelism()));
+        resolved.setTarget(source.getTarget() != null ? source.getTarget() : replayProperties.getTarget());
+        return resolved;
+    }
+
+    /**
+     * Pastas do journal a reproduzir, cada uma com a configuração do equipamento correspondente
+     * (necessária para protocolo, parserHints e porta TCP). Pastas sem equipamento configurado são ignoradas.
+     */
+    private Map<String, EquipmentConfig> selectEquipments(String equipmentName) throws IOException {
+        Map<String, EquipmentConfig> byDir = new LinkedHashMap<>();
+        if (equipmentProperties.getDevices() != null) {
+            equipmentProperties.getDevices().values()
+                    .forEach(config -> byDir.put(messageAuditService.equipmentDirName(config.getName()), config));
+        }
+
+        Map<String, EquipmentConfig> selected = new LinkedHashMap<>();
+        String wantedDir = equipmentName != null && !equipmentName.isBlank() ? messageAuditService.equipmentDirName(equipmentName) : null;
+        for (String equipmentDir : auditStore.listEquipmentDirs()) {
+            if (wantedDir != null && !wantedDir.equals(equipmentDir)) continue;
+            EquipmentConfig config = byDir.get(equipmentDir);
+            if (config == null) {
+                log.warn("Replay: pasta [{}] do journal não corresponde a nenhum equipamento configurado; ignorada.", equipmentDir);
+                continue;
+            }
+            selected.put(equipmentDir, config);
+        }
+        return selected;
+    }
+}
@@ -1,111 +1,350 @@
 package com.lab.api.simulator;
 
-import com.fazecast.jSerialComm.SerialPort;
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.config.SimulatorProperties;
+import com.lab.api.controller.EquipmentStatusDto;
+import com.lab.api.controller.OrderRequestDto;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.integration.EquipmentListenerManager;
+import com.lab.api.integration.channel.LoopbackSerialPorts;
+import com.lab.api.integration.common.MessageHandler;
+import com.lab.api.service.LabOrderService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Simulador de equipamentos / gerador de carga: N analisadores virtuais (ASTM e HIF no cabo serial virtual
+ * ou numa porta real, HL7 em MLLP/TCP) enviando resultados e queries no ritmo configurado em 'simulator.*',
+ * conferindo os ACKs e respostas da API e, ao final, registrando vazão e latência (p50/p99/p999) por tipo.
+ * Perfil 'dev': uma mensagem por equipamento configurado; perfil 'loadtest': carga contínua; perfil 'soak':
+ * carga moderada por horas, reprovada se heap, threads, descritores ou latência crescerem (veja o README).
+ */
 @Component
-@Profile("dev") // Este componente só será ativado se o perfil 'dev' estiver ativo
+@Profile({"dev", "loadtest", "soak"}) // Este componente só será ativado com o perfil 'dev', 'loadtest' ou 'soak'
+@RequiredArgsConstructor
 @Slf4j
 public class EquipmentSimulator implements CommandLineRunner {
 
-    // Caracteres de controle do protocolo ASTM e MLLP
-    private static final byte ENQ = 0x05;
-    private static final byte ACK = 0x06;
-    private static final byte EOT = 0x04;
-    private static final byte STX = 0x02;
-    private static final byte ETX = 0x03;
-    private static final byte CR = 0x0D;
-    private static final byte LF = 0x0A;
-    private static final byte VT = 0x0B;
-    private static final byte FS = 0x1C;
+    private static final long PORTS_OPEN_TIMEOUT_MS = 10_000;
+    // Erros detalhados no log por analisador; os demais só entram na contagem do relatório
+    private static final int LOGGED_ERRORS_PER_ANALYZER = 5;
+
+    private final SimulatorProperties simulatorProperties;
+    private final EquipmentProperties equipmentProperties;
+    private final EquipmentListenerManager listenerManager;
+    private final LabOrderService labOrderService;
+    private final ApplicationContext applicationContext;
+
+    @Qualifier("protocolDispatcher")
+    private final MessageHandler messageHandler;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "simulator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Planned(VirtualAnalyzer analyzer, SimulatorProperties.Analyzer group, ProtocolType protocol) {
+    }
 
     @Override
     public void run(String... args) {
         log.info("************************************************************");
-        log.info("MODO DE DESENVOLVIMENTO ATIVO: Iniciando simulador de equipamentos...");
+        log.info("SIMULADOR DE EQUIPAMENTOS ATIVO: {} grupo(s) de analisadores em {} s...",
+                simulatorProperties.getAnalyzers().size(), simulatorProperties.getStartDelaySeconds());
         log.info("************************************************************");
 
         // Agenda a simulação para ocorrer após um delay, para dar tempo da API subir
-        Executors.newSingleThreadScheduledExecutor().schedule(this::simulateAbbottC8000, 15, TimeUnit.SECONDS);
-        Executors.newSingleThreadScheduledExecutor().schedule(this::simulateMaglumiX3, 20, TimeUnit.SECONDS);
+        scheduler.schedule(this::runLoad, simulatorProperties.getStartDelaySeconds(), TimeUnit.SECONDS);
     }
-    private void simulateAbbottC8000() {
-        // ===== ALTERAÇÃO IMPORTANTE AQUI =====
-        String portNameToSimulate = "COM5"; // <---- ALTERADO DE COM11 PARA COM5
-        // =====================================
-
-        log.info("[SIMULADOR] Iniciando simulação para Abbott c8000 na porta {}", portNameToSimulate);
-        SerialPort sp = SerialPort.getCommPort(portNameToSimulate);
-        sp.setBaudRate(9600);
-        sp.setNumDataBits(8);
-        sp.setNumStopBits(1);
-        sp.setParity(SerialPort.NO_PARITY);
-
-        if (!sp.openPort()) {
-            log.error("[SIMULADOR] Falha ao abrir a porta {}. Verifique se o com0com está configurado (COM3 <=> COM5).", portNameToSimulate);
-            return;
-        }
 
-        try (OutputStream out = sp.getOutputStream()) {
-            // A mensagem que o simulador envia deve corresponder ao que o teste espera
-            String astmMessage = "P|1||12345||DOE^JOHN\r" +
-                    "O|1|SAMPLE123||^^^GLUCOSE|R|||||||F\r" +
-                    "R|1|^^^GLUCOSE|105.7|mg/dL|70-110|N||F|||20250807103000\r" +
-                    "L|1|F\r";
-
-            log.info("[SIMULADOR Abbott] Enviando ENQ...");
-            out.write(ENQ);
-            out.flush();
-
-            Thread.sleep(1000); // Espera um pouco pelo ACK da nossa API
-
-            log.info("[SIMULADOR Abbott] Enviando mensagem de resultado ASTM...");
-            out.write(STX);
-            out.write(astmMessage.getBytes());
-            out.write(ETX);
-            out.write(CR);
-            out.write(LF);
-            out.write(EOT);
-            out.flush();
-            log.info("[SIMULADOR Abbott] Simulação concluída.");
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
 
+    private void runLoad() {
+        String runId = Long.toHexString(System.currentTimeMillis() & 0xFFFFF);
+        SimulatedSample.Generator samples = new SimulatedSample.Generator(runId);
+        Map<String, EquipmentConfig> virtualDevices = new LinkedHashMap<>();
+        List<Planned> plan = new ArrayList<>();
+        LoadReport report = new LoadReport();
+        SoakMonitor soak = simulatorProperties.getSoak().isEnabled() ? new SoakMonitor(simulatorProperties.getSoak()) : null;
+        boolean completed = false;
+        boolean soakPassed = true;
+        try {
+            for (SimulatorProperties.Analyzer group : simulatorProperties.getAnalyzers()) {
+                try {
+                    planGroup(group, plan, virtualDevices);
+                } catch (IllegalArgumentException e) {
+                    log.error("[SIMULADOR] Grupo [{}] ignorado: {}", group.getName(), e.getMessage());
+                }
+            }
+            if (plan.isEmpty()) {
+                log.warn("[SIMULADOR] Nenhum analisador a simular (simulator.analyzers).");
+                return;
+            }
+            if (!virtualDevices.isEmpty()) {
+                Map<String, EquipmentConfig> devices = new LinkedHashMap<>(equipmentProperties.getDevices());
+                devices.putAll(virtualDevices);
+                listenerManager.reload(devices);
+                awaitPortsOpen(virtualDevices.keySet());
+            }
+
+            log.info("[SIMULADOR] Iniciando carga: {} analisador(es) virtual(is) por até {} s.", plan.size(),
+                    simulatorProperties.getDurationSeconds());
+            completed = drive(plan, samples, report, soak);
+            report.print();
+            if (soak != null) {
+                soakPassed = soak.evaluate();
+            }
         } catch (Exception e) {
-            log.error("[SIMULADOR Abbott] Erro na simulação: {}", e.getMessage());
+            log.error("[SIMULADOR] Falha na simulação: {}", e.getMessage(), e);
         } finally {
-            sp.closePort();
+            plan.forEach(planned -> planned.analyzer().close());
+            removeVirtualDevices(virtualDevices);
+        }
+
+        if (simulatorProperties.isExitOnFinish()) {
+            int exitCode = completed && report.getErrors() == 0 && soakPassed ? 0 : 1;
+            // Fora do executor do simulador, que é interrompido no encerramento do contexto
+            new Thread(() -> System.exit(SpringApplication.exit(applicationContext, () -> exitCode)), "simulator-exit").start();
         }
     }
 
-    private void simulateMaglumiX3() {
-        log.info("[SIMULADOR] Iniciando simulação para MAGLUMI X3 em localhost:5001...");
-        try (Socket socket = new Socket("localhost", 5001);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+    // Uma thread por analisador, todas encerradas ao final da duração (ou no desligamento da aplicação)
+    private boolean drive(List<Planned> plan, SimulatedSample.Generator samples, LoadReport report, SoakMonitor soak)
+            throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(plan.size(),
+                runnable -> new Thread(runnable, "simulator-" + threadNumber.incrementAndGet()));
+        long progressInterval = Math.max(1, simulatorProperties.getProgressIntervalSeconds());
+        ScheduledFuture<?> progress = scheduler.scheduleAtFixedRate(() -> {
+            LoadReport.Interval interval = report.progress();
+            if (soak != null) {
+                soak.sample(interval);
+            }
+        }, progressInterval, progressInterval, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(simulatorProperties.getDurationSeconds());
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (Planned planned : plan) {
+                running.add(pool.submit(() -> simulate(planned, samples, report, deadline)));
+            }
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("[SIMULADOR] Analisador encerrado com erro: {}", e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return true;
+        } finally {
+            progress.cancel(false);
+            pool.shutdownNow();
+            if (!pool.awaitTermination(simulatorProperties.getResponseTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                log.warn("[SIMULADOR] Analisadores ainda em execução após o encerramento da carga.");
+            }
+        }
+    }
 
-            // Mensagem HL7 de resultado de TSH
-            String hl7Content = "MSH|^~\\&|MAGLUMI_SIM|LAB|LAB-API|MAIN|202508071100||ORU^R01|MSG001|P|2.5\r" +
-                    "PID|1||SAMPLE456||SMITH^JANE||19800101|F\r" +
-                    "OBR|1||||TSH\r" +
-                    "OBX|1|NM|TSH||2.5|uIU/mL|0.4-4.0|N|||F|||20250807110500\r";
+    /**
+     * Envia no ritmo do grupo até o fim da duração ou de 'messages'. O instante de cada envio é fixo
+     * (início + n / ritmo): se a API atrasar, as mensagens seguintes saem em seguida, sem pausa, e a
+     * latência registrada inclui esse atraso.
+     */
+    private void simulate(Planned planned, SimulatedSample.Generator samples, LoadReport report, long deadline) {
+        VirtualAnalyzer analyzer = planned.analyzer();
+        SimulatorProperties.Analyzer group = planned.group();
+        long interval = group.getRatePerSecond() > 0 ? (long) (1e9 / group.getRatePerSecond()) : 0;
+        long start = System.nanoTime();
+        int loggedErrors = 0;
+        for (long i = 0; group.getMessages() == 0 || i < group.getMessages(); i++) {
+            long scheduledAt = start + i * interval;
+            if (scheduledAt >= deadline || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            boolean query = analyzer.supportsQueries() && ThreadLocalRandom.current().nextDouble() < group.getQueryRatio();
+            SimulatedSample sample = samples.next(planned.protocol(), group.getTestsPerSample());
+            if (simulatorProperties.isSeedOrders()) {
+                seedOrders(sample);
+            }
+            LockSupport.parkNanos(scheduledAt - System.nanoTime());
+            try {
+                analyzer.connect();
+                if (query) {
+                    analyzer.sendQuery(sample);
+                } else {
+                    analyzer.sendResult(sample);
+                }
+                report.success(planned.protocol(), query, System.nanoTime() - scheduledAt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                report.failure(planned.protocol(), query);
+                if (loggedErrors++ < LOGGED_ERRORS_PER_ANALYZER) {
+                    log.warn("[SIMULADOR] [{}] Falha na {} da amostra {}: {}", analyzer.getName(),
+                            query ? "query" : "mensagem de resultado", sample.sampleId(), e.getMessage());
+                }
+                // Recomeça com a conexão/porta limpa na próxima mensagem
+                analyzer.close();
+            }
+        }
+        log.info("[SIMULADOR] [{}] Encerrado.", analyzer.getName());
+    }
 
-            // Monta a mensagem no formato MLLP
-            String mllpMessage = (char) VT + hl7Content + (char) FS + (char) CR;
+    // As ordens pendentes que o LIS teria cadastrado para a amostra
+    private void seedOrders(SimulatedSample sample) {
+        for (SimulatedSample.Test test : sample.tests()) {
+            OrderRequestDto order = new OrderRequestDto();
+            order.setSampleId(sample.sampleId());
+            order.setPatientName(sample.lastName() + " " + sample.firstName());
+            order.setTestType(test.code());
+            labOrderService.createOrder(order);
+        }
+    }
 
-            log.info("[SIMULADOR Maglumi] Enviando mensagem de resultado HL7...");
-            out.print(mllpMessage);
-            out.flush();
-            log.info("[SIMULADOR Maglumi] Simulação concluída.");
+    private void planGroup(SimulatorProperties.Analyzer group, List<Planned> plan, Map<String, EquipmentConfig> virtualDevices) {
+        if (group.getName() == null || group.getName().isBlank()) {
+            throw new IllegalArgumentException("informe o nome do grupo.");
+        }
+        if (group.getQueryRatio() > 0 && !simulatorProperties.isSeedOrders()) {
+            throw new IllegalArgumentException("queries exigem simulator.seed-orders=true (sem ordens a API não responde).");
+        }
+        int count = Math.max(1, group.getCount());
+        if (group.getEquipment() != null && !group.getEquipment().isBlank()) {
+            EquipmentConfig config = listenerManager.getEquipmentConfig(group.getEquipment());
+            if (config == null) {
+                throw new IllegalArgumentException("equipamento " + group.getEquipment() + " não configurado.");
+            }
+            CommunicationType type = config.getCommunication().getType();
+            // Uma porta serial liga um único analisador; em TCP cada analisador abre a sua conexão
+            if (type != CommunicationType.TCP && count > 1) {
+                log.warn("[SIMULADOR] Grupo [{}]: porta serial comporta um analisador; usando 1 em vez de {}.", group.getName(), count);
+                count = 1;
+            }
+            for (int i = 1; i <= count; i++) {
+                String name = count > 1 ? group.getName() + "-" + i : group.getName();
+                plan.add(new Planned(newAnalyzer(name, config, group.getPortName()), group, config.getProtocol()));
+            }
+            return;
+        }
+
+        if (group.getProtocol() == null) {
+            throw new IllegalArgumentException("informe 'equipment' ou 'protocol'.");
+        }
+        if (group.getProtocol() == ProtocolType.HL7 && group.getBasePort() <= 0) {
+            throw new IllegalArgumentException("analisadores HL7 virtuais precisam de 'base-port'.");
+        }
+        for (int i = 1; i <= count; i++) {
+            String id = "sim-" + group.getName().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + "-" + i;
+            EquipmentConfig config = virtualEquipment(id, group.getName() + "-" + i, group, i);
+            virtualDevices.put(id, config);
+            plan.add(new Planned(newAnalyzer(config.getName(), config, null), group, group.getProtocol()));
+        }
+    }
+
+    // Equipamento temporário: HL7 em TCP (base-port + n - 1), ASTM e HIF no cabo serial virtual 'loop:ID'
+    private EquipmentConfig virtualEquipment(String id, String name, SimulatorProperties.Analyzer group, int number) {
+        CommunicationConfig communication = new CommunicationConfig();
+        if (group.getProtocol() == ProtocolType.HL7) {
+            communication.setType(CommunicationType.TCP);
+            communication.setPort(group.getBasePort() + number - 1);
+        } else {
+            communication.setType(CommunicationType.SERIAL);
+            communication.setPortName(LoopbackSerialPorts.PREFIX + id);
+            communication.setBaudRate(group.getBaudRate());
+            communication.setDataBits(8);
+            communication.setStopBits(1);
+            communication.setParity("NONE");
+        }
+        EquipmentConfig config = new EquipmentConfig();
+        config.setId(id);
+        config.setName(name);
+        config.setEnabled(true);
+        config.setProtocol(group.getProtocol());
+        config.setCommunication(communication);
+        return config;
+    }
 
+    private VirtualAnalyzer newAnalyzer(String name, EquipmentConfig config, String portName) {
+        CommunicationType type = config.getCommunication().getType();
+        long timeout = simulatorProperties.getResponseTimeoutMs();
+        return switch (config.getProtocol()) {
+            case HL7 -> {
+                if (type != CommunicationType.TCP) {
+                    throw new IllegalArgumentException("HL7 só é simulado em TCP (MLLP).");
+                }
+                yield new Hl7VirtualAnalyzer(name, config, simulatorProperties.getTcpHost(), timeout);
+            }
+            case ASTM -> {
+                if (type != CommunicationType.SERIAL) {
+                    throw new IllegalArgumentException("ASTM só é simulado em porta serial (real ou 'loop:').");
+                }
+                yield new AstmVirtualAnalyzer(name, config, portName, timeout);
+            }
+            case ROCHE_HIF -> {
+                if (type != CommunicationType.SERIAL) {
+                    throw new IllegalArgumentException("HIF só é simulado em porta serial (real ou 'loop:').");
+                }
+                yield new HifVirtualAnalyzer(name, config, portName, timeout, listenerManager, messageHandler);
+            }
+        };
+    }
+
+    private void awaitPortsOpen(Iterable<String> equipmentIds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + PORTS_OPEN_TIMEOUT_MS;
+        for (String id : equipmentIds) {
+            while (!listenerManager.getStatus(id).map(EquipmentStatusDto::isPortOpen).orElse(false)) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("[SIMULADOR] Porta do equipamento virtual {} não abriu em {} ms.", id, PORTS_OPEN_TIMEOUT_MS);
+                    break;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private void removeVirtualDevices(Map<String, EquipmentConfig> virtualDevices) {
+        if (virtualDevices.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, EquipmentConfig> devices = new LinkedHashMap<>(equipmentProperties.getDevices());
+            virtualDevices.keySet().forEach(devices::remove);
+            listenerManager.reload(devices);
         } catch (Exception e) {
-            log.error("[SIMULADOR Maglumi] Erro na simulação: {}", e.getMessage());
+            log.warn("[SIMULADOR] Falha ao remover os equipamentos virtuais: {}", e.getMessage());
         }
+        virtualDevices.values().stream()
+                .map(config -> config.getCommunication().getPortName())
+                .filter(LoopbackSerialPorts::isLoopback)
+                .forEach(LoopbackSerialPorts::unplug);
     }
-}
\ No newline at end of file
+}
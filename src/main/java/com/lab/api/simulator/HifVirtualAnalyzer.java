@@ -0,0 +1,69 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.integration.EquipmentListenerManager;
+import com.lab.api.integration.common.MessageHandler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Analisador Roche HIF (COBAS INTEGRA). O HIF é conduzido pelo host: cada mensagem do gerador é uma
+ * requisição de resultados feita pela API (como POST /api/v1/actions/{id}/request-results), que o
+ * analisador responde, na thread do canal, com o bloco de resultado da amostra atual; a resposta recebida
+ * pela API é então processada pelo dispatcher.
+ */
+class HifVirtualAnalyzer extends SerialVirtualAnalyzer {
+
+    private static final byte EOT = 0x04;
+    // Mesma requisição enviada pelo IntegraController
+    private static final String REQUEST = "\u0001\n09_COBAS_INTEGRA..._09\n\u0002\n10_01\n\u0003\n1\n625\n\u0004\n";
+
+    private final EquipmentListenerManager listenerManager;
+    private final MessageHandler messageHandler;
+    private volatile SimulatedSample currentSample;
+
+    HifVirtualAnalyzer(String name, EquipmentConfig target, String portName, long timeoutMillis,
+                       EquipmentListenerManager listenerManager, MessageHandler messageHandler) {
+        super(name, target, portName, timeoutMillis);
+        this.listenerManager = listenerManager;
+        this.messageHandler = messageHandler;
+    }
+
+    @Override
+    void sendResult(SimulatedSample sample) throws IOException {
+        currentSample = sample;
+        Optional<String> response = listenerManager.sendRequest(target.getId(), REQUEST);
+        if (response.isEmpty()) {
+            throw new IOException("Sem resposta do analisador à requisição da API");
+        }
+        if (!response.get().contains(sample.sampleId())) {
+            throw new IllegalStateException("Resposta recebida pela API sem a amostra " + sample.sampleId());
+        }
+        messageHandler.handle(response.get(), target);
+    }
+
+    // Responde cada requisição da API (terminada em EOT) com o resultado da amostra atual
+    @Override
+    protected void received(byte[] data) {
+        for (byte b : data) {
+            if (b == EOT) {
+                SimulatedSample sample = currentSample;
+                if (sample != null) {
+                    try {
+                        write(resultBlock(sample).getBytes(StandardCharsets.ISO_8859_1));
+                    } catch (IOException e) {
+                        // a API fica sem resposta e o sendResult falha por timeout
+                    }
+                }
+            }
+        }
+    }
+
+    private static String resultBlock(SimulatedSample sample) {
+        SimulatedSample.Test test = sample.tests().get(0);
+        return "\u0001\n09_COBAS_INTEGRA 400_09\n\u0002\n54_" + sample.sampleId() + "\n55_" + test.code()
+                + "\n00_" + test.value() + " " + test.units() + "\n\u0003\n1\n625\n\u0004";
+    }
+}
@@ -0,0 +1,153 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analisador HL7 em MLLP/TCP (conexão própria com o TcpListener do equipamento). Resultado: ORU^R01,
+ * confirmado pelo ACK da API com MSA|AA e o mesmo controlId. Query: QBP (QPD|TSREQ), cuja resposta
+ * (OUL^R22) deve trazer a amostra consultada.
+ */
+class Hl7VirtualAnalyzer extends VirtualAnalyzer {
+
+    private static final byte VT = 0x0B;
+    private static final byte FS = 0x1C;
+    private static final byte CR = 0x0D;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final AtomicLong CONTROL_IDS = new AtomicLong();
+
+    private final String host;
+    private Socket socket;
+    private InputStream input;
+    private OutputStream output;
+
+    Hl7VirtualAnalyzer(String name, EquipmentConfig target, String host, long timeoutMillis) {
+        super(name, target, timeoutMillis);
+        this.host = host;
+    }
+
+    @Override
+    void connect() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+        int timeoutMillis = (int) (timeoutNanos / 1_000_000L);
+        Socket candidate = new Socket();
+        try {
+            candidate.connect(new InetSocketAddress(host, target.getCommunication().getPort()), timeoutMillis);
+            candidate.setSoTimeout(timeoutMillis);
+            candidate.setTcpNoDelay(true);
+            input = candidate.getInputStream();
+            output = candidate.getOutputStream();
+        } catch (IOException e) {
+            candidate.close();
+            throw e;
+        }
+        socket = candidate;
+    }
+
+    @Override
+    boolean supportsQueries() {
+        return true;
+    }
+
+    @Override
+    void sendResult(SimulatedSample sample) throws IOException {
+        String controlId = nextControlId();
+        String timestamp = LocalDateTime.now().format(TIMESTAMP);
+        StringBuilder message = new StringBuilder(header(timestamp, "ORU^R01", controlId, "2.5"))
+                .append("PID|1||").append(sample.patientId()).append("||").append(sample.lastName()).append('^')
+                .append(sample.firstName()).append("||19800101|F\r")
+                .append("OBR|1|").append(sample.sampleId()).append("||").append(sample.tests().get(0).code()).append('\r');
+        int sequence = 1;
+        for (SimulatedSample.Test test : sample.tests()) {
+            message.append("OBX|").append(sequence++).append("|NM|").append(test.code()).append('^').append(test.code())
+                    .append("||").append(test.value()).append('|').append(test.units()).append('|').append(test.range())
+                    .append("|N|||F|||").append(timestamp).append('\r');
+        }
+        String reply = exchange(message.toString());
+        if (!reply.contains("MSA|AA|" + controlId)) {
+            throw new IllegalStateException("ACK inválido para " + controlId + ": " + firstSegments(reply));
+        }
+    }
+
+    @Override
+    void sendQuery(SimulatedSample sample) throws IOException {
+        String controlId = nextControlId();
+        String message = header(LocalDateTime.now().format(TIMESTAMP), "QBP^Q11^QBP_Q11", controlId, "2.5.1")
+                + "QPD|TSREQ|" + controlId + "|" + sample.sampleId() + "||\r"
+                + "RCP|I||R\r";
+        String reply = exchange(message);
+        if (!reply.contains(sample.sampleId())) {
+            throw new IllegalStateException("Resposta da query sem a amostra " + sample.sampleId() + ": " + firstSegments(reply));
+        }
+    }
+
+    private String header(String timestamp, String messageType, String controlId, String version) {
+        return "MSH|^~\\&|" + name + "|LAB|LAB-API|MAIN|" + timestamp + "||" + messageType + "|" + controlId + "|P|" + version + "\r";
+    }
+
+    private String nextControlId() {
+        return "SIM" + CONTROL_IDS.incrementAndGet();
+    }
+
+    // Envia um bloco MLLP e lê o bloco de resposta (VT ... FS CR)
+    private String exchange(String message) throws IOException {
+        byte[] payload = message.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] block = new byte[payload.length + 3];
+        block[0] = VT;
+        System.arraycopy(payload, 0, block, 1, payload.length);
+        block[block.length - 2] = FS;
+        block[block.length - 1] = CR;
+        output.write(block);
+        output.flush();
+
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        boolean inBlock = false;
+        try {
+            int b;
+            while ((b = input.read()) != -1) {
+                if (b == VT) {
+                    inBlock = true;
+                    reply.reset();
+                } else if (b == FS) {
+                    input.read(); // CR
+                    return reply.toString(StandardCharsets.ISO_8859_1);
+                } else if (inBlock) {
+                    reply.write(b);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            throw new IOException("Sem ACK da API em " + timeoutNanos / 1_000_000L + " ms");
+        }
+        throw new IOException("Conexão encerrada pela API");
+    }
+
+    private static String firstSegments(String reply) {
+        String printable = reply.replace('\r', ' ');
+        return printable.length() > 120 ? printable.substring(0, 120) + "..." : printable;
+    }
+
+    @Override
+    void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // conexão já perdida
+            }
+            socket = null;
+        }
+    }
+}
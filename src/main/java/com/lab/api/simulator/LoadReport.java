@@ -0,0 +1,104 @@
+package com.lab.api.simulator;
+
+import com.lab.api.domain.ProtocolType;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latência e vazão do gerador de carga, por protocolo e tipo (resultado/query). A latência de cada mensagem
+ * conta a partir do instante em que ela deveria ter sido enviada pelo ritmo configurado, não de quando saiu:
+ * com a API saturada, a fila de envio atrasada aparece nos percentis (sem omissão coordenada).
+ * Os analisadores gravam com {@link Recorder} (sem bloqueio); {@link #progress} consolida a cada intervalo.
+ */
+@Slf4j
+class LoadReport {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Line> lines = new ConcurrentSkipListMap<>();
+    private final long startedAt = System.nanoTime();
+    private long lastProgressAt = startedAt;
+
+    private static final class Line {
+        final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        final LongAdder errors = new LongAdder();
+        long intervalErrors;
+    }
+
+    // Vazão, latência e erros de um intervalo de progress()
+    record Interval(double elapsedSeconds, double messagesPerSecond, double p50Millis, double p99Millis, long errors) {
+    }
+
+    void success(ProtocolType protocol, boolean query, long latencyNanos) {
+        line(protocol, query).recorder.recordValue(Math.max(1, latencyNanos));
+    }
+
+    void failure(ProtocolType protocol, boolean query) {
+        line(protocol, query).errors.increment();
+    }
+
+    long getErrors() {
+        return lines.values().stream().mapToLong(line -> line.errors.sum()).sum();
+    }
+
+    private Line line(ProtocolType protocol, boolean query) {
+        return lines.computeIfAbsent(protocol + (query ? " query" : " resultado"), key -> new Line());
+    }
+
+    // Consolida o intervalo desde a última chamada e registra a vazão e o p99 dele (acompanha a degradação)
+    synchronized Interval progress() {
+        long now = System.nanoTime();
+        Histogram interval = new Histogram(SIGNIFICANT_DIGITS);
+        long errors = 0;
+        for (Line line : lines.values()) {
+            Histogram lineInterval = line.recorder.getIntervalHistogram();
+            line.total.add(lineInterval);
+            interval.add(lineInterval);
+            long lineErrors = line.errors.sum();
+            errors += lineErrors - line.intervalErrors;
+            line.intervalErrors = lineErrors;
+        }
+        double seconds = (now - lastProgressAt) / 1e9;
+        lastProgressAt = now;
+        Interval result = new Interval((now - startedAt) / 1e9, interval.getTotalCount() / seconds,
+                millis(interval, 50), millis(interval, 99), errors);
+        log.info(String.format(Locale.ROOT, "[SIMULADOR] %5.0f s: %8.1f msg/s, p50 %8.2f ms, p99 %8.2f ms, %d erro(s) no intervalo.",
+                result.elapsedSeconds(), result.messagesPerSecond(), result.p50Millis(), result.p99Millis(), errors));
+        return result;
+    }
+
+    synchronized void print() {
+        progress();
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%n%-20s %9s %7s %9s %10s %10s %10s %10s%n", "Tipo", "OK", "Erros", "msg/s", "p50 ms", "p99 ms", "p999 ms", "máx ms"));
+        Histogram all = new Histogram(SIGNIFICANT_DIGITS);
+        long allErrors = 0;
+        for (Map.Entry<String, Line> entry : lines.entrySet()) {
+            Histogram histogram = entry.getValue().total;
+            long errors = entry.getValue().errors.sum();
+            all.add(histogram);
+            allErrors += errors;
+            table.append(row(entry.getKey(), histogram, errors, seconds));
+        }
+        table.append(row("TOTAL", all, allErrors, seconds));
+        log.info("[SIMULADOR] Carga encerrada em {} s:{}", String.format(Locale.ROOT, "%.1f", seconds), table);
+    }
+
+    private static String row(String label, Histogram histogram, long errors, double seconds) {
+        return String.format(Locale.ROOT, "%-20s %9d %7d %9.1f %10.2f %10.2f %10.2f %10.2f%n", label, histogram.getTotalCount(),
+                errors, histogram.getTotalCount() / seconds, millis(histogram, 50), millis(histogram, 99),
+                millis(histogram, 99.9), histogram.getTotalCount() > 0 ? histogram.getMaxValue() / 1e6 : 0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() > 0 ? histogram.getValueAtPercentile(percentile) / 1e6 : 0;
+    }
+}
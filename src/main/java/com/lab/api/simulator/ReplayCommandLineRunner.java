@@ -0,0 +1,56 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.ReplayProperties;
+import com.lab.api.controller.ReplayReportDto;
+import com.lab.api.controller.ReplayRequestDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Replay pela linha de comando: executa uma vez com a seleção de 'replay.*' e encerra a aplicação.
+ * Ex: java -jar app.jar --spring.profiles.active=replay,replay-cli --replay.equipment="COBAS e 801"
+ *     --replay.from=2025-08-07 --replay.rate=SPEED --replay.speed=20
+ */
+@Component
+@Profile("replay-cli")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplayCommandLineRunner implements CommandLineRunner {
+
+    private final AuditReplayService auditReplayService;
+    private final ReplayProperties replayProperties;
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(String... args) throws Exception {
+        ReplayRequestDto request = new ReplayRequestDto();
+        request.setEquipment(replayProperties.getEquipment());
+        request.setFrom(parse(replayProperties.getFrom()));
+        // Só a data em 'from' e sem 'to': reproduz o dia inteiro
+        if (replayProperties.getTo() != null) {
+            request.setTo(parse(replayProperties.getTo()));
+        } else if (request.getFrom() != null) {
+            request.setTo(request.getFrom().plusDays(1));
+        }
+
+        ReplayReportDto report = auditReplayService.run(request);
+        log.info("Resultado do replay: {}", report);
+        int exitCode = "COMPLETED".equals(report.getState()) && report.getErrors() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    private LocalDateTime parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+    }
+}
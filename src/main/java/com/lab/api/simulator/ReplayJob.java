@@ -0,0 +1,343 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.ReplayProperties;
+import com.lab.api.controller.ReplayReportDto;
+import com.lab.api.controller.ReplayRequestDto;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.integration.common.MessageHandler;
+import com.lab.api.log.AuditStore;
+import com.lab.api.log.index.AuditKeyExtractor;
+import com.lab.api.log.journal.JournalRecord;
+import com.lab.api.log.journal.RecordKind;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Uma execução de replay: uma thread de leitura por equipamento (ritmo controlado pelo 'rate') alimenta
+ * 'parallelism' filas de execução. As mensagens da mesma amostra vão sempre para a mesma fila, preservando
+ * a ordem query → resultado de cada amostra enquanto amostras diferentes são processadas em paralelo.
+ */
+@Slf4j
+class ReplayJob implements Runnable {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final byte VT = 0x0B;
+    private static final byte FS = 0x1C;
+    private static final byte CR = 0x0D;
+
+    private final ReplayReportDto report = new ReplayReportDto();
+    private final ReplayRequestDto request;
+    private final Map<String, EquipmentConfig> equipments; // pasta no journal -> configuração
+    private final AuditStore auditStore;
+    private final MessageHandler messageHandler;
+    private final String tcpHost;
+    private final int laneQueueCapacity;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean cancelled;
+
+    private record Item(String raw, EquipmentConfig config, long scheduledNanos) {
+    }
+
+    private static final Item END = new Item(null, null, 0);
+
+    ReplayJob(String id, ReplayRequestDto request, Map<String, EquipmentConfig> equipments, AuditStore auditStore,
+              MessageHandler messageHandler, ReplayProperties settings) {
+        this.request = request;
+        this.equipments = equipments;
+        this.auditStore = auditStore;
+        this.messageHandler = messageHandler;
+        this.tcpHost = settings.getTcpHost();
+        this.laneQueueCapacity = settings.getLaneQueueCapacity();
+        report.setJobId(id);
+        report.setRequest(request);
+        report.setState("RUNNING");
+        report.setStartedAt(LocalDateTime.now());
+    }
+
+    @Override
+    public void run() {
+        long fromMillis = request.getFrom().atZone(ZONE).toInstant().toEpochMilli();
+        long toMillis = request.getTo().atZone(ZONE).toInstant().toEpochMilli();
+        long startedNanos = System.nanoTime();
+        try {
+            long[] span = originalSpan(fromMillis, toMillis);
+            report.setOriginalSpanMs(span[0] == Long.MAX_VALUE ? 0 : span[1] - span[0]);
+            long firstMillis = span[0];
+
+            Lane[] lanes = new Lane[request.getParallelism()];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane(i);
+                lanes[i].thread.start();
+            }
+
+            // Todas as threads de leitura compartilham a mesma origem de tempo, então o replay
+            // mantém o intercalamento real entre os equipamentos
+            long baseNanos = System.nanoTime();
+            List<Thread> readers = new ArrayList<>();
+            for (Map.Entry<String, EquipmentConfig> equipment : equipments.entrySet()) {
+                Thread reader = new Thread(() -> read(equipment.getKey(), equipment.getValue(), fromMillis, toMillis,
+                        firstMillis, baseNanos, lanes), "replay-read-" + equipment.getKey());
+                reader.start();
+                readers.add(reader);
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            for (Lane lane : lanes) {
+                lane.queue.put(END);
+            }
+            for (Lane lane : lanes) {
+                lane.thread.join();
+            }
+
+            finish(lanes, startedNanos, cancelled ? "CANCELLED" : "COMPLETED", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(new Lane[0], startedNanos, "CANCELLED", null);
+        } catch (Exception e) {
+            log.error("Replay {} falhou: {}", report.getJobId(), e.getMessage(), e);
+            finish(new Lane[0], startedNanos, "FAILED", e.getMessage());
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    // Retrato atual (durante a execução, só os contadores estão atualizados)
+    synchronized ReplayReportDto getReport() {
+        report.setMessagesReplayed(replayed.get());
+        report.setErrors(errors.get());
+        report.setSkipped(skipped.get());
+        return report;
+    }
+
+    boolean isRunning() {
+        return "RUNNING".equals(report.getState());
+    }
+
+    private void read(String equipmentDir, EquipmentConfig config, long fromMillis, long toMillis,
+                      long firstMillis, long baseNanos, Lane[] lanes) {
+        ReplayProperties.Rate rate = request.getRate();
+        double speed = rate == ReplayProperties.Rate.ORIGINAL ? 1.0 : request.getSpeed();
+        boolean tcpUnsupported = request.getTarget() == ReplayProperties.Target.TCP
+                && (config.getCommunication() == null || config.getCommunication().getType() != CommunicationType.TCP);
+        try {
+            for (LocalDate day : auditStore.listDays(equipmentDir, request.getFrom().toLocalDate(), request.getTo().toLocalDate())) {
+                auditStore.forEach(equipmentDir, day, record -> {
+                    if (cancelled) return false;
+                    if (!isReplayable(record, fromMillis, toMillis)) return true;
+                    if (tcpUnsupported) {
+                        skipped.incrementAndGet();
+                        return true;
+                    }
+
+                    long scheduledNanos = System.nanoTime();
+                    if (rate != ReplayProperties.Rate.MAX) {
+                        scheduledNanos = baseNanos + (long) ((record.getEpochMillis() - firstMillis) * 1_000_000L / speed);
+                        long waitNanos;
+                        while (!cancelled && (waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(Math.min(waitNanos, 100_000_000L));
+                        }
+                    }
+                    String raw = record.payloadAsString();
+                    Lane lane = lanes[laneOf(equipmentDir, record, raw, lanes.length)];
+                    try {
+                        lane.queue.put(new Item(raw, config, scheduledNanos));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    return true;
+                });
+            }
+        } catch (IOException e) {
+            log.error("Replay {}: falha ao ler o journal de [{}]: {}", report.getJobId(), equipmentDir, e.getMessage());
+            errors.incrementAndGet();
+        }
+    }
+
+    private boolean isReplayable(JournalRecord record, long fromMillis, long toMillis) {
+        return record.getKind() == RecordKind.MESSAGE_IN
+                && record.getEpochMillis() >= fromMillis && record.getEpochMillis() < toMillis;
+    }
+
+    private int laneOf(String equipmentDir, JournalRecord record, String raw, int laneCount) {
+        if (laneCount == 1) {
+            return 0;
+        }
+        List<String> samples = AuditKeyExtractor.extract(record.getProtocol(), raw).getSampleIds();
+        String key = samples.isEmpty() ? equipmentDir : samples.get(0);
+        return Math.floorMod(key.hashCode(), laneCount);
+    }
+
+    // Primeiro e último instante do período com mensagens (origem do ritmo ORIGINAL/SPEED)
+    private long[] originalSpan(long fromMillis, long toMillis) throws IOException {
+        long[] span = {Long.MAX_VALUE, Long.MIN_VALUE};
+        for (String equipmentDir : equipments.keySet()) {
+            for (LocalDate day : auditStore.listDays(equipmentDir, request.getFrom().toLocalDate(), request.getTo().toLocalDate())) {
+                auditStore.forEach(equipmentDir, day, record -> {
+                    if (isReplayable(record, fromMillis, toMillis)) {
+                        span[0] = Math.min(span[0], record.getEpochMillis());
+                        span[1] = Math.max(span[1], record.getEpochMillis());
+                    }
+                    return true;
+                });
+            }
+        }
+        return span;
+    }
+
+    private synchronized void finish(Lane[] lanes, long startedNanos, String state, String failure) {
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        LongSamples latencies = new LongSamples();
+        LongSamples lags = new LongSamples();
+        for (Lane lane : lanes) {
+            latencies.addAll(lane.latencies);
+            lags.addAll(lane.lags);
+        }
+        report.setMessagesReplayed(replayed.get());
+        report.setErrors(errors.get());
+        report.setSkipped(skipped.get());
+        report.setElapsedMs(elapsedNanos / 1_000_000L);
+        report.setThroughputPerSecond(elapsedNanos > 0 ? replayed.get() * 1e9 / elapsedNanos : 0);
+        report.setLatencyMs(latencies.percentilesMs());
+        report.setScheduleLagMs(request.getRate() == ReplayProperties.Rate.MAX ? null : lags.percentilesMs());
+        report.setFailure(failure);
+        report.setFinishedAt(LocalDateTime.now());
+        report.setState(state);
+        log.info("Replay {} {}: {} mensagens em {} ms ({} msg/s), {} erros, {} ignoradas. Latência (ms): {}",
+                report.getJobId(), state, report.getMessagesReplayed(), report.getElapsedMs(),
+                String.format("%.1f", report.getThroughputPerSecond()), report.getErrors(), report.getSkipped(), report.getLatencyMs());
+    }
+
+    // Fila de execução: processa suas mensagens em ordem, numa thread própria
+    private class Lane implements Runnable {
+        private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(laneQueueCapacity);
+        private final Thread thread;
+        private final LongSamples latencies = new LongSamples();
+        private final LongSamples lags = new LongSamples();
+        private final Map<String, Socket> sockets = new HashMap<>();
+
+        Lane(int index) {
+            this.thread = new Thread(this, "replay-lane-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Item item;
+                while ((item = queue.take()) != END) {
+                    if (cancelled) continue; // Descarta o restante da fila
+                    long start = System.nanoTime();
+                    lags.add(Math.max(0, start - item.scheduledNanos()));
+                    try {
+                        deliver(item);
+                        replayed.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        log.debug("Replay {}: falha ao entregar mensagem de [{}]: {}", report.getJobId(), item.config().getName(), e.getMessage());
+                    }
+                    latencies.add(System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                sockets.values().forEach(socket -> {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                });
+            }
+        }
+
+        private void deliver(Item item) throws IOException {
+            if (request.getTarget() == ReplayProperties.Target.DISPATCHER) {
+                messageHandler.handle(item.raw(), item.config());
+                return;
+            }
+            String key = item.config().getName();
+            Socket socket = sockets.get(key);
+            if (socket == null || socket.isClosed()) {
+                socket = new Socket(tcpHost, item.config().getCommunication().getPort());
+                socket.setTcpNoDelay(true);
+                sockets.put(key, socket);
+            }
+            try {
+                byte[] payload = item.raw().getBytes(StandardCharsets.ISO_8859_1);
+                byte[] frame = new byte[payload.length + 3];
+                frame[0] = VT;
+                System.arraycopy(payload, 0, frame, 1, payload.length);
+                frame[frame.length - 2] = FS;
+                frame[frame.length - 1] = CR;
+                OutputStream out = socket.getOutputStream();
+                out.write(frame);
+                out.flush();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+    }
+
+    // Amostras de tempo em nanossegundos num array primitivo (sem boxing)
+    private static class LongSamples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongSamples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        Map<String, Double> percentilesMs() {
+            Map<String, Double> result = new LinkedHashMap<>();
+            if (size == 0) {
+                return result;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            result.put("p50", percentile(sorted, 0.50));
+            result.put("p90", percentile(sorted, 0.90));
+            result.put("p99", percentile(sorted, 0.99));
+            result.put("p999", percentile(sorted, 0.999));
+            result.put("max", sorted[sorted.length - 1] / 1e6);
+            return result;
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.integration.channel.LoopbackSerialPorts;
+import com.lab.api.integration.channel.SerialChannel;
+import com.lab.api.integration.channel.SerialChannels;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analisador serial: a outra ponta do cabo do equipamento. Com 'loop:' usa a ponta do equipamento do cabo
+ * virtual; com uma porta real ('port-name', ex: COM5 do par com0com COM3 <=> COM5) abre a porta pelo jSerialComm.
+ */
+abstract class SerialVirtualAnalyzer extends VirtualAnalyzer {
+
+    private static final byte[] LOST = new byte[0];
+
+    private final String portName;
+    private final BlockingQueue<byte[]> inbox = new LinkedBlockingQueue<>();
+    private SerialChannel channel;
+    private byte[] current = new byte[0];
+    private int position;
+
+    SerialVirtualAnalyzer(String name, EquipmentConfig target, String portName, long timeoutMillis) {
+        super(name, target, timeoutMillis);
+        this.portName = portName;
+    }
+
+    @Override
+    void connect() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            return;
+        }
+        CommunicationConfig communication = target.getCommunication();
+        SerialChannel candidate;
+        if (portName == null && LoopbackSerialPorts.isLoopback(communication.getPortName())) {
+            candidate = LoopbackSerialPorts.equipmentEnd(communication);
+        } else {
+            CommunicationConfig analyzerSide = new CommunicationConfig();
+            analyzerSide.setType(communication.getType());
+            analyzerSide.setPortName(portName != null ? portName : communication.getPortName());
+            analyzerSide.setBaudRate(communication.getBaudRate());
+            analyzerSide.setDataBits(communication.getDataBits());
+            analyzerSide.setStopBits(communication.getStopBits());
+            analyzerSide.setParity(communication.getParity());
+            candidate = SerialChannels.create(analyzerSide);
+            if (!candidate.open()) {
+                throw new IOException("Não foi possível abrir a porta " + candidate.describe());
+            }
+        }
+        inbox.clear();
+        current = new byte[0];
+        position = 0;
+        channel = candidate;
+        candidate.setListener(new SerialChannel.Listener() {
+            @Override
+            public void onData(byte[] data) {
+                received(data);
+            }
+
+            @Override
+            public void onLost() {
+                inbox.add(LOST);
+            }
+        });
+    }
+
+    // Dados recebidos da API, na thread do canal
+    protected void received(byte[] data) {
+        inbox.add(data);
+    }
+
+    protected void write(byte[] data) throws IOException {
+        if (channel.write(data, data.length) < 0) {
+            throw new IOException("Falha ao escrever em " + channel.describe());
+        }
+    }
+
+    // Próximo byte recebido da API, esperando até 'deadline' (System.nanoTime)
+    protected int nextByte(long deadline) throws IOException, InterruptedException {
+        while (position >= current.length) {
+            long remaining = deadline - System.nanoTime();
+            byte[] data = remaining > 0 ? inbox.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (data == null) {
+                throw new IOException("Sem resposta da API em " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+            }
+            if (data == LOST) {
+                throw new IOException("Porta " + channel.describe() + " perdida");
+            }
+            current = data;
+            position = 0;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    // Descarta o que sobrou de trocas anteriores (ex: resposta que chegou depois do timeout)
+    protected void discardPending() {
+        inbox.clear();
+        current = new byte[0];
+        position = 0;
+    }
+
+    @Override
+    void close() {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
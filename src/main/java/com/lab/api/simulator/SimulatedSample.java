@@ -0,0 +1,73 @@
+package com.lab.api.simulator;
+
+import com.lab.api.domain.ProtocolType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Amostra gerada pelo simulador: ID único na execução, paciente e exames com valores plausíveis
+ * (bioquímica para ASTM e HIF, imunoensaio para HL7), sorteados entre 80% do limite inferior e 120% do superior.
+ */
+record SimulatedSample(String sampleId, String patientId, String lastName, String firstName, List<Test> tests) {
+
+    record Test(String code, String value, String units, String range) {
+    }
+
+    private record Analyte(String code, String units, double low, double high, int decimals) {
+    }
+
+    private static final List<Analyte> CHEMISTRY = List.of(
+            new Analyte("GLU", "mg/dL", 70, 99, 0),
+            new Analyte("CREA", "mg/dL", 0.6, 1.3, 2),
+            new Analyte("UREA", "mg/dL", 15, 45, 0),
+            new Analyte("ALT", "U/L", 7, 56, 0),
+            new Analyte("AST", "U/L", 10, 40, 0),
+            new Analyte("CHOL", "mg/dL", 120, 200, 0),
+            new Analyte("TRIG", "mg/dL", 50, 150, 0),
+            new Analyte("ALB", "g/dL", 3.5, 5.0, 1));
+
+    private static final List<Analyte> IMMUNOASSAY = List.of(
+            new Analyte("TSH", "uIU/mL", 0.4, 4.0, 2),
+            new Analyte("FT4", "ng/dL", 0.8, 1.8, 2),
+            new Analyte("PSA", "ng/mL", 0.1, 4.0, 2),
+            new Analyte("FERR", "ng/mL", 20, 300, 0),
+            new Analyte("B12", "pg/mL", 200, 900, 0),
+            new Analyte("VITD", "ng/mL", 20, 60, 1));
+
+    private static final String[][] PATIENTS = {
+            {"SILVA", "MARIA"}, {"SOUZA", "JOAO"}, {"OLIVEIRA", "ANA"}, {"SANTOS", "PEDRO"},
+            {"PEREIRA", "JULIA"}, {"COSTA", "LUCAS"}, {"RODRIGUES", "BEATRIZ"}, {"ALMEIDA", "RAFAEL"}};
+
+    // Gera os IDs da execução: prefixo da execução + sequência (ex: SIM7F3A0000042)
+    static final class Generator {
+        private final String prefix;
+        private final AtomicLong sequence = new AtomicLong();
+
+        Generator(String runId) {
+            this.prefix = "SIM" + runId.toUpperCase(Locale.ROOT);
+        }
+
+        SimulatedSample next(ProtocolType protocol, int testCount) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long number = sequence.incrementAndGet();
+            List<Analyte> panel = protocol == ProtocolType.HL7 ? IMMUNOASSAY : CHEMISTRY;
+            // O bloco de resultados do HIF leva um exame por amostra
+            int count = protocol == ProtocolType.ROCHE_HIF ? 1 : Math.max(1, Math.min(testCount, panel.size()));
+            int first = random.nextInt(panel.size());
+            List<Test> tests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Analyte analyte = panel.get((first + i) % panel.size());
+                double value = random.nextDouble(analyte.low() * 0.8, analyte.high() * 1.2);
+                tests.add(new Test(analyte.code(), String.format(Locale.ROOT, "%." + analyte.decimals() + "f", value),
+                        analyte.units(), analyte.low() + "-" + analyte.high()));
+            }
+            String[] patient = PATIENTS[(int) (number % PATIENTS.length)];
+            return new SimulatedSample(String.format("%s%07d", prefix, number), String.format("PAT%07d", number),
+                    patient[0], patient[1], tests);
+        }
+    }
+}
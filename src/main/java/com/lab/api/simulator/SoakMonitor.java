@@ -0,0 +1,187 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.SimulatorProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Amostras do teste de longa duração (soak): heap após GC, threads, descritores de arquivo abertos e a
+ * latência do intervalo. Vazamentos aparecem como tendência de alta constante; {@link #evaluate()} calcula a
+ * inclinação (mínimos quadrados, por hora) de cada série após o aquecimento e compara com os limites.
+ */
+@Slf4j
+class SoakMonitor {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Amostras entre os logs de tendência parcial
+    private static final int TREND_LOG_EVERY = 10;
+    // Janela mínima após o aquecimento para julgar a tendência: em poucos minutos a extrapolação por hora é só ruído
+    private static final double MIN_EVALUATED_MINUTES = 30;
+
+    private final SimulatorProperties.Soak properties;
+    private final List<Sample> samples = new ArrayList<>();
+    private BufferedWriter csv;
+
+    record Sample(double elapsedSeconds, double messagesPerSecond, double p50Millis, double p99Millis, long errors,
+                  double heapAfterGcMb, int threads, long openFds) {
+    }
+
+    private record Trend(String name, String unit, double slopePerHour, double limit) {
+        boolean passed() {
+            return Double.isNaN(slopePerHour) || slopePerHour <= limit;
+        }
+    }
+
+    SoakMonitor(SimulatorProperties.Soak properties) {
+        this.properties = properties;
+        if (properties.getReportDir() != null && !properties.getReportDir().isBlank()) {
+            Path file = Path.of(properties.getReportDir(), "soak-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".csv");
+            try {
+                Files.createDirectories(file.getParent());
+                csv = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                csv.write("elapsed_s,msg_per_s,p50_ms,p99_ms,errors,heap_after_gc_mb,threads,open_fds\n");
+                log.info("[SOAK] Amostras em {}", file.toAbsolutePath());
+            } catch (IOException e) {
+                log.warn("[SOAK] Não foi possível criar o relatório {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    synchronized void sample(LoadReport.Interval interval) {
+        Sample sample = new Sample(interval.elapsedSeconds(), interval.messagesPerSecond(), interval.p50Millis(),
+                interval.p99Millis(), interval.errors(), heapAfterGcMb(), ManagementFactory.getThreadMXBean().getThreadCount(),
+                openFileDescriptors());
+        samples.add(sample);
+        log.info(String.format(Locale.ROOT, "[SOAK] heap após GC %.1f MB, %d threads, %d descritores abertos.",
+                sample.heapAfterGcMb(), sample.threads(), sample.openFds()));
+        if (csv != null) {
+            try {
+                csv.write(String.format(Locale.ROOT, "%.0f,%.2f,%.2f,%.2f,%d,%.2f,%d,%d%n", sample.elapsedSeconds(),
+                        sample.messagesPerSecond(), sample.p50Millis(), sample.p99Millis(), sample.errors(),
+                        sample.heapAfterGcMb(), sample.threads(), sample.openFds()));
+                csv.flush();
+            } catch (IOException e) {
+                log.warn("[SOAK] Falha ao gravar a amostra: {}", e.getMessage());
+                closeCsv();
+            }
+        }
+        if (samples.size() % TREND_LOG_EVERY == 0) {
+            trends().forEach(trend -> log.info(String.format(Locale.ROOT, "[SOAK] Tendência parcial de %s: %+.2f %s/h (limite %.2f).",
+                    trend.name(), trend.slopePerHour(), trend.unit(), trend.limit())));
+        }
+    }
+
+    // true se nenhuma série cresce acima do limite; registra o resumo no log
+    synchronized boolean evaluate() {
+        closeCsv();
+        List<Trend> trends = trends();
+        List<Sample> measuredSamples = samples.stream().filter(this::afterWarmup).toList();
+        long measured = measuredSamples.size();
+        double spanMinutes = measured < 2 ? 0
+                : (measuredSamples.get(measuredSamples.size() - 1).elapsedSeconds() - measuredSamples.get(0).elapsedSeconds()) / 60.0;
+        if (measured < 3 || spanMinutes < MIN_EVALUATED_MINUTES) {
+            log.warn(String.format(Locale.ROOT, "[SOAK] Apenas %d amostra(s) em %.1f min após o aquecimento de %d min: "
+                            + "tendência não avaliada (mínimo de %.0f min). Aumente a duração.",
+                    measured, spanMinutes, properties.getWarmupMinutes(), MIN_EVALUATED_MINUTES));
+            return true;
+        }
+        boolean passed = true;
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "%n%-22s %14s %14s %10s%n", "Série", "Tendência/h", "Limite/h", "Situação"));
+        for (Trend trend : trends) {
+            passed &= trend.passed();
+            summary.append(String.format(Locale.ROOT, "%-22s %11.2f %-2s %11.2f %-2s %10s%n", trend.name(), trend.slopePerHour(),
+                    trend.unit(), trend.limit(), trend.unit(), trend.passed() ? "OK" : "REPROVADO"));
+        }
+        if (passed) {
+            log.info("[SOAK] Aprovado ({} amostras após o aquecimento):{}", measured, summary);
+        } else {
+            log.error("[SOAK] Reprovado: crescimento acima do limite ({} amostras após o aquecimento):{}", measured, summary);
+        }
+        return passed;
+    }
+
+    private List<Trend> trends() {
+        return List.of(
+                new Trend("heap após GC", "MB", slopePerHour(Sample::heapAfterGcMb), properties.getMaxHeapGrowthMbPerHour()),
+                new Trend("threads", "", slopePerHour(Sample::threads), properties.getMaxThreadGrowthPerHour()),
+                new Trend("descritores abertos", "", slopePerHour(sample -> sample.openFds() < 0 ? Double.NaN : sample.openFds()),
+                        properties.getMaxFdGrowthPerHour()),
+                new Trend("latência p99", "ms", slopePerHour(Sample::p99Millis), properties.getMaxP99GrowthMsPerHour()));
+    }
+
+    // Inclinação da reta de mínimos quadrados, em unidades por hora; NaN sem dados suficientes
+    private double slopePerHour(ToDoubleFunction<Sample> series) {
+        double n = 0, sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (Sample sample : samples) {
+            double y = series.applyAsDouble(sample);
+            if (!afterWarmup(sample) || Double.isNaN(y)) continue;
+            double x = sample.elapsedSeconds() / 3600.0;
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return n < 3 || denominator == 0 ? Double.NaN : (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    private boolean afterWarmup(Sample sample) {
+        return sample.elapsedSeconds() >= properties.getWarmupMinutes() * 60.0;
+    }
+
+    /**
+     * Heap que sobrevive à coleta. Com force-gc, o uso logo após um System.gc(); senão, a soma do uso
+     * registrado ao fim da última coleta de cada área do heap (pode ficar defasado sem coletas da old gen).
+     */
+    private double heapAfterGcMb() {
+        if (properties.isForceGc()) {
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterGc != null) {
+                used += afterGc.getUsed();
+            }
+        }
+        return used / (1024.0 * 1024.0);
+    }
+
+    // Descritores abertos pelo processo (Linux/macOS); -1 onde a JVM não informa (Windows)
+    private static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean unix) {
+            return unix.getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    private void closeCsv() {
+        if (csv != null) {
+            try {
+                csv.close();
+            } catch (IOException e) {
+                log.warn("[SOAK] Falha ao fechar o relatório: {}", e.getMessage());
+            }
+            csv = null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.lab.api.simulator;
+
+import com.lab.api.config.EquipmentConfig;
+
+import java.io.IOException;
+
+/**
+ * Um analisador simulado pelo gerador de carga, ligado a um equipamento da API. Cada analisador é usado
+ * por uma única thread; uma falha (timeout, resposta inválida, conexão perdida) é lançada e o gerador
+ * fecha o analisador, que reconecta na próxima mensagem.
+ */
+abstract class VirtualAnalyzer {
+
+    protected final String name;
+    protected final EquipmentConfig target;
+    protected final long timeoutNanos;
+
+    VirtualAnalyzer(String name, EquipmentConfig target, long timeoutMillis) {
+        this.name = name;
+        this.target = target;
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Abre a conexão/porta, se ainda não estiver aberta
+    abstract void connect() throws IOException;
+
+    // Envia os resultados da amostra e espera a confirmação da API
+    abstract void sendResult(SimulatedSample sample) throws IOException, InterruptedException;
+
+    // Consulta as ordens da amostra e confere a resposta da API
+    void sendQuery(SimulatedSample sample) throws IOException, InterruptedException {
+        throw new UnsupportedOperationException(target.getProtocol() + " não tem query iniciada pelo equipamento.");
+    }
+
+    boolean supportsQueries() {
+        return false;
+    }
+
+    abstract void close();
+}
@@ -0,0 +1,88 @@
+package com.lab.api.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receptor local do webhook de resultados, para testes e medição de vazão do outbox.
+ * Ativo nos perfis 'dev' e 'webhook-stub'; aponte 'webhook.url' para http://localhost:8080/stub/webhook.
+ * Com 'webhook.stub.failure-rate' > 0, parte dos lotes é recusada com 503 para exercitar as retentativas.
+ */
+@RestController
+@RequestMapping("/stub/webhook")
+@Profile({"dev", "webhook-stub"})
+@Slf4j
+public class WebhookStubReceiver {
+
+    private final double failureRate;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejectedBatches = new AtomicLong();
+    private final Set<Long> seenEventIds = ConcurrentHashMap.newKeySet();
+    private volatile long firstBatchAt;
+    private volatile long lastBatchAt;
+
+    public WebhookStubReceiver(@Value("${webhook.stub.failure-rate:0}") double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    @PostMapping
+    public ResponseEntity<Void> receive(@RequestBody JsonNode batch) {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            rejectedBatches.incrementAndGet();
+            return ResponseEntity.status(503).build();
+        }
+
+        long now = System.currentTimeMillis();
+        if (firstBatchAt == 0) {
+            firstBatchAt = now;
+        }
+        lastBatchAt = now;
+        batches.incrementAndGet();
+
+        for (JsonNode event : batch) {
+            events.incrementAndGet();
+            if (!seenEventIds.add(event.path("eventId").asLong())) {
+                duplicates.incrementAndGet(); // Esperado ocasionalmente: a entrega é "pelo menos uma vez"
+            }
+        }
+        log.debug("[STUB WEBHOOK] Lote com {} resultados recebido.", batch.size());
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        long elapsedMs = Math.max(1, lastBatchAt - firstBatchAt);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.get());
+        stats.put("events", events.get());
+        stats.put("uniqueEvents", seenEventIds.size());
+        stats.put("duplicates", duplicates.get());
+        stats.put("rejectedBatches", rejectedBatches.get());
+        stats.put("eventsPerSecond", batches.get() > 1 ? events.get() * 1000.0 / elapsedMs : 0);
+        return stats;
+    }
+
+    @DeleteMapping("/stats")
+    public void reset() {
+        batches.set(0);
+        events.set(0);
+        duplicates.set(0);
+        rejectedBatches.set(0);
+        seenEventIds.clear();
+        firstBatchAt = 0;
+        lastBatchAt = 0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.lab.api.controller;
+
+import com.lab.api.domain.LabOrder;
+import com.lab.api.domain.OrderStatus;
+import com.lab.api.service.LabOrderRepository;
+import com.lab.api.service.LabOrderService;
+import com.lab.api.service.OrderEventStreamService;
+import com.lab.api.service.OrderVersionCache;
+import com.lab.api.service.ResultOutboxService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class OrderKeysetPaginationTest {
+
+	private static final LocalDateTime SAME_INSTANT = LocalDateTime.of(2026, 1, 10, 8, 0);
+
+	@Autowired
+	private LabOrderRepository repository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private LabOrderController controller;
+
+	@BeforeEach
+	void setUp() {
+		LabOrderService service = new LabOrderService(repository, entityManager,
+				mock(ApplicationEventPublisher.class), mock(ResultOutboxService.class));
+		controller = new LabOrderController(service, null, new OrderVersionCache(1000, 30000, false),
+				mock(OrderEventStreamService.class));
+	}
+
+	@Test
+	void percorreTodasAsOrdensComUpdatedAtEmpatadoSemRepetirNemPular() {
+		List<Long> ids = save(7, OrderStatus.PENDING);
+		// Todas no mesmo instante: só o id desempata, e o cursor não pode depender da data
+		entityManager.createQuery("UPDATE LabOrder o SET o.updatedAt = :t").setParameter("t", SAME_INSTANT).executeUpdate();
+		entityManager.clear();
+
+		List<Long> seen = new ArrayList<>();
+		long cursor = 0;
+		int pages = 0;
+		OrderPageDto page;
+		do {
+			page = controller.getAllOrders(cursor, 3, new OrderFilterDto()).getBody();
+			page.getItems().forEach(item -> seen.add(item.getId()));
+			if (page.getNextCursor() != null) {
+				cursor = page.getNextCursor();
+			}
+			pages++;
+		} while (page.isHasMore());
+
+		assertThat(seen).containsExactlyElementsOf(ids);
+		assertThat(pages).isEqualTo(3);
+	}
+
+	@Test
+	void paginaExataNaoAnunciaProximaPagina() {
+		List<Long> ids = save(3, OrderStatus.PENDING);
+
+		OrderPageDto page = controller.getAllOrders(0, 3, new OrderFilterDto()).getBody();
+
+		assertThat(page.getItems()).hasSize(3);
+		assertThat(page.isHasMore()).isFalse();
+		assertThat(page.getNextCursor()).isEqualTo(ids.get(2));
+	}
+
+	@Test
+	void cursorNoUltimoIdDevolvePaginaVaziaSemCursor() {
+		List<Long> ids = save(2, OrderStatus.PENDING);
+
+		OrderPageDto page = controller.getAllOrders(ids.get(1), 10, new OrderFilterDto()).getBody();
+
+		assertThat(page.getItems()).isEmpty();
+		assertThat(page.isHasMore()).isFalse();
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void cursorEhExclusivoEFiltroNaoPulaOrdensDoStatus() {
+		List<Long> pending = save(2, OrderStatus.PENDING);
+		List<Long> completed = save(3, OrderStatus.COMPLETED);
+
+		OrderFilterDto filter = new OrderFilterDto();
+		filter.setStatus(OrderStatus.COMPLETED);
+		OrderPageDto first = controller.getAllOrders(pending.get(1), 2, filter).getBody();
+		OrderPageDto second = controller.getAllOrders(first.getNextCursor(), 2, filter).getBody();
+
+		assertThat(first.getItems()).extracting(OrderResponseDto::getId).containsExactly(completed.get(0), completed.get(1));
+		assertThat(first.isHasMore()).isTrue();
+		assertThat(second.getItems()).extracting(OrderResponseDto::getId).containsExactly(completed.get(2));
+		assertThat(second.isHasMore()).isFalse();
+	}
+
+	@Test
+	void intervaloDeDatasIncluiOInicioEExcluiOFim() {
+		List<Long> ids = save(3, OrderStatus.PENDING);
+		setUpdatedAt(ids.get(0), SAME_INSTANT.minusNanos(1000));
+		setUpdatedAt(ids.get(1), SAME_INSTANT);
+		setUpdatedAt(ids.get(2), SAME_INSTANT.plusHours(1));
+		entityManager.clear();
+
+		OrderFilterDto filter = new OrderFilterDto();
+		filter.setFrom(SAME_INSTANT);
+		filter.setTo(SAME_INSTANT.plusHours(1));
+		OrderPageDto page = controller.getAllOrders(0, 10, filter).getBody();
+
+		assertThat(page.getItems()).extracting(OrderResponseDto::getId).containsExactly(ids.get(1));
+	}
+
+	private List<Long> save(int count, OrderStatus status) {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LabOrder order = new LabOrder();
+			order.setSampleId("S" + status + i);
+			order.setTestType("GLU");
+			order.setStatus(status);
+			ids.add(repository.saveAndFlush(order).getId());
+		}
+		return ids;
+	}
+
+	private void setUpdatedAt(Long id, LocalDateTime updatedAt) {
+		// UPDATE em massa não passa pelo @PreUpdate, que sobrescreveria a data
+		entityManager.createQuery("UPDATE LabOrder o SET o.updatedAt = :t WHERE o.id = :id")
+				.setParameter("t", updatedAt).setParameter("id", id).executeUpdate();
+	}
+}
@@ -0,0 +1,170 @@
+package com.lab.api.integration;
+
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.domain.EquipmentLease;
+import com.lab.api.service.ClusterNodeRepository;
+import com.lab.api.service.EquipmentLeaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterCoordinatorTest {
+
+	private static final String NODE = "node-a";
+	private static final String EQUIPMENT = "architect";
+
+	private final ClusterProperties clusterProperties = new ClusterProperties();
+	private final EquipmentListenerManager listenerManager = mock(EquipmentListenerManager.class);
+	private final EquipmentLeaseRepository leaseRepository = mock(EquipmentLeaseRepository.class);
+	private final ClusterNodeRepository nodeRepository = mock(ClusterNodeRepository.class);
+	// startOwned/stopOwned são synchronized: um verify com timeout seguraria o monitor do mock e travaria o handoff
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private ClusterCoordinator coordinator;
+
+	@BeforeEach
+	void setUp() {
+		doAnswer(invocation -> {
+			started.countDown();
+			return null;
+		}).when(listenerManager).startOwned(EQUIPMENT);
+		doAnswer(invocation -> {
+			stopped.countDown();
+			return null;
+		}).when(listenerManager).stopOwned(EQUIPMENT, false);
+		clusterProperties.setEnabled(true);
+		clusterProperties.setNodeId(NODE);
+		clusterProperties.setLeaseSeconds(1);
+		clusterProperties.setHeartbeatMs(200);
+		EquipmentConfig config = new EquipmentConfig();
+		config.setName("ARCHITECT");
+		config.setEnabled(true);
+		EquipmentProperties equipmentProperties = new EquipmentProperties();
+		equipmentProperties.setDevices(Map.of(EQUIPMENT, config));
+		coordinator = new ClusterCoordinator(clusterProperties, equipmentProperties, listenerManager, leaseRepository, nodeRepository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		coordinator.leaveCluster();
+	}
+
+	@Test
+	void assumeOLeaseExpiradoDeOutroNo() throws InterruptedException {
+		leaseOwnedBy("node-b", LocalDateTime.now().minusSeconds(5));
+		when(leaseRepository.acquire(eq(EQUIPMENT), eq(NODE), any(), any())).thenReturn(1);
+
+		coordinator.rebalance();
+
+		verify(leaseRepository).acquire(eq(EQUIPMENT), eq(NODE), any(), any());
+		assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void naoAssumeOLeaseVigenteDeOutroNo() {
+		leaseOwnedBy("node-b", LocalDateTime.now().plusSeconds(5));
+
+		coordinator.rebalance();
+
+		verify(leaseRepository, never()).acquire(anyString(), anyString(), any(), any());
+		verify(leaseRepository, never()).insert(anyString(), anyString(), any(), any());
+	}
+
+	@Test
+	void fechaAPortaNaHoraQuandoOutroNoAssumeOLease() throws InterruptedException {
+		acquire();
+		when(leaseRepository.renew(eq(EQUIPMENT), eq(NODE), any())).thenReturn(0);
+
+		coordinator.heartbeat();
+
+		verify(listenerManager).fence(EQUIPMENT);
+		assertThat(stopped.await(2, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void renovacaoConfirmadaAdiaOFechamento() throws InterruptedException {
+		acquire();
+		when(leaseRepository.renew(eq(EQUIPMENT), eq(NODE), any())).thenReturn(1);
+		Thread.sleep(500);
+
+		coordinator.heartbeat();
+		Thread.sleep(500);
+		coordinator.fenceExpiring();
+
+		verify(listenerManager, never()).fence(anyString());
+	}
+
+	@Test
+	void fechaAPortaQuandoARenovacaoFalhaAlemDoPrazo() throws InterruptedException {
+		acquire();
+		when(leaseRepository.renew(eq(EQUIPMENT), eq(NODE), any())).thenThrow(new DataAccessResourceFailureException("banco inacessível"));
+
+		coordinator.heartbeat();
+		coordinator.fenceExpiring();
+		verify(listenerManager, never()).fence(anyString());
+
+		// lease-seconds (1 s) menos um heartbeat (200 ms) sem renovação
+		Thread.sleep(900);
+		coordinator.fenceExpiring();
+		verify(listenerManager).fence(EQUIPMENT);
+	}
+
+	@Test
+	void fechaAPortaMesmoComOHeartbeatTravadoNoBanco() throws InterruptedException {
+		acquire();
+		CountDownLatch release = new CountDownLatch(1);
+		when(leaseRepository.renew(eq(EQUIPMENT), eq(NODE), any())).thenAnswer(invocation -> {
+			release.await();
+			return 1;
+		});
+		coordinator.startFence();
+		Thread heartbeat = new Thread(coordinator::heartbeat);
+		heartbeat.start();
+		try {
+			// A renovação nunca volta: quem fecha a porta é a thread cluster-fence
+			verify(listenerManager, timeout(3000)).fence(EQUIPMENT);
+		} finally {
+			release.countDown();
+			heartbeat.join(2000);
+		}
+		// A renovação atrasada não devolve o lease ao nó
+		coordinator.fenceExpiring();
+		verify(listenerManager).fence(EQUIPMENT);
+	}
+
+	private void acquire() throws InterruptedException {
+		when(leaseRepository.findAllById(List.of(EQUIPMENT))).thenReturn(List.of());
+		when(leaseRepository.insert(eq(EQUIPMENT), eq(NODE), any(), any())).thenReturn(1);
+		coordinator.rebalance();
+		assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private void leaseOwnedBy(String owner, LocalDateTime expiresAt) {
+		EquipmentLease lease = new EquipmentLease();
+		lease.setEquipmentId(EQUIPMENT);
+		lease.setOwner(owner);
+		lease.setAcquiredAt(expiresAt.minusSeconds(10));
+		lease.setExpiresAt(expiresAt);
+		when(leaseRepository.findAllById(List.of(EQUIPMENT))).thenReturn(List.of(lease));
+	}
+}
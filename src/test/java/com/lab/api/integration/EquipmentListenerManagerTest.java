@@ -0,0 +1,238 @@
+package com.lab.api.integration;
+
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.controller.EquipmentStatusDto;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.integration.channel.LoopbackSerialChannel;
+import com.lab.api.integration.channel.LoopbackSerialPorts;
+import com.lab.api.integration.common.MessageHandler;
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class EquipmentListenerManagerTest {
+
+	private static final byte STX = 0x02;
+	private static final byte ETX = 0x03;
+	private static final byte EOT = 0x04;
+	private static final byte ENQ = 0x05;
+	private static final byte ACK = 0x06;
+	private static final byte NAK = 0x15;
+
+	private static final String MESSAGE = "H|\\^&|||ARCHITECT\rP|1\rR|1|^^^GLU|98|mg/dL\rL|1|N\r";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final List<String> handled = new CopyOnWriteArrayList<>();
+	private final EquipmentProperties properties = new EquipmentProperties();
+	private final MessageAuditService audit = mock(MessageAuditService.class);
+	private final Map<String, LoopbackSerialChannel> equipments = new LinkedHashMap<>();
+	private String portPrefix;
+	private EquipmentListenerManager manager;
+
+	@BeforeEach
+	void setUp(TestInfo test) throws InterruptedException {
+		portPrefix = LoopbackSerialPorts.PREFIX + test.getTestMethod().orElseThrow().getName() + "-";
+		Map<String, EquipmentConfig> devices = new LinkedHashMap<>();
+		devices.put("architect", serial("ARCHITECT", "architect"));
+		devices.put("cobas", serial("COBAS", "cobas"));
+		properties.setDevices(devices);
+		properties.assignIds();
+		properties.setDrainTimeoutSeconds(5);
+		MessageHandler handler = (message, source) -> {
+			handled.add(message);
+			return null;
+		};
+		manager = new EquipmentListenerManager(properties, audit,
+				new LabMetrics(registry, new MessageTracer()), new ClusterProperties(), handler);
+		manager.initializeListeners();
+		waitFor(() -> "UP".equals(state("architect")) && "UP".equals(state("cobas")));
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.drainAndClose();
+		equipments.values().forEach(LoopbackSerialChannel::close);
+		equipments.keySet().forEach(LoopbackSerialPorts::unplug);
+	}
+
+	@Test
+	void putEquipmentEsperaATransmissaoEmAndamentoAntesDeReconfigurar() throws Exception {
+		LoopbackSerialChannel architect = equipment("architect");
+		assertThat(send(architect, new byte[]{ENQ})).isEqualTo(ACK);
+
+		EquipmentConfig changed = serial("ARCHITECT", "architect");
+		changed.setMaxIdleSeconds(60);
+		CompletableFuture<EquipmentStatusDto> put = CompletableFuture.supplyAsync(() -> manager.putEquipment("architect", changed));
+		waitFor(() -> "DRAINING".equals(state("architect")));
+
+		// A transmissão em andamento é concluída; o outro equipamento não é tocado
+		assertThat(put).isNotDone();
+		assertThat(state("cobas")).isEqualTo("UP");
+		assertThat(send(architect, frame('1', MESSAGE))).isEqualTo(ACK);
+		architect.write(new byte[]{EOT}, 1);
+
+		put.get(10, TimeUnit.SECONDS);
+		assertThat(handled).containsExactly(MESSAGE);
+		assertThat(properties.getDevices().get("architect").getMaxIdleSeconds()).isEqualTo(60);
+		// Listener novo na mesma porta, já aceitando transmissões
+		waitFor(() -> "UP".equals(state("architect")));
+		assertThat(send(architect, new byte[]{ENQ})).isEqualTo(ACK);
+		architect.write(new byte[]{EOT}, 1);
+	}
+
+	@Test
+	void removeEquipmentDrenaEFechaSoOEquipamentoRemovido() throws Exception {
+		LoopbackSerialChannel architect = equipment("architect");
+		assertThat(send(architect, new byte[]{ENQ})).isEqualTo(ACK);
+
+		CompletableFuture<Boolean> remove = CompletableFuture.supplyAsync(() -> manager.removeEquipment("architect"));
+		waitFor(() -> "DRAINING".equals(state("architect")));
+		assertThat(remove).isNotDone();
+		assertThat(send(architect, frame('1', MESSAGE))).isEqualTo(ACK);
+		architect.write(new byte[]{EOT}, 1);
+
+		assertThat(remove.get(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(handled).containsExactly(MESSAGE);
+		assertThat(manager.getStatus("architect")).isEmpty();
+		assertThat(properties.getDevices()).doesNotContainKey("architect");
+		assertThat(state("cobas")).isEqualTo("UP");
+		assertThat(manager.removeEquipment("architect")).isFalse();
+	}
+
+	@Test
+	void recusaEquipamentoHabilitadoNaPortaDeOutro() {
+		EquipmentConfig duplicate = serial("ARCHITECT 2", "architect");
+
+		assertThatThrownBy(() -> manager.putEquipment("architect-2", duplicate))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("já é usado por architect");
+		assertThat(properties.getDevices()).doesNotContainKey("architect-2");
+		assertThat(state("architect")).isEqualTo("UP");
+
+		// Desabilitado não disputa a porta (ex: cadastro reserva do mesmo cabo)
+		duplicate.setEnabled(false);
+		assertThat(manager.putEquipment("architect-2", duplicate).getState()).isEqualTo("DISABLED");
+	}
+
+	@Test
+	void recusaNomeJaUsadoPorOutroEquipamento() {
+		assertThatThrownBy(() -> manager.putEquipment("cobas-2", serial("COBAS", "cobas-2")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("nome já usado por cobas");
+		assertThat(properties.getDevices()).doesNotContainKey("cobas-2");
+	}
+
+	@Test
+	void drainAndCloseConcluiATransmissaoEmAndamentoAntesDeFecharAsPortas() throws Exception {
+		LoopbackSerialChannel architect = equipment("architect");
+		LoopbackSerialChannel cobas = equipment("cobas");
+		assertThat(send(architect, new byte[]{ENQ})).isEqualTo(ACK);
+
+		CompletableFuture<Void> shutdown = CompletableFuture.runAsync(manager::drainAndClose);
+		waitFor(() -> "DRAINING".equals(state("cobas")));
+		// Todos param de aceitar transmissões novas ao mesmo tempo; a que está em andamento segue
+		assertThat(send(cobas, new byte[]{ENQ})).isEqualTo(NAK);
+		assertThat(shutdown).isNotDone();
+		assertThat(send(architect, frame('1', MESSAGE))).isEqualTo(ACK);
+		architect.write(new byte[]{EOT}, 1);
+
+		shutdown.get(5, TimeUnit.SECONDS);
+		assertThat(handled).containsExactly(MESSAGE);
+		verify(audit).flush(anyLong());
+		assertThat(state("architect")).isEqualTo("STOPPED");
+		assertThat(state("cobas")).isEqualTo("STOPPED");
+	}
+
+	@Test
+	void drainAndCloseDesisteDaTransmissaoPresaAposShutdownTimeoutSeconds() throws InterruptedException {
+		properties.setShutdownTimeoutSeconds(1);
+		LoopbackSerialChannel architect = equipment("architect");
+		assertThat(send(architect, new byte[]{ENQ})).isEqualTo(ACK);
+
+		// O equipamento nunca termina a transmissão
+		long started = System.nanoTime();
+		manager.drainAndClose();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+		assertThat(elapsedMs).isBetween(1000L, 4000L);
+		assertThat(handled).isEmpty();
+		assertThat(state("architect")).isEqualTo("STOPPED");
+		assertThat(state("cobas")).isEqualTo("STOPPED");
+	}
+
+	private EquipmentConfig serial(String name, String port) {
+		CommunicationConfig communication = new CommunicationConfig();
+		communication.setType(CommunicationType.SERIAL);
+		communication.setPortName(portPrefix + port);
+		EquipmentConfig config = new EquipmentConfig();
+		config.setName(name);
+		config.setEnabled(true);
+		config.setProtocol(ProtocolType.ASTM);
+		config.setCommunication(communication);
+		return config;
+	}
+
+	private LoopbackSerialChannel equipment(String id) {
+		return equipments.computeIfAbsent(properties.getDevices().get(id).getCommunication().getPortName(),
+				port -> LoopbackSerialPorts.equipmentEnd(properties.getDevices().get(id).getCommunication()));
+	}
+
+	private String state(String id) {
+		return manager.getStatus(id).map(EquipmentStatusDto::getState).orElse(null);
+	}
+
+	// Envia os bytes pela ponta do equipamento e devolve a primeira resposta do listener (ACK/NAK)
+	private static byte send(LoopbackSerialChannel equipment, byte[] data) throws InterruptedException {
+		equipment.write(data, data.length);
+		byte[] reply = equipment.await(TimeUnit.SECONDS.toNanos(5));
+		assertThat(reply).isNotNull().isNotEmpty();
+		return reply[0];
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	// Frame ASTM E1381: STX, número, texto, ETX, checksum (soma do número até o ETX, módulo 256), CR LF
+	private static byte[] frame(char number, String text) {
+		byte[] body = (number + text + (char) ETX).getBytes(StandardCharsets.ISO_8859_1);
+		int sum = 0;
+		for (byte b : body) {
+			sum += b & 0xFF;
+		}
+		byte[] checksum = String.format("%02X\r\n", sum & 0xFF).getBytes(StandardCharsets.ISO_8859_1);
+		byte[] frame = new byte[1 + body.length + checksum.length];
+		frame[0] = STX;
+		System.arraycopy(body, 0, frame, 1, body.length);
+		System.arraycopy(checksum, 0, frame, 1 + body.length, checksum.length);
+		return frame;
+	}
+}
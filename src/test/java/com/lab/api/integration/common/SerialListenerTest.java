@@ -0,0 +1,173 @@
+package com.lab.api.integration.common;
+
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.integration.channel.LoopbackSerialChannel;
+import com.lab.api.integration.channel.LoopbackSerialPorts;
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SerialListenerTest {
+
+	private static final byte STX = 0x02;
+	private static final byte ETX = 0x03;
+	private static final byte EOT = 0x04;
+	private static final byte ENQ = 0x05;
+	private static final byte ACK = 0x06;
+	private static final byte NAK = 0x15;
+	private static final byte ETB = 0x17;
+
+	private static final String MESSAGE = "H|\\^&|||ARCHITECT\rP|1\rR|1|^^^GLU|98|mg/dL\rL|1|N\r";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final List<String> handled = new CopyOnWriteArrayList<>();
+	private volatile boolean rejecting;
+	private CommunicationConfig communication;
+	private SerialListener listener;
+	private LoopbackSerialChannel equipment;
+
+	@BeforeEach
+	void setUp(TestInfo test) {
+		EquipmentConfig config = new EquipmentConfig();
+		config.setName("ARCHITECT");
+		config.setProtocol(ProtocolType.ASTM);
+		communication = new CommunicationConfig();
+		communication.setType(CommunicationType.SERIAL);
+		communication.setPortName(LoopbackSerialPorts.PREFIX + test.getTestMethod().orElseThrow().getName());
+		config.setCommunication(communication);
+		MessageHandler handler = (message, source) -> {
+			handled.add(message);
+			if (rejecting) {
+				throw new MessageRejectedException("Equipamento ARCHITECT: mensagem recusada",
+						new RejectedExecutionException("limite de 2 resultado(s) simultâneo(s) do equipamento ocupado"));
+			}
+			return null;
+		};
+		equipment = LoopbackSerialPorts.equipmentEnd(communication);
+		listener = new SerialListener(config, handler, mock(MessageAuditService.class),
+				new LabMetrics(registry, new MessageTracer()).forEquipment(config), new EquipmentProperties.Reconnect());
+		new Thread(listener).start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		listener.close();
+		equipment.close();
+		LoopbackSerialPorts.unplug(communication.getPortName());
+	}
+
+	@Test
+	void frameComChecksumErradoRecebeNakEORetransmitidoEProcessado() throws InterruptedException {
+		assertThat(send(ENQ)).isEqualTo(ACK);
+
+		byte[] frame = frame('1', MESSAGE);
+		byte[] corrupted = frame.clone();
+		corrupted[5] ^= 0x01;
+		assertThat(send(corrupted)).isEqualTo(NAK);
+		assertThat(handled).isEmpty();
+
+		assertThat(send(frame)).isEqualTo(ACK);
+		equipment.write(new byte[]{EOT}, 1);
+
+		assertThat(handled).containsExactly(MESSAGE);
+		assertThat(naks("out")).isEqualTo(1.0);
+	}
+
+	@Test
+	void registrosDivididosEntreFramesChegamAoParserSemEnquadramento() throws InterruptedException {
+		assertThat(send(ENQ)).isEqualTo(ACK);
+
+		// O registro R é cortado no meio: o primeiro frame termina em ETB, o segundo em ETX
+		int split = MESSAGE.indexOf("^^^GLU") + 3;
+		assertThat(send(frame('1', MESSAGE.substring(0, split), ETB))).isEqualTo(ACK);
+		assertThat(handled).isEmpty();
+		assertThat(send(frame('2', MESSAGE.substring(split), ETX))).isEqualTo(ACK);
+
+		assertThat(handled).containsExactly(MESSAGE);
+	}
+
+	@Test
+	void mensagemRecusadaPeloBulkheadRecebeNakNoUltimoFrame() throws InterruptedException {
+		rejecting = true;
+		assertThat(send(ENQ)).isEqualTo(ACK);
+
+		assertThat(send(frame('1', MESSAGE))).isEqualTo(NAK);
+		assertThat(handled).hasSize(1);
+
+		// Retransmissão do frame com o bulkhead livre: processada e confirmada
+		rejecting = false;
+		assertThat(send(frame('1', MESSAGE))).isEqualTo(ACK);
+		assertThat(handled).hasSize(2).allSatisfy(message -> assertThat(message).contains("L|1|N"));
+	}
+
+	@Test
+	void desistenciaAposNakDescartaAMensagemParcial() throws InterruptedException {
+		rejecting = true;
+		assertThat(send(ENQ)).isEqualTo(ACK);
+		assertThat(send(frame('1', MESSAGE))).isEqualTo(NAK);
+
+		rejecting = false;
+		equipment.write(new byte[]{EOT}, 1);
+		// Próxima transmissão: a linha volta ao estado neutro sem processar o conteúdo recusado
+		assertThat(send(ENQ)).isEqualTo(ACK);
+		assertThat(handled).hasSize(1);
+	}
+
+	private byte send(byte control) throws InterruptedException {
+		return send(new byte[]{control});
+	}
+
+	// Envia os bytes pela ponta do equipamento e devolve a primeira resposta do listener (ACK/NAK)
+	private byte send(byte[] data) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!listener.isPortOpen()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+		equipment.write(data, data.length);
+		byte[] reply = equipment.await(TimeUnit.SECONDS.toNanos(5));
+		assertThat(reply).isNotNull().isNotEmpty();
+		return reply[0];
+	}
+
+	private static byte[] frame(char number, String text) {
+		return frame(number, text, ETX);
+	}
+
+	// Frame ASTM E1381: STX, número, texto, ETX/ETB, checksum (soma do número até o ETX/ETB, módulo 256), CR LF
+	private static byte[] frame(char number, String text, byte terminator) {
+		byte[] body = (number + text + (char) terminator).getBytes(StandardCharsets.ISO_8859_1);
+		int sum = 0;
+		for (byte b : body) {
+			sum += b & 0xFF;
+		}
+		byte[] checksum = String.format("%02X\r\n", sum & 0xFF).getBytes(StandardCharsets.ISO_8859_1);
+		byte[] frame = new byte[1 + body.length + checksum.length];
+		frame[0] = STX;
+		System.arraycopy(body, 0, frame, 1, body.length);
+		System.arraycopy(checksum, 0, frame, 1 + body.length, checksum.length);
+		return frame;
+	}
+
+	private double naks(String direction) {
+		return registry.get("lab.equipment.naks").tag("direction", direction).counter().count();
+	}
+}
@@ -0,0 +1,141 @@
+package com.lab.api.integration.common;
+
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SerialPortSupervisorTest {
+
+	private final EquipmentProperties.Reconnect policy = new EquipmentProperties.Reconnect();
+	private final EquipmentConfig config = new EquipmentConfig();
+	private final LabMetrics labMetrics = new LabMetrics(new SimpleMeterRegistry(), new MessageTracer());
+
+	@BeforeEach
+	void setUp() {
+		CommunicationConfig communication = new CommunicationConfig();
+		communication.setType(CommunicationType.SERIAL);
+		communication.setPortName("COM9");
+		config.setName("ARCHITECT");
+		config.setProtocol(ProtocolType.ASTM);
+		config.setCommunication(communication);
+		policy.setInitialDelayMs(500);
+		policy.setMultiplier(2.0);
+		policy.setMaxDelayMs(5000);
+	}
+
+	@Test
+	void backoffDobraACadaTentativaAteOMaximo() {
+		policy.setJitter(0);
+
+		assertThat(IntStream.range(0, 7).mapToObj(attempts -> afterFailedOpens(attempts).nextDelayMillis()))
+				.containsExactly(500L, 1000L, 2000L, 4000L, 5000L, 5000L, 5000L);
+	}
+
+	@Test
+	void jitterSoReduzAEsperaAteAFracaoConfigurada() {
+		policy.setJitter(0.5);
+
+		assertDelaysBetween(afterFailedOpens(0), 250, 500);
+		assertDelaysBetween(afterFailedOpens(2), 1000, 2000);
+		// No teto, o jitter continua abaixo do máximo (nunca soma à espera)
+		assertDelaysBetween(afterFailedOpens(10), 2500, 5000);
+	}
+
+	@Test
+	void jitterTotalNuncaZeraAEspera() {
+		policy.setJitter(1.0);
+
+		assertDelaysBetween(afterFailedOpens(0), 1, 500);
+	}
+
+	@Test
+	void reabreComBackoffEVoltaAEsperaInicialDepoisDeReaberta() throws InterruptedException {
+		policy.setInitialDelayMs(100);
+		policy.setJitter(0);
+		policy.setCheckIntervalMs(10);
+		// Duas falhas de abertura, abre, perde a porta e reabre
+		ScriptedPort port = new ScriptedPort(false, false, true, true);
+		SerialPortSupervisor supervisor = new SerialPortSupervisor(config, policy, labMetrics.forEquipment(config), port);
+		port.supervisor = supervisor;
+		port.lossAfterOpen = 3;
+		Thread thread = new Thread(supervisor::run);
+		thread.start();
+		thread.join(TimeUnit.SECONDS.toMillis(5));
+		assertThat(thread.isAlive()).isFalse();
+
+		List<Long> opens = port.opensAtMillis;
+		assertThat(opens).hasSize(4);
+		assertThat(opens.get(1) - opens.get(0)).isGreaterThanOrEqualTo(100);
+		assertThat(opens.get(2) - opens.get(1)).isGreaterThanOrEqualTo(200);
+		// Após reabrir, a próxima perda recomeça da espera inicial (sem o reset seria 400 ms)
+		assertThat(opens.get(3) - opens.get(2)).isBetween(100L, 300L);
+		assertThat(port.releases).isEqualTo(1);
+	}
+
+	// Supervisor cuja porta falhou 'attempts' vezes seguidas (sem esperar o backoff: cada falha pede nova tentativa)
+	private SerialPortSupervisor afterFailedOpens(int attempts) {
+		ScriptedPort port = new ScriptedPort();
+		SerialPortSupervisor supervisor = new SerialPortSupervisor(config, policy, labMetrics.forEquipment(config), port);
+		port.supervisor = supervisor;
+		port.stopAtOpen = attempts;
+		if (attempts > 0) {
+			supervisor.run();
+		}
+		return supervisor;
+	}
+
+	private static void assertDelaysBetween(SerialPortSupervisor supervisor, long min, long max) {
+		List<Long> delays = IntStream.range(0, 500).mapToObj(i -> supervisor.nextDelayMillis()).toList();
+		assertThat(delays).allSatisfy(delay -> assertThat(delay).isBetween(min, max));
+		assertThat(delays.stream().distinct().count()).isGreaterThan(1);
+	}
+
+	private static class ScriptedPort implements SerialPortSupervisor.Port {
+		private final boolean[] openResults;
+		private final List<Long> opensAtMillis = new CopyOnWriteArrayList<>();
+		private SerialPortSupervisor supervisor;
+		private int stopAtOpen = -1;
+		private int lossAfterOpen = -1;
+		private volatile int releases;
+
+		ScriptedPort(boolean... openResults) {
+			this.openResults = openResults;
+		}
+
+		@Override
+		public boolean open() {
+			opensAtMillis.add(System.currentTimeMillis());
+			int count = opensAtMillis.size();
+			if (count == stopAtOpen || openResults.length > 0 && count == openResults.length) {
+				supervisor.stop();
+			} else if (openResults.length == 0) {
+				supervisor.retryNow();
+			}
+			return count <= openResults.length && openResults[count - 1];
+		}
+
+		@Override
+		public boolean isAlive() {
+			return opensAtMillis.size() != lossAfterOpen;
+		}
+
+		@Override
+		public void release() {
+			releases++;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.lab.api.integration.common;
+
+import com.lab.api.config.CommunicationConfig;
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.domain.CommunicationType;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.log.MessageAuditService;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TcpListenerTest {
+
+	private static final String ORU = "MSH|^~\\&|ARCHITECT|LAB|LIS|HOSP|20240101120000||ORU^R01|MSG001|P|2.5.1\r"
+			+ "PID|1||12345\r"
+			+ "OBR|1|ORD1\r";
+
+	@Test
+	void ackDeAceiteInverteRemetenteEDestinatario() {
+		String ack = TcpListener.buildAck(ORU, TcpListener.ACK_ACCEPTED, null);
+
+		String[] segments = ack.split("\r");
+		assertThat(segments).hasSize(2);
+		assertThat(segments[0]).matches("MSH\\|\\^~\\\\&\\|LIS\\|HOSP\\|ARCHITECT\\|LAB\\|\\d{14}\\|\\|ACK\\^R01\\|ACKMSG001\\|P\\|2\\.5\\.1");
+		assertThat(segments[1]).isEqualTo("MSA|AA|MSG001");
+	}
+
+	@Test
+	void ackDeErroLevaOMotivoNoMsa3() {
+		String ack = TcpListener.buildAck(ORU, TcpListener.ACK_ERROR, "Falha ao processar a mensagem: OBX|sem valor");
+
+		assertThat(ack).endsWith("\rMSA|AE|MSG001|Falha ao processar a mensagem: OBX sem valor\r");
+	}
+
+	@Test
+	void motivoSemDelimitadoresELimitadoA80Caracteres() {
+		String ack = TcpListener.buildAck(ORU, TcpListener.ACK_REJECTED, "a^b~c\\d&e\r\n" + "x".repeat(100));
+
+		String msa = ack.split("\r")[1];
+		String text = msa.substring("MSA|AR|MSG001|".length());
+		assertThat(msa).startsWith("MSA|AR|MSG001|a b c d e");
+		assertThat(text).hasSize(80).doesNotContain("|", "^", "~", "\\", "&");
+	}
+
+	@Test
+	void semMshNaoHaAck() {
+		assertThat(TcpListener.buildAck("PID|1||12345\r", TcpListener.ACK_ACCEPTED, null)).isNull();
+	}
+
+	@Test
+	void mensagemRecusadaPeloBulkheadRecebeMsaAr() throws Exception {
+		MessageHandler rejecting = (message, source) -> {
+			throw new MessageRejectedException("Equipamento ARCHITECT: mensagem recusada",
+					new RejectedExecutionException("limite de 2 resultado(s) simultâneo(s) do equipamento ocupado"));
+		};
+
+		assertThat(exchange(rejecting)).startsWith("MSH|").contains("\rMSA|AR|MSG001|Equipamento ARCHITECT: mensagem recusada\r");
+	}
+
+	@Test
+	void falhaNoProcessamentoRecebeMsaAe() throws Exception {
+		MessageHandler failing = (message, source) -> {
+			throw new MessageProcessingException("Falha ao processar a mensagem: banco indisponível", new IllegalStateException());
+		};
+
+		assertThat(exchange(failing)).contains("\rMSA|AE|MSG001|Falha ao processar a mensagem: banco indisponível\r");
+	}
+
+	@Test
+	void mensagemProcessadaRecebeMsaAa() throws Exception {
+		assertThat(exchange((message, source) -> null)).endsWith("\rMSA|AA|MSG001\r");
+	}
+
+	// Envia ORU em um bloco MLLP para um TcpListener real e devolve a resposta recebida
+	private static String exchange(MessageHandler handler) throws Exception {
+		EquipmentConfig config = new EquipmentConfig();
+		config.setName("ARCHITECT");
+		config.setProtocol(ProtocolType.HL7);
+		CommunicationConfig communication = new CommunicationConfig();
+		communication.setType(CommunicationType.TCP);
+		communication.setPort(freePort());
+		config.setCommunication(communication);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		TcpListener listener = new TcpListener(config, handler, mock(MessageAuditService.class),
+				new LabMetrics(registry, new MessageTracer()).forEquipment(config));
+		Thread server = new Thread(listener);
+		server.start();
+		try (Socket socket = connect(communication.getPort())) {
+			socket.setSoTimeout(5000);
+			OutputStream output = socket.getOutputStream();
+			output.write(0x0B);
+			output.write(ORU.getBytes(StandardCharsets.ISO_8859_1));
+			output.write(new byte[]{0x1C, 0x0D});
+			output.flush();
+			return readBlock(socket.getInputStream());
+		} finally {
+			listener.stopIntake();
+			listener.close();
+			server.join(2000);
+		}
+	}
+
+	private static String readBlock(InputStream input) throws IOException {
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		int b;
+		while ((b = input.read()) != 0x1C) {
+			assertThat(b).isNotEqualTo(-1);
+			if (b != 0x0B) {
+				block.write(b);
+			}
+		}
+		return block.toString(StandardCharsets.ISO_8859_1);
+	}
+
+	private static Socket connect(int port) throws Exception {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return new Socket("localhost", port);
+			} catch (ConnectException e) {
+				if (attempt >= 50) {
+					throw e;
+				}
+				Thread.sleep(100);
+			}
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
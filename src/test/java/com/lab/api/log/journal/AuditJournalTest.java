@@ -0,0 +1,111 @@
+package com.lab.api.log.journal;
+
+import com.lab.api.config.AuditProperties;
+import com.lab.api.domain.ProtocolType;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditJournalTest {
+
+	private static final String EQUIPMENT = "ARCHITECT_CI8200";
+
+	@TempDir
+	Path journalDir;
+
+	@ParameterizedTest(name = "memoryMapped={0}")
+	@ValueSource(booleans = {false, true})
+	void gravaERelêOsRegistrosNaOrdem(boolean memoryMapped) throws IOException {
+		long now = AuditClock.nowNanos();
+		try (AuditJournal journal = journal(memoryMapped)) {
+			journal.append(EQUIPMENT, ProtocolType.HL7, RecordKind.MESSAGE_IN, now, 7, bytes("MSH|^~\\&|A"));
+			journal.append(EQUIPMENT, ProtocolType.HL7, RecordKind.MESSAGE_OUT, now + 1, 7, bytes("MSH|^~\\&|ACK"));
+			journal.append(EQUIPMENT, ProtocolType.ASTM, RecordKind.CONTROL_IN, now + 2, 8, new byte[]{0x05});
+			assertThat(journal.flush(5000)).isTrue();
+		}
+
+		List<JournalRecord> records = read(now);
+		assertThat(records).extracting(JournalRecord::getKind)
+				.containsExactly(RecordKind.MESSAGE_IN, RecordKind.MESSAGE_OUT, RecordKind.CONTROL_IN);
+		assertThat(records).extracting(JournalRecord::getExchangeId).containsExactly(7L, 7L, 8L);
+		assertThat(records.get(1).payloadAsString()).isEqualTo("MSH|^~\\&|ACK");
+		assertThat(records.get(2).getEpochNanos()).isEqualTo(now + 2);
+	}
+
+	@ParameterizedTest(name = "memoryMapped={0}")
+	@ValueSource(booleans = {false, true})
+	void reaberturaContinuaAposOUltimoRegistro(boolean memoryMapped) throws IOException {
+		long now = AuditClock.nowNanos();
+		try (AuditJournal journal = journal(memoryMapped)) {
+			journal.append(EQUIPMENT, ProtocolType.HL7, RecordKind.MESSAGE_IN, now, 1, bytes("primeira"));
+			journal.append(EQUIPMENT, ProtocolType.HL7, RecordKind.MESSAGE_IN, now + 1, 2, bytes("segunda"));
+		}
+		try (AuditJournal journal = journal(memoryMapped)) {
+			journal.append(EQUIPMENT, ProtocolType.HL7, RecordKind.MESSAGE_IN, now + 2, 3, bytes("após o reinício"));
+		}
+
+		assertThat(read(now)).extracting(JournalRecord::payloadAsString)
+				.containsExactly("primeira", "segunda", "após o reinício");
+	}
+
+	@ParameterizedTest(name = "memoryMapped={0}")
+	@ValueSource(booleans = {false, true})
+	void registroIncompletoNoFimÉDescartadoNaReabertura(boolean memoryMapped) throws IOException {
+		long now = AuditClock.nowNanos();
+		try (AuditJournal journal = journal(memoryMapped)) {
+			journal.append(EQUIPMENT, ProtocolType.ASTM, RecordKind.MESSAGE_IN, now, 1, bytes("H|\\^&\rL|1|N\r"));
+		}
+		Path segment = AuditJournal.segmentPath(journalDir, EQUIPMENT, dateOf(now));
+		long validEnd = JournalReader.forEach(segment, record -> true);
+		// Queda no meio de uma gravação: cabeçalho de um registro de 100 bytes seguido de só parte do payload
+		byte[] torn = new byte[30];
+		torn[3] = 100;
+		torn[10] = 0x42;
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(torn), validEnd);
+		}
+
+		try (AuditJournal journal = journal(memoryMapped)) {
+			journal.append(EQUIPMENT, ProtocolType.ASTM, RecordKind.MESSAGE_IN, now + 1, 2, bytes("depois da falha"));
+		}
+
+		List<JournalRecord> records = read(now);
+		assertThat(records).extracting(JournalRecord::getExchangeId).containsExactly(1L, 2L);
+		assertThat(records.get(1).getOffset()).isEqualTo(validEnd);
+	}
+
+	private AuditJournal journal(boolean memoryMapped) {
+		AuditProperties.Journal settings = new AuditProperties.Journal();
+		settings.setMemoryMapped(memoryMapped);
+		settings.setMmapChunkBytes(64 * 1024);
+		return new AuditJournal(journalDir, settings, null);
+	}
+
+	private List<JournalRecord> read(long epochNanos) throws IOException {
+		List<JournalRecord> records = new ArrayList<>();
+		JournalReader.forEach(AuditJournal.segmentPath(journalDir, EQUIPMENT, dateOf(epochNanos)), records::add);
+		return records;
+	}
+
+	private static LocalDate dateOf(long epochNanos) {
+		return Instant.ofEpochSecond(0, epochNanos).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
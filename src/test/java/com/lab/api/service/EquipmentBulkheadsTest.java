@@ -0,0 +1,99 @@
+package com.lab.api.service;
+
+import com.lab.api.config.EquipmentConfig;
+import com.lab.api.config.EquipmentProperties;
+import com.lab.api.domain.ProtocolType;
+import com.lab.api.metrics.LabMetrics;
+import com.lab.api.metrics.MessageTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EquipmentBulkheadsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final EquipmentConfig equipment = new EquipmentConfig();
+	private EquipmentBulkheads bulkheads;
+
+	@BeforeEach
+	void setUp() {
+		EquipmentProperties properties = new EquipmentProperties();
+		properties.getBulkhead().setMaxConcurrentResults(1);
+		properties.getBulkhead().setMaxConcurrentQueries(1);
+		properties.getBulkhead().setMaxWaitMs(50);
+		equipment.setName("ARCHITECT");
+		equipment.setProtocol(ProtocolType.ASTM);
+		bulkheads = new EquipmentBulkheads(properties, new LabMetrics(registry, new MessageTracer()), registry);
+	}
+
+	@Test
+	void recusaOResultadoQuandoACotaDoEquipamentoNaoLiberaNoPrazo() throws InterruptedException {
+		CountDownLatch busy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread holder = new Thread(() -> bulkheads.result(equipment, () -> {
+			busy.countDown();
+			await(release);
+		}));
+		holder.start();
+		assertThat(busy.await(2, TimeUnit.SECONDS)).isTrue();
+		try {
+			assertThatThrownBy(() -> bulkheads.result(equipment, () -> { }))
+					.isInstanceOf(RejectedExecutionException.class)
+					.hasMessageContaining("ARCHITECT")
+					.hasMessageContaining("resultado não processado");
+		} finally {
+			release.countDown();
+			holder.join(2000);
+		}
+		assertThat(rejected("result")).isEqualTo(1.0);
+		assertThat(rejected("query")).isZero();
+	}
+
+	@Test
+	void queriesNaoDisputamACotaDosResultados() throws InterruptedException {
+		CountDownLatch busy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread holder = new Thread(() -> bulkheads.result(equipment, () -> {
+			busy.countDown();
+			await(release);
+		}));
+		holder.start();
+		assertThat(busy.await(2, TimeUnit.SECONDS)).isTrue();
+		try {
+			assertThat(bulkheads.query(equipment, () -> "O|1")).isEqualTo("O|1");
+		} finally {
+			release.countDown();
+			holder.join(2000);
+		}
+		assertThat(rejected("query")).isZero();
+	}
+
+	@Test
+	void liberaAVagaQuandoOProcessamentoFalha() {
+		assertThatThrownBy(() -> bulkheads.result(equipment, () -> {
+			throw new IllegalStateException("falha no parser");
+		})).isInstanceOf(IllegalStateException.class);
+
+		bulkheads.result(equipment, () -> { });
+		assertThat(rejected("result")).isZero();
+	}
+
+	private double rejected(String type) {
+		return registry.get("lab.bulkhead.rejected").tag("type", type).counter().count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
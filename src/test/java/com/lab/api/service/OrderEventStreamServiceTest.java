@@ -0,0 +1,164 @@
+package com.lab.api.service;
+
+import com.lab.api.controller.OrderResponseDto;
+import com.lab.api.domain.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventStreamServiceTest {
+
+	private static final Pattern EVENT_ID = Pattern.compile("id:(\\d+)");
+
+	private OrderEventStreamService service;
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void reenviaSoOsEventosPosterioresAoLastEventId() throws Exception {
+		service = new OrderEventStreamService(16, 100, 60000, 2);
+		RecordingEmitter first = new RecordingEmitter();
+		service.subscribe(first, null, null, null);
+		publish(1, 2, 3);
+		waitFor(() -> first.events.size() == 3);
+
+		RecordingEmitter reconnected = new RecordingEmitter();
+		service.subscribe(reconnected, null, null, first.idAt(0));
+		waitFor(() -> reconnected.events.size() == 2);
+
+		assertThat(reconnected.ids()).containsExactly(first.idAt(1), first.idAt(2));
+		assertThat(reconnected.events).allMatch(event -> event.contains("event:" + OrderEventStreamService.EVENT_COMPLETED));
+	}
+
+	@Test
+	void replayRespeitaOFiltroDaAssinatura() throws Exception {
+		service = new OrderEventStreamService(16, 100, 60000, 2);
+		RecordingEmitter first = new RecordingEmitter();
+		service.subscribe(first, null, null, null);
+		publish(1, 2, 3);
+		waitFor(() -> first.events.size() == 3);
+
+		RecordingEmitter reconnected = new RecordingEmitter();
+		service.subscribe(reconnected, "s3", null, first.idAt(0));
+		waitFor(() -> reconnected.events.size() == 1);
+
+		assertThat(reconnected.ids()).containsExactly(first.idAt(2));
+	}
+
+	@Test
+	void enviaResyncQuandoOHistoricoNaoCobreOLastEventId() throws Exception {
+		service = new OrderEventStreamService(16, 2, 60000, 2);
+		RecordingEmitter first = new RecordingEmitter();
+		service.subscribe(first, null, null, null);
+		publish(1, 2, 3, 4);
+		waitFor(() -> first.events.size() == 4);
+
+		// O histórico guarda só os eventos 3 e 4: o 2 se perdeu
+		RecordingEmitter reconnected = new RecordingEmitter();
+		service.subscribe(reconnected, null, null, first.idAt(0));
+		waitFor(() -> reconnected.events.size() == 1);
+
+		assertThat(reconnected.events.get(0)).contains("event:" + OrderEventStreamService.EVENT_RESYNC);
+	}
+
+	@Test
+	void desconectaAssinanteLentoQuandoOBufferEnche() throws Exception {
+		service = new OrderEventStreamService(2, 100, 60000, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingEmitter slow = new RecordingEmitter(release);
+		service.subscribe(slow, null, null, null);
+
+		publish(1);
+		// O envio do primeiro evento fica preso; os próximos dois ocupam o buffer e o quarto o estoura
+		assertThat(slow.sending.await(5, TimeUnit.SECONDS)).isTrue();
+		publish(2, 3);
+		assertThat(slow.completed).isFalse();
+		publish(4);
+
+		assertThat(slow.completed).isTrue();
+		assertThat(service.getSubscriberCount()).isZero();
+		release.countDown();
+		// Depois de liberado, o envio em andamento termina e nada mais do buffer descartado é enviado
+		Thread.sleep(200);
+		assertThat(slow.events).hasSize(1);
+	}
+
+	private void publish(int... orderIds) {
+		for (int id : orderIds) {
+			OrderResponseDto order = new OrderResponseDto();
+			order.setId((long) id);
+			order.setSampleId("S" + id);
+			order.setTestType("GLU");
+			order.setStatus(OrderStatus.COMPLETED.name());
+			order.setVersion(1L);
+			service.onOrderChanged(new OrderChangedEvent(order));
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	// Registra o texto de cada evento enviado; com 'release', segura o envio até a liberação (cliente lento)
+	private static class RecordingEmitter extends SseEmitter {
+		private final List<String> events = new CopyOnWriteArrayList<>();
+		private final CountDownLatch sending = new CountDownLatch(1);
+		private final CountDownLatch release;
+		private volatile boolean completed;
+
+		RecordingEmitter() {
+			this(new CountDownLatch(0));
+		}
+
+		RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			sending.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			events.add(builder.build().stream()
+					.map(part -> part.getData() instanceof String text ? text : "{}")
+					.collect(Collectors.joining()));
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+		}
+
+		long idAt(int index) {
+			return ids().get(index);
+		}
+
+		List<Long> ids() {
+			return events.stream().map(EVENT_ID::matcher).filter(Matcher::find)
+					.map(matcher -> Long.parseLong(matcher.group(1))).toList();
+		}
+	}
+}
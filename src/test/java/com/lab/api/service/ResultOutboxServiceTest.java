@@ -0,0 +1,138 @@
+package com.lab.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lab.api.config.ClusterProperties;
+import com.lab.api.config.WebhookProperties;
+import com.lab.api.domain.OutboxStatus;
+import com.lab.api.domain.ResultOutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResultOutboxServiceTest {
+
+	private final ResultOutboxRepository repository = mock(ResultOutboxRepository.class);
+	private final WebhookProperties properties = new WebhookProperties();
+	private final ClusterProperties clusterProperties = new ClusterProperties();
+	private ResultOutboxService service;
+
+	@BeforeEach
+	void setUp() {
+		properties.setMaxAttempts(5);
+		properties.setInitialBackoffMs(1000);
+		properties.setMaxBackoffMs(5000);
+		clusterProperties.setNodeId("no-a");
+		when(repository.reschedule(anyLong(), anyInt(), any(), any(), any(), anyString())).thenReturn(1);
+		service = new ResultOutboxService(repository, properties, clusterProperties, new ObjectMapper());
+	}
+
+	@Test
+	void reagendaComBackoffExponencialEJitter() {
+		// Jitter de 50% a 100% de initial-backoff-ms * 2^(tentativas - 1)
+		assertBackoff(0, 500, 1000);
+		assertBackoff(1, 1000, 2000);
+		assertBackoff(2, 2000, 4000);
+	}
+
+	@Test
+	void backoffNaoPassaDoMaximo() {
+		properties.setMaxAttempts(20);
+		assertBackoff(3, 2500, 5000);
+		assertBackoff(10, 2500, 5000);
+	}
+
+	@Test
+	void marcaFailedAoAtingirMaxAttempts() {
+		ResultOutboxEvent event = pending(4);
+		LocalDateTime previous = event.getNextAttemptAt();
+
+		service.markRetry(List.of(event), "HTTP 503");
+
+		assertThat(event.getAttempts()).isEqualTo(5);
+		assertThat(event.getStatus()).isEqualTo(OutboxStatus.FAILED);
+		assertThat(event.getNextAttemptAt()).isEqualTo(previous);
+		assertThat(event.getLastError()).isEqualTo("HTTP 503");
+	}
+
+	@Test
+	void truncaOErroGravado() {
+		ResultOutboxEvent event = pending(0);
+
+		service.markRetry(List.of(event), "x".repeat(1500));
+
+		assertThat(event.getLastError()).hasSize(1000);
+		assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+		verify(repository).reschedule(eq(1L), eq(1), eq(OutboxStatus.PENDING), any(), eq("x".repeat(1000)), eq("no-a"));
+	}
+
+	@Test
+	void naoReagendaEventoReservadoPorOutroNo() {
+		// O UPDATE condicional não encontra a linha (entregue ou reservada por outro nó): nada é contado como FAILED
+		when(repository.reschedule(anyLong(), anyInt(), any(), any(), any(), anyString())).thenReturn(0);
+		ResultOutboxEvent event = pending(4);
+
+		service.markRetry(List.of(event), "HTTP 503");
+
+		verify(repository).reschedule(eq(1L), eq(5), eq(OutboxStatus.FAILED), any(), eq("HTTP 503"), eq("no-a"));
+		verify(repository, never()).saveAll(any());
+	}
+
+	@Test
+	void reivindicaSoAsLinhasVencidasParaEsteNo() {
+		when(repository.findDueIds(any(), any())).thenReturn(List.of(1L, 2L));
+		ResultOutboxEvent event = pending(0);
+		when(repository.findByIdInAndClaimedByAndStatusOrderByIdAsc(List.of(1L, 2L), "no-a", OutboxStatus.PENDING))
+				.thenReturn(List.of(event));
+
+		assertThat(service.claimDue(10)).containsExactly(event);
+		verify(repository).claim(eq(List.of(1L, 2L)), eq("no-a"), any(), any());
+	}
+
+	@Test
+	void naoReivindicaQuandoNaoHaPendentes() {
+		when(repository.findDueIds(any(), any())).thenReturn(List.of());
+
+		assertThat(service.claimDue(10)).isEmpty();
+		verify(repository, never()).claim(any(), any(), any(), any());
+	}
+
+	private void assertBackoff(int attempts, long minMillis, long maxMillis) {
+		for (int i = 0; i < 50; i++) {
+			ResultOutboxEvent event = pending(attempts);
+			LocalDateTime before = LocalDateTime.now();
+			service.markRetry(List.of(event), "timeout");
+			LocalDateTime after = LocalDateTime.now();
+
+			assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+			assertThat(event.getAttempts()).isEqualTo(attempts + 1);
+			assertThat(event.getNextAttemptAt())
+					.isAfterOrEqualTo(before.plus(Duration.ofMillis(minMillis)))
+					.isBeforeOrEqualTo(after.plus(Duration.ofMillis(maxMillis)));
+		}
+	}
+
+	private static ResultOutboxEvent pending(int attempts) {
+		ResultOutboxEvent event = new ResultOutboxEvent();
+		event.setId(1L);
+		event.setOrderId(10L);
+		event.setStatus(OutboxStatus.PENDING);
+		event.setAttempts(attempts);
+		event.setCreatedAt(LocalDateTime.now());
+		event.setNextAttemptAt(event.getCreatedAt());
+		return event;
+	}
+}